@@ -0,0 +1,54 @@
+package com.bloomberg.clustereddata.benchmark;
+
+import com.bloomberg.clustereddata.util.CsvDealParser;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Rows per second through {@link CsvDealParser}; with {@code -prof gc}, {@code gc.alloc.rate.norm} is the
+ * allocation per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvDealParserBenchmark {
+
+    static final int ROWS = 100_000;
+
+    @Param
+    private DealCsvShape shape;
+
+    private final CsvDealParser parser = new CsvDealParser();
+    private MockMultipartFile file;
+
+    @Setup
+    public void setUp() {
+        file = new MockMultipartFile("file", "deals.csv", "text/csv", shape.generate(ROWS));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parse(Blackhole blackhole) {
+        try (Stream<DealCsvRow> rows = parser.stream(file)) {
+            rows.forEach(blackhole::consume);
+        }
+    }
+}
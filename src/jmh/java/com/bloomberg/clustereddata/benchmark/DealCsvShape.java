@@ -0,0 +1,75 @@
+package com.bloomberg.clustereddata.benchmark;
+
+import com.bloomberg.clustereddata.util.CsvDealParser;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic CSV files in the import format. Generation is seeded, so every run and every fork benchmarks the
+ * same bytes.
+ */
+public enum DealCsvShape {
+
+    /** Unique ids, every row valid. */
+    CLEAN {
+        @Override
+        String row(int index, SplittableRandom random, int rows) {
+            return validRow("FX-" + index, random, index);
+        }
+    },
+
+    /** Four rows in five fail parsing or validation, in a mix of the ways files break in practice. */
+    MOSTLY_INVALID {
+        @Override
+        String row(int index, SplittableRandom random, int rows) {
+            String id = "FX-" + index;
+            return switch (index % 5) {
+                case 0 -> validRow(id, random, index);
+                case 1 -> id + ",USD,ZZZ," + timestamp(index) + ",100.00";
+                case 2 -> id + ",USD,EUR,not-a-timestamp,100.00";
+                case 3 -> id + ",USD,EUR," + timestamp(index) + ",-5";
+                default -> id + ",USD";
+            };
+        }
+    },
+
+    /** Valid rows whose ids are drawn from a pool a tenth the size of the file. */
+    HEAVY_DUPLICATES {
+        @Override
+        String row(int index, SplittableRandom random, int rows) {
+            return validRow("FX-" + random.nextInt(Math.max(1, rows / 10)), random, index);
+        }
+    };
+
+    private static final String[][] PAIRS = {
+        {"USD", "EUR"}, {"EUR", "USD"}, {"USD", "JPY"}, {"GBP", "USD"}, {"EUR", "GBP"}, {"AUD", "USD"},
+        {"USD", "CHF"}, {"USD", "CAD"}
+    };
+    private static final long START = Instant.parse("2024-11-25T00:00:00Z").getEpochSecond();
+
+    abstract String row(int index, SplittableRandom random, int rows);
+
+    /**
+     * @return a file with a header and {@code rows} data rows
+     */
+    public byte[] generate(int rows) {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder csv = new StringBuilder(rows * 64).append(CsvDealParser.HEADER_ROW).append('\n');
+        for (int i = 0; i < rows; i++) {
+            csv.append(row(i, random, rows)).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String validRow(String id, SplittableRandom random, int index) {
+        String[] pair = PAIRS[random.nextInt(PAIRS.length)];
+        long cents = 100 + random.nextLong(100_000_000L);
+        return id + "," + pair[0] + "," + pair[1] + "," + timestamp(index) + "," + cents / 100 + "."
+                + String.format("%02d", cents % 100);
+    }
+
+    private static Instant timestamp(int index) {
+        return Instant.ofEpochSecond(START + index);
+    }
+}
@@ -0,0 +1,168 @@
+package com.bloomberg.clustereddata.benchmark;
+
+import com.bloomberg.clustereddata.config.DealImportProperties;
+import com.bloomberg.clustereddata.config.DealShardingProperties;
+import com.bloomberg.clustereddata.config.DuplicateDetectionProperties;
+import com.bloomberg.clustereddata.config.ImportAdmissionProperties;
+import com.bloomberg.clustereddata.config.ImportFailureReportProperties;
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.repository.DealShards;
+import com.bloomberg.clustereddata.service.BatchDealImportWriter;
+import com.bloomberg.clustereddata.service.DealDuplicateDetector;
+import com.bloomberg.clustereddata.service.DealPersistenceService;
+import com.bloomberg.clustereddata.service.DealService;
+import com.bloomberg.clustereddata.service.ImportAdmission;
+import com.bloomberg.clustereddata.service.ImportFailureReports;
+import com.bloomberg.clustereddata.service.ImportMetrics;
+import com.bloomberg.clustereddata.service.ImportWorkers;
+import com.bloomberg.clustereddata.service.RowDealImportWriter;
+import com.bloomberg.clustereddata.util.CsvDealParser;
+import com.bloomberg.clustereddata.util.JsonDealParser;
+import com.bloomberg.clustereddata.validation.DealRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Rows per second through {@link DealService#importDeals(org.springframework.web.multipart.MultipartFile,
+ * ImportMode)}: parsing, validation, chunking across lanes, duplicate detection and the import writers. The
+ * database is replaced by an in-memory id set behind {@link DealPersistenceService}, so the numbers are the
+ * ceiling the service itself imposes; the {@code COPY} mode needs PostgreSQL and is left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DealImportBenchmark {
+
+    static final int ROWS = 100_000;
+
+    private static final DealShards SINGLE_SHARD = new DealShards(new DealShardingProperties(List.of()));
+
+    @Param
+    private DealCsvShape shape;
+
+    @Param({"ROW", "BATCH"})
+    private ImportMode mode;
+
+    @Param({"4"})
+    private int parallelism;
+
+    @Param({"true"})
+    private boolean preflight;
+
+    private final InMemoryDeals store = new InMemoryDeals();
+    private MockMultipartFile file;
+    private DealService dealService;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = new MockMultipartFile("file", "deals.csv", "text/csv", shape.generate(ROWS));
+        DealImportProperties importProperties = new DealImportProperties(500, 500, parallelism, mode);
+        DuplicateDetectionProperties duplicateProperties =
+                new DuplicateDetectionProperties(preflight, false, 0, 0.01);
+        ImportAdmission importAdmission = new ImportAdmission(
+                new ImportAdmissionProperties(1, 0, Duration.ZERO, Duration.ofSeconds(10), 0), null,
+                new SimpleMeterRegistry());
+        RowDealImportWriter rowWriter = new RowDealImportWriter(store);
+        dealService = new DealService(store, new CsvDealParser(), new JsonDealParser(new ObjectMapper()),
+                new DealRequestValidator(), importProperties,
+                List.of(rowWriter, new BatchDealImportWriter(store, rowWriter, importProperties, SINGLE_SHARD)),
+                new ImportWorkers(importProperties, importAdmission), new InMemoryDuplicateDetector(duplicateProperties, store),
+                new ImportMetrics(new SimpleMeterRegistry()),
+                new ImportFailureReports(new ImportFailureReportProperties(100,
+                        Files.createTempDirectory("deal-import-failures"), Duration.ofMinutes(1))),
+                importAdmission, Optional.empty(), Optional.empty());
+    }
+
+    @Setup(Level.Invocation)
+    public void clearStore() {
+        store.ids.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public DealImportSummary importDeals() {
+        return dealService.importDeals(file, mode);
+    }
+
+    /**
+     * Stores ids only; a duplicate fails like the unique constraint would.
+     */
+    private static final class InMemoryDeals extends DealPersistenceService {
+
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        private InMemoryDeals() {
+            super(null, null, null, null, null, SINGLE_SHARD, null);
+        }
+
+        @Override
+        public Deal save(Deal deal) {
+            if (!ids.add(deal.getDealUniqueId())) {
+                throw new DealAlreadyExistsException(deal.getDealUniqueId());
+            }
+            return deal;
+        }
+
+        @Override
+        public Set<String> saveBatch(List<Deal> deals) {
+            Set<String> inserted = new HashSet<>();
+            for (Deal deal : deals) {
+                if (ids.add(deal.getDealUniqueId())) {
+                    inserted.add(deal.getDealUniqueId());
+                }
+            }
+            return inserted;
+        }
+    }
+
+    private static final class InMemoryDuplicateDetector extends DealDuplicateDetector {
+
+        private final InMemoryDeals store;
+
+        private InMemoryDuplicateDetector(DuplicateDetectionProperties properties, InMemoryDeals store) {
+            super(properties, null, null);
+            this.store = store;
+        }
+
+        @Override
+        public Set<String> findExisting(Collection<String> dealUniqueIds) {
+            Set<String> existing = new HashSet<>();
+            for (String dealUniqueId : dealUniqueIds) {
+                if (store.ids.contains(dealUniqueId)) {
+                    existing.add(dealUniqueId);
+                }
+            }
+            return existing;
+        }
+    }
+}
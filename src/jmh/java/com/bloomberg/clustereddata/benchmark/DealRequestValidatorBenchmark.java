@@ -0,0 +1,76 @@
+package com.bloomberg.clustereddata.benchmark;
+
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.util.CsvDealParser;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import com.bloomberg.clustereddata.validation.CurrencyCodeValidator;
+import com.bloomberg.clustereddata.validation.DealRequestValidator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Rows per second through {@link DealRequestValidator} and its currency check. The requests are decoded once
+ * up front; rows of the shape that fail parsing are skipped and the rest are repeated to fill the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DealRequestValidatorBenchmark {
+
+    static final int ROWS = 100_000;
+
+    @Param
+    private DealCsvShape shape;
+
+    private final DealRequestValidator validator = new DealRequestValidator();
+    private final CurrencyCodeValidator currencyCodeValidator = new CurrencyCodeValidator();
+    private DealRequest[] requests;
+
+    @Setup
+    public void setUp() {
+        MockMultipartFile file = new MockMultipartFile("file", "deals.csv", "text/csv", shape.generate(ROWS));
+        List<DealRequest> decoded;
+        try (Stream<DealCsvRow> rows = new CsvDealParser().stream(file)) {
+            decoded = rows.filter(row -> !row.hasError()).map(DealCsvRow::dealRequest).toList();
+        }
+        requests = new DealRequest[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            requests[i] = decoded.get(i % decoded.size());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void validate(Blackhole blackhole) {
+        for (DealRequest request : requests) {
+            blackhole.consume(validator.validate(request));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void currencyCodes(Blackhole blackhole) {
+        for (DealRequest request : requests) {
+            blackhole.consume(currencyCodeValidator.isValid(request.getFromCurrencyIso(), null));
+            blackhole.consume(currencyCodeValidator.isValid(request.getToCurrencyIso(), null));
+        }
+    }
+}
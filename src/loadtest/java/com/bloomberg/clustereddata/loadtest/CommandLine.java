@@ -0,0 +1,68 @@
+package com.bloomberg.clustereddata.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * {@code --name value} arguments of the load-test tools. Unknown names are rejected so a typo does not
+ * silently run with a default.
+ */
+final class CommandLine {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private CommandLine() {
+    }
+
+    static CommandLine parse(String[] args, Set<String> names) {
+        CommandLine commandLine = new CommandLine();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option but got '" + arg + "'");
+            }
+            String name = arg.substring(2);
+            String value;
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                value = name.substring(equals + 1);
+                name = name.substring(0, equals);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value for --" + name);
+            }
+            if (!names.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", expected one of " + names);
+            }
+            commandLine.values.put(name, value);
+        }
+        return commandLine;
+    }
+
+    String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    <T> T get(String name, T defaultValue, Function<String, T> parser) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return parser.apply(value);
+        } catch (RuntimeException exception) {
+            throw new IllegalArgumentException("Invalid value for --" + name + ": " + value, exception);
+        }
+    }
+
+    String require(String name) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing required option --" + name);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,224 @@
+package com.bloomberg.clustereddata.loadtest;
+
+import com.bloomberg.clustereddata.util.CsvDealParser;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic deal files for load tests. The output depends only on the options, so a file can be
+ * regenerated anywhere instead of being shared.
+ *
+ * <pre>
+ * --out           target file (required)
+ * --rows          data rows to write (default 100000)
+ * --format        csv or ndjson (default csv)
+ * --invalid       share of rows broken in one of the {@link Defect} ways (default 0)
+ * --duplicates    share of rows reusing the id of an earlier row (default 0)
+ * --pairs         weighted currency pairs, e.g. USD/EUR=40,EUR/JPY=10 (default: a handful of majors)
+ * --start         first timestamp (default 2024-11-25T00:00:00Z)
+ * --span          ISO-8601 duration the timestamps are spread over (default P7D)
+ * --id-prefix     prefix of the generated ids (default LT-); change it to load the same file twice
+ * --seed          random seed (default 42)
+ * </pre>
+ * Ids of fresh rows are the prefix followed by a counter, so running the same file again only produces
+ * duplicates. The counts written per category are printed at the end.
+ */
+public final class DealFileGenerator {
+
+    private static final Set<String> OPTIONS = Set.of("out", "rows", "format", "invalid", "duplicates", "pairs",
+            "start", "span", "id-prefix", "seed");
+    private static final String DEFAULT_PAIRS = "USD/EUR=35,EUR/USD=20,USD/JPY=15,GBP/USD=10,EUR/GBP=8,"
+            + "AUD/USD=5,USD/CHF=4,USD/CAD=3";
+    private static final String[] JSON_FIELDS =
+            {"dealUniqueId", "fromCurrencyIso", "toCurrencyIso", "dealTimestamp", "dealAmount"};
+
+    /**
+     * Ways a generated row is made to fail, each reported by the import as a row failure.
+     */
+    enum Defect {
+        UNKNOWN_CURRENCY, MISSING_FIELD, BAD_TIMESTAMP, NON_POSITIVE_AMOUNT, BAD_AMOUNT, BLANK_ID
+    }
+
+    enum Format {
+        CSV, NDJSON
+    }
+
+    private final Format format;
+    private final int rows;
+    private final double invalidRate;
+    private final double duplicateRate;
+    private final String[][] pairs;
+    private final int[] cumulativeWeights;
+    private final long startSecond;
+    private final long spanSeconds;
+    private final String idPrefix;
+    private final SplittableRandom random;
+
+    private final Map<Defect, Integer> defects = new EnumMap<>(Defect.class);
+    private int freshIds;
+    private int duplicateIds;
+
+    DealFileGenerator(CommandLine options) {
+        this.format = options.get("format", Format.CSV, value -> Format.valueOf(value.toUpperCase(Locale.ROOT)));
+        this.rows = options.get("rows", 100_000, Integer::parseInt);
+        this.invalidRate = options.get("invalid", 0.0, DealFileGenerator::parseRate);
+        this.duplicateRate = options.get("duplicates", 0.0, DealFileGenerator::parseRate);
+        this.startSecond = options.get("start", Instant.parse("2024-11-25T00:00:00Z"), Instant::parse)
+                .getEpochSecond();
+        this.spanSeconds = Math.max(1, options.get("span", Duration.ofDays(7), Duration::parse).toSeconds());
+        this.idPrefix = options.get("id-prefix", "LT-");
+        this.random = new SplittableRandom(options.get("seed", 42L, Long::parseLong));
+
+        String[] entries = options.get("pairs", DEFAULT_PAIRS).split(",");
+        this.pairs = new String[entries.length][];
+        this.cumulativeWeights = new int[entries.length];
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] pairAndWeight = entries[i].trim().split("=");
+            String[] pair = pairAndWeight[0].split("/");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException(
+                        "Invalid currency pair '" + entries[i] + "', expected FROM/TO=weight");
+            }
+            pairs[i] = pair;
+            total += pairAndWeight.length > 1 ? Integer.parseInt(pairAndWeight[1]) : 1;
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLine options = CommandLine.parse(args, OPTIONS);
+        Path out = Path.of(options.require("out"));
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        DealFileGenerator generator = new DealFileGenerator(options);
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+            generator.write(writer);
+        }
+        System.out.printf("Wrote %s: %d rows, %d fresh ids, %d duplicate ids, invalid %s%n",
+                out, generator.rows, generator.freshIds, generator.duplicateIds, generator.defects);
+    }
+
+    void write(Writer writer) throws IOException {
+        if (format == Format.CSV) {
+            writer.write(CsvDealParser.HEADER_ROW);
+            writer.write('\n');
+        }
+        List<String> fields = new ArrayList<>(5);
+        for (int row = 0; row < rows; row++) {
+            fields.clear();
+            fields.add(nextId());
+            String[] pair = nextPair();
+            fields.add(pair[0]);
+            fields.add(pair[1]);
+            fields.add(Instant.ofEpochSecond(startSecond + random.nextLong(spanSeconds)).toString());
+            long cents = 1 + random.nextLong(1_000_000_000L);
+            fields.add(cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100);
+            if (random.nextDouble() < invalidRate) {
+                breakRow(fields);
+            }
+            if (format == Format.CSV) {
+                writeCsv(writer, fields);
+            } else {
+                writeJson(writer, fields);
+            }
+        }
+    }
+
+    private String nextId() {
+        if (freshIds > 0 && random.nextDouble() < duplicateRate) {
+            duplicateIds++;
+            return idPrefix + random.nextInt(freshIds);
+        }
+        return idPrefix + freshIds++;
+    }
+
+    private String[] nextPair() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return pairs[i];
+            }
+        }
+        return pairs[pairs.length - 1];
+    }
+
+    private void breakRow(List<String> fields) {
+        Defect[] values = Defect.values();
+        Defect defect = values[random.nextInt(values.length)];
+        defects.merge(defect, 1, Integer::sum);
+        switch (defect) {
+            case UNKNOWN_CURRENCY -> fields.set(1 + random.nextInt(2), "ZZZ");
+            case MISSING_FIELD -> fields.set(1 + random.nextInt(4), null);
+            case BAD_TIMESTAMP -> fields.set(3, "25/11/2024 10:15");
+            case NON_POSITIVE_AMOUNT -> fields.set(4, random.nextBoolean() ? "0" : "-" + fields.get(4));
+            case BAD_AMOUNT -> fields.set(4, fields.get(4) + "x");
+            case BLANK_ID -> fields.set(0, "");
+        }
+    }
+
+    /**
+     * Missing fields are left out entirely, so the row is short by a column.
+     */
+    private static void writeCsv(Writer writer, List<String> fields) throws IOException {
+        boolean first = true;
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            if (!first) {
+                writer.write(',');
+            }
+            writer.write(field);
+            first = false;
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Missing fields are omitted from the object. Values never need escaping: they are generated from
+     * letters, digits and {@code -:./ }.
+     */
+    private static void writeJson(Writer writer, List<String> fields) throws IOException {
+        writer.write('{');
+        boolean first = true;
+        for (int i = 0; i < JSON_FIELDS.length; i++) {
+            String value = fields.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (!first) {
+                writer.write(',');
+            }
+            writer.write('"');
+            writer.write(JSON_FIELDS[i]);
+            writer.write("\":\"");
+            writer.write(value);
+            writer.write('"');
+            first = false;
+        }
+        writer.write("}\n");
+    }
+
+    private static double parseRate(String value) {
+        double rate = Double.parseDouble(value);
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("must be between 0 and 1");
+        }
+        return rate;
+    }
+}
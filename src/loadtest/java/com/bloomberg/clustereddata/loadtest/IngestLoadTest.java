@@ -0,0 +1,315 @@
+package com.bloomberg.clustereddata.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Drives a running instance with one of three scenarios and reports throughput, latency percentiles and the
+ * server's heap and GC behaviour over the run.
+ *
+ * <pre>
+ * --scenario      import: upload the file to /api/v1/deals/import, once per request
+ *                 batch: send the file as NDJSON to /api/v1/deals/batch, once per request
+ *                 single: POST every CSV row of the file to /api/v1/deals
+ * --file          deal file, as written by {@link DealFileGenerator} (required)
+ * --base-url      default http://localhost:8080
+ * --concurrency   requests in flight (default 1, or 16 for single)
+ * --requests      uploads for import and batch (default 1); single sends each row once
+ * --warmup        requests run first and left out of the report (default 0)
+ * --mode          import mode passed to import and batch (default: the server's)
+ * </pre>
+ * Heap and GC figures are read from the actuator metrics endpoint: heap used is sampled every second, GC
+ * counters are compared before and after the run. They describe the whole server, including anything else
+ * it serves meanwhile.
+ */
+public final class IngestLoadTest {
+
+    private static final Set<String> OPTIONS =
+            Set.of("scenario", "file", "base-url", "concurrency", "requests", "warmup", "mode");
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] JSON_FIELDS =
+            {"dealUniqueId", "fromCurrencyIso", "toCurrencyIso", "dealTimestamp", "dealAmount"};
+
+    enum Scenario {
+        IMPORT, BATCH, SINGLE
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final Scenario scenario;
+    private final Path file;
+    private final String baseUrl;
+    private final int concurrency;
+    private final int uploads;
+    private final int warmup;
+    private final String mode;
+
+    private final Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+    private final AtomicLong rowsSubmitted = new AtomicLong();
+    private final AtomicLong rowsStored = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+
+    IngestLoadTest(CommandLine options) {
+        this.scenario = options.get("scenario", Scenario.IMPORT,
+                value -> Scenario.valueOf(value.toUpperCase(Locale.ROOT)));
+        this.file = Path.of(options.require("file"));
+        this.baseUrl = options.get("base-url", "http://localhost:8080");
+        this.concurrency = options.get("concurrency", scenario == Scenario.SINGLE ? 16 : 1, Integer::parseInt);
+        this.uploads = options.get("requests", 1, Integer::parseInt);
+        this.warmup = options.get("warmup", 0, Integer::parseInt);
+        this.mode = options.get("mode", null);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new IngestLoadTest(CommandLine.parse(args, OPTIONS)).run();
+    }
+
+    void run() throws Exception {
+        List<Call> calls = calls();
+        List<Call> warmupCalls = calls.subList(0, Math.min(warmup, calls.size()));
+        List<Call> measuredCalls = calls.subList(warmupCalls.size(), calls.size());
+        if (!warmupCalls.isEmpty()) {
+            System.out.printf("Warming up with %d requests%n", warmupCalls.size());
+            execute(warmupCalls, new long[warmupCalls.size()]);
+            statuses.clear();
+            rowsSubmitted.set(0);
+            rowsStored.set(0);
+            rowsFailed.set(0);
+        }
+
+        ServerMetrics before = ServerMetrics.read(this);
+        LongAccumulator peakHeap = new LongAccumulator(Math::max, before.heapUsed);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulate(metric("jvm.memory.used", "area:heap", "VALUE")),
+                1, 1, TimeUnit.SECONDS);
+
+        System.out.printf("Running %d %s requests with %d in flight against %s%n",
+                measuredCalls.size(), scenario.name().toLowerCase(Locale.ROOT), concurrency, baseUrl);
+        long[] latencies = new long[measuredCalls.size()];
+        long started = System.nanoTime();
+        execute(measuredCalls, latencies);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        sampler.shutdownNow();
+        ServerMetrics after = ServerMetrics.read(this);
+        report(seconds, latencies, before, after, peakHeap.get());
+    }
+
+    private List<Call> calls() throws IOException {
+        String query = mode != null ? "?mode=" + mode : "";
+        return switch (scenario) {
+            case IMPORT -> {
+                String boundary = "----loadtest" + UUID.randomUUID();
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/deals/import" + query))
+                        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                        .POST(multipart(boundary))
+                        .build();
+                yield Collections.nCopies(warmup + uploads, new Call(request, true));
+            }
+            case BATCH -> {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/deals/batch" + query))
+                        .header("Content-Type", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofFile(file))
+                        .build();
+                yield Collections.nCopies(warmup + uploads, new Call(request, true));
+            }
+            case SINGLE -> {
+                URI uri = URI.create(baseUrl + "/api/v1/deals");
+                try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                    yield lines.skip(1)
+                            .map(line -> new Call(HttpRequest.newBuilder(uri)
+                                    .header("Content-Type", "application/json")
+                                    .POST(HttpRequest.BodyPublishers.ofString(toJson(line)))
+                                    .build(), false))
+                            .toList();
+                }
+            }
+        };
+    }
+
+    private HttpRequest.BodyPublisher multipart(String boundary) throws IOException {
+        String head = "--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\""
+                + file.getFileName() + "\"\r\nContent-Type: text/csv\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        return HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofString(head),
+                HttpRequest.BodyPublishers.ofFile(file),
+                HttpRequest.BodyPublishers.ofString(tail));
+    }
+
+    /**
+     * Sends a CSV row as a single deal. Columns past the end of a short row are left out of the object.
+     */
+    private String toJson(String line) {
+        String[] columns = line.split(",", -1);
+        ObjectNode deal = objectMapper.createObjectNode();
+        for (int i = 0; i < Math.min(columns.length, JSON_FIELDS.length); i++) {
+            deal.put(JSON_FIELDS[i], columns[i]);
+        }
+        return deal.toString();
+    }
+
+    private void execute(List<Call> calls, long[] latencies) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                futures.add(workers.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < calls.size(); i = next.getAndIncrement()) {
+                        latencies[i] = send(calls.get(i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private long send(Call call) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<String> response = client.send(call.request, HttpResponse.BodyHandlers.ofString());
+        long latency = System.nanoTime() - started;
+        statuses.computeIfAbsent(response.statusCode(), status -> new AtomicInteger()).incrementAndGet();
+        if (!call.summarised) {
+            rowsSubmitted.incrementAndGet();
+            (response.statusCode() / 100 == 2 ? rowsStored : rowsFailed).incrementAndGet();
+        } else if (response.statusCode() == 200) {
+            JsonNode summary = objectMapper.readTree(response.body());
+            rowsSubmitted.addAndGet(summary.path("totalRows").asLong());
+            rowsStored.addAndGet(summary.path("successfulRows").asLong());
+            rowsFailed.addAndGet(summary.path("failedRows").asLong());
+        }
+        return latency;
+    }
+
+    private void report(double seconds, long[] latencies, ServerMetrics before, ServerMetrics after,
+                        long peakHeap) {
+        Arrays.sort(latencies);
+        long rows = rowsSubmitted.get();
+        System.out.println();
+        System.out.printf("Requests        %d in %.2f s, status %s%n", latencies.length, seconds,
+                new TreeMap<>(statuses));
+        System.out.printf("Rows            %d submitted, %d stored, %d failed%n",
+                rows, rowsStored.get(), rowsFailed.get());
+        System.out.printf("Throughput      %.0f rows/s, %.1f requests/s%n", rows / seconds, latencies.length / seconds);
+        StringBuilder percentiles = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            percentiles.append(String.format(Locale.ROOT, "p%s %s  ", format(percentile),
+                    millis(percentile(latencies, percentile))));
+        }
+        percentiles.append("max ").append(millis(latencies.length == 0 ? 0 : latencies[latencies.length - 1]));
+        System.out.printf("Latency         %s%n", percentiles);
+
+        if (before.heapMax < 0 || after.heapMax < 0) {
+            System.out.println("Server heap/GC  unavailable, is /actuator/metrics exposed?");
+            return;
+        }
+        double allocated = after.allocated - before.allocated;
+        System.out.printf("Server heap     peak %s used of %s max%n", megabytes(peakHeap), megabytes(after.heapMax));
+        System.out.printf("Server GC       %d pauses, %.0f ms paused, %s allocated, %s per row%n",
+                after.gcPauses - before.gcPauses, (after.gcPauseSeconds - before.gcPauseSeconds) * 1000,
+                megabytes(allocated), rows > 0 ? String.format(Locale.ROOT, "%.0f B", allocated / rows) : "n/a");
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+    }
+
+    private static String megabytes(double bytes) {
+        return String.format(Locale.ROOT, "%.0f MB", bytes / (1024 * 1024));
+    }
+
+    /**
+     * Reads one statistic of an actuator metric, or -1 when it is not available.
+     */
+    private long metric(String name, String tag, String statistic) {
+        return (long) metricValue(name, tag, statistic);
+    }
+
+    private double metricValue(String name, String tag, String statistic) {
+        String uri = baseUrl + "/actuator/metrics/" + name + (tag != null ? "?tag=" + tag : "");
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(uri)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return -1;
+            }
+            for (JsonNode measurement : objectMapper.readTree(response.body()).path("measurements")) {
+                if (statistic.equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return -1;
+        } catch (IOException exception) {
+            return -1;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private record Call(HttpRequest request, boolean summarised) {
+    }
+
+    private record ServerMetrics(long heapUsed, long heapMax, long gcPauses, double gcPauseSeconds,
+                                 double allocated) {
+
+        static ServerMetrics read(IngestLoadTest test) {
+            return new ServerMetrics(
+                    test.metric("jvm.memory.used", "area:heap", "VALUE"),
+                    test.metric("jvm.memory.max", "area:heap", "VALUE"),
+                    // jvm.gc.pause is registered with the first collection, so absent means none yet.
+                    Math.max(0, test.metric("jvm.gc.pause", null, "COUNT")),
+                    Math.max(0, test.metricValue("jvm.gc.pause", null, "TOTAL_TIME")),
+                    test.metricValue("jvm.gc.memory.allocated", null, "COUNT"));
+        }
+    }
+}
@@ -2,12 +2,15 @@ package com.bloomberg.clustereddata;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class ClusteredDataWarehouseApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(ClusteredDataWarehouseApplication.class, args);
     }
 }
-
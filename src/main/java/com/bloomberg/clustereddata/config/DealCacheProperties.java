@@ -0,0 +1,31 @@
+package com.bloomberg.clustereddata.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * In-process read caches. Entries are invalidated when ingest commits rows that affect them, so the expiry only
+ * bounds staleness against writes this instance never sees, e.g. other instances or retention purges.
+ *
+ * @param dealsMaximumSize          lookups by {@code dealUniqueId} kept, including remembered unknown ids
+ * @param dealsExpireAfterWrite     lifetime of a cached lookup
+ * @param volumesMaximumSize        volume aggregate query results kept
+ * @param volumesExpireAfterWrite   lifetime of a cached aggregate result
+ */
+@ConfigurationProperties(prefix = "deals.cache")
+public record DealCacheProperties(
+        @DefaultValue("100000") long dealsMaximumSize,
+        @DefaultValue("10m") Duration dealsExpireAfterWrite,
+        @DefaultValue("10000") long volumesMaximumSize,
+        @DefaultValue("10m") Duration volumesExpireAfterWrite) {
+
+    public DealCacheProperties {
+        if (dealsMaximumSize < 0 || volumesMaximumSize < 0) {
+            throw new IllegalArgumentException("deals.cache maximum sizes must not be negative");
+        }
+        if (dealsExpireAfterWrite.isNegative() || volumesExpireAfterWrite.isNegative()) {
+            throw new IllegalArgumentException("deals.cache expiry durations must not be negative");
+        }
+    }
+}
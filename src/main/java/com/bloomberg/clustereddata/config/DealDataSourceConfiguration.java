@@ -0,0 +1,149 @@
+package com.bloomberg.clustereddata.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Replaces the auto-configured data source with a {@link ShardedDataSource} once {@code deals.sharding.shards}
+ * lists at least one shard or {@code deals.replication.replicas} at least one replica, and applies the Flyway
+ * migrations to every shard. Shard 0 keeps the {@code spring.datasource} connection, so tests with a
+ * {@code @ServiceConnection} container still work. Replicas are never migrated; they follow their primaries.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@Conditional(DealDataSourceConfiguration.ShardedOrReplicated.class)
+public class DealDataSourceConfiguration {
+
+    /**
+     * Shard {@code n} numbers its deals from {@code n * 2^48}, so ids are unique across shards and keyset pages
+     * can be merged on {@code (deal_timestamp, id)}.
+     */
+    static final long IDS_PER_SHARD = 1L << 48;
+
+    private static final String RESERVE_ID_RANGE =
+            "SELECT setval('deals_id_seq', ?, false) FROM deals_id_seq WHERE last_value < ?";
+
+    @Bean
+    ShardedDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                 ObjectProvider<JdbcConnectionDetails> connectionDetails,
+                                 DealShardingProperties shardingProperties,
+                                 DealReplicationProperties replicationProperties, Environment environment) {
+        JdbcConnectionDetails primary = connectionDetails.getIfAvailable(() -> new JdbcConnectionDetails() {
+            @Override
+            public String getJdbcUrl() {
+                return dataSourceProperties.determineUrl();
+            }
+
+            @Override
+            public String getUsername() {
+                return dataSourceProperties.determineUsername();
+            }
+
+            @Override
+            public String getPassword() {
+                return dataSourceProperties.determinePassword();
+            }
+        });
+        Binder binder = Binder.get(environment);
+        List<HikariDataSource> pools = new ArrayList<>();
+        List<String> usernames = new ArrayList<>();
+        List<String> passwords = new ArrayList<>();
+        pools.add(pool("deals-shard-0", primary.getJdbcUrl(), primary.getUsername(), primary.getPassword(), binder));
+        usernames.add(primary.getUsername());
+        passwords.add(primary.getPassword());
+        for (DealShardingProperties.Shard shard : shardingProperties.shards()) {
+            String username = shard.username() != null ? shard.username() : primary.getUsername();
+            String password = shard.password() != null ? shard.password() : primary.getPassword();
+            pools.add(pool("deals-shard-" + pools.size(), shard.url(), username, password, binder));
+            usernames.add(username);
+            passwords.add(password);
+        }
+
+        List<DealReplicationProperties.Replica> replicaProperties = replicationProperties.replicas();
+        if (replicaProperties.size() > pools.size()) {
+            throw new IllegalArgumentException("deals.replication.replicas lists %d replicas for %d shards"
+                    .formatted(replicaProperties.size(), pools.size()));
+        }
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (DealReplicationProperties.Replica replica : replicaProperties) {
+            int shard = replicas.size();
+            HikariDataSource pool = pool("deals-replica-" + shard, replica.url(),
+                    replica.username() != null ? replica.username() : usernames.get(shard),
+                    replica.password() != null ? replica.password() : passwords.get(shard), binder);
+            pool.setReadOnly(true);
+            if (replicationProperties.maximumPoolSize() != null) {
+                pool.setMaximumPoolSize(replicationProperties.maximumPoolSize());
+            }
+            replicas.add(pool);
+        }
+        log.info("Deals are sharded over {} databases with {} read replicas", pools.size(), replicas.size());
+        return new ShardedDataSource(pools, replicas);
+    }
+
+    /**
+     * Migrates shard 0 through the auto-configured Flyway, then every other shard with the same settings, and
+     * moves each shard's id sequence into its own range.
+     */
+    @Bean
+    FlywayMigrationStrategy shardedMigration(ShardedDataSource dataSource) {
+        return flyway -> {
+            flyway.migrate();
+            List<HikariDataSource> pools = dataSource.pools();
+            for (int shard = 1; shard < pools.size(); shard++) {
+                DataSource pool = pools.get(shard);
+                Flyway.configure(flyway.getConfiguration().getClassLoader())
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(pool)
+                        .load()
+                        .migrate();
+                long firstId = shard * IDS_PER_SHARD;
+                new JdbcTemplate(pool).queryForList(RESERVE_ID_RANGE, firstId, firstId);
+            }
+        };
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password, Binder binder) {
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        return pool;
+    }
+
+    static class ShardedOrReplicated extends AnyNestedCondition {
+
+        ShardedOrReplicated() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = "deals.sharding.shards[0]", name = "url")
+        static class Sharded {
+        }
+
+        @ConditionalOnProperty(prefix = "deals.replication.replicas[0]", name = "url")
+        static class Replicated {
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.bloomberg.clustereddata.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Tuning knobs for deal exports.
+ *
+ * @param fetchSize   rows the JDBC driver pulls from the server-side cursor per round trip
+ * @param segmentSize rows read per keyset segment; each segment is one short read-only transaction whose encoded
+ *                    output is buffered and only written to the client after the transaction has ended
+ */
+@ConfigurationProperties(prefix = "deals.export")
+public record DealExportProperties(
+        @DefaultValue("1000") int fetchSize,
+        @DefaultValue("10000") int segmentSize) {
+
+    public DealExportProperties {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("deals.export.fetch-size must be positive");
+        }
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("deals.export.segment-size must be positive");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.bloomberg.clustereddata.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Coalescing of concurrent {@code POST /api/v1/deals} requests into shared insert statements.
+ *
+ * @param enabled      write single deals in groups; when off every deal gets its own transaction
+ * @param maxBatchSize deals written by one statement
+ * @param window       how long a group stays open for more deals after the first one; with {@code 0} a group
+ *                     holds whatever queued up while the previous one was written
+ * @param timeout      how long a request waits for its group to be written before it fails
+ */
+@ConfigurationProperties(prefix = "deals.create.group-commit")
+public record DealGroupCommitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("256") int maxBatchSize,
+        @DefaultValue("0ms") Duration window,
+        @DefaultValue("30s") Duration timeout) {
+
+    public DealGroupCommitProperties {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("deals.create.group-commit.max-batch-size must be positive");
+        }
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("deals.create.group-commit.window must not be negative");
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("deals.create.group-commit.timeout must be positive");
+        }
+    }
+}
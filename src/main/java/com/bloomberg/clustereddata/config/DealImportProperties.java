@@ -0,0 +1,33 @@
+package com.bloomberg.clustereddata.config;
+
+import com.bloomberg.clustereddata.dto.ImportMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Tuning knobs for the CSV import pipeline.
+ *
+ * @param chunkSize   number of parsed rows held in memory before they are validated and persisted
+ * @param batchSize   number of rows written per INSERT statement and transaction in {@link ImportMode#BATCH}
+ * @param parallelism worker threads one import spreads its chunks over; capped below the connection pool size
+ * @param mode        write strategy used when the request does not ask for one explicitly
+ */
+@ConfigurationProperties(prefix = "deals.import")
+public record DealImportProperties(
+        @DefaultValue("500") int chunkSize,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("ROW") ImportMode mode) {
+
+    public DealImportProperties {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("deals.import.chunk-size must be positive");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("deals.import.batch-size must be positive");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("deals.import.parallelism must be positive");
+        }
+    }
+}
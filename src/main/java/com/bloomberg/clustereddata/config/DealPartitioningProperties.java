@@ -0,0 +1,42 @@
+package com.bloomberg.clustereddata.config;
+
+import java.time.Period;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Partition maintenance of the {@code deals} table. Maintenance runs at startup and then every
+ * {@code deals.partitioning.maintenance-interval} (default {@code PT1H}).
+ *
+ * @param interval        range covered by each new partition; partitions created earlier keep their range
+ * @param premake         number of future intervals that always have a partition
+ * @param retention       partitions whose whole range is older than this are removed; {@code null} keeps everything
+ * @param retentionAction whether expired partitions are detached (kept as standalone tables) or dropped
+ */
+@ConfigurationProperties(prefix = "deals.partitioning")
+public record DealPartitioningProperties(
+        @DefaultValue("MONTH") Interval interval,
+        @DefaultValue("3") int premake,
+        Period retention,
+        @DefaultValue("DETACH") RetentionAction retentionAction) {
+
+    public DealPartitioningProperties {
+        if (premake < 1) {
+            throw new IllegalArgumentException("deals.partitioning.premake must be positive");
+        }
+        if (retention != null && (retention.isNegative() || retention.isZero())) {
+            throw new IllegalArgumentException("deals.partitioning.retention must be positive");
+        }
+    }
+
+    public enum Interval {
+        DAY,
+        WEEK,
+        MONTH
+    }
+
+    public enum RetentionAction {
+        DETACH,
+        DROP
+    }
+}
@@ -0,0 +1,46 @@
+package com.bloomberg.clustereddata.config;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Read replicas serving read-only transactions. Entry {@code n} replicates shard {@code n}, where shard 0 is
+ * {@code spring.datasource}; shards without an entry serve all reads themselves. Replication lag is checked
+ * every {@code deals.replication.lag-check-interval} (default {@code PT1S}).
+ *
+ * @param replicas        replicas in shard order
+ * @param maxLag          a replica further behind than this, or whose lag cannot be measured, is bypassed until it
+ *                        catches up
+ * @param maximumPoolSize connections per replica pool; defaults to {@code spring.datasource.hikari.maximum-pool-size}
+ */
+@ConfigurationProperties(prefix = "deals.replication")
+public record DealReplicationProperties(
+        @DefaultValue List<Replica> replicas,
+        @DefaultValue("5s") Duration maxLag,
+        Integer maximumPoolSize) {
+
+    public DealReplicationProperties {
+        if (maxLag.isNegative() || maxLag.isZero()) {
+            throw new IllegalArgumentException("deals.replication.max-lag must be positive");
+        }
+        if (maximumPoolSize != null && maximumPoolSize < 1) {
+            throw new IllegalArgumentException("deals.replication.maximum-pool-size must be positive");
+        }
+    }
+
+    /**
+     * @param url      JDBC URL of the replica
+     * @param username defaults to the username of the shard it replicates
+     * @param password defaults to the password of the shard it replicates
+     */
+    public record Replica(String url, String username, String password) {
+
+        public Replica {
+            if (url == null || url.isBlank()) {
+                throw new IllegalArgumentException("deals.replication.replicas[].url must not be blank");
+            }
+        }
+    }
+}
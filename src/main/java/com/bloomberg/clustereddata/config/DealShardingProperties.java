@@ -0,0 +1,30 @@
+package com.bloomberg.clustereddata.config;
+
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Additional PostgreSQL instances that deals are spread over. Shard 0 is always {@code spring.datasource};
+ * the entries listed here become shards 1 to n, in order, so new shards must be appended. Every shard gets a
+ * pool with the {@code spring.datasource.hikari} settings.
+ *
+ * @param shards shards besides {@code spring.datasource}; empty keeps everything in one database
+ */
+@ConfigurationProperties(prefix = "deals.sharding")
+public record DealShardingProperties(@DefaultValue List<Shard> shards) {
+
+    /**
+     * @param url      JDBC URL of the shard
+     * @param username defaults to {@code spring.datasource.username}
+     * @param password defaults to {@code spring.datasource.password}
+     */
+    public record Shard(String url, String username, String password) {
+
+        public Shard {
+            if (url == null || url.isBlank()) {
+                throw new IllegalArgumentException("deals.sharding.shards[].url must not be blank");
+            }
+        }
+    }
+}
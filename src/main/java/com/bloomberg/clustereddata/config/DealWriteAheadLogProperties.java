@@ -0,0 +1,44 @@
+package com.bloomberg.clustereddata.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings for acknowledging single deals from a local write-ahead log instead of a database commit.
+ *
+ * @param enabled        acknowledge {@code POST /api/v1/deals} once the deal is synced to the log
+ * @param directory      where log segments, the flush mark and the reconciliation report are kept
+ * @param segmentSize    size after which a new log segment is started; flushed segments are deleted
+ * @param flushBatchSize deals written to {@code deals} per statement by the background flusher
+ * @param maxPending     acknowledged deals that may wait for the flusher before new requests wait too
+ * @param maxWait        how long a request waits for the flusher to make room before it is turned away
+ * @param retryAfter     {@code Retry-After} sent with a request turned away because the log is full
+ */
+@ConfigurationProperties(prefix = "deals.wal")
+public record DealWriteAheadLogProperties(
+        @DefaultValue("false") boolean enabled,
+        Path directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("1000") int flushBatchSize,
+        @DefaultValue("100000") int maxPending,
+        @DefaultValue("1s") Duration maxWait,
+        @DefaultValue("5s") Duration retryAfter) {
+
+    public DealWriteAheadLogProperties {
+        if (flushBatchSize < 1) {
+            throw new IllegalArgumentException("deals.wal.flush-batch-size must be positive");
+        }
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("deals.wal.max-pending must be positive");
+        }
+        if (maxWait.isNegative() || retryAfter.isNegative()) {
+            throw new IllegalArgumentException("deals.wal.max-wait and retry-after must not be negative");
+        }
+        if (directory == null) {
+            directory = Path.of(System.getProperty("java.io.tmpdir"), "deal-wal");
+        }
+    }
+}
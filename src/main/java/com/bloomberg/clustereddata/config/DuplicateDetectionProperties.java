@@ -0,0 +1,21 @@
+package com.bloomberg.clustereddata.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Pre-flight duplicate detection for imports.
+ *
+ * @param preflight                    drop in-file repeats and ids already stored before any insert is attempted
+ * @param bloomFilterEnabled           keep an in-process Bloom filter of stored ids so that ids it has never seen
+ *                                     skip the database lookup
+ * @param bloomFilterExpectedIds       number of ids the filter is sized for
+ * @param bloomFilterFalsePositiveRate target false-positive rate at {@code bloomFilterExpectedIds}
+ */
+@ConfigurationProperties(prefix = "deals.import.duplicates")
+public record DuplicateDetectionProperties(
+        @DefaultValue("true") boolean preflight,
+        @DefaultValue("false") boolean bloomFilterEnabled,
+        @DefaultValue("10000000") long bloomFilterExpectedIds,
+        @DefaultValue("0.01") double bloomFilterFalsePositiveRate) {
+}
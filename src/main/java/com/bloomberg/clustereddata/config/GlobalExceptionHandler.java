@@ -2,7 +2,16 @@ package com.bloomberg.clustereddata.config;
 
 import com.bloomberg.clustereddata.dto.ApiError;
 import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.exception.DealLogFullException;
+import com.bloomberg.clustereddata.exception.DealNotFoundException;
+import com.bloomberg.clustereddata.exception.ImportFailureReportNotFoundException;
+import com.bloomberg.clustereddata.exception.ImportJobNotFinishedException;
+import com.bloomberg.clustereddata.exception.ImportJobNotFoundException;
+import com.bloomberg.clustereddata.exception.ImportRejectedException;
+import com.bloomberg.clustereddata.exception.ImportThrottledException;
 import com.bloomberg.clustereddata.exception.InvalidCsvException;
+import com.bloomberg.clustereddata.exception.InvalidDealBatchException;
+import com.bloomberg.clustereddata.exception.InvalidDealQueryException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -16,8 +25,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 @Slf4j
 @RestControllerAdvice
@@ -52,6 +63,20 @@ public class GlobalExceptionHandler {
                 HttpStatus.BAD_REQUEST, "Malformed request body", request, List.of(detail));
     }
 
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    ResponseEntity<ApiError> handleTypeMismatch(
+            MethodArgumentTypeMismatchException exception, HttpServletRequest request) {
+        String detail = "Invalid value '%s' for parameter '%s'".formatted(exception.getValue(), exception.getName());
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Invalid request parameter", request, List.of(detail));
+    }
+
+    @ExceptionHandler(MissingServletRequestParameterException.class)
+    ResponseEntity<ApiError> handleMissingParameter(
+            MissingServletRequestParameterException exception, HttpServletRequest request) {
+        return buildErrorResponse(
+                HttpStatus.BAD_REQUEST, "Missing request parameter", request, List.of(exception.getMessage()));
+    }
+
     @ExceptionHandler(DealAlreadyExistsException.class)
     ResponseEntity<ApiError> handleDuplicate(DealAlreadyExistsException exception, HttpServletRequest request) {
         return buildErrorResponse(HttpStatus.CONFLICT, exception.getMessage(), request, List.of());
@@ -62,6 +87,57 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage(), request, List.of());
     }
 
+    @ExceptionHandler(InvalidDealBatchException.class)
+    ResponseEntity<ApiError> handleInvalidDealBatch(InvalidDealBatchException exception, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage(), request, List.of());
+    }
+
+    @ExceptionHandler(InvalidDealQueryException.class)
+    ResponseEntity<ApiError> handleInvalidQuery(InvalidDealQueryException exception, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage(), request, List.of());
+    }
+
+    @ExceptionHandler(DealNotFoundException.class)
+    ResponseEntity<ApiError> handleDealNotFound(DealNotFoundException exception, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, exception.getMessage(), request, List.of());
+    }
+
+    @ExceptionHandler(ImportJobNotFoundException.class)
+    ResponseEntity<ApiError> handleJobNotFound(ImportJobNotFoundException exception, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, exception.getMessage(), request, List.of());
+    }
+
+    @ExceptionHandler(ImportFailureReportNotFoundException.class)
+    ResponseEntity<ApiError> handleFailureReportNotFound(
+            ImportFailureReportNotFoundException exception, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, exception.getMessage(), request, List.of());
+    }
+
+    @ExceptionHandler(ImportJobNotFinishedException.class)
+    ResponseEntity<ApiError> handleJobNotFinished(
+            ImportJobNotFinishedException exception, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.CONFLICT, exception.getMessage(), request, List.of());
+    }
+
+    @ExceptionHandler(ImportRejectedException.class)
+    ResponseEntity<ApiError> handleImportRejected(ImportRejectedException exception, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), request, List.of());
+    }
+
+    @ExceptionHandler(ImportThrottledException.class)
+    ResponseEntity<ApiError> handleImportThrottled(ImportThrottledException exception, HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exception.getRetryAfter().toSeconds())));
+        return buildErrorResponse(HttpStatus.TOO_MANY_REQUESTS, exception.getMessage(), request, headers);
+    }
+
+    @ExceptionHandler(DealLogFullException.class)
+    ResponseEntity<ApiError> handleDealLogFull(DealLogFullException exception, HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exception.getRetryAfter().toSeconds())));
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), request, headers);
+    }
+
     @ExceptionHandler(Exception.class)
     ResponseEntity<ApiError> handleGeneric(Exception exception, HttpServletRequest request) {
         log.error("Unexpected error", exception);
@@ -69,6 +145,12 @@ public class GlobalExceptionHandler {
                 HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error occurred", request, List.of(exception.getMessage()));
     }
 
+    private ResponseEntity<ApiError> buildErrorResponse(
+            HttpStatus status, String message, HttpServletRequest request, HttpHeaders headers) {
+        ResponseEntity<ApiError> response = buildErrorResponse(status, message, request, List.of());
+        return new ResponseEntity<>(response.getBody(), headers, status);
+    }
+
     private ResponseEntity<ApiError> buildErrorResponse(
             HttpStatus status, String message, HttpServletRequest request, List<String> details) {
         ApiError body = ApiError.builder()
@@ -0,0 +1,36 @@
+package com.bloomberg.clustereddata.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits on synchronous imports ({@code /import} and {@code /batch}) and on the connections all imports use.
+ *
+ * @param maxConcurrent       synchronous imports that run at the same time
+ * @param maxQueued           further imports that may wait for a free slot; beyond that they are rejected
+ * @param maxWait             how long an import waits for a slot before it is rejected
+ * @param retryAfter          delay suggested to rejected clients in {@code Retry-After}
+ * @param reservedConnections connections of the pool that imports never take, so single-deal requests and
+ *                            queries always find one
+ */
+@ConfigurationProperties(prefix = "deals.import.admission")
+public record ImportAdmissionProperties(
+        @DefaultValue("2") int maxConcurrent,
+        @DefaultValue("4") int maxQueued,
+        @DefaultValue("5s") Duration maxWait,
+        @DefaultValue("10s") Duration retryAfter,
+        @DefaultValue("2") int reservedConnections) {
+
+    public ImportAdmissionProperties {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("deals.import.admission.max-concurrent must be positive");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("deals.import.admission.max-queued must not be negative");
+        }
+        if (reservedConnections < 0) {
+            throw new IllegalArgumentException("deals.import.admission.reserved-connections must not be negative");
+        }
+    }
+}
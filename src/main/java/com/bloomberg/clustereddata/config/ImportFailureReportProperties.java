@@ -0,0 +1,30 @@
+package com.bloomberg.clustereddata.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the failures of an import.
+ *
+ * @param inlineLimit failures returned in the import summary, lowest row numbers first; the complete list is
+ *                    written to a downloadable report once an import has more
+ * @param directory   where failure reports are written
+ * @param retention   how long a report stays downloadable
+ */
+@ConfigurationProperties(prefix = "deals.import.failures")
+public record ImportFailureReportProperties(
+        @DefaultValue("100") int inlineLimit,
+        Path directory,
+        @DefaultValue("24h") Duration retention) {
+
+    public ImportFailureReportProperties {
+        if (inlineLimit < 0) {
+            throw new IllegalArgumentException("deals.import.failures.inline-limit must not be negative");
+        }
+        if (directory == null) {
+            directory = Path.of(System.getProperty("java.io.tmpdir"), "deal-import-failures");
+        }
+    }
+}
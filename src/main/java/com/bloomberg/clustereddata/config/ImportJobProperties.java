@@ -0,0 +1,36 @@
+package com.bloomberg.clustereddata.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for asynchronous import jobs.
+ *
+ * @param poolSize           number of imports that run at the same time
+ * @param queueCapacity      accepted jobs that may wait for a free worker before new uploads are rejected
+ * @param spoolDirectory     where uploads and the checkpoints of their jobs are stored until the job has run
+ * @param retention          how long a finished job and its summary stay retrievable
+ * @param checkpointInterval rows between two checkpoints a job resumes from after a restart
+ */
+@ConfigurationProperties(prefix = "deals.import.jobs")
+public record ImportJobProperties(
+        @DefaultValue("2") int poolSize,
+        @DefaultValue("16") int queueCapacity,
+        Path spoolDirectory,
+        @DefaultValue("1h") Duration retention,
+        @DefaultValue("50000") int checkpointInterval) {
+
+    public ImportJobProperties {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("deals.import.jobs.pool-size must be positive");
+        }
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("deals.import.jobs.checkpoint-interval must be positive");
+        }
+        if (spoolDirectory == null) {
+            spoolDirectory = Path.of(System.getProperty("java.io.tmpdir"), "deal-imports");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.bloomberg.clustereddata.config;
+
+import com.bloomberg.clustereddata.repository.DealShards;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Data source over one Hikari pool per shard, plus an optional read replica pool per shard. The pool is chosen
+ * by {@link DealShards#current()} when the first statement runs, not when the connection is requested, so a
+ * transaction opened before the shard is selected still ends up on the right shard.
+ *
+ * <p>Read-only transactions go to the shard's replica while it is marked fresh, everything else to its primary.
+ * The transaction's read-only flag is set before its first statement, so a transaction never spans both.
+ */
+public class ShardedDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+    private final List<HikariDataSource> pools;
+    private final List<HikariDataSource> replicas;
+    private final AtomicReferenceArray<Boolean> freshReplicas;
+
+    public ShardedDataSource(List<HikariDataSource> pools, List<HikariDataSource> replicas) {
+        this.pools = List.copyOf(pools);
+        this.replicas = List.copyOf(replicas);
+        this.freshReplicas = new AtomicReferenceArray<>(this.replicas.size());
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < this.pools.size(); shard++) {
+            targets.put(new Route(shard, false), this.pools.get(shard));
+        }
+        for (int shard = 0; shard < this.replicas.size(); shard++) {
+            targets.put(new Route(shard, true), this.replicas.get(shard));
+            freshReplicas.set(shard, false);
+        }
+        AbstractRoutingDataSource router = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                Integer current = DealShards.current();
+                int shard = current == null ? 0 : current;
+                return new Route(shard, TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                        && isReplicaFresh(shard));
+            }
+        };
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(this.pools.get(0));
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        // Hikari and PostgreSQL defaults; set here so startup does not borrow a connection to detect them.
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        afterPropertiesSet();
+    }
+
+    /**
+     * The pools in shard order.
+     */
+    public List<HikariDataSource> pools() {
+        return pools;
+    }
+
+    /**
+     * The replica pools in shard order; shards past the end have no replica.
+     */
+    public List<HikariDataSource> replicas() {
+        return replicas;
+    }
+
+    /**
+     * Sends the shard's read-only transactions to its replica, or back to its primary. Replicas start out
+     * stale until their lag has been checked.
+     */
+    public void setReplicaFresh(int shard, boolean fresh) {
+        freshReplicas.set(shard, fresh);
+    }
+
+    public boolean isReplicaFresh(int shard) {
+        return shard < replicas.size() && freshReplicas.get(shard);
+    }
+
+    /**
+     * The pool whose size bounds one shard's connections: the data source itself, or shard 0 of a sharded one.
+     *
+     * @return {@code null} when the data source is not backed by Hikari
+     */
+    public static HikariDataSource pool(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari;
+        }
+        if (dataSource instanceof ShardedDataSource sharded) {
+            return sharded.pools.get(0);
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+        replicas.forEach(HikariDataSource::close);
+    }
+
+    private record Route(int shard, boolean replica) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.bloomberg.clustereddata.controller;
+
+import com.bloomberg.clustereddata.dto.DealVolumeAggregate;
+import com.bloomberg.clustereddata.dto.RollupGranularity;
+import com.bloomberg.clustereddata.service.DealAggregateService;
+import java.time.Instant;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/deals/aggregates")
+public class DealAggregateController {
+
+    private final DealAggregateService dealAggregateService;
+
+    @GetMapping("/volume")
+    public List<DealVolumeAggregate> volume(
+            @RequestParam("granularity") RollupGranularity granularity,
+            @RequestParam("fromTimestamp") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant fromTimestamp,
+            @RequestParam("toTimestamp") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toTimestamp,
+            @RequestParam(value = "fromCurrency", required = false) String fromCurrency,
+            @RequestParam(value = "toCurrency", required = false) String toCurrency) {
+        return dealAggregateService.findVolumes(granularity, fromTimestamp, toTimestamp, fromCurrency, toCurrency);
+    }
+
+    @PostMapping("/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void rebuild() {
+        log.info("Received rollup rebuild request");
+        dealAggregateService.rebuild();
+    }
+}
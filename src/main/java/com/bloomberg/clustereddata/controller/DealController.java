@@ -1,22 +1,44 @@
 package com.bloomberg.clustereddata.controller;
 
 import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.DealPage;
 import com.bloomberg.clustereddata.dto.DealRequest;
 import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import com.bloomberg.clustereddata.dto.ExportFormat;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.service.DealExportService;
+import com.bloomberg.clustereddata.service.DealQueryService;
 import com.bloomberg.clustereddata.service.DealService;
+import com.bloomberg.clustereddata.service.ImportFailureReports;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Slf4j
 @Validated
@@ -25,19 +47,108 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/v1/deals")
 public class DealController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final DealService dealService;
+    private final DealQueryService dealQueryService;
+    private final DealExportService dealExportService;
+    private final ImportFailureReports importFailureReports;
 
+    /**
+     * Answers {@code 201 Created} once the deal is stored, or {@code 202 Accepted} once it is durably logged
+     * for a later flush when {@code deals.wal.enabled} is set.
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public DealResponse createDeal(@Valid @RequestBody DealRequest dealRequest) {
+    public ResponseEntity<DealResponse> createDeal(@Valid @RequestBody DealRequest dealRequest) {
         log.debug("Received deal creation request for {}", dealRequest.getDealUniqueId());
-        return dealService.createDeal(dealRequest);
+        DealResponse response = dealService.createDeal(dealRequest);
+        return ResponseEntity.status(response.id() != null ? HttpStatus.CREATED : HttpStatus.ACCEPTED)
+                .body(response);
+    }
+
+    @GetMapping
+    public DealPage findDeals(
+            @RequestParam(value = "fromTimestamp", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant fromTimestamp,
+            @RequestParam(value = "toTimestamp", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toTimestamp,
+            @RequestParam(value = "fromCurrency", required = false) String fromCurrency,
+            @RequestParam(value = "toCurrency", required = false) String toCurrency,
+            @RequestParam(value = "minAmount", required = false) BigDecimal minAmount,
+            @RequestParam(value = "maxAmount", required = false) BigDecimal maxAmount,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        DealSearchCriteria criteria =
+                criteria(fromTimestamp, toTimestamp, fromCurrency, toCurrency, minAmount, maxAmount);
+        return dealQueryService.findDeals(criteria, cursor, limit);
+    }
+
+    @GetMapping("/{dealUniqueId}")
+    public DealResponse findDeal(@PathVariable("dealUniqueId") String dealUniqueId) {
+        return dealQueryService.findDeal(dealUniqueId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportDeals(
+            @RequestParam(value = "fromTimestamp", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant fromTimestamp,
+            @RequestParam(value = "toTimestamp", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toTimestamp,
+            @RequestParam(value = "fromCurrency", required = false) String fromCurrency,
+            @RequestParam(value = "toCurrency", required = false) String toCurrency,
+            @RequestParam(value = "minAmount", required = false) BigDecimal minAmount,
+            @RequestParam(value = "maxAmount", required = false) BigDecimal maxAmount,
+            @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format) {
+        DealSearchCriteria criteria =
+                criteria(fromTimestamp, toTimestamp, fromCurrency, toCurrency, minAmount, maxAmount);
+        log.debug("Received deal export request: {} (format={})", criteria, format);
+        StreamingResponseBody body = dealExportService.export(criteria, format);
+        boolean csv = format == ExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(csv ? "deals.csv" : "deals.ndjson")
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public DealImportSummary importDealBatch(InputStream body,
+                                             @RequestParam(value = "mode", required = false) ImportMode mode) {
+        log.debug("Received JSON batch import request (mode={})", mode);
+        return dealService.importDeals(body, mode);
     }
 
     @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public DealImportSummary importDeals(@RequestPart("file") MultipartFile file) {
-        log.debug("Received CSV import request: {}", file.getOriginalFilename());
-        return dealService.importDeals(file);
+    public DealImportSummary importDeals(@RequestPart("file") MultipartFile file,
+                                         @RequestParam(value = "mode", required = false) ImportMode mode) {
+        log.debug("Received CSV import request: {} (mode={})", file.getOriginalFilename(), mode);
+        return dealService.importDeals(file, mode);
     }
-}
 
+    @GetMapping("/import/failures/{reportId}")
+    public ResponseEntity<Resource> downloadImportFailures(@PathVariable("reportId") UUID reportId) {
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("import-failures-" + reportId + ".csv")
+                        .build()
+                        .toString())
+                .body(new FileSystemResource(importFailureReports.find(reportId)));
+    }
+
+    private static DealSearchCriteria criteria(Instant fromTimestamp, Instant toTimestamp, String fromCurrency,
+                                               String toCurrency, BigDecimal minAmount, BigDecimal maxAmount) {
+        return DealSearchCriteria.builder()
+                .fromTimestamp(fromTimestamp)
+                .toTimestamp(toTimestamp)
+                .fromCurrencyIso(fromCurrency)
+                .toCurrencyIso(toCurrency)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .build();
+    }
+}
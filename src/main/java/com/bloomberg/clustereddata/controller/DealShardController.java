@@ -0,0 +1,24 @@
+package com.bloomberg.clustereddata.controller;
+
+import com.bloomberg.clustereddata.dto.ShardRebalanceSummary;
+import com.bloomberg.clustereddata.service.DealShardRebalancer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/deals/shards")
+public class DealShardController {
+
+    private final DealShardRebalancer dealShardRebalancer;
+
+    @PostMapping("/rebalance")
+    public ShardRebalanceSummary rebalance() {
+        log.info("Received shard rebalance request");
+        return dealShardRebalancer.rebalance();
+    }
+}
@@ -0,0 +1,54 @@
+package com.bloomberg.clustereddata.controller;
+
+import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.ImportJobResponse;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.service.ImportJobService;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/deals/import/jobs")
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ImportJobResponse submit(@RequestPart("file") MultipartFile file,
+                                    @RequestParam(value = "mode", required = false) ImportMode mode) {
+        log.debug("Received async CSV import request: {} (mode={})", file.getOriginalFilename(), mode);
+        return importJobService.submit(file, mode);
+    }
+
+    @GetMapping("/{jobId}")
+    public ImportJobResponse status(@PathVariable UUID jobId) {
+        return importJobService.status(jobId);
+    }
+
+    @GetMapping("/{jobId}/summary")
+    public DealImportSummary summary(@PathVariable UUID jobId) {
+        return importJobService.summary(jobId);
+    }
+
+    @DeleteMapping("/{jobId}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ImportJobResponse cancel(@PathVariable UUID jobId) {
+        return importJobService.cancel(jobId);
+    }
+}
@@ -0,0 +1,29 @@
+package com.bloomberg.clustereddata.domain;
+
+import com.bloomberg.clustereddata.repository.CurrencyDictionary;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores ISO currency codes as their {@code currencies.id} key. Hibernate obtains the converter from the
+ * Spring context, so the dictionary is injected.
+ */
+@Converter
+public class CurrencyCodeConverter implements AttributeConverter<String, Short> {
+
+    private final CurrencyDictionary currencyDictionary;
+
+    public CurrencyCodeConverter(CurrencyDictionary currencyDictionary) {
+        this.currencyDictionary = currencyDictionary;
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(String isoCode) {
+        return isoCode == null ? null : currencyDictionary.idOf(isoCode);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short id) {
+        return id == null ? null : currencyDictionary.codeOf(id);
+    }
+}
@@ -1,13 +1,13 @@
 package com.bloomberg.clustereddata.domain;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
-import jakarta.persistence.UniqueConstraint;
 import java.math.BigDecimal;
 import java.time.Instant;
 import lombok.AllArgsConstructor;
@@ -16,18 +16,17 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+/**
+ * A deal row. {@code deals} is range-partitioned by {@code deal_timestamp}, so uniqueness of
+ * {@code dealUniqueId} is enforced by the {@code deal_unique_ids} registry rather than by a constraint here.
+ */
 @Getter
 @Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(
-        name = "deals",
-        uniqueConstraints =
-                @UniqueConstraint(
-                        name = "uk_deals_unique_id",
-                        columnNames = "deal_unique_id"))
+@Table(name = "deals")
 public class Deal {
 
     @Id
@@ -37,10 +36,12 @@ public class Deal {
     @Column(name = "deal_unique_id", nullable = false, length = 64)
     private String dealUniqueId;
 
-    @Column(name = "from_currency_iso", nullable = false, length = 3)
+    @Convert(converter = CurrencyCodeConverter.class)
+    @Column(name = "from_currency_id", nullable = false)
     private String fromCurrencyIso;
 
-    @Column(name = "to_currency_iso", nullable = false, length = 3)
+    @Convert(converter = CurrencyCodeConverter.class)
+    @Column(name = "to_currency_id", nullable = false)
     private String toCurrencyIso;
 
     @Column(name = "deal_timestamp", nullable = false)
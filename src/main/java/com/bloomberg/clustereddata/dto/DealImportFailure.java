@@ -3,6 +3,5 @@ package com.bloomberg.clustereddata.dto;
 import lombok.Builder;
 
 @Builder
-public record DealImportFailure(int rowNumber, String reason) {
+public record DealImportFailure(int rowNumber, ImportFailureCategory category, String reason) {
 }
-
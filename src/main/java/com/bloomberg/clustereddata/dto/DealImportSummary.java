@@ -1,11 +1,22 @@
 package com.bloomberg.clustereddata.dto;
 
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import lombok.Builder;
 import lombok.Singular;
 
+/**
+ * Outcome of an import. {@code failures} holds at most {@code deals.import.failures.inline-limit} failures,
+ * those with the lowest row numbers; {@code failureCounts} and {@code failedRows} always cover all of them.
+ *
+ * @param failuresTruncated whether {@code failures} leaves some out
+ * @param failureReportId   report listing every failure, or {@code null} when {@code failures} is complete or
+ *                          the report could not be written
+ */
 @Builder
 public record DealImportSummary(int totalRows, int successfulRows, int failedRows,
+                                @Singular Map<ImportFailureCategory, Long> failureCounts,
+                                boolean failuresTruncated, UUID failureReportId,
                                 @Singular List<DealImportFailure> failures) {
 }
-
@@ -0,0 +1,11 @@
+package com.bloomberg.clustereddata.dto;
+
+import java.util.List;
+import lombok.Builder;
+
+/**
+ * One page of deals ordered by {@code (dealTimestamp, id)}. {@code nextCursor} is {@code null} on the last page.
+ */
+@Builder
+public record DealPage(List<DealResponse> deals, String nextCursor) {
+}
@@ -0,0 +1,14 @@
+package com.bloomberg.clustereddata.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.Builder;
+
+/**
+ * Optional filters of a deal query. The timestamp range is half-open ({@code [fromTimestamp, toTimestamp)}),
+ * the amount range is inclusive; {@code null} leaves a bound open.
+ */
+@Builder
+public record DealSearchCriteria(Instant fromTimestamp, Instant toTimestamp, String fromCurrencyIso,
+                                 String toCurrencyIso, BigDecimal minAmount, BigDecimal maxAmount) {
+}
@@ -0,0 +1,10 @@
+package com.bloomberg.clustereddata.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.Builder;
+
+@Builder
+public record DealVolumeAggregate(String fromCurrencyIso, String toCurrencyIso, Instant bucketStart,
+                                  long dealCount, BigDecimal totalAmount) {
+}
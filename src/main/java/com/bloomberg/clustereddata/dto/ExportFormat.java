@@ -0,0 +1,13 @@
+package com.bloomberg.clustereddata.dto;
+
+/**
+ * Output format of a deal export.
+ */
+public enum ExportFormat {
+
+    /** Same header and columns as the CSV import, so an export can be re-imported as is. */
+    CSV,
+
+    /** One {@link DealResponse} JSON object per line. */
+    NDJSON
+}
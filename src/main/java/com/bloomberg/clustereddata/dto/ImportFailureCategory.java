@@ -0,0 +1,15 @@
+package com.bloomberg.clustereddata.dto;
+
+/**
+ * Why an import row was rejected.
+ */
+public enum ImportFailureCategory {
+    /** The row could not be decoded from the CSV or JSON input. */
+    PARSE,
+    /** The row decoded but violates a field constraint. */
+    VALIDATION,
+    /** The id repeats within the import or is already stored. */
+    DUPLICATE,
+    /** The database rejected the row for any other reason. */
+    WRITE
+}
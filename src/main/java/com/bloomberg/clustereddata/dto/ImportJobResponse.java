@@ -0,0 +1,12 @@
+package com.bloomberg.clustereddata.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+import lombok.Builder;
+
+@Builder
+public record ImportJobResponse(UUID jobId, String fileName, ImportMode mode, ImportJobStatus status,
+                                Instant submittedAt, Instant startedAt, Instant finishedAt,
+                                long rowsProcessed, long rowsSucceeded, long rowsFailed, double rowsPerSecond,
+                                String error) {
+}
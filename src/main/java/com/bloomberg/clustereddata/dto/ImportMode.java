@@ -0,0 +1,19 @@
+package com.bloomberg.clustereddata.dto;
+
+/**
+ * How an import writes validated rows to the database.
+ */
+public enum ImportMode {
+
+    /** One transaction and one INSERT per row. */
+    ROW,
+
+    /** Multi-row INSERT ... ON CONFLICT DO NOTHING statements, one transaction per batch. */
+    BATCH,
+
+    /**
+     * Streams rows into an unlogged staging table with PostgreSQL {@code COPY} and merges them into
+     * {@code deals} with one set-based statement once the whole file has been read.
+     */
+    COPY
+}
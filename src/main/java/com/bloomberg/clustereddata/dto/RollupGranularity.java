@@ -0,0 +1,10 @@
+package com.bloomberg.clustereddata.dto;
+
+/**
+ * Bucket width of the volume rollups. Buckets are aligned in UTC.
+ */
+public enum RollupGranularity {
+    MINUTE,
+    HOUR,
+    DAY
+}
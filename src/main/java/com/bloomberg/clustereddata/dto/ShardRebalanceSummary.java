@@ -0,0 +1,14 @@
+package com.bloomberg.clustereddata.dto;
+
+import lombok.Builder;
+
+/**
+ * Outcome of moving deals to the shards that own them.
+ *
+ * @param shards           shards that were scanned
+ * @param movedDeals       deals now stored on their owning shard only
+ * @param conflictingDeals deals left in place because their owning shard holds different content for the same id
+ */
+@Builder
+public record ShardRebalanceSummary(int shards, long movedDeals, long conflictingDeals) {
+}
@@ -3,11 +3,18 @@ package com.bloomberg.clustereddata.exception;
 public class DealAlreadyExistsException extends RuntimeException {
 
     public DealAlreadyExistsException(String dealUniqueId) {
-        super("Deal with id '%s' already exists".formatted(dealUniqueId));
+        super(messageFor(dealUniqueId));
     }
 
     public DealAlreadyExistsException(String dealUniqueId, Throwable cause) {
-        super("Deal with id '%s' already exists".formatted(dealUniqueId), cause);
+        super(messageFor(dealUniqueId), cause);
     }
-}
 
+    /**
+     * Builds the duplicate message without paying for an exception, for bulk paths that report duplicates
+     * as data rather than throwing.
+     */
+    public static String messageFor(String dealUniqueId) {
+        return "Deal with id '%s' already exists".formatted(dealUniqueId);
+    }
+}
@@ -0,0 +1,15 @@
+package com.bloomberg.clustereddata.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+
+@Getter
+public class DealLogFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public DealLogFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
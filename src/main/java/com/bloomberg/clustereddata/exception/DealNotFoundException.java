@@ -0,0 +1,8 @@
+package com.bloomberg.clustereddata.exception;
+
+public class DealNotFoundException extends RuntimeException {
+
+    public DealNotFoundException(String dealUniqueId) {
+        super("Deal '%s' not found".formatted(dealUniqueId));
+    }
+}
@@ -0,0 +1,8 @@
+package com.bloomberg.clustereddata.exception;
+
+public class ImportCancelledException extends RuntimeException {
+
+    public ImportCancelledException() {
+        super("Import was cancelled");
+    }
+}
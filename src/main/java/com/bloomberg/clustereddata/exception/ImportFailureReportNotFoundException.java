@@ -0,0 +1,10 @@
+package com.bloomberg.clustereddata.exception;
+
+import java.util.UUID;
+
+public class ImportFailureReportNotFoundException extends RuntimeException {
+
+    public ImportFailureReportNotFoundException(UUID reportId) {
+        super("Import failure report '%s' not found".formatted(reportId));
+    }
+}
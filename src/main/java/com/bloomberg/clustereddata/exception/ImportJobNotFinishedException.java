@@ -0,0 +1,10 @@
+package com.bloomberg.clustereddata.exception;
+
+import java.util.UUID;
+
+public class ImportJobNotFinishedException extends RuntimeException {
+
+    public ImportJobNotFinishedException(UUID jobId, Object status) {
+        super("Import job '%s' has no summary while %s".formatted(jobId, status));
+    }
+}
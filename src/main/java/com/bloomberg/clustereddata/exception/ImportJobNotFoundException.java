@@ -0,0 +1,10 @@
+package com.bloomberg.clustereddata.exception;
+
+import java.util.UUID;
+
+public class ImportJobNotFoundException extends RuntimeException {
+
+    public ImportJobNotFoundException(UUID jobId) {
+        super("Import job '%s' not found".formatted(jobId));
+    }
+}
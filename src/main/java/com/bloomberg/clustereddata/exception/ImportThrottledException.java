@@ -0,0 +1,15 @@
+package com.bloomberg.clustereddata.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+
+@Getter
+public class ImportThrottledException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ImportThrottledException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,12 @@
+package com.bloomberg.clustereddata.exception;
+
+public class InvalidDealBatchException extends RuntimeException {
+
+    public InvalidDealBatchException(String message) {
+        super(message);
+    }
+
+    public InvalidDealBatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
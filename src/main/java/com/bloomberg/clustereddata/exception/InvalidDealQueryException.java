@@ -0,0 +1,12 @@
+package com.bloomberg.clustereddata.exception;
+
+public class InvalidDealQueryException extends RuntimeException {
+
+    public InvalidDealQueryException(String message) {
+        super(message);
+    }
+
+    public InvalidDealQueryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,107 @@
+package com.bloomberg.clustereddata.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-process copy of the {@code currencies} table, which maps ISO 4217 codes to the {@code SMALLINT} keys
+ * stored in {@code deals}. The table is loaded on first use and only grows, so lookups never touch the
+ * database once a code has been seen. Decoded codes are the cached {@link String} instances, so every
+ * loaded deal shares them instead of holding its own copy.
+ *
+ * <p>Every shard holds the same dictionary: codes are registered on shard 0, which hands out the key, and then
+ * copied with that key to the other shards.
+ */
+@Repository
+public class CurrencyDictionary {
+
+    private static final String REGISTER = """
+            INSERT INTO currencies (iso_code) VALUES (?)
+            ON CONFLICT (iso_code) DO UPDATE SET iso_code = EXCLUDED.iso_code
+            RETURNING id
+            """;
+
+    private static final String COPY_REGISTERED =
+            "INSERT INTO currencies (id, iso_code) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate registration;
+    private final DealShards dealShards;
+    private final Map<String, Short> idsByCode = new ConcurrentHashMap<>();
+    private volatile String[] codesById;
+
+    public CurrencyDictionary(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              DealShards dealShards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dealShards = dealShards;
+        this.registration = new TransactionTemplate(transactionManager);
+        this.registration.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Returns the key of the code, registering it when no deal has used it yet. Registration commits on its
+     * own so a key handed out here stays valid even if the caller's transaction rolls back.
+     */
+    public short idOf(String isoCode) {
+        if (codesById == null) {
+            reload();
+        }
+        Short id = idsByCode.get(isoCode);
+        if (id != null) {
+            return id;
+        }
+        Short registered = dealShards.on(0, () ->
+                registration.execute(status -> jdbcTemplate.queryForObject(REGISTER, Short.class, isoCode)));
+        for (int shard = 1; shard < dealShards.count(); shard++) {
+            dealShards.run(shard, () -> registration.executeWithoutResult(status ->
+                    jdbcTemplate.update(COPY_REGISTERED, registered, isoCode)));
+        }
+        reload();
+        return registered;
+    }
+
+    /**
+     * Returns the key of a code without registering it, for read paths where an unknown code simply matches
+     * nothing.
+     */
+    public Optional<Short> findId(String isoCode) {
+        if (codesById == null) {
+            reload();
+        }
+        return Optional.ofNullable(idsByCode.get(isoCode));
+    }
+
+    public String codeOf(short id) {
+        String[] codes = codesById;
+        if (codes == null || id < 0 || id >= codes.length || codes[id] == null) {
+            codes = reload();
+        }
+        if (id < 0 || id >= codes.length || codes[id] == null) {
+            throw new IllegalStateException("Unknown currency id " + id);
+        }
+        return codes[id];
+    }
+
+    private synchronized String[] reload() {
+        String[] previous = codesById;
+        Map<Short, String> rows = new HashMap<>();
+        jdbcTemplate.query("SELECT id, iso_code FROM currencies", resultSet -> {
+            rows.put(resultSet.getShort(1), resultSet.getString(2));
+        });
+        String[] codes = new String[rows.keySet().stream().mapToInt(Short::intValue).max().orElse(0) + 1];
+        rows.forEach((id, code) -> {
+            boolean known = previous != null && id < previous.length && code.equals(previous[id]);
+            codes[id] = known ? previous[id] : code;
+            idsByCode.putIfAbsent(codes[id], id);
+        });
+        codesById = codes;
+        return codes;
+    }
+}
@@ -0,0 +1,332 @@
+package com.bloomberg.clustereddata.repository;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Set-based write paths that bypass the JPA persistence context. {@code GenerationType.IDENTITY} prevents
+ * Hibernate from batching inserts, so bulk imports go through plain JDBC instead.
+ *
+ * <p>Writes run on the shard selected by the caller (see {@link DealShards}); lookups by id ask the owning
+ * shard of each id.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DealJdbcRepository {
+
+    /**
+     * Claims the ids of new deals in the {@code deal_unique_ids} registry, inserts the deals whose claim
+     * succeeded and adds exactly those rows to the volume rollups. Only the first occurrence of an id in the
+     * input is considered.
+     */
+    private static final String INSERT_IGNORING_DUPLICATES = """
+            WITH input AS (
+                SELECT DISTINCT ON (deal_unique_id)
+                       deal_unique_id, from_currency_id, to_currency_id,
+                       deal_timestamp::timestamptz AS deal_timestamp, deal_amount::numeric AS deal_amount
+                FROM unnest(?::text[], ?::smallint[], ?::smallint[], ?::text[], ?::text[]) WITH ORDINALITY
+                        AS raw(deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount, position)
+                ORDER BY deal_unique_id, position
+            ),
+            registered AS (
+                INSERT INTO deal_unique_ids (deal_unique_id, deal_timestamp)
+                SELECT deal_unique_id, deal_timestamp FROM input
+                ORDER BY deal_unique_id
+                ON CONFLICT (deal_unique_id) DO NOTHING
+                RETURNING deal_unique_id
+            ),
+            inserted AS (
+                INSERT INTO deals (deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount, created_at)
+                SELECT input.deal_unique_id, input.from_currency_id, input.to_currency_id,
+                       input.deal_timestamp, input.deal_amount, CURRENT_TIMESTAMP
+                FROM input JOIN registered USING (deal_unique_id)
+                RETURNING id, deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount
+            ),
+            """ + DealRollupRepository.ROLL_UP_INSERTED + """
+            SELECT deal_unique_id, id FROM inserted
+            """;
+
+    private static final String REGISTER_UNIQUE_ID =
+            "INSERT INTO deal_unique_ids (deal_unique_id, deal_timestamp) VALUES (?, ?)";
+
+    private static final String FIND_EXISTING_IDS =
+            "SELECT deal_unique_id FROM deal_unique_ids WHERE deal_unique_id = ANY(?::text[])";
+
+    private static final String LAST_DEAL_ID =
+            "SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM deals_id_seq";
+
+    private static final String FIND_STORED = """
+            SELECT d.id, d.deal_unique_id, d.from_currency_id, d.to_currency_id, d.deal_timestamp, d.deal_amount
+            FROM deal_unique_ids u
+            JOIN deals d ON d.deal_unique_id = u.deal_unique_id AND d.deal_timestamp = u.deal_timestamp
+            WHERE u.deal_unique_id = ANY(?::text[])
+            """;
+
+    private static final String FIND_STORED_BETWEEN = """
+            SELECT d.id, d.deal_unique_id, d.from_currency_id, d.to_currency_id, d.deal_timestamp, d.deal_amount
+            FROM deal_unique_ids u
+            JOIN deals d ON d.deal_unique_id = u.deal_unique_id AND d.deal_timestamp = u.deal_timestamp
+            WHERE u.deal_unique_id = ANY(?::text[]) AND d.id > ? AND d.id <= ?
+            """;
+
+    private static final String FIND_STORED_AFTER = """
+            SELECT d.id, d.deal_unique_id, d.from_currency_id, d.to_currency_id, d.deal_timestamp, d.deal_amount
+            FROM deal_unique_ids u
+            JOIN deals d ON d.deal_unique_id = u.deal_unique_id AND d.deal_timestamp = u.deal_timestamp
+            WHERE u.deal_unique_id > ?
+            ORDER BY u.deal_unique_id
+            LIMIT ?
+            """;
+
+    private static final String DELETE = """
+            WITH unregistered AS (
+                DELETE FROM deal_unique_ids WHERE deal_unique_id = ANY(?::text[])
+                RETURNING deal_unique_id, deal_timestamp
+            )
+            DELETE FROM deals d USING unregistered u
+            WHERE d.deal_unique_id = u.deal_unique_id AND d.deal_timestamp = u.deal_timestamp
+            """;
+
+    private static final int ID_SCAN_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CurrencyDictionary currencyDictionary;
+    private final DealShards dealShards;
+
+    /**
+     * Inserts all deals with a single statement, silently skipping those whose {@code deal_unique_id}
+     * already exists. The generated {@code id} is set on each inserted deal (the first one for a repeated id).
+     *
+     * @return the unique ids that were actually inserted
+     */
+    public Set<String> insertIgnoringDuplicates(List<Deal> deals) {
+        Set<String> inserted = new HashSet<>(deals.size() * 2);
+        if (deals.isEmpty()) {
+            return inserted;
+        }
+        Map<String, Deal> byUniqueId = new HashMap<>(deals.size() * 2);
+        deals.forEach(deal -> byUniqueId.putIfAbsent(deal.getDealUniqueId(), deal));
+        jdbcTemplate.query(
+                connection -> prepareInsert(connection, deals),
+                resultSet -> {
+                    String dealUniqueId = resultSet.getString(1);
+                    inserted.add(dealUniqueId);
+                    byUniqueId.get(dealUniqueId).setId(resultSet.getLong(2));
+                });
+        return inserted;
+    }
+
+    /**
+     * Claims the id of a deal that is about to be inserted. Must run in the inserting transaction.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException when the id is already registered
+     */
+    public void registerUniqueId(String dealUniqueId, Instant dealTimestamp) {
+        jdbcTemplate.update(REGISTER_UNIQUE_ID, dealUniqueId, dealTimestamp.atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Looks up many ids with a single indexed query on the registry.
+     *
+     * @return the subset of {@code dealUniqueIds} that is stored
+     */
+    public Set<String> findExistingIds(Collection<String> dealUniqueIds) {
+        Map<Integer, List<String>> byShard = dealShards.partition(dealUniqueIds, Function.identity());
+        Set<String> existing = new HashSet<>();
+        dealShards.scatter(shard -> byShard.containsKey(shard)
+                        ? findExistingIdsOnShard(byShard.get(shard))
+                        : Set.<String>of())
+                .forEach(existing::addAll);
+        return existing;
+    }
+
+    /**
+     * @return the last value handed out by every shard's {@code deals_id_seq}, by shard, or 0 before the shard's
+     *         first deal; every shard numbers its deals on its own
+     */
+    public Map<Integer, Long> lastDealIds() {
+        List<Long> lastIds = dealShards.scatter(shard -> {
+            Long lastId = jdbcTemplate.queryForObject(LAST_DEAL_ID, Long.class);
+            return lastId != null ? lastId : 0L;
+        });
+        Map<Integer, Long> byShard = new TreeMap<>();
+        for (int shard = 0; shard < lastIds.size(); shard++) {
+            byShard.put(shard, lastIds.get(shard));
+        }
+        return byShard;
+    }
+
+    /**
+     * Loads the stored deals among {@code dealUniqueIds}, each from the shard that owns it.
+     */
+    public List<Deal> findStored(Collection<String> dealUniqueIds) {
+        Map<Integer, List<String>> byShard = dealShards.partition(dealUniqueIds, Function.identity());
+        List<Deal> deals = new ArrayList<>();
+        dealShards.scatter(shard -> byShard.containsKey(shard)
+                        ? findStoredOnShard(byShard.get(shard))
+                        : List.<Deal>of())
+                .forEach(deals::addAll);
+        return deals;
+    }
+
+    /**
+     * Loads the stored deals among {@code dealUniqueIds} whose {@code id} lies in {@code (afterIds, upToIds]} of
+     * the shard that owns them. Shards missing from either map are not searched.
+     */
+    public List<Deal> findStoredBetween(Collection<String> dealUniqueIds, Map<Integer, Long> afterIds,
+                                        Map<Integer, Long> upToIds) {
+        Map<Integer, List<String>> byShard = dealShards.partition(dealUniqueIds, Function.identity());
+        List<Deal> deals = new ArrayList<>();
+        dealShards.scatter(shard -> {
+                    Long afterId = afterIds.get(shard);
+                    Long upToId = upToIds.get(shard);
+                    return byShard.containsKey(shard) && afterId != null && upToId != null && upToId > afterId
+                            ? findStoredBetweenOnShard(byShard.get(shard), afterId, upToId)
+                            : List.<Deal>of();
+                })
+                .forEach(deals::addAll);
+        return deals;
+    }
+
+    /**
+     * Loads up to {@code limit} stored deals of the selected shard with an id after {@code afterDealUniqueId},
+     * in {@code dealUniqueId} order, for walking the whole shard.
+     */
+    public List<Deal> findStoredAfter(String afterDealUniqueId, int limit) {
+        return jdbcTemplate.query(FIND_STORED_AFTER, (resultSet, rowNumber) -> mapDeal(resultSet),
+                afterDealUniqueId, limit);
+    }
+
+    /**
+     * Removes the deals and their registry entries from the selected shard. The volume rollups are left
+     * as they are.
+     *
+     * @return the number of deals removed
+     */
+    public int delete(Collection<String> dealUniqueIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE);
+            statement.setArray(1, connection.createArrayOf("text", dealUniqueIds.toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * Streams every stored id through a server-side cursor. Must run inside a transaction, otherwise the
+     * PostgreSQL driver ignores the fetch size and buffers the whole result.
+     */
+    public void forEachDealUniqueId(Consumer<String> consumer) {
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement("SELECT deal_unique_id FROM deal_unique_ids");
+                    statement.setFetchSize(ID_SCAN_FETCH_SIZE);
+                    return statement;
+                },
+                resultSet -> {
+                    consumer.accept(resultSet.getString(1));
+                });
+    }
+
+    private Set<String> findExistingIdsOnShard(List<String> dealUniqueIds) {
+        Set<String> existing = new HashSet<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(FIND_EXISTING_IDS);
+                    statement.setArray(1, connection.createArrayOf("text", dealUniqueIds.toArray()));
+                    return statement;
+                },
+                resultSet -> {
+                    existing.add(resultSet.getString(1));
+                });
+        return existing;
+    }
+
+    private List<Deal> findStoredOnShard(List<String> dealUniqueIds) {
+        List<Deal> deals = new ArrayList<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(FIND_STORED);
+                    statement.setArray(1, connection.createArrayOf("text", dealUniqueIds.toArray()));
+                    return statement;
+                },
+                resultSet -> {
+                    deals.add(mapDeal(resultSet));
+                });
+        return deals;
+    }
+
+    private List<Deal> findStoredBetweenOnShard(List<String> dealUniqueIds, long afterId, long upToId) {
+        List<Deal> deals = new ArrayList<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(FIND_STORED_BETWEEN);
+                    statement.setArray(1, connection.createArrayOf("text", dealUniqueIds.toArray()));
+                    statement.setLong(2, afterId);
+                    statement.setLong(3, upToId);
+                    return statement;
+                },
+                resultSet -> {
+                    deals.add(mapDeal(resultSet));
+                });
+        return deals;
+    }
+
+    private Deal mapDeal(ResultSet resultSet) throws SQLException {
+        return Deal.builder()
+                .id(resultSet.getLong(1))
+                .dealUniqueId(resultSet.getString(2))
+                .fromCurrencyIso(currencyDictionary.codeOf(resultSet.getShort(3)))
+                .toCurrencyIso(currencyDictionary.codeOf(resultSet.getShort(4)))
+                .dealTimestamp(resultSet.getObject(5, OffsetDateTime.class).toInstant())
+                .dealAmount(resultSet.getBigDecimal(6))
+                .build();
+    }
+
+    private PreparedStatement prepareInsert(Connection connection, List<Deal> deals) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(INSERT_IGNORING_DUPLICATES);
+        statement.setArray(1, textArray(connection, deals, Deal::getDealUniqueId));
+        statement.setArray(2, currencyArray(connection, deals, Deal::getFromCurrencyIso));
+        statement.setArray(3, currencyArray(connection, deals, Deal::getToCurrencyIso));
+        statement.setArray(4, textArray(connection, deals, deal -> deal.getDealTimestamp().toString()));
+        statement.setArray(5, textArray(connection, deals, deal -> deal.getDealAmount().toPlainString()));
+        return statement;
+    }
+
+    private Array textArray(Connection connection, List<Deal> deals, Function<Deal, String> extractor)
+            throws SQLException {
+        String[] values = new String[deals.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = extractor.apply(deals.get(i));
+        }
+        return connection.createArrayOf("text", values);
+    }
+
+    private Array currencyArray(Connection connection, List<Deal> deals, Function<Deal, String> extractor)
+            throws SQLException {
+        Short[] ids = new Short[deals.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = currencyDictionary.idOf(extractor.apply(deals.get(i)));
+        }
+        return connection.createArrayOf("int2", ids);
+    }
+}
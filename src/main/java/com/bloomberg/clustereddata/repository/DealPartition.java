@@ -0,0 +1,9 @@
+package com.bloomberg.clustereddata.repository;
+
+import java.time.Instant;
+
+/**
+ * A range partition of {@code deals} covering {@code [from, to)}.
+ */
+public record DealPartition(String name, Instant from, Instant to) {
+}
@@ -0,0 +1,86 @@
+package com.bloomberg.clustereddata.repository;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * DDL for the range partitions of {@code deals}. All methods must run inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DealPartitionRepository {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("deals_p\\d{8}");
+
+    /** Arbitrary key of the advisory lock that serialises maintenance across instances. */
+    private static final long MAINTENANCE_LOCK_KEY = 0x6465616c73L;
+
+    private static final String FIND_PARTITIONS = """
+            SELECT child.relname,
+                   substring(pg_get_expr(child.relpartbound, child.oid) FROM 'FROM \\(''([^'']+)''\\)')::timestamptz,
+                   substring(pg_get_expr(child.relpartbound, child.oid) FROM 'TO \\(''([^'']+)''\\)')::timestamptz
+            FROM pg_inherits
+            JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+            WHERE pg_inherits.inhparent = 'deals'::regclass
+              AND pg_get_expr(child.relpartbound, child.oid) <> 'DEFAULT'
+            ORDER BY 2
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes the transaction-scoped maintenance lock if no other instance holds it.
+     */
+    public boolean tryLockForMaintenance() {
+        return Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, MAINTENANCE_LOCK_KEY));
+    }
+
+    /**
+     * Returns the range partitions ordered by lower bound; the default partition is not included.
+     */
+    public List<DealPartition> findPartitions() {
+        return jdbcTemplate.query(FIND_PARTITIONS, (resultSet, rowNumber) -> new DealPartition(
+                resultSet.getString(1),
+                resultSet.getObject(2, OffsetDateTime.class).toInstant(),
+                resultSet.getObject(3, OffsetDateTime.class).toInstant()));
+    }
+
+    /**
+     * Creates the partition as a standalone table, moves any rows for its range out of {@code deals_default}
+     * and attaches it. Creating it directly as a partition would fail once the default partition holds such rows.
+     */
+    public void create(DealPartition partition) {
+        String name = checkedName(partition);
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE deals INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbcTemplate.update("""
+                WITH moved AS (
+                    DELETE FROM deals_default WHERE deal_timestamp >= ? AND deal_timestamp < ? RETURNING *
+                )
+                INSERT INTO %s SELECT * FROM moved
+                """.formatted(name),
+                partition.from().atOffset(ZoneOffset.UTC), partition.to().atOffset(ZoneOffset.UTC));
+        jdbcTemplate.execute("ALTER TABLE deals ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')"
+                .formatted(name, partition.from(), partition.to()));
+    }
+
+    public void detach(DealPartition partition) {
+        jdbcTemplate.execute("ALTER TABLE deals DETACH PARTITION " + checkedName(partition));
+    }
+
+    public void drop(DealPartition partition) {
+        jdbcTemplate.execute("DROP TABLE " + checkedName(partition));
+    }
+
+    private static String checkedName(DealPartition partition) {
+        if (!PARTITION_NAME.matcher(partition.name()).matches()) {
+            throw new IllegalArgumentException("Not a deals partition: " + partition.name());
+        }
+        return partition.name();
+    }
+}
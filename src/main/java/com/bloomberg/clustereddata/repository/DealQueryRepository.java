@@ -0,0 +1,184 @@
+package com.bloomberg.clustereddata.repository;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Read path for deal queries. Pages are cut with a seek predicate on {@code (deal_timestamp, id)} instead of
+ * {@code OFFSET}, so the database starts every page at the cursor in the {@code (deal_timestamp, id)} primary key
+ * (or {@code idx_deals_currency_pair_timestamp_id} when a currency is filtered) and reads only the rows it returns.
+ * Timestamp bounds also prune the scan to the monthly partitions they overlap.
+ *
+ * <p>With several shards a page is the first {@code limit} rows of the per-shard pages merged in
+ * {@code (deal_timestamp, id)} order; ids are unique across shards, so the cursor stays exact.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DealQueryRepository {
+
+    private static final String SELECT_DEALS =
+            "SELECT id, deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount FROM deals";
+
+    /**
+     * The registry supplies the timestamp, so only one partition is probed for the id.
+     */
+    private static final String FIND_BY_DEAL_UNIQUE_ID = """
+            SELECT d.id, d.deal_unique_id, d.from_currency_id, d.to_currency_id, d.deal_timestamp, d.deal_amount
+            FROM deal_unique_ids r
+            JOIN deals d ON d.deal_timestamp = r.deal_timestamp AND d.deal_unique_id = r.deal_unique_id
+            WHERE r.deal_unique_id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CurrencyDictionary currencyDictionary;
+    private final DealShards dealShards;
+
+    /**
+     * Returns the deal with the given id, or nothing when it was never stored or its partition has been purged.
+     */
+    public Optional<Deal> findByDealUniqueId(String dealUniqueId) {
+        return dealShards.read(dealShards.shardOf(dealUniqueId), () ->
+                jdbcTemplate.query(FIND_BY_DEAL_UNIQUE_ID, this::mapDeal, dealUniqueId).stream().findFirst());
+    }
+
+    /**
+     * Returns up to {@code limit} deals matching the criteria, ordered by {@code (deal_timestamp, id)} and
+     * strictly after the given position when one is provided.
+     */
+    public List<Deal> findPage(DealSearchCriteria criteria, Instant afterTimestamp, Long afterId, int limit) {
+        List<Object> arguments = new ArrayList<>();
+        String sql = buildQuery(criteria, afterTimestamp, afterId, limit, arguments);
+        if (sql == null) {
+            return List.of();
+        }
+        List<List<Deal>> pages = dealShards.scatter(shard ->
+                jdbcTemplate.query(sql, this::mapDeal, arguments.toArray()));
+        if (pages.size() == 1) {
+            return pages.get(0);
+        }
+        return pages.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Deal::getDealTimestamp).thenComparing(Deal::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Same query as {@link #findPage}, but rows are handed to {@code consumer} as the driver fetches them,
+     * {@code fetchSize} at a time, instead of being collected. Must run inside a transaction, otherwise the
+     * PostgreSQL driver ignores the fetch size and buffers the whole result. With several shards the merged page
+     * is collected first, so memory is bounded by {@code limit} rows per shard.
+     *
+     * @return the number of rows passed to the consumer
+     */
+    public int streamPage(DealSearchCriteria criteria, Instant afterTimestamp, Long afterId, int limit,
+                          int fetchSize, Consumer<Deal> consumer) {
+        if (dealShards.count() > 1) {
+            List<Deal> page = findPage(criteria, afterTimestamp, afterId, limit);
+            page.forEach(consumer);
+            return page.size();
+        }
+        List<Object> arguments = new ArrayList<>();
+        String sql = buildQuery(criteria, afterTimestamp, afterId, limit, arguments);
+        if (sql == null) {
+            return 0;
+        }
+        int[] rows = {0};
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setFetchSize(fetchSize);
+                    new ArgumentPreparedStatementSetter(arguments.toArray()).setValues(statement);
+                    return statement;
+                },
+                resultSet -> {
+                    consumer.accept(mapDeal(resultSet, rows[0]++));
+                });
+        return rows[0];
+    }
+
+    /**
+     * Appends the bind values to {@code arguments} and returns the SQL, or {@code null} when a currency filter
+     * names a code that no deal uses, in which case nothing can match.
+     */
+    private String buildQuery(DealSearchCriteria criteria, Instant afterTimestamp, Long afterId, int limit,
+                              List<Object> arguments) {
+        List<String> conditions = new ArrayList<>();
+
+        if (criteria.fromCurrencyIso() != null) {
+            Optional<Short> id = currencyDictionary.findId(criteria.fromCurrencyIso());
+            if (id.isEmpty()) {
+                return null;
+            }
+            conditions.add("from_currency_id = ?");
+            arguments.add(id.get());
+        }
+        if (criteria.toCurrencyIso() != null) {
+            Optional<Short> id = currencyDictionary.findId(criteria.toCurrencyIso());
+            if (id.isEmpty()) {
+                return null;
+            }
+            conditions.add("to_currency_id = ?");
+            arguments.add(id.get());
+        }
+        if (criteria.fromTimestamp() != null) {
+            conditions.add("deal_timestamp >= ?");
+            arguments.add(toTimestamptz(criteria.fromTimestamp()));
+        }
+        if (criteria.toTimestamp() != null) {
+            conditions.add("deal_timestamp < ?");
+            arguments.add(toTimestamptz(criteria.toTimestamp()));
+        }
+        if (criteria.minAmount() != null) {
+            conditions.add("deal_amount >= ?");
+            arguments.add(criteria.minAmount());
+        }
+        if (criteria.maxAmount() != null) {
+            conditions.add("deal_amount <= ?");
+            arguments.add(criteria.maxAmount());
+        }
+        if (afterTimestamp != null) {
+            conditions.add("(deal_timestamp, id) > (?, ?)");
+            arguments.add(toTimestamptz(afterTimestamp));
+            arguments.add(afterId);
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_DEALS);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY deal_timestamp, id LIMIT ?");
+        arguments.add(limit);
+        return sql.toString();
+    }
+
+    private Deal mapDeal(ResultSet resultSet, int rowNumber) throws SQLException {
+        return Deal.builder()
+                .id(resultSet.getLong("id"))
+                .dealUniqueId(resultSet.getString("deal_unique_id"))
+                .fromCurrencyIso(currencyDictionary.codeOf(resultSet.getShort("from_currency_id")))
+                .toCurrencyIso(currencyDictionary.codeOf(resultSet.getShort("to_currency_id")))
+                .dealTimestamp(resultSet.getObject("deal_timestamp", OffsetDateTime.class).toInstant())
+                .dealAmount(resultSet.getBigDecimal("deal_amount"))
+                .build();
+    }
+
+    private static OffsetDateTime toTimestamptz(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
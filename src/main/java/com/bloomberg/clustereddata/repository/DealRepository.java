@@ -2,11 +2,15 @@ package com.bloomberg.clustereddata.repository;
 
 import com.bloomberg.clustereddata.domain.Deal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface DealRepository extends JpaRepository<Deal, Long> {
 
-    boolean existsByDealUniqueId(String dealUniqueId);
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM deal_unique_ids WHERE deal_unique_id = :dealUniqueId)",
+            nativeQuery = true)
+    boolean existsByDealUniqueId(@Param("dealUniqueId") String dealUniqueId);
 }
 
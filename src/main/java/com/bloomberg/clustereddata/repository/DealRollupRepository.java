@@ -0,0 +1,186 @@
+package com.bloomberg.clustereddata.repository;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealVolumeAggregate;
+import com.bloomberg.clustereddata.dto.RollupGranularity;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Access to {@code deal_volume_rollups}. Rollups are only ever added to in the transaction that inserts the
+ * deals they count, so a rejected duplicate never reaches them. Every upsert touches its rows in primary key
+ * order, which keeps concurrent import lanes updating the same buckets from deadlocking.
+ *
+ * <p>Each shard rolls up its own deals; reads add up the buckets of all shards.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DealRollupRepository {
+
+    static final String GRANULARITIES =
+            "(VALUES ('MINUTE', 'minute'), ('HOUR', 'hour'), ('DAY', 'day')) AS g(granularity, unit)";
+
+    static final String ROLLUP_COLUMNS =
+            "granularity, from_currency_id, to_currency_id, bucket_start, deal_count, total_amount";
+
+    static final String ADD_TO_EXISTING = """
+            ON CONFLICT (granularity, from_currency_id, to_currency_id, bucket_start) DO UPDATE
+            SET deal_count = deal_volume_rollups.deal_count + EXCLUDED.deal_count,
+                total_amount = deal_volume_rollups.total_amount + EXCLUDED.total_amount
+            """;
+
+    /**
+     * CTE that folds the rows of a preceding {@code inserted} CTE into the rollups. {@code inserted} must
+     * return {@code from_currency_id, to_currency_id, deal_timestamp, deal_amount}.
+     */
+    static final String ROLL_UP_INSERTED = """
+            rolled_up AS (
+                INSERT INTO deal_volume_rollups (%s)
+                SELECT g.granularity, i.from_currency_id, i.to_currency_id, date_trunc(g.unit, i.deal_timestamp, 'UTC'),
+                       count(*), sum(i.deal_amount)
+                FROM inserted i CROSS JOIN %s
+                GROUP BY 1, 2, 3, 4
+                ORDER BY 1, 2, 3, 4
+                %s
+            )
+            """.formatted(ROLLUP_COLUMNS, GRANULARITIES, ADD_TO_EXISTING);
+
+    private static final String ADD_DEAL = """
+            INSERT INTO deal_volume_rollups (%s)
+            SELECT g.granularity, ?::smallint, ?::smallint, date_trunc(g.unit, ?::timestamptz, 'UTC'), 1, ?::numeric
+            FROM %s
+            ORDER BY 1
+            %s
+            """.formatted(ROLLUP_COLUMNS, GRANULARITIES, ADD_TO_EXISTING);
+
+    private static final String REBUILD = """
+            INSERT INTO deal_volume_rollups (%s)
+            SELECT g.granularity, d.from_currency_id, d.to_currency_id, date_trunc(g.unit, d.deal_timestamp, 'UTC'),
+                   count(*), sum(d.deal_amount)
+            FROM deals d CROSS JOIN %s
+            GROUP BY 1, 2, 3, 4
+            """.formatted(ROLLUP_COLUMNS, GRANULARITIES);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CurrencyDictionary currencyDictionary;
+    private final DealShards dealShards;
+
+    /**
+     * Adds one freshly inserted deal to its minute, hour and day buckets. Must run in the inserting transaction.
+     */
+    public void addDeal(Deal deal) {
+        jdbcTemplate.update(ADD_DEAL,
+                currencyDictionary.idOf(deal.getFromCurrencyIso()),
+                currencyDictionary.idOf(deal.getToCurrencyIso()),
+                deal.getDealTimestamp().atOffset(ZoneOffset.UTC),
+                deal.getDealAmount());
+    }
+
+    /**
+     * Returns the buckets starting in {@code [from, to)}, optionally for one currency or pair, ordered by pair
+     * and bucket start. At most {@code limit} rows are read.
+     */
+    public List<DealVolumeAggregate> findVolumes(RollupGranularity granularity, Instant from, Instant to,
+                                                 String fromCurrencyIso, String toCurrencyIso, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT from_currency_id, to_currency_id, bucket_start, deal_count, total_amount
+                FROM deal_volume_rollups
+                WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?
+                """);
+        List<Object> arguments = new ArrayList<>(List.of(granularity.name(), toTimestamptz(from), toTimestamptz(to)));
+        if (fromCurrencyIso != null) {
+            Optional<Short> id = currencyDictionary.findId(fromCurrencyIso);
+            if (id.isEmpty()) {
+                return List.of();
+            }
+            sql.append(" AND from_currency_id = ?");
+            arguments.add(id.get());
+        }
+        if (toCurrencyIso != null) {
+            Optional<Short> id = currencyDictionary.findId(toCurrencyIso);
+            if (id.isEmpty()) {
+                return List.of();
+            }
+            sql.append(" AND to_currency_id = ?");
+            arguments.add(id.get());
+        }
+        sql.append(" ORDER BY from_currency_id, to_currency_id, bucket_start LIMIT ?");
+        arguments.add(limit);
+
+        String query = sql.toString();
+        List<List<VolumeRow>> shards = dealShards.scatter(shard ->
+                jdbcTemplate.query(query, (resultSet, rowNumber) -> new VolumeRow(
+                        resultSet.getShort(1),
+                        resultSet.getShort(2),
+                        resultSet.getObject(3, OffsetDateTime.class).toInstant(),
+                        resultSet.getLong(4),
+                        resultSet.getBigDecimal(5)), arguments.toArray()));
+
+        // Every shard returned its first rows in key order, so the first limit keys of the union are complete.
+        Map<VolumeKey, VolumeRow> merged = new TreeMap<>();
+        shards.forEach(rows -> rows.forEach(row -> merged.merge(row.key(), row, VolumeRow::plus)));
+        return merged.values().stream()
+                .limit(limit)
+                .map(row -> DealVolumeAggregate.builder()
+                        .fromCurrencyIso(currencyDictionary.codeOf(row.key().fromCurrencyId()))
+                        .toCurrencyIso(currencyDictionary.codeOf(row.key().toCurrencyId()))
+                        .bucketStart(row.key().bucketStart())
+                        .dealCount(row.dealCount())
+                        .totalAmount(row.totalAmount())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Recomputes the rollups of the selected shard from its {@code deals}. Must run inside a transaction:
+     * {@code deals} is locked in {@code SHARE} mode until it commits, which holds back concurrent inserts so none
+     * is counted twice or missed, while readers keep seeing the old rollups.
+     *
+     * @return the number of rollup rows written
+     */
+    public int rebuild() {
+        jdbcTemplate.execute("LOCK TABLE deals IN SHARE MODE");
+        jdbcTemplate.update("DELETE FROM deal_volume_rollups");
+        return jdbcTemplate.update(REBUILD);
+    }
+
+    private record VolumeKey(short fromCurrencyId, short toCurrencyId, Instant bucketStart)
+            implements Comparable<VolumeKey> {
+
+        private static final Comparator<VolumeKey> ORDER = Comparator.comparingInt(VolumeKey::fromCurrencyId)
+                .thenComparingInt(VolumeKey::toCurrencyId)
+                .thenComparing(VolumeKey::bucketStart);
+
+        @Override
+        public int compareTo(VolumeKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private record VolumeRow(VolumeKey key, long dealCount, BigDecimal totalAmount) {
+
+        VolumeRow(short fromCurrencyId, short toCurrencyId, Instant bucketStart, long dealCount,
+                  BigDecimal totalAmount) {
+            this(new VolumeKey(fromCurrencyId, toCurrencyId, bucketStart), dealCount, totalAmount);
+        }
+
+        VolumeRow plus(VolumeRow other) {
+            return new VolumeRow(key, dealCount + other.dealCount, totalAmount.add(other.totalAmount));
+        }
+    }
+
+    private static OffsetDateTime toTimestamptz(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,173 @@
+package com.bloomberg.clustereddata.repository;
+
+import com.bloomberg.clustereddata.config.DealShardingProperties;
+import com.bloomberg.clustereddata.util.ShardHash;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes database work to the shards configured in {@code deals.sharding}. A deal lives on the shard that
+ * {@link ShardHash} assigns to its {@code dealUniqueId}, together with its registry entry and its share of the
+ * volume rollups, so uniqueness is checked by its owning shard alone.
+ *
+ * <p>{@link #on(int, Supplier)} selects the shard for the statements run inside it. The sharded data source
+ * hands out connections lazily, so a transaction is bound to the shard of its first statement: one transaction
+ * must only ever touch one shard. Without additional shards every call runs against the single database as
+ * before, and {@link #scatter(IntFunction)} runs in the calling thread.
+ *
+ * <p>Work moved to another thread by {@link #read(int, Supplier)} or {@link #scatter(IntFunction)} is marked
+ * read-only when the caller's transaction is, so it is served by the shards' read replicas like the caller.
+ */
+@Component
+public class DealShards {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int count;
+    private final ExecutorService scatterPool;
+
+    public DealShards(DealShardingProperties properties) {
+        this.count = properties.shards().size() + 1;
+        AtomicInteger threads = new AtomicInteger();
+        this.scatterPool = count == 1 ? null : Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "deal-shard-scatter-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The shard selected for the current thread, or {@code null} for shard 0.
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(String dealUniqueId) {
+        return count == 1 ? 0 : ShardHash.shardOf(dealUniqueId, count);
+    }
+
+    /**
+     * Groups items by the shard owning their deal id, in shard order, keeping the order within each shard.
+     */
+    public <T> Map<Integer, List<T>> partition(Collection<T> items, Function<T, String> dealUniqueId) {
+        Map<Integer, List<T>> partitions = new TreeMap<>();
+        if (count == 1) {
+            partitions.put(0, items instanceof List<T> list ? list : new ArrayList<>(items));
+            return partitions;
+        }
+        for (T item : items) {
+            partitions.computeIfAbsent(shardOf(dealUniqueId.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return partitions;
+    }
+
+    /**
+     * Runs {@code work} with its statements routed to {@code shard}.
+     */
+    public <T> T on(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void run(int shard, Runnable work) {
+        on(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a read on one shard, outside the caller's transaction when there are several shards, so it does not
+     * depend on which shard that transaction is bound to.
+     */
+    public <T> T read(int shard, Supplier<T> work) {
+        if (count == 1) {
+            return work.get();
+        }
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return await(List.of(scatterPool.submit(() -> on(shard, readOnly, work)))).get(0);
+    }
+
+    /**
+     * Runs {@code work} once per shard, concurrently and outside the caller's transaction when there are
+     * several shards.
+     *
+     * @return the results in shard order
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (count == 1) {
+            return List.of(work.apply(0));
+        }
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(scatterPool.submit(() -> on(target, readOnly, () -> work.apply(target))));
+        }
+        return await(futures);
+    }
+
+    private <T> T on(int shard, boolean readOnly, Supplier<T> work) {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        try {
+            return on(shard, work);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+
+    private static <T> List<T> await(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException exception) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying deal shards", exception);
+        } catch (ExecutionException exception) {
+            futures.forEach(future -> future.cancel(true));
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to query deal shards", exception.getCause());
+        }
+        return results;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scatterPool != null) {
+            scatterPool.shutdownNow();
+        }
+    }
+}
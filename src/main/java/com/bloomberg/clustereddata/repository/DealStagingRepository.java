@@ -0,0 +1,179 @@
+package com.bloomberg.clustereddata.repository;
+
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Access to the unlogged {@code deals_import_staging} table used by COPY-based bulk imports. Every import
+ * writes under its own {@code import_id}, so concurrent imports never see each other's rows. Rows are staged on
+ * the shard that owns their id, and every shard merges its own staging area.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DealStagingRepository {
+
+    private static final String COPY_INTO_STAGING = """
+            COPY deals_import_staging
+                (import_id, row_number, deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount)
+            FROM STDIN WITH (FORMAT text)
+            """;
+
+    /**
+     * Inserts the first occurrence of every staged id that is not yet registered and returns every
+     * other staged row, i.e. in-file repeats and ids that already existed, ordered by row number. Inserted rows
+     * are added to the volume rollups in the same statement. Their ids, and their distinct pairs and UTC
+     * minutes, follow the duplicates with a {@code NULL} row number.
+     */
+    private static final String MERGE_INTO_DEALS = """
+            WITH first_occurrences AS (
+                SELECT DISTINCT ON (deal_unique_id)
+                       row_number, deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount
+                FROM deals_import_staging
+                WHERE import_id = ?
+                ORDER BY deal_unique_id, row_number
+            ),
+            registered AS (
+                INSERT INTO deal_unique_ids (deal_unique_id, deal_timestamp)
+                SELECT deal_unique_id, deal_timestamp FROM first_occurrences
+                ORDER BY deal_unique_id
+                ON CONFLICT (deal_unique_id) DO NOTHING
+                RETURNING deal_unique_id
+            ),
+            inserted AS (
+                INSERT INTO deals (deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount, created_at)
+                SELECT first_occurrences.deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount,
+                       CURRENT_TIMESTAMP
+                FROM first_occurrences JOIN registered USING (deal_unique_id)
+                ORDER BY row_number
+                RETURNING deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount
+            ),
+            """ + DealRollupRepository.ROLL_UP_INSERTED + """
+            SELECT staging.row_number, staging.deal_unique_id,
+                   NULL::smallint AS from_currency_id, NULL::smallint AS to_currency_id, NULL::timestamptz AS minute
+            FROM deals_import_staging staging
+            LEFT JOIN first_occurrences ON first_occurrences.row_number = staging.row_number
+            LEFT JOIN inserted ON inserted.deal_unique_id = first_occurrences.deal_unique_id
+            WHERE staging.import_id = ? AND inserted.deal_unique_id IS NULL
+            UNION ALL
+            SELECT NULL::int, deal_unique_id, NULL::smallint, NULL::smallint, NULL::timestamptz
+            FROM inserted
+            UNION ALL
+            SELECT DISTINCT NULL::int, NULL::varchar, from_currency_id, to_currency_id,
+                   date_trunc('minute', deal_timestamp, 'UTC')
+            FROM inserted
+            ORDER BY 1
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CurrencyDictionary currencyDictionary;
+    private final DealShards dealShards;
+
+    /**
+     * Appends the rows to the staging area of the given import with a single {@code COPY FROM STDIN} per shard.
+     * Must not run inside a transaction, so that each shard's {@code COPY} gets a connection to that shard.
+     */
+    public long copy(UUID importId, List<DealCsvRow> rows) {
+        long copied = 0;
+        for (Map.Entry<Integer, List<DealCsvRow>> shard
+                : dealShards.partition(rows, row -> row.dealRequest().getDealUniqueId()).entrySet()) {
+            copied += dealShards.on(shard.getKey(), () -> copyToShard(importId, shard.getValue()));
+        }
+        return copied;
+    }
+
+    private long copyToShard(UUID importId, List<DealCsvRow> rows) {
+        byte[] payload = encode(importId, rows);
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class)
+                        .getCopyAPI()
+                        .copyIn(COPY_INTO_STAGING, new ByteArrayInputStream(payload));
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    /**
+     * Merges the staged rows of the import into {@code deals} on the selected shard. Must run inside a transaction
+     * together with {@link #clear(UUID)}.
+     */
+    public void merge(UUID importId, MergeListener listener) {
+        jdbcTemplate.query(MERGE_INTO_DEALS, (RowCallbackHandler) resultSet -> {
+            int rowNumber = resultSet.getInt(1);
+            if (!resultSet.wasNull()) {
+                listener.duplicate(rowNumber, resultSet.getString(2));
+            } else if (resultSet.getString(2) != null) {
+                listener.stored(resultSet.getString(2));
+            } else {
+                listener.inserted(currencyDictionary.codeOf(resultSet.getShort(3)),
+                        currencyDictionary.codeOf(resultSet.getShort(4)),
+                        resultSet.getObject(5, OffsetDateTime.class).toInstant());
+            }
+        }, importId, importId);
+    }
+
+    public void clear(UUID importId) {
+        jdbcTemplate.update("DELETE FROM deals_import_staging WHERE import_id = ?", importId);
+    }
+
+    /**
+     * Receives the outcome of {@link #merge(UUID, MergeListener)}.
+     */
+    public interface MergeListener {
+
+        /** A staged row that was not inserted, in row order. */
+        void duplicate(int rowNumber, String dealUniqueId);
+
+        /** The id of an inserted deal. */
+        void stored(String dealUniqueId);
+
+        /** A pair and UTC minute that received at least one inserted deal. */
+        void inserted(String fromCurrencyIso, String toCurrencyIso, Instant minute);
+    }
+
+    private byte[] encode(UUID importId, List<DealCsvRow> rows) {
+        String prefix = importId + "\t";
+        StringBuilder buffer = new StringBuilder(rows.size() * 96);
+        for (DealCsvRow row : rows) {
+            DealRequest request = row.dealRequest();
+            buffer.append(prefix).append(row.rowNumber()).append('\t');
+            appendEscaped(buffer, request.getDealUniqueId()).append('\t');
+            buffer.append(currencyDictionary.idOf(request.getFromCurrencyIso())).append('\t');
+            buffer.append(currencyDictionary.idOf(request.getToCurrencyIso())).append('\t');
+            buffer.append(request.getDealTimestamp()).append('\t');
+            buffer.append(request.getDealAmount().toPlainString()).append('\n');
+        }
+        return buffer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private StringBuilder appendEscaped(StringBuilder buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,89 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DealImportProperties;
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.repository.DealShards;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes rows in multi-row batches of {@code deals.import.batch-size}, one transaction per batch. Duplicates
+ * are detected from the ids the INSERT returns instead of from constraint violations, so they never roll
+ * back the rest of their batch. If a batch fails for any other reason it is retried row by row, which keeps
+ * the failure isolated to the offending rows. A batch spanning several shards is written as one batch per
+ * shard, so a failure on one shard never replays rows another shard has committed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchDealImportWriter implements DealImportWriter {
+
+    private final DealPersistenceService dealPersistenceService;
+    private final RowDealImportWriter rowDealImportWriter;
+    private final DealImportProperties importProperties;
+    private final DealShards dealShards;
+
+    @Override
+    public ImportMode mode() {
+        return ImportMode.BATCH;
+    }
+
+    @Override
+    public Session open() {
+        return this::write;
+    }
+
+    public List<DealImportFailure> write(List<DealCsvRow> rows) {
+        List<DealImportFailure> failures = new ArrayList<>();
+        int batchSize = importProperties.batchSize();
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<DealCsvRow> batch = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            for (List<DealCsvRow> shardBatch
+                    : dealShards.partition(batch, row -> row.dealRequest().getDealUniqueId()).values()) {
+                failures.addAll(writeBatch(shardBatch));
+            }
+        }
+        if (dealShards.count() > 1) {
+            failures.sort(Comparator.comparingInt(DealImportFailure::rowNumber));
+        }
+        return failures;
+    }
+
+    private List<DealImportFailure> writeBatch(List<DealCsvRow> batch) {
+        Map<String, Deal> firstOccurrences = new LinkedHashMap<>(batch.size() * 2);
+        for (DealCsvRow row : batch) {
+            firstOccurrences.putIfAbsent(row.dealRequest().getDealUniqueId(), DealMapper.toEntity(row.dealRequest()));
+        }
+
+        Set<String> inserted;
+        try {
+            inserted = dealPersistenceService.saveBatch(List.copyOf(firstOccurrences.values()));
+        } catch (DataAccessException exception) {
+            log.warn("Batch insert of {} rows failed, retrying row by row", batch.size(), exception);
+            return rowDealImportWriter.write(batch);
+        }
+
+        List<DealImportFailure> failures = new ArrayList<>();
+        for (DealCsvRow row : batch) {
+            String dealUniqueId = row.dealRequest().getDealUniqueId();
+            if (!inserted.remove(dealUniqueId)) {
+                failures.add(DealImportFailures.of(row, ImportFailureCategory.DUPLICATE,
+                        DealAlreadyExistsException.messageFor(dealUniqueId)));
+            }
+        }
+        return failures;
+    }
+}
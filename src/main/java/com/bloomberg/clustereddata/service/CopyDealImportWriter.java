@@ -0,0 +1,195 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.repository.DealShards;
+import com.bloomberg.clustereddata.repository.DealStagingRepository;
+import com.bloomberg.clustereddata.repository.DealStagingRepository.MergeListener;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk mode for very large files. Each chunk is streamed into {@code deals_import_staging} with
+ * {@code COPY}; when the file has been read, one set-based statement moves the first occurrence of every
+ * new id into {@code deals} and reports the remaining rows as duplicates.
+ *
+ * <p>Unlike {@link ImportMode#ROW} and {@link ImportMode#BATCH}, no row reaches {@code deals} before the
+ * whole file has been staged. Every shard merges its rows in its own transaction; when some shards' merges fail
+ * after others committed, the rows staged on the failed shards are reported as {@link ImportFailureCategory#WRITE}
+ * failures, and only when no shard committed does the import fail as a whole.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CopyDealImportWriter implements DealImportWriter {
+
+    /** Integer digits that fit into {@code NUMERIC(19,4)}. */
+    private static final int MAX_INTEGER_DIGITS = 15;
+
+    private final DealStagingRepository dealStagingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DealShards dealShards;
+    private final KnownDealIds knownDealIds;
+
+    @Override
+    public ImportMode mode() {
+        return ImportMode.COPY;
+    }
+
+    @Override
+    public Session open() {
+        return new CopySession(UUID.randomUUID());
+    }
+
+    private final class CopySession implements Session {
+
+        private final UUID importId;
+        /** Row numbers staged on every shard, to report the rows of a shard whose merge fails. */
+        private final BitSet[] stagedRows;
+        private final boolean[] merged;
+
+        private CopySession(UUID importId) {
+            this.importId = importId;
+            this.stagedRows = new BitSet[dealShards.count()];
+            this.merged = new boolean[dealShards.count()];
+            for (int shard = 0; shard < stagedRows.length; shard++) {
+                stagedRows[shard] = new BitSet();
+            }
+        }
+
+        @Override
+        public List<DealImportFailure> write(List<DealCsvRow> rows) {
+            // A single out-of-range amount would abort the COPY of the whole chunk, so reject it up front.
+            List<DealCsvRow> staged = new ArrayList<>(rows.size());
+            List<DealImportFailure> failures = new ArrayList<>();
+            for (DealCsvRow row : rows) {
+                if (fitsAmountColumn(row.dealRequest().getDealAmount())) {
+                    staged.add(row);
+                } else {
+                    failures.add(DealImportFailures.of(row, ImportFailureCategory.WRITE,
+                            "Unexpected error: deal_amount exceeds NUMERIC(19,4)"));
+                }
+            }
+            if (!staged.isEmpty()) {
+                dealStagingRepository.copy(importId, staged);
+                recordStaged(staged);
+            }
+            return failures;
+        }
+
+        @Override
+        public boolean commitsOnWrite() {
+            return false;
+        }
+
+        @Override
+        public List<DealImportFailure> complete() {
+            List<DealImportFailure> failures = new ArrayList<>();
+            RuntimeException firstFailure = null;
+            for (int shard = 0; shard < dealShards.count(); shard++) {
+                List<DealImportFailure> duplicates = new ArrayList<>();
+                try {
+                    dealShards.run(shard, () -> merge(duplicates));
+                    merged[shard] = true;
+                    failures.addAll(duplicates);
+                } catch (RuntimeException exception) {
+                    log.error("Failed to merge import {} on shard {}", importId, shard, exception);
+                    if (firstFailure == null) {
+                        firstFailure = exception;
+                    }
+                    String reason = "Unexpected error: " + exception.getMessage();
+                    stagedRows[shard].stream().forEach(rowNumber -> failures.add(DealImportFailure.builder()
+                            .rowNumber(rowNumber)
+                            .category(ImportFailureCategory.WRITE)
+                            .reason(reason)
+                            .build()));
+                }
+            }
+            if (firstFailure != null && !anyMerged()) {
+                throw firstFailure;
+            }
+            if (dealShards.count() > 1) {
+                failures.sort(Comparator.comparingInt(DealImportFailure::rowNumber));
+            }
+            return failures;
+        }
+
+        @Override
+        public void close() {
+            for (int shard = 0; shard < dealShards.count(); shard++) {
+                if (merged[shard]) {
+                    continue;
+                }
+                try {
+                    dealShards.run(shard, () -> dealStagingRepository.clear(importId));
+                } catch (RuntimeException exception) {
+                    log.warn("Failed to clear staged rows of import {} on shard {}", importId, shard, exception);
+                }
+            }
+        }
+
+        private void merge(List<DealImportFailure> duplicates) {
+            IngestedDeals ingested = new IngestedDeals();
+            transactionTemplate.executeWithoutResult(status -> {
+                dealStagingRepository.merge(importId, new MergeListener() {
+                    @Override
+                    public void duplicate(int rowNumber, String dealUniqueId) {
+                        duplicates.add(DealImportFailure.builder()
+                                .rowNumber(rowNumber)
+                                .category(ImportFailureCategory.DUPLICATE)
+                                .reason(DealAlreadyExistsException.messageFor(dealUniqueId))
+                                .build());
+                    }
+
+                    @Override
+                    public void stored(String dealUniqueId) {
+                        knownDealIds.record(dealUniqueId);
+                        ingested.addId(dealUniqueId);
+                    }
+
+                    @Override
+                    public void inserted(String fromCurrencyIso, String toCurrencyIso, Instant minute) {
+                        ingested.addBucket(fromCurrencyIso, toCurrencyIso, minute);
+                    }
+                });
+                dealStagingRepository.clear(importId);
+                if (!ingested.isEmpty()) {
+                    eventPublisher.publishEvent(ingested.toEvent());
+                }
+            });
+        }
+
+        private synchronized void recordStaged(List<DealCsvRow> rows) {
+            for (DealCsvRow row : rows) {
+                stagedRows[dealShards.shardOf(row.dealRequest().getDealUniqueId())].set(row.rowNumber());
+            }
+        }
+
+        private boolean anyMerged() {
+            for (boolean shardMerged : merged) {
+                if (shardMerged) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean fitsAmountColumn(BigDecimal amount) {
+            return amount.precision() - amount.scale() <= MAX_INTEGER_DIGITS;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealVolumeAggregate;
+import com.bloomberg.clustereddata.dto.RollupGranularity;
+import com.bloomberg.clustereddata.exception.InvalidDealQueryException;
+import com.bloomberg.clustereddata.repository.DealRollupRepository;
+import com.bloomberg.clustereddata.repository.DealShards;
+import com.bloomberg.clustereddata.service.DealReadCache.VolumeQuery;
+import java.time.Instant;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Serves per-pair volume aggregates from the incrementally maintained rollups instead of grouping raw deals.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DealAggregateService {
+
+    /** Upper bound on buckets returned by one request, e.g. about 70 days of minutes for a single pair. */
+    static final int MAX_BUCKETS = 100_000;
+
+    private final DealRollupRepository dealRollupRepository;
+    private final DealReadCache dealReadCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DealShards dealShards;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Returns the buckets of the given width that start in {@code [from, to)}, optionally restricted to one
+     * from-currency, to-currency or pair. Results are served through {@link DealReadCache}.
+     */
+    @Transactional(readOnly = true)
+    public List<DealVolumeAggregate> findVolumes(RollupGranularity granularity, Instant from, Instant to,
+                                                 String fromCurrencyIso, String toCurrencyIso) {
+        if (!from.isBefore(to)) {
+            throw new InvalidDealQueryException("fromTimestamp must be before toTimestamp");
+        }
+        VolumeQuery query = new VolumeQuery(granularity, from, to, fromCurrencyIso, toCurrencyIso);
+        return dealReadCache.getVolumes(query, this::loadVolumes);
+    }
+
+    /**
+     * Recomputes all rollups from {@code deals}, one transaction per shard. Inserts into a shard wait until its
+     * rebuild commits.
+     */
+    public int rebuild() {
+        int rows = 0;
+        for (int shard = 0; shard < dealShards.count(); shard++) {
+            Integer shardRows = dealShards.on(shard, () -> transactionTemplate.execute(status ->
+                    dealRollupRepository.rebuild()));
+            rows += shardRows == null ? 0 : shardRows;
+        }
+        log.info("Rebuilt deal volume rollups: {} rows", rows);
+        eventPublisher.publishEvent(new RollupsRebuiltEvent());
+        return rows;
+    }
+
+    private List<DealVolumeAggregate> loadVolumes(VolumeQuery query) {
+        List<DealVolumeAggregate> volumes = dealRollupRepository.findVolumes(query.granularity(), query.from(),
+                query.to(), query.fromCurrencyIso(), query.toCurrencyIso(), MAX_BUCKETS + 1);
+        if (volumes.size() > MAX_BUCKETS) {
+            throw new InvalidDealQueryException(
+                    "More than %d buckets match; narrow the time range or use a coarser granularity"
+                            .formatted(MAX_BUCKETS));
+        }
+        return volumes;
+    }
+}
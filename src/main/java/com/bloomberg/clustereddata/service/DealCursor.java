@@ -0,0 +1,38 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.exception.InvalidDealQueryException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of the last deal of a page. Clients receive it as an opaque URL-safe token and must send it back
+ * with the same filters to get the next page.
+ */
+record DealCursor(Instant dealTimestamp, long id) {
+
+    static DealCursor after(Deal deal) {
+        return new DealCursor(deal.getDealTimestamp(), deal.getId());
+    }
+
+    static DealCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            if (separator < 0) {
+                throw new InvalidDealQueryException("Invalid cursor '%s'".formatted(token));
+            }
+            return new DealCursor(Instant.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeException exception) {
+            throw new InvalidDealQueryException("Invalid cursor '%s'".formatted(token), exception);
+        }
+    }
+
+    String encode() {
+        String value = dealTimestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
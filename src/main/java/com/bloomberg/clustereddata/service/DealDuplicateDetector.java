@@ -0,0 +1,40 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DuplicateDetectionProperties;
+import com.bloomberg.clustereddata.repository.DealJdbcRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds ids that are already stored with one bulk lookup per chunk, so that duplicates are reported without
+ * an insert attempt, a constraint violation and a rollback each.
+ */
+@Component
+@RequiredArgsConstructor
+public class DealDuplicateDetector {
+
+    private final DuplicateDetectionProperties properties;
+    private final KnownDealIds knownDealIds;
+    private final DealJdbcRepository dealJdbcRepository;
+
+    public boolean isEnabled() {
+        return properties.preflight();
+    }
+
+    /**
+     * @return the subset of {@code dealUniqueIds} that already exists in {@code deals}
+     */
+    public Set<String> findExisting(Collection<String> dealUniqueIds) {
+        List<String> candidates = new ArrayList<>(dealUniqueIds.size());
+        for (String dealUniqueId : dealUniqueIds) {
+            if (knownDealIds.mightExist(dealUniqueId)) {
+                candidates.add(dealUniqueId);
+            }
+        }
+        return candidates.isEmpty() ? Set.of() : dealJdbcRepository.findExistingIds(candidates);
+    }
+}
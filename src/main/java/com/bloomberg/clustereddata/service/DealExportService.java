@@ -0,0 +1,127 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DealExportProperties;
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import com.bloomberg.clustereddata.dto.ExportFormat;
+import com.bloomberg.clustereddata.repository.DealQueryRepository;
+import com.bloomberg.clustereddata.util.CsvDealParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Streams deals out as CSV or NDJSON. The export walks the result in keyset segments of
+ * {@code deals.export.segment-size} rows. Each segment is read through a server-side cursor in its own short
+ * read-only transaction and encoded into a buffer that is written to the client only after the transaction has
+ * ended. Memory is bounded by one segment whatever the export size, and a slow or stalled client holds a
+ * connection from the pool but never an open transaction.
+ */
+@Slf4j
+@Service
+public class DealExportService {
+
+    private static final byte[] CSV_HEADER = (CsvDealParser.HEADER_ROW + "\n").getBytes(StandardCharsets.UTF_8);
+
+    private final DealQueryRepository dealQueryRepository;
+    private final DealExportProperties exportProperties;
+    private final ObjectWriter dealWriter;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public DealExportService(DealQueryRepository dealQueryRepository, DealExportProperties exportProperties,
+                             ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.dealQueryRepository = dealQueryRepository;
+        this.exportProperties = exportProperties;
+        this.dealWriter = objectMapper.writerFor(DealResponse.class);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Validates the criteria up front, so bad requests fail before the response is committed, and returns the
+     * body that writes the export.
+     */
+    public StreamingResponseBody export(DealSearchCriteria criteria, ExportFormat format) {
+        DealQueryService.validate(criteria);
+        return outputStream -> write(criteria, format, outputStream);
+    }
+
+    void write(DealSearchCriteria criteria, ExportFormat format, OutputStream outputStream) throws IOException {
+        if (format == ExportFormat.CSV) {
+            outputStream.write(CSV_HEADER);
+        }
+        ByteArrayOutputStream segment = new ByteArrayOutputStream(64 * 1024);
+        Deal[] last = {null};
+        long exported = 0;
+        int read;
+        do {
+            segment.reset();
+            DealCursor after = last[0] == null ? null : DealCursor.after(last[0]);
+            Integer rows = readOnlyTransaction.execute(status -> dealQueryRepository.streamPage(criteria,
+                    after == null ? null : after.dealTimestamp(), after == null ? null : after.id(),
+                    exportProperties.segmentSize(), exportProperties.fetchSize(),
+                    deal -> {
+                        encode(deal, format, segment);
+                        last[0] = deal;
+                    }));
+            read = rows == null ? 0 : rows;
+            exported += read;
+            segment.writeTo(outputStream);
+            outputStream.flush();
+        } while (read == exportProperties.segmentSize());
+        log.info("Exported {} deals as {}", exported, format);
+    }
+
+    private void encode(Deal deal, ExportFormat format, ByteArrayOutputStream segment) {
+        if (format == ExportFormat.NDJSON) {
+            try {
+                segment.writeBytes(dealWriter.writeValueAsBytes(DealMapper.toResponse(deal)));
+            } catch (JsonProcessingException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            segment.write('\n');
+            return;
+        }
+        StringBuilder line = new StringBuilder(96);
+        appendCsvValue(line, deal.getDealUniqueId()).append(',')
+                .append(deal.getFromCurrencyIso()).append(',')
+                .append(deal.getToCurrencyIso()).append(',')
+                .append(deal.getDealTimestamp()).append(',')
+                .append(deal.getDealAmount().toPlainString()).append('\n');
+        segment.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Quotes values the import would otherwise split into several fields or rows.
+     */
+    static StringBuilder appendCsvValue(StringBuilder line, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+}
@@ -0,0 +1,187 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DealGroupCommitProperties;
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.repository.DealShards;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes concurrently created deals with one insert statement and one transaction per group, instead of one
+ * transaction each. Callers queue their deal and wait; a dedicated writer takes everything queued (up to
+ * {@code deals.create.group-commit.max-batch-size}, optionally waiting {@code window} for more) and stores it
+ * through {@link DealPersistenceService#saveBatch(List)}. Each caller still gets its own outcome: the stored
+ * deal with its id, or {@link DealAlreadyExistsException} when the id was stored before or earlier in the same
+ * group. Duplicates are skipped by the statement rather than caught as constraint violations, so they cost
+ * neither a round trip nor a rollback.
+ *
+ * <p>A group is committed per shard. If a shard's part fails as a whole, its deals are retried one transaction
+ * each, so a single broken deal only fails its own request. A request waits at most
+ * {@code deals.create.group-commit.timeout} for its group, so a stalled writer cannot hold request threads
+ * forever.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "deals.create.group-commit", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class DealGroupCommitter {
+
+    private final DealGroupCommitProperties properties;
+    private final DealPersistenceService dealPersistenceService;
+    private final DealShards dealShards;
+    private final BlockingQueue<PendingDeal> queue = new LinkedBlockingQueue<>();
+    private final DistributionSummary groupSize;
+    private volatile boolean running;
+    private Thread writer;
+
+    public DealGroupCommitter(DealGroupCommitProperties properties, DealPersistenceService dealPersistenceService,
+                              DealShards dealShards, MeterRegistry registry) {
+        this.properties = properties;
+        this.dealPersistenceService = dealPersistenceService;
+        this.dealShards = dealShards;
+        this.groupSize = DistributionSummary.builder("deals.create.group.size")
+                .description("Deals written by one group commit")
+                .register(registry);
+        Gauge.builder("deals.create.group.queued", queue, BlockingQueue::size)
+                .description("Created deals waiting for the next group commit")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "deal-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        for (PendingDeal pending = queue.poll(); pending != null; pending = queue.poll()) {
+            pending.outcome().completeExceptionally(new IllegalStateException("Deal group commit is stopped"));
+        }
+    }
+
+    /**
+     * Stores the deal as part of the next group and waits for the outcome.
+     *
+     * @throws DealAlreadyExistsException when the id is already stored
+     */
+    public Deal save(Deal deal) {
+        PendingDeal pending = new PendingDeal(deal, new CompletableFuture<>());
+        if (!running) {
+            throw new IllegalStateException("Deal group commit is stopped");
+        }
+        queue.add(pending);
+        // stop() may have drained the queue between the check and the add; whoever removes the deal completes it.
+        if (!running && queue.remove(pending)) {
+            throw new IllegalStateException("Deal group commit is stopped");
+        }
+        try {
+            return pending.outcome().get(properties.timeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException exception) {
+            if (queue.remove(pending)) {
+                throw new IllegalStateException("Timed out waiting to store deal " + deal.getDealUniqueId(),
+                        exception);
+            }
+            throw new IllegalStateException("Timed out storing deal %s; it may have been stored"
+                    .formatted(deal.getDealUniqueId()), exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while storing deal " + deal.getDealUniqueId(), exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to store deal " + deal.getDealUniqueId(), exception.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingDeal> group = new ArrayList<>(properties.maxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException stopping) {
+                // Write what was collected; the loop then drains the queue without blocking.
+            }
+            if (!group.isEmpty()) {
+                groupSize.record(group.size());
+                dealShards.partition(group, pending -> pending.deal().getDealUniqueId())
+                        .values()
+                        .forEach(this::write);
+                group.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingDeal> group) throws InterruptedException {
+        PendingDeal first = running ? queue.take() : queue.poll();
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+        long windowNanos = properties.window().toNanos();
+        if (windowNanos > 0) {
+            long deadline = System.nanoTime() + windowNanos;
+            while (group.size() < properties.maxBatchSize()) {
+                PendingDeal next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                group.add(next);
+            }
+        }
+        queue.drainTo(group, properties.maxBatchSize() - group.size());
+    }
+
+    private void write(List<PendingDeal> group) {
+        List<Deal> deals = new ArrayList<>(group.size());
+        group.forEach(pending -> deals.add(pending.deal()));
+        try {
+            dealPersistenceService.saveBatch(deals);
+        } catch (RuntimeException exception) {
+            log.warn("Group commit of {} deals failed, storing them one by one", group.size(), exception);
+            group.forEach(this::writeAlone);
+            return;
+        }
+        for (PendingDeal pending : group) {
+            Deal deal = pending.deal();
+            if (deal.getId() != null) {
+                pending.outcome().complete(deal);
+            } else {
+                pending.outcome().completeExceptionally(new DealAlreadyExistsException(deal.getDealUniqueId()));
+            }
+        }
+    }
+
+    private void writeAlone(PendingDeal pending) {
+        pending.deal().setId(null);
+        try {
+            pending.outcome().complete(dealPersistenceService.save(pending.deal()));
+        } catch (RuntimeException exception) {
+            pending.outcome().completeExceptionally(exception);
+        }
+    }
+
+    private record PendingDeal(Deal deal, CompletableFuture<Deal> outcome) {
+    }
+}
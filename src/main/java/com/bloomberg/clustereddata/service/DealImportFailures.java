@@ -0,0 +1,46 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.util.ArrayList;
+import java.util.List;
+
+final class DealImportFailures {
+
+    private DealImportFailures() {
+    }
+
+    static DealImportFailure of(DealCsvRow row, ImportFailureCategory category, String reason) {
+        return DealImportFailure.builder()
+                .rowNumber(row.rowNumber())
+                .category(category)
+                .reason(reason)
+                .build();
+    }
+
+    /**
+     * Merges two failure lists that are each ordered by row number into one ordered list.
+     */
+    static List<DealImportFailure> merge(List<DealImportFailure> first, List<DealImportFailure> second) {
+        if (first.isEmpty()) {
+            return second;
+        }
+        if (second.isEmpty()) {
+            return first;
+        }
+        List<DealImportFailure> merged = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        while (i < first.size() && j < second.size()) {
+            if (first.get(i).rowNumber() <= second.get(j).rowNumber()) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        merged.addAll(first.subList(i, first.size()));
+        merged.addAll(second.subList(j, second.size()));
+        return merged;
+    }
+}
@@ -0,0 +1,50 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.util.List;
+
+/**
+ * Persists rows that already passed parsing and validation. Implementations must commit independently of
+ * the caller so that a failing row or batch never rolls back rows imported earlier.
+ */
+public interface DealImportWriter {
+
+    ImportMode mode();
+
+    /**
+     * Starts writing one import. The returned session is closed by the caller once the import ends, whether
+     * or not {@link Session#complete()} was reached.
+     */
+    Session open();
+
+    interface Session extends AutoCloseable {
+
+        /**
+         * @param rows valid rows in CSV order
+         * @return failures for the rows that could not be stored, in CSV order
+         */
+        List<DealImportFailure> write(List<DealCsvRow> rows);
+
+        /**
+         * Whether rows accepted by {@link #write(List)} are committed when it returns, rather than by
+         * {@link #complete()}.
+         */
+        default boolean commitsOnWrite() {
+            return true;
+        }
+
+        /**
+         * Called once after the last {@link #write(List)}; writers that defer work to the end of the import
+         * report the resulting failures here, in CSV order.
+         */
+        default List<DealImportFailure> complete() {
+            return List.of();
+        }
+
+        @Override
+        default void close() {
+        }
+    }
+}
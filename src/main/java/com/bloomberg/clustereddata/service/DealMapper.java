@@ -0,0 +1,50 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import java.util.Objects;
+
+final class DealMapper {
+
+    private DealMapper() {
+    }
+
+    static Deal toEntity(DealRequest request) {
+        return Deal.builder()
+                .dealUniqueId(request.getDealUniqueId())
+                .fromCurrencyIso(request.getFromCurrencyIso())
+                .toCurrencyIso(request.getToCurrencyIso())
+                .dealTimestamp(request.getDealTimestamp())
+                .dealAmount(request.getDealAmount())
+                .build();
+    }
+
+    static DealResponse toResponse(Deal deal) {
+        return DealResponse.builder()
+                .id(deal.getId())
+                .dealUniqueId(deal.getDealUniqueId())
+                .fromCurrencyIso(deal.getFromCurrencyIso())
+                .toCurrencyIso(deal.getToCurrencyIso())
+                .dealTimestamp(deal.getDealTimestamp())
+                .dealAmount(deal.getDealAmount())
+                .build();
+    }
+
+    /**
+     * Whether the stored deal carries the same values as the request, amounts compared by value.
+     */
+    static boolean sameContent(DealRequest request, Deal deal) {
+        return Objects.equals(request.getFromCurrencyIso(), deal.getFromCurrencyIso())
+                && Objects.equals(request.getToCurrencyIso(), deal.getToCurrencyIso())
+                && Objects.equals(request.getDealTimestamp(), deal.getDealTimestamp())
+                && request.getDealAmount().compareTo(deal.getDealAmount()) == 0;
+    }
+
+    static boolean sameContent(Deal deal, Deal other) {
+        return Objects.equals(deal.getFromCurrencyIso(), other.getFromCurrencyIso())
+                && Objects.equals(deal.getToCurrencyIso(), other.getToCurrencyIso())
+                && Objects.equals(deal.getDealTimestamp(), other.getDealTimestamp())
+                && deal.getDealAmount().compareTo(other.getDealAmount()) == 0;
+    }
+}
@@ -0,0 +1,137 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DealPartitioningProperties;
+import com.bloomberg.clustereddata.config.DealPartitioningProperties.RetentionAction;
+import com.bloomberg.clustereddata.repository.DealPartition;
+import com.bloomberg.clustereddata.repository.DealPartitionRepository;
+import com.bloomberg.clustereddata.repository.DealShards;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps {@code deals} partitioned ahead of time and applies retention. New partitions continue from the upper
+ * bound of the newest one, so changing {@code deals.partitioning.interval} only affects future ranges. Rows that
+ * arrive for a range without a partition land in {@code deals_default} and are moved out when it is created.
+ * Purging only removes deals: their ids stay in the uniqueness registry and the rollups keep their totals.
+ * Every shard is maintained in its own transaction.
+ */
+@Slf4j
+@Service
+public class DealPartitionMaintainer {
+
+    private static final DateTimeFormatter NAME_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final DealPartitionRepository dealPartitionRepository;
+    private final DealPartitioningProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final DealShards dealShards;
+    private final Clock clock;
+
+    @Autowired
+    public DealPartitionMaintainer(DealPartitionRepository dealPartitionRepository,
+                                   DealPartitioningProperties properties,
+                                   PlatformTransactionManager transactionManager, DealShards dealShards) {
+        this(dealPartitionRepository, properties, new TransactionTemplate(transactionManager), dealShards,
+                Clock.systemUTC());
+    }
+
+    DealPartitionMaintainer(DealPartitionRepository dealPartitionRepository, DealPartitioningProperties properties,
+                            TransactionTemplate transactionTemplate, DealShards dealShards, Clock clock) {
+        this.dealPartitionRepository = dealPartitionRepository;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.dealShards = dealShards;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${deals.partitioning.maintenance-interval:PT1H}")
+    public void maintain() {
+        for (int shard = 0; shard < dealShards.count(); shard++) {
+            dealShards.run(shard, this::maintainShard);
+        }
+    }
+
+    private void maintainShard() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!dealPartitionRepository.tryLockForMaintenance()) {
+                log.debug("Partition maintenance is running on another instance");
+                return;
+            }
+            List<DealPartition> existing = dealPartitionRepository.findPartitions();
+            Instant now = clock.instant();
+
+            for (DealPartition partition : partitionsToCreate(existing, now)) {
+                dealPartitionRepository.create(partition);
+                log.info("Created deals partition {} [{}, {})", partition.name(), partition.from(), partition.to());
+            }
+            for (DealPartition partition : partitionsToPurge(existing, now)) {
+                dealPartitionRepository.detach(partition);
+                if (properties.retentionAction() == RetentionAction.DROP) {
+                    dealPartitionRepository.drop(partition);
+                }
+                log.info("Purged deals partition {} ({})", partition.name(), properties.retentionAction());
+            }
+        });
+    }
+
+    /**
+     * Consecutive partitions from the newest upper bound (or the current interval when there is none) until
+     * {@code premake} intervals past the current one are covered.
+     */
+    List<DealPartition> partitionsToCreate(List<DealPartition> existing, Instant now) {
+        LocalDate current = floor(now.atOffset(ZoneOffset.UTC).toLocalDate());
+        LocalDate horizon = advance(current, properties.premake() + 1);
+        LocalDate next = existing.isEmpty()
+                ? current
+                : existing.get(existing.size() - 1).to().atOffset(ZoneOffset.UTC).toLocalDate();
+
+        List<DealPartition> partitions = new ArrayList<>();
+        while (next.isBefore(horizon)) {
+            LocalDate end = advance(floor(next), 1);
+            partitions.add(new DealPartition("deals_p" + NAME_SUFFIX.format(next), startOf(next), startOf(end)));
+            next = end;
+        }
+        return partitions;
+    }
+
+    List<DealPartition> partitionsToPurge(List<DealPartition> existing, Instant now) {
+        if (properties.retention() == null) {
+            return List.of();
+        }
+        Instant cutoff = now.atOffset(ZoneOffset.UTC).minus(properties.retention()).toInstant();
+        return existing.stream().filter(partition -> !partition.to().isAfter(cutoff)).toList();
+    }
+
+    private LocalDate floor(LocalDate date) {
+        return switch (properties.interval()) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    private LocalDate advance(LocalDate date, int intervals) {
+        return switch (properties.interval()) {
+            case DAY -> date.plusDays(intervals);
+            case WEEK -> date.plusWeeks(intervals);
+            case MONTH -> date.plusMonths(intervals);
+        };
+    }
+
+    private static Instant startOf(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
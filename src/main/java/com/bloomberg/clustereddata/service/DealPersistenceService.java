@@ -2,26 +2,117 @@ package com.bloomberg.clustereddata.service;
 
 import com.bloomberg.clustereddata.domain.Deal;
 import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.repository.DealJdbcRepository;
 import com.bloomberg.clustereddata.repository.DealRepository;
-import lombok.RequiredArgsConstructor;
+import com.bloomberg.clustereddata.repository.DealRollupRepository;
+import com.bloomberg.clustereddata.repository.DealShards;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Write path for deals. Every write runs in its own transaction on the shard that owns the deal's id.
+ */
 @Service
-@RequiredArgsConstructor
 public class DealPersistenceService {
 
     private final DealRepository dealRepository;
+    private final DealJdbcRepository dealJdbcRepository;
+    private final DealRollupRepository dealRollupRepository;
+    private final KnownDealIds knownDealIds;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DealShards dealShards;
+    private final TransactionTemplate newTransaction;
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public DealPersistenceService(DealRepository dealRepository, DealJdbcRepository dealJdbcRepository,
+                                  DealRollupRepository dealRollupRepository, KnownDealIds knownDealIds,
+                                  ApplicationEventPublisher eventPublisher, DealShards dealShards,
+                                  PlatformTransactionManager transactionManager) {
+        this.dealRepository = dealRepository;
+        this.dealJdbcRepository = dealJdbcRepository;
+        this.dealRollupRepository = dealRollupRepository;
+        this.knownDealIds = knownDealIds;
+        this.eventPublisher = eventPublisher;
+        this.dealShards = dealShards;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Claims the id in the uniqueness registry, inserts the deal and adds it to the volume rollups in one
+     * transaction. A duplicate fails on the claim, before anything else is written. Cached reads of the deal's
+     * keys are invalidated once the transaction commits.
+     */
     public Deal save(Deal deal) {
         try {
-            return dealRepository.save(deal);
+            return dealShards.on(dealShards.shardOf(deal.getDealUniqueId()), () -> newTransaction.execute(status -> {
+                dealJdbcRepository.registerUniqueId(deal.getDealUniqueId(), deal.getDealTimestamp());
+                Deal saved = dealRepository.save(deal);
+                dealRollupRepository.addDeal(saved);
+                knownDealIds.record(saved.getDealUniqueId());
+                eventPublisher.publishEvent(IngestedDeals.of(saved));
+                return saved;
+            }));
         } catch (DataIntegrityViolationException exception) {
             throw new DealAlreadyExistsException(deal.getDealUniqueId(), exception);
         }
     }
-}
 
+    /**
+     * Inserts the deals in one statement and one transaction per shard. Duplicates are skipped rather than
+     * failing the batch; the same statement adds the inserted rows to the volume rollups and sets their
+     * generated ids. Callers that retry a failed batch should pass deals of one shard only, as the other shards'
+     * transactions may have committed.
+     *
+     * @return the unique ids that were inserted; every other id in {@code deals} already existed
+     */
+    public Set<String> saveBatch(List<Deal> deals) {
+        Set<String> inserted = new HashSet<>(deals.size() * 2);
+        dealShards.partition(deals, Deal::getDealUniqueId).forEach((shard, shardDeals) ->
+                inserted.addAll(dealShards.on(shard, () -> newTransaction.execute(status -> {
+                    Set<String> shardInserted = dealJdbcRepository.insertIgnoringDuplicates(shardDeals);
+                    knownDealIds.recordAll(shardInserted);
+                    if (!shardInserted.isEmpty()) {
+                        IngestedDeals ingested = new IngestedDeals();
+                        shardDeals.stream()
+                                .filter(deal -> shardInserted.contains(deal.getDealUniqueId()))
+                                .forEach(ingested::add);
+                        eventPublisher.publishEvent(ingested.toEvent());
+                    }
+                    return shardInserted;
+                }))));
+        return inserted;
+    }
+
+    /**
+     * @return the highest deal id handed out so far by every shard; every deal a shard stores later gets a
+     *         greater one
+     */
+    public Map<Integer, Long> lastDealIds() {
+        return dealJdbcRepository.lastDealIds();
+    }
+
+    /**
+     * Stored deals among {@code dealUniqueIds}.
+     */
+    public List<Deal> findStored(Collection<String> dealUniqueIds) {
+        return dealJdbcRepository.findStored(dealUniqueIds);
+    }
+
+    /**
+     * Stored deals among {@code dealUniqueIds} stored between two {@link #lastDealIds()} readings, each compared
+     * with the readings of the shard that owns it.
+     */
+    public List<Deal> findStoredBetween(Collection<String> dealUniqueIds, Map<Integer, Long> afterIds,
+                                        Map<Integer, Long> upToIds) {
+        return dealJdbcRepository.findStoredBetween(dealUniqueIds, afterIds, upToIds);
+    }
+}
@@ -0,0 +1,61 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealPage;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import com.bloomberg.clustereddata.exception.DealNotFoundException;
+import com.bloomberg.clustereddata.exception.InvalidDealQueryException;
+import com.bloomberg.clustereddata.repository.DealQueryRepository;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class DealQueryService {
+
+    private final DealQueryRepository dealQueryRepository;
+    private final DealReadCache dealReadCache;
+
+    /**
+     * Looks a deal up by its unique id through {@link DealReadCache}; unknown ids are cached as well.
+     */
+    public DealResponse findDeal(String dealUniqueId) {
+        return dealReadCache.getDeal(dealUniqueId,
+                        id -> dealQueryRepository.findByDealUniqueId(id).map(DealMapper::toResponse))
+                .orElseThrow(() -> new DealNotFoundException(dealUniqueId));
+    }
+
+    /**
+     * Returns the page of deals that follows {@code cursor}, or the first page when it is {@code null}. One
+     * extra row is fetched to tell whether another page exists without a count query.
+     */
+    public DealPage findDeals(DealSearchCriteria criteria, String cursor, int limit) {
+        validate(criteria);
+        DealCursor after = cursor == null ? null : DealCursor.decode(cursor);
+
+        List<Deal> deals = dealQueryRepository.findPage(criteria,
+                after == null ? null : after.dealTimestamp(), after == null ? null : after.id(), limit + 1);
+        boolean hasMore = deals.size() > limit;
+        List<Deal> page = hasMore ? deals.subList(0, limit) : deals;
+
+        return DealPage.builder()
+                .deals(page.stream().map(DealMapper::toResponse).toList())
+                .nextCursor(hasMore ? DealCursor.after(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+
+    static void validate(DealSearchCriteria criteria) {
+        if (criteria.fromTimestamp() != null && criteria.toTimestamp() != null
+                && !criteria.fromTimestamp().isBefore(criteria.toTimestamp())) {
+            throw new InvalidDealQueryException("fromTimestamp must be before toTimestamp");
+        }
+        if (criteria.minAmount() != null && criteria.maxAmount() != null
+                && criteria.minAmount().compareTo(criteria.maxAmount()) > 0) {
+            throw new InvalidDealQueryException("minAmount must not be greater than maxAmount");
+        }
+    }
+}
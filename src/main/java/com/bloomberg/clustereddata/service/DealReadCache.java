@@ -0,0 +1,192 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DealCacheProperties;
+import com.bloomberg.clustereddata.config.DealReplicationProperties;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealVolumeAggregate;
+import com.bloomberg.clustereddata.dto.RollupGranularity;
+import com.bloomberg.clustereddata.repository.DealJdbcRepository;
+import com.bloomberg.clustereddata.service.DealsIngestedEvent.VolumeBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Read-through caches for lookups by {@code dealUniqueId} and for volume aggregate queries. Unknown ids are
+ * cached as {@link Optional#empty()} so repeated probes for missing deals stay off the database.
+ *
+ * <p>Entries are dropped after an ingest transaction commits: the lookups of the inserted ids, and every
+ * aggregate result whose range and currency filter cover the pair and bucket of an inserted deal. Stored deals
+ * never change, so nothing else needs invalidating. A load that overlaps an invalidation is returned to its
+ * caller but not kept, because it may have read the database before the commit. With read replicas, neither is
+ * a load that starts within {@code deals.replication.max-lag} of an invalidation, because the replica it read may
+ * not have replayed the commit yet.
+ *
+ * <p>Hits, misses, evictions and sizes are published as the {@code cache.*} meters, tagged
+ * {@code cache=deals} and {@code cache=deal-volumes}.
+ */
+@Slf4j
+@Component
+public class DealReadCache {
+
+    private final DealJdbcRepository dealJdbcRepository;
+    private final Cache<String, Optional<DealResponse>> deals;
+    private final Cache<VolumeQuery, List<DealVolumeAggregate>> volumes;
+    private final Invalidations dealInvalidations;
+    private final Invalidations volumeInvalidations;
+
+    public DealReadCache(DealCacheProperties properties, DealReplicationProperties replicationProperties,
+                         DealJdbcRepository dealJdbcRepository, MeterRegistry meterRegistry) {
+        this.dealJdbcRepository = dealJdbcRepository;
+        long replicaLagNanos = replicationProperties.replicas().isEmpty()
+                ? 0
+                : replicationProperties.maxLag().toNanos();
+        this.dealInvalidations = new Invalidations(replicaLagNanos);
+        this.volumeInvalidations = new Invalidations(replicaLagNanos);
+        this.deals = Caffeine.newBuilder()
+                .maximumSize(properties.dealsMaximumSize())
+                .expireAfterWrite(properties.dealsExpireAfterWrite())
+                .recordStats()
+                .build();
+        this.volumes = Caffeine.newBuilder()
+                .maximumSize(properties.volumesMaximumSize())
+                .expireAfterWrite(properties.volumesExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, deals, "deals");
+        CaffeineCacheMetrics.monitor(meterRegistry, volumes, "deal-volumes");
+    }
+
+    public Optional<DealResponse> getDeal(String dealUniqueId, Function<String, Optional<DealResponse>> loader) {
+        return get(deals, dealInvalidations, dealUniqueId, loader);
+    }
+
+    public List<DealVolumeAggregate> getVolumes(VolumeQuery query,
+                                                Function<VolumeQuery, List<DealVolumeAggregate>> loader) {
+        return get(volumes, volumeInvalidations, query, loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onDealsIngested(DealsIngestedEvent event) {
+        dealInvalidations.record();
+        if (event.dealUniqueIds() != null) {
+            deals.invalidateAll(event.dealUniqueIds());
+        } else {
+            invalidateStoredUnknownIds();
+        }
+
+        volumeInvalidations.record();
+        Set<VolumeBucket> buckets = event.minuteBuckets();
+        if (buckets == null) {
+            volumes.invalidateAll();
+        } else {
+            volumes.asMap().keySet().removeIf(query -> buckets.stream().anyMatch(query::covers));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onRollupsRebuilt(RollupsRebuiltEvent event) {
+        volumeInvalidations.record();
+        volumes.invalidateAll();
+    }
+
+    /**
+     * Drops the remembered unknown ids that are stored by now. Only those entries can be wrong after an insert.
+     */
+    private void invalidateStoredUnknownIds() {
+        Set<String> unknown = deals.asMap().entrySet().stream()
+                .filter(entry -> entry.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        if (unknown.isEmpty()) {
+            return;
+        }
+        try {
+            deals.invalidateAll(dealJdbcRepository.findExistingIds(unknown));
+        } catch (RuntimeException exception) {
+            log.warn("Failed to recheck {} cached unknown deal ids, dropping them all", unknown.size(), exception);
+            deals.invalidateAll(unknown);
+        }
+    }
+
+    private static <K, V> V get(Cache<K, V> cache, Invalidations invalidations, K key, Function<K, V> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long before = invalidations.count.get();
+        boolean settled = invalidations.settled();
+        V loaded = loader.apply(key);
+        if (!settled) {
+            return loaded;
+        }
+        cache.put(key, loaded);
+        // An invalidation counted after this check evicts only after the put, so it removes the entry itself.
+        if (invalidations.count.get() != before) {
+            cache.asMap().remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Invalidations of one cache: how many there were, and when the last one happened.
+     */
+    private static final class Invalidations {
+
+        private final AtomicLong count = new AtomicLong();
+        private final long replicaLagNanos;
+        private volatile long lastNanos;
+
+        private Invalidations(long replicaLagNanos) {
+            this.replicaLagNanos = replicaLagNanos;
+            this.lastNanos = System.nanoTime() - replicaLagNanos;
+        }
+
+        void record() {
+            lastNanos = System.nanoTime();
+            count.incrementAndGet();
+        }
+
+        /**
+         * Whether every replica within the allowed lag has replayed the commits behind past invalidations.
+         */
+        boolean settled() {
+            return replicaLagNanos == 0 || System.nanoTime() - lastNanos >= replicaLagNanos;
+        }
+    }
+
+    /**
+     * Key of a cached aggregate query.
+     */
+    public record VolumeQuery(RollupGranularity granularity, Instant from, Instant to, String fromCurrencyIso,
+                              String toCurrencyIso) {
+
+        boolean covers(VolumeBucket bucket) {
+            if (fromCurrencyIso != null && !fromCurrencyIso.equals(bucket.fromCurrencyIso())) {
+                return false;
+            }
+            if (toCurrencyIso != null && !toCurrencyIso.equals(bucket.toCurrencyIso())) {
+                return false;
+            }
+            Instant bucketStart = bucket.minute().truncatedTo(switch (granularity) {
+                case MINUTE -> ChronoUnit.MINUTES;
+                case HOUR -> ChronoUnit.HOURS;
+                case DAY -> ChronoUnit.DAYS;
+            });
+            return !bucketStart.isBefore(from) && bucketStart.isBefore(to);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DealReplicationProperties;
+import com.bloomberg.clustereddata.config.ShardedDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Measures how far every read replica trails its primary and marks it fresh or stale in the
+ * {@link ShardedDataSource}. A replica that has replayed all WAL it received has no lag; otherwise the lag is
+ * the age of the last transaction it replayed. Replicas beyond {@code deals.replication.max-lag}, and those that
+ * cannot be reached, are bypassed until a later check finds them caught up. Does nothing without replicas.
+ *
+ * <p>Meter: {@code deals.replica.lag} in seconds, tagged with the shard; {@code NaN} while unknown.
+ */
+@Slf4j
+@Component
+public class DealReplicaMonitor {
+
+    private static final String REPLAY_LAG = """
+            SELECT CASE
+                     WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                     ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                   END
+            """;
+
+    private final ShardedDataSource dataSource;
+    private final Duration maxLag;
+    private final AtomicReferenceArray<Double> lagSeconds;
+
+    public DealReplicaMonitor(DataSource dataSource, DealReplicationProperties properties, MeterRegistry registry) {
+        this.dataSource = dataSource instanceof ShardedDataSource sharded && !sharded.replicas().isEmpty()
+                ? sharded
+                : null;
+        this.maxLag = properties.maxLag();
+        int replicas = this.dataSource == null ? 0 : this.dataSource.replicas().size();
+        this.lagSeconds = new AtomicReferenceArray<>(replicas);
+        for (int shard = 0; shard < replicas; shard++) {
+            int replica = shard;
+            lagSeconds.set(replica, Double.NaN);
+            Gauge.builder("deals.replica.lag", lagSeconds, lags -> lags.get(replica))
+                    .description("Replication lag of the read replica")
+                    .baseUnit("seconds")
+                    .tag("shard", Integer.toString(replica))
+                    .register(registry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${deals.replication.lag-check-interval:PT1S}")
+    public void check() {
+        if (dataSource == null) {
+            return;
+        }
+        List<? extends DataSource> replicas = dataSource.replicas();
+        for (int shard = 0; shard < replicas.size(); shard++) {
+            Double lag;
+            try {
+                lag = new JdbcTemplate(replicas.get(shard)).queryForObject(REPLAY_LAG, Double.class);
+            } catch (RuntimeException exception) {
+                log.debug("Failed to measure the lag of the replica of shard {}", shard, exception);
+                lag = null;
+            }
+            lagSeconds.set(shard, lag == null ? Double.NaN : lag);
+            boolean fresh = lag != null && lag * 1_000 <= maxLag.toMillis();
+            if (fresh != dataSource.isReplicaFresh(shard)) {
+                if (fresh) {
+                    log.info("Replica of shard {} caught up, serving read-only transactions from it", shard);
+                } else {
+                    log.warn("Replica of shard {} is {}, reading from the primary", shard,
+                            lag == null ? "unavailable" : "%.1fs behind".formatted(lag));
+                }
+            }
+            dataSource.setReplicaFresh(shard, fresh);
+        }
+    }
+}
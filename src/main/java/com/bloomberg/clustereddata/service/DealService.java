@@ -1,120 +1,356 @@
 package com.bloomberg.clustereddata.service;
 
+import com.bloomberg.clustereddata.config.DealImportProperties;
 import com.bloomberg.clustereddata.domain.Deal;
 import com.bloomberg.clustereddata.dto.DealImportFailure;
 import com.bloomberg.clustereddata.dto.DealImportSummary;
 import com.bloomberg.clustereddata.dto.DealRequest;
 import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.dto.ImportMode;
 import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.exception.ImportCancelledException;
+import com.bloomberg.clustereddata.exception.ImportThrottledException;
+import com.bloomberg.clustereddata.exception.InvalidDealBatchException;
+import com.bloomberg.clustereddata.exception.InvalidCsvException;
+import com.bloomberg.clustereddata.service.ImportMetrics.Stage;
 import com.bloomberg.clustereddata.util.CsvDealParser;
+import com.bloomberg.clustereddata.util.CsvPosition;
 import com.bloomberg.clustereddata.util.DealCsvRow;
-import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validator;
+import com.bloomberg.clustereddata.util.JsonDealParser;
+import com.bloomberg.clustereddata.validation.DealRequestValidator;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DealService {
 
+    private static final String CSV_PARSING_ERROR = "CSV parsing error: ";
+    private static final String JSON_PARSING_ERROR = "JSON parsing error: ";
+
     private final DealPersistenceService dealPersistenceService;
     private final CsvDealParser csvDealParser;
-    private final Validator validator;
+    private final JsonDealParser jsonDealParser;
+    private final DealRequestValidator dealRequestValidator;
+    private final DealImportProperties importProperties;
+    private final ImportWorkers importWorkers;
+    private final DealDuplicateDetector duplicateDetector;
+    private final ImportMetrics importMetrics;
+    private final ImportFailureReports failureReports;
+    private final ImportAdmission importAdmission;
+    private final DealWriteAheadLog writeAheadLog;
+    private final DealGroupCommitter groupCommitter;
+    private final Map<ImportMode, DealImportWriter> importWriters = new EnumMap<>(ImportMode.class);
+
+    public DealService(DealPersistenceService dealPersistenceService, CsvDealParser csvDealParser,
+                       JsonDealParser jsonDealParser, DealRequestValidator dealRequestValidator,
+                       DealImportProperties importProperties, List<DealImportWriter> importWriters,
+                       ImportWorkers importWorkers, DealDuplicateDetector duplicateDetector,
+                       ImportMetrics importMetrics, ImportFailureReports failureReports,
+                       ImportAdmission importAdmission, Optional<DealWriteAheadLog> writeAheadLog,
+                       Optional<DealGroupCommitter> groupCommitter) {
+        this.dealPersistenceService = dealPersistenceService;
+        this.csvDealParser = csvDealParser;
+        this.jsonDealParser = jsonDealParser;
+        this.dealRequestValidator = dealRequestValidator;
+        this.importProperties = importProperties;
+        this.importWorkers = importWorkers;
+        this.duplicateDetector = duplicateDetector;
+        this.importMetrics = importMetrics;
+        this.failureReports = failureReports;
+        this.importAdmission = importAdmission;
+        this.writeAheadLog = writeAheadLog.orElse(null);
+        this.groupCommitter = groupCommitter.orElse(null);
+        importWriters.forEach(writer -> this.importWriters.put(writer.mode(), writer));
+    }
 
+    /**
+     * Stores the deal, together with concurrently created ones unless {@code deals.create.group-commit} is
+     * disabled. With {@code deals.wal.enabled} it is only logged for the background flush instead; the response
+     * then carries no {@code id}.
+     */
     public DealResponse createDeal(DealRequest request) {
-        Deal savedDeal = dealPersistenceService.save(toEntity(request));
+        if (writeAheadLog != null) {
+            return writeAheadLog.append(request);
+        }
+        Deal deal = DealMapper.toEntity(request);
+        Deal savedDeal = groupCommitter != null ? groupCommitter.save(deal) : dealPersistenceService.save(deal);
         log.info("Persisted deal with uniqueId={}", savedDeal.getDealUniqueId());
-        return toResponse(savedDeal);
+        return DealMapper.toResponse(savedDeal);
     }
 
     public DealImportSummary importDeals(MultipartFile csvFile) {
-        List<DealCsvRow> rows = csvDealParser.parse(csvFile);
-        if (rows.isEmpty()) {
-            return DealImportSummary.builder()
-                    .totalRows(0)
-                    .successfulRows(0)
-                    .failedRows(0)
-                    .build();
-        }
+        return importDeals(csvFile, null);
+    }
 
-        DealImportSummary.DealImportSummaryBuilder summaryBuilder =
-                DealImportSummary.builder().totalRows(rows.size());
+    /**
+     * Streams the uploaded CSV through parse, validate and persist. Rows are spread over
+     * {@code deals.import.parallelism} lanes that each hold at most a few chunks of
+     * {@code deals.import.chunk-size} rows, so memory stays bounded whatever the file size. In
+     * {@link ImportMode#ROW} and {@link ImportMode#BATCH} every row or batch is committed independently, so
+     * earlier rows are already visible while the rest of the file is still being read; {@link ImportMode#COPY}
+     * stages the whole file and merges it at the end. Failures are counted by category and the first
+     * {@code deals.import.failures.inline-limit} are returned in row order; beyond that the summary points to a
+     * report with all of them. When an id repeats within the file its first occurrence wins. With
+     * {@code deals.import.duplicates.preflight} enabled, repeats within a chunk and already stored ids are
+     * reported from a per-chunk set and one bulk lookup per chunk, without reaching the write path. Every
+     * occurrence of an id goes through the same lane, so a repeat in a later chunk is found stored by that
+     * lookup, or, for {@link ImportMode#COPY}, rejected by the merge; no state grows with the file.
+     *
+     * @param mode write strategy, or {@code null} for the configured default
+     * @throws ImportThrottledException when too many synchronous imports are running or waiting already
+     */
+    public DealImportSummary importDeals(MultipartFile csvFile, ImportMode mode) {
+        try (ImportAdmission.Slot slot = importAdmission.admit();
+                Stream<DealCsvRow> rows = csvDealParser.stream(csvFile)) {
+            return importRows(rows, CSV_PARSING_ERROR, mode, new ImportProgress(), ImportMetrics.IMPORT_ENDPOINT);
+        }
+    }
 
-        int successful = 0;
-        for (DealCsvRow row : rows) {
-            DealImportFailure failure = validateAndPersistRow(row);
-            if (failure == null) {
-                successful++;
-            } else {
-                summaryBuilder.failure(failure);
-            }
+    /**
+     * Imports a JSON array or NDJSON stream of deals through the same pipeline as CSV files, reading the body
+     * item by item. Failures carry the 1-based item number. Without an explicit mode the items are written in
+     * {@link ImportMode#BATCH}, since callers send JSON batches to avoid a transaction per deal.
+     *
+     * @throws InvalidDealBatchException when the body is not well-formed JSON; in {@link ImportMode#ROW} and
+     *                                   {@link ImportMode#BATCH} items committed before that point are kept
+     * @throws ImportThrottledException  when too many synchronous imports are running or waiting already
+     */
+    public DealImportSummary importDeals(InputStream json, ImportMode mode) {
+        try (ImportAdmission.Slot slot = importAdmission.admit();
+                Stream<DealCsvRow> rows = jsonDealParser.stream(json)) {
+            ImportMode effectiveMode = mode != null ? mode : ImportMode.BATCH;
+            return importRows(rows, JSON_PARSING_ERROR, effectiveMode, new ImportProgress(),
+                    ImportMetrics.BATCH_ENDPOINT);
         }
+    }
 
-        return summaryBuilder
-                .successfulRows(successful)
-                .failedRows(rows.size() - successful)
-                .build();
+    /**
+     * Imports a CSV file that was spooled to local disk, publishing counters to {@code progress} after each
+     * chunk. The import hands a checkpoint to {@code checkpoints} before the first row and, in
+     * {@link ImportMode#ROW} and {@link ImportMode#BATCH}, every {@code checkpointInterval} rows, once the
+     * lanes have written every row read so far. Started again from a checkpoint, it seeks past the rows before
+     * it and continues the counters and failure report of the interrupted run; rows that run committed after
+     * the checkpoint are counted as imported rather than as duplicates. {@link ImportMode#COPY} only commits
+     * at the end and therefore resumes from the start.
+     *
+     * @param resumeFrom  checkpoint to continue from, or {@code null} for a new import
+     * @param checkpoints must have stored the checkpoint when it returns
+     * @throws ImportCancelledException when {@code progress} is cancelled before the file has been read;
+     *                                  rows committed up to that point are kept
+     */
+    public DealImportSummary importDeals(Path csvFile, ImportMode mode, ImportProgress progress,
+                                         ImportCheckpoint resumeFrom, int checkpointInterval,
+                                         Consumer<ImportCheckpoint> checkpoints) {
+        CsvPosition start = resumeFrom != null ? resumeFrom.position() : CsvPosition.START;
+        CsvDealParser.Cursor cursor = csvDealParser.open(csvFile, start);
+        try (Stream<DealCsvRow> rows = cursor.rows()) {
+            ImportCheckpointer checkpointer = new ImportCheckpointer(
+                    cursor, resumeFrom, checkpointInterval, checkpoints, dealPersistenceService);
+            return importRows(rows, CSV_PARSING_ERROR, mode, progress, ImportMetrics.JOBS_ENDPOINT, checkpointer);
+        }
     }
 
-    private Deal toEntity(DealRequest request) {
-        return Deal.builder()
-                .dealUniqueId(request.getDealUniqueId())
-                .fromCurrencyIso(request.getFromCurrencyIso())
-                .toCurrencyIso(request.getToCurrencyIso())
-                .dealTimestamp(request.getDealTimestamp())
-                .dealAmount(request.getDealAmount())
-                .build();
+    private DealImportSummary importRows(Stream<DealCsvRow> rows, String parsingError, ImportMode mode,
+                                         ImportProgress progress, String endpoint) {
+        return importRows(rows, parsingError, mode, progress, endpoint, null);
     }
 
-    private DealResponse toResponse(Deal deal) {
-        return DealResponse.builder()
-                .id(deal.getId())
-                .dealUniqueId(deal.getDealUniqueId())
-                .fromCurrencyIso(deal.getFromCurrencyIso())
-                .toCurrencyIso(deal.getToCurrencyIso())
-                .dealTimestamp(deal.getDealTimestamp())
-                .dealAmount(deal.getDealAmount())
-                .build();
+    /**
+     * @param parsingError prefix of the failure reason of rows the parser could not decode
+     * @param endpoint     {@code endpoint} tag of the import's metrics
+     * @param checkpointer checkpoints of a resumable import, or {@code null}
+     */
+    private DealImportSummary importRows(Stream<DealCsvRow> rows, String parsingError, ImportMode mode,
+                                         ImportProgress progress, String endpoint,
+                                         ImportCheckpointer checkpointer) {
+        DealImportWriter writer = importWriters.get(mode != null ? mode : importProperties.mode());
+        boolean preflight = duplicateDetector.isEnabled();
+        AtomicLong stagedRows = new AtomicLong();
+        ImportReplay replay = checkpointer != null ? checkpointer.replay() : null;
+        int skipped = checkpointer != null ? checkpointer.skippedRows() : 0;
+        int total = 0;
+
+        try (ImportMetrics.Recorder metrics = importMetrics.start(endpoint);
+                ImportFailureReport failures = checkpointer != null
+                        ? checkpointer.openReport(failureReports)
+                        : failureReports.open();
+                DealImportWriter.Session session = writer.open();
+                ImportLanes lanes = importWorkers.open(chunk -> failures.add(processChunk(
+                        chunk, parsingError, session, preflight, progress, metrics, stagedRows, replay)))) {
+            if (checkpointer != null) {
+                progress.resume(skipped, checkpointer.skippedFailures());
+                checkpointer.start(failures, session.commitsOnWrite());
+            }
+            boolean checkpointing = checkpointer != null && session.commitsOnWrite();
+            Iterator<DealCsvRow> iterator = rows.iterator();
+            long parseNanos = 0;
+            int parsedRows = 0;
+            while (true) {
+                long started = System.nanoTime();
+                if (!hasNext(iterator)) {
+                    break;
+                }
+                if (progress.isCancelled()) {
+                    throw new ImportCancelledException();
+                }
+                DealCsvRow row = iterator.next();
+                long elapsed = System.nanoTime() - started;
+                metrics.row(Stage.PARSE, elapsed);
+                parseNanos += elapsed;
+                if (++parsedRows == importProperties.chunkSize()) {
+                    metrics.batch(Stage.PARSE, parseNanos);
+                    parseNanos = 0;
+                    parsedRows = 0;
+                }
+                lanes.add(row);
+                total++;
+                if (checkpointing) {
+                    checkpointer.rowRead(lanes, failures);
+                }
+            }
+            if (parsedRows > 0) {
+                metrics.batch(Stage.PARSE, parseNanos);
+            }
+            lanes.finish();
+
+            long started = System.nanoTime();
+            List<DealImportFailure> deferred = importAdmission.withConnection(session::complete);
+            metrics.batch(Stage.COMPLETE, System.nanoTime() - started);
+            metrics.imported(stagedRows.get() - deferred.size());
+            metrics.rejected(deferred);
+            progress.record(0, deferred.size());
+            failures.add(deferred);
+            return failures.summarize(skipped + total);
+        }
     }
 
-    private String formatViolations(Set<ConstraintViolation<DealRequest>> violations) {
-        return violations.stream()
-                .map(violation -> "%s %s".formatted(violation.getPropertyPath(), violation.getMessage()))
-                .collect(Collectors.joining("; "));
+    private boolean hasNext(Iterator<DealCsvRow> iterator) {
+        try {
+            return iterator.hasNext();
+        } catch (UncheckedIOException exception) {
+            throw new InvalidCsvException("Failed to read CSV file.", exception);
+        }
     }
 
-    private DealImportFailure validateAndPersistRow(DealCsvRow row) {
-        if (row.hasError()) {
-            return buildFailure(row, "CSV parsing error: " + row.errorMessage());
+    /**
+     * Validates a chunk, drops duplicates when pre-flight detection is enabled and writes the remaining rows.
+     *
+     * @param preflight  whether duplicates are dropped before the write path
+     * @param stagedRows rows accepted so far by a session that only commits them when the import completes
+     * @param replay     replay of a resumed import, or {@code null}
+     */
+    private List<DealImportFailure> processChunk(List<DealCsvRow> chunk, String parsingError,
+                                                 DealImportWriter.Session session, boolean preflight,
+                                                 ImportProgress progress, ImportMetrics.Recorder metrics,
+                                                 AtomicLong stagedRows, ImportReplay replay) {
+        if (progress.isCancelled()) {
+            throw new ImportCancelledException();
+        }
+        if (chunk.isEmpty()) {
+            return List.of();
         }
 
-        Set<ConstraintViolation<DealRequest>> violations = validator.validate(row.dealRequest());
-        if (!violations.isEmpty()) {
-            return buildFailure(row, formatViolations(violations));
+        List<DealCsvRow> validRows = new ArrayList<>(chunk.size());
+        List<DealImportFailure> rejected = new ArrayList<>();
+        Set<String> seenIds = preflight ? new HashSet<>(chunk.size() * 2) : null;
+        long validateNanos = 0;
+        for (DealCsvRow row : chunk) {
+            long started = System.nanoTime();
+            DealImportFailure failure = validateRow(row, parsingError);
+            if (failure == null && seenIds != null && !seenIds.add(row.dealRequest().getDealUniqueId())) {
+                failure = duplicateFailure(row);
+            }
+            long elapsed = System.nanoTime() - started;
+            metrics.row(Stage.VALIDATE, elapsed);
+            validateNanos += elapsed;
+            if (failure == null) {
+                validRows.add(row);
+            } else {
+                rejected.add(failure);
+            }
         }
+        metrics.batch(Stage.VALIDATE, validateNanos);
 
-        try {
-            dealPersistenceService.save(toEntity(row.dealRequest()));
-            return null;
-        } catch (DealAlreadyExistsException duplicate) {
-            return buildFailure(row, duplicate.getMessage());
-        } catch (Exception exception) {
-            log.error("Failed to import row {}", row.rowNumber(), exception);
-            return buildFailure(row, "Unexpected error: " + exception.getMessage());
+        if (preflight && !validRows.isEmpty()) {
+            long started = System.nanoTime();
+            List<DealCsvRow> candidates = validRows;
+            validRows = importAdmission.withConnection(() -> dropStoredDeals(candidates, rejected));
+            metrics.batch(Stage.DUPLICATES, System.nanoTime() - started);
+        }
+
+        List<DealImportFailure> failures = rejected;
+        if (!validRows.isEmpty()) {
+            long started = System.nanoTime();
+            List<DealCsvRow> newRows = validRows;
+            List<DealImportFailure> writeFailures = importAdmission.withConnection(() -> session.write(newRows));
+            metrics.batch(Stage.PERSIST, System.nanoTime() - started);
+            if (session.commitsOnWrite()) {
+                metrics.imported(validRows.size() - writeFailures.size());
+            } else {
+                stagedRows.addAndGet(validRows.size() - writeFailures.size());
+            }
+            failures = DealImportFailures.merge(rejected, writeFailures);
         }
+        if (replay != null) {
+            List<DealImportFailure> reported = failures;
+            failures = importAdmission.withConnection(() -> replay.credit(chunk, reported));
+        }
+        metrics.rejected(failures);
+        progress.record(chunk.size(), failures.size());
+        return failures;
     }
 
-    private DealImportFailure buildFailure(DealCsvRow row, String reason) {
-        return DealImportFailure.builder()
-                .rowNumber(row.rowNumber())
-                .reason(reason)
-                .build();
+    private List<DealCsvRow> dropStoredDeals(List<DealCsvRow> validRows, List<DealImportFailure> rejected) {
+        List<String> ids = new ArrayList<>(validRows.size());
+        validRows.forEach(row -> ids.add(row.dealRequest().getDealUniqueId()));
+        Set<String> existing = duplicateDetector.findExisting(ids);
+        if (existing.isEmpty()) {
+            return validRows;
+        }
+
+        List<DealCsvRow> newRows = new ArrayList<>(validRows.size());
+        List<DealImportFailure> duplicates = new ArrayList<>(existing.size());
+        for (DealCsvRow row : validRows) {
+            if (existing.contains(row.dealRequest().getDealUniqueId())) {
+                duplicates.add(duplicateFailure(row));
+            } else {
+                newRows.add(row);
+            }
+        }
+        List<DealImportFailure> merged = DealImportFailures.merge(rejected, duplicates);
+        rejected.clear();
+        rejected.addAll(merged);
+        return newRows;
+    }
+
+    private DealImportFailure duplicateFailure(DealCsvRow row) {
+        return DealImportFailures.of(row, ImportFailureCategory.DUPLICATE,
+                DealAlreadyExistsException.messageFor(row.dealRequest().getDealUniqueId()));
     }
-}
 
+    private DealImportFailure validateRow(DealCsvRow row, String parsingError) {
+        if (row.hasError()) {
+            return DealImportFailures.of(row, ImportFailureCategory.PARSE, parsingError + row.errorMessage());
+        }
+
+        String violations = dealRequestValidator.validate(row.dealRequest());
+        return violations == null ? null : DealImportFailures.of(row, ImportFailureCategory.VALIDATION, violations);
+    }
+}
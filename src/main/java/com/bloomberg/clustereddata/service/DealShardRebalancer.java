@@ -0,0 +1,121 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.ShardRebalanceSummary;
+import com.bloomberg.clustereddata.repository.DealJdbcRepository;
+import com.bloomberg.clustereddata.repository.DealShards;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves deals to the shard that owns them after a shard has been added. Every shard is walked in
+ * {@code dealUniqueId} order in chunks of {@link #CHUNK_SIZE}; deals owned by another shard are inserted there and
+ * then deleted from the shard they were found on. A deal whose id the owning shard already holds with different
+ * content is left in place and reported as a conflict. The rollups are rebuilt at the end of every run, even when nothing moved: a run
+ * interrupted between moving deals and rebuilding leaves them counted on both shards, and the next run finds
+ * nothing left to move.
+ *
+ * <p>Moved deals get a new id from the owning shard. Writes are routed to the new owners as soon as the shard
+ * is configured, but ingest should be paused while rebalancing: until a deal has moved, its id is only checked
+ * against its new owner, so a repeat of it is not yet rejected.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DealShardRebalancer {
+
+    static final int CHUNK_SIZE = 1_000;
+
+    private final DealShards dealShards;
+    private final DealJdbcRepository dealJdbcRepository;
+    private final DealPersistenceService dealPersistenceService;
+    private final DealAggregateService dealAggregateService;
+    private final TransactionTemplate transactionTemplate;
+
+    public ShardRebalanceSummary rebalance() {
+        long moved = 0;
+        long conflicts = 0;
+        for (int shard = 0; shard < dealShards.count(); shard++) {
+            int source = shard;
+            String after = "";
+            List<Deal> chunk;
+            do {
+                String from = after;
+                chunk = dealShards.read(source, () -> dealJdbcRepository.findStoredAfter(from, CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                after = chunk.get(chunk.size() - 1).getDealUniqueId();
+                List<Deal> misplaced = chunk.stream()
+                        .filter(deal -> dealShards.shardOf(deal.getDealUniqueId()) != source)
+                        .toList();
+                if (!misplaced.isEmpty()) {
+                    int movedInChunk = move(source, misplaced);
+                    moved += movedInChunk;
+                    conflicts += misplaced.size() - movedInChunk;
+                }
+            } while (chunk.size() == CHUNK_SIZE);
+        }
+        dealAggregateService.rebuild();
+        log.info("Rebalanced {} shards: moved {} deals, left {} conflicting deals in place",
+                dealShards.count(), moved, conflicts);
+        return ShardRebalanceSummary.builder()
+                .shards(dealShards.count())
+                .movedDeals(moved)
+                .conflictingDeals(conflicts)
+                .build();
+    }
+
+    /**
+     * @return the number of misplaced deals that were removed from {@code source}
+     */
+    private int move(int source, List<Deal> misplaced) {
+        List<Deal> copies = new ArrayList<>(misplaced.size());
+        for (Deal deal : misplaced) {
+            copies.add(Deal.builder()
+                    .dealUniqueId(deal.getDealUniqueId())
+                    .fromCurrencyIso(deal.getFromCurrencyIso())
+                    .toCurrencyIso(deal.getToCurrencyIso())
+                    .dealTimestamp(deal.getDealTimestamp())
+                    .dealAmount(deal.getDealAmount())
+                    .build());
+        }
+        Set<String> inserted = dealPersistenceService.saveBatch(copies);
+
+        // A deal the owner already holds was moved by an interrupted run or stored there since the shard was
+        // added; only an identical copy makes the one found here redundant.
+        List<String> alreadyOwned = new ArrayList<>();
+        misplaced.stream()
+                .map(Deal::getDealUniqueId)
+                .filter(dealUniqueId -> !inserted.contains(dealUniqueId))
+                .forEach(alreadyOwned::add);
+        Map<String, Deal> owned = new HashMap<>();
+        if (!alreadyOwned.isEmpty()) {
+            dealJdbcRepository.findStored(alreadyOwned)
+                    .forEach(deal -> owned.put(deal.getDealUniqueId(), deal));
+        }
+
+        List<String> removable = new ArrayList<>(misplaced.size());
+        for (Deal deal : misplaced) {
+            Deal owner = owned.get(deal.getDealUniqueId());
+            if (inserted.contains(deal.getDealUniqueId()) || owner != null && DealMapper.sameContent(deal, owner)) {
+                removable.add(deal.getDealUniqueId());
+            } else {
+                log.warn("Deal {} on shard {} conflicts with the deal stored under its id on shard {}, leaving it",
+                        deal.getDealUniqueId(), source, dealShards.shardOf(deal.getDealUniqueId()));
+            }
+        }
+        if (!removable.isEmpty()) {
+            dealShards.run(source, () -> transactionTemplate.executeWithoutResult(status ->
+                    dealJdbcRepository.delete(removable)));
+        }
+        return removable.size();
+    }
+}
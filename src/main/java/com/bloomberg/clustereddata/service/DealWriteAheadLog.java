@@ -0,0 +1,619 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DealWriteAheadLogProperties;
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.exception.DealLogFullException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Acknowledges single deals from a local write-ahead log instead of a database commit, when
+ * {@code deals.wal.enabled} is set. An accepted deal is appended to the current log segment and acknowledged
+ * once the segment has been forced to disk; requests arriving while a sync is running share the next one. A
+ * background flusher writes the logged deals to {@code deals} in batches, records the last flushed sequence
+ * number in a mark file and deletes segments that are fully flushed. On startup, every logged deal past the
+ * mark is queued for flushing again; a deal found stored with the same content counts as flushed.
+ *
+ * <p>A deal is only acknowledged from the log once it is on disk, and only acknowledged deals are flushed, so the
+ * caller always learns the deal's real outcome. A deal that cannot be written is stored synchronously instead,
+ * and whatever part of it reached the segment is cut off again, so a restart never finds a broken line in the
+ * middle of a segment. When the log cannot be forced, or a broken line cannot be cut off, the deals waiting for a
+ * sync are dropped from it and, like every later deal, stored synchronously.
+ *
+ * <p>Duplicates are rejected when the deal is acknowledged, both against ids still waiting in the log and
+ * against stored ids. A deal whose id another writer stores between its acknowledgement and its flush can no
+ * longer be rejected; it is appended to the reconciliation report {@code conflicts.csv} in the log directory
+ * and counted in {@code deals.wal.conflicts}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "deals.wal", name = "enabled", havingValue = "true")
+public class DealWriteAheadLog {
+
+    static final String CONFLICTS_HEADER_ROW =
+            "sequence,deal_unique_id,from_currency_iso,to_currency_iso,deal_timestamp,deal_amount,stored_deal_id";
+
+    private static final String SEGMENT_PREFIX = "deals-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String FLUSH_MARK = "flushed";
+    private static final String CONFLICTS = "conflicts.csv";
+
+    private final DealWriteAheadLogProperties properties;
+    private final DealPersistenceService dealPersistenceService;
+    private final DealDuplicateDetector duplicateDetector;
+    private final ObjectMapper objectMapper;
+    private final SegmentOpener segmentOpener;
+    private final Set<String> pendingIds = ConcurrentHashMap.newKeySet();
+    private final Object flushLock = new Object();
+    private final Counter conflicts;
+    private final Timer syncTimer;
+
+    // Guarded by this.
+    private final Deque<Entry> pending = new ArrayDeque<>();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private FileChannel channel;
+    private long lastSequence;
+    private long segmentStart;
+    private long written;
+    private long synced;
+    private long syncedSequence;
+    private IOException failure;
+    private boolean running;
+
+    private Semaphore capacity;
+    private Thread syncer;
+
+    @Autowired
+    public DealWriteAheadLog(DealWriteAheadLogProperties properties, DealPersistenceService dealPersistenceService,
+                             DealDuplicateDetector duplicateDetector, ObjectMapper objectMapper,
+                             MeterRegistry registry) {
+        this(properties, dealPersistenceService, duplicateDetector, objectMapper, registry,
+                file -> FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND));
+    }
+
+    DealWriteAheadLog(DealWriteAheadLogProperties properties, DealPersistenceService dealPersistenceService,
+                      DealDuplicateDetector duplicateDetector, ObjectMapper objectMapper, MeterRegistry registry,
+                      SegmentOpener segmentOpener) {
+        this.properties = properties;
+        this.dealPersistenceService = dealPersistenceService;
+        this.duplicateDetector = duplicateDetector;
+        this.objectMapper = objectMapper;
+        this.segmentOpener = segmentOpener;
+        Gauge.builder("deals.wal.pending", pendingIds, Set::size)
+                .description("Acknowledged deals not yet flushed to the database")
+                .register(registry);
+        this.conflicts = Counter.builder("deals.wal.conflicts")
+                .description("Acknowledged deals whose id was stored by another writer before their flush")
+                .register(registry);
+        this.syncTimer = Timer.builder("deals.wal.sync.duration")
+                .description("Time spent forcing the deal log to disk, shared by the deals it acknowledges")
+                .register(registry);
+    }
+
+    /**
+     * Replays the deals logged but not flushed before the last stop and opens a new segment.
+     */
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(properties.directory());
+        long flushed = readFlushMark();
+        synchronized (this) {
+            lastSequence = flushed;
+            for (Path file : segmentFiles()) {
+                segments.add(new Segment(file, replay(file, flushed)));
+            }
+            syncedSequence = lastSequence;
+            capacity = new Semaphore(properties.maxPending() - pending.size());
+            openSegment();
+            running = true;
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} logged deals that were not flushed before the last stop", pending.size());
+        }
+        syncer = new Thread(this::syncLoop, "deal-wal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    /**
+     * Logs the deal and returns once it is on disk. The response carries no {@code id}; it is assigned when
+     * the deal is flushed. Once the log has failed, the deal is stored synchronously and the response carries
+     * its {@code id}.
+     *
+     * @throws DealAlreadyExistsException when the id is waiting in the log or already stored
+     * @throws DealLogFullException        when {@code deals.wal.max-pending} deals still wait for the flusher
+     *                                     after {@code deals.wal.max-wait}
+     */
+    public DealResponse append(DealRequest request) {
+        String dealUniqueId = request.getDealUniqueId();
+        if (!pendingIds.add(dealUniqueId)) {
+            throw new DealAlreadyExistsException(dealUniqueId);
+        }
+        boolean logged = false;
+        try {
+            if (hasFailed()) {
+                return storeDirectly(request);
+            }
+            if (!duplicateDetector.findExisting(List.of(dealUniqueId)).isEmpty()) {
+                throw new DealAlreadyExistsException(dealUniqueId);
+            }
+            if (!capacity.tryAcquire(properties.maxWait().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new DealLogFullException("Too many deals waiting to be stored, retry later",
+                        properties.retryAfter());
+            }
+            long end;
+            try {
+                end = write(request);
+                logged = end >= 0;
+            } finally {
+                if (!logged) {
+                    capacity.release();
+                }
+            }
+            if (!logged) {
+                return storeDirectly(request);
+            }
+            if (!awaitSynced(end)) {
+                // Dropped from the log by the failure, which also released its id and its capacity.
+                return storeDirectly(request);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while logging deal " + dealUniqueId, exception);
+        } finally {
+            if (!logged) {
+                pendingIds.remove(dealUniqueId);
+            }
+        }
+        return DealResponse.builder()
+                .dealUniqueId(dealUniqueId)
+                .fromCurrencyIso(request.getFromCurrencyIso())
+                .toCurrencyIso(request.getToCurrencyIso())
+                .dealTimestamp(request.getDealTimestamp())
+                .dealAmount(request.getDealAmount())
+                .build();
+    }
+
+    /**
+     * Writes logged deals to the database in batches of {@code deals.wal.flush-batch-size} until none is left.
+     * A batch that fails stays queued and is retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${deals.wal.flush-interval:PT0.2S}")
+    void flush() {
+        synchronized (flushLock) {
+            for (List<Entry> batch = nextBatch(); !batch.isEmpty(); batch = nextBatch()) {
+                try {
+                    store(batch);
+                } catch (RuntimeException exception) {
+                    log.warn("Failed to flush {} logged deals, retrying later", batch.size(), exception);
+                    return;
+                }
+                flushed(batch);
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        syncer.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+        synchronized (this) {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException exception) {
+                log.warn("Failed to close the deal log", exception);
+            }
+        }
+    }
+
+    private DealResponse storeDirectly(DealRequest request) {
+        Deal saved = dealPersistenceService.save(DealMapper.toEntity(request));
+        log.info("Persisted deal with uniqueId={} without the deal log", saved.getDealUniqueId());
+        return DealMapper.toResponse(saved);
+    }
+
+    private synchronized boolean hasFailed() {
+        return failure != null;
+    }
+
+    /**
+     * @return the log position after the deal, or -1 when it could not be logged
+     */
+    private synchronized long write(DealRequest request) {
+        if (failure != null) {
+            return -1;
+        }
+        Entry entry = new Entry(lastSequence + 1, request.getDealUniqueId(), request.getFromCurrencyIso(),
+                request.getToCurrencyIso(), request.getDealTimestamp(), request.getDealAmount());
+        try {
+            ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            if (channel.size() > 0 && channel.size() + line.remaining() > properties.segmentSize().toBytes()) {
+                rotate();
+            }
+            int length = line.remaining();
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            written += length;
+        } catch (IOException exception) {
+            log.warn("Failed to log deal {}, storing it synchronously", request.getDealUniqueId(), exception);
+            cutPartialWrite(exception);
+            return -1;
+        }
+        lastSequence = entry.sequence();
+        segments.getLast().lastSequence = entry.sequence();
+        pending.add(entry);
+        notifyAll();
+        return written;
+    }
+
+    /**
+     * Cuts whatever part of a failed write reached the segment. If that fails too, the segment ends with a
+     * broken line and nothing may follow it, so the log stops taking deals.
+     */
+    private void cutPartialWrite(IOException exception) {
+        try {
+            channel.truncate(written - segmentStart);
+        } catch (IOException truncateFailure) {
+            exception.addSuppressed(truncateFailure);
+            fail(exception);
+        }
+    }
+
+    /**
+     * Waits for the sync covering {@code end}, even when interrupted, since the deal is in the log by now.
+     *
+     * @return {@code false} when the log failed first and the deal was dropped from it
+     */
+    private synchronized boolean awaitSynced(long end) {
+        boolean interrupted = false;
+        try {
+            while (synced < end) {
+                if (failure != null) {
+                    return false;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                }
+            }
+            return true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops logging deals and drops the ones that are not on disk yet; their callers store them synchronously.
+     */
+    private synchronized void fail(IOException exception) {
+        log.error("The deal log failed, storing further deals synchronously", exception);
+        failure = exception;
+        int dropped = 0;
+        while (!pending.isEmpty() && pending.peekLast().sequence() > syncedSequence) {
+            pendingIds.remove(pending.removeLast().dealUniqueId());
+            dropped++;
+        }
+        capacity.release(dropped);
+        notifyAll();
+    }
+
+    /**
+     * Forces the active segment whenever something was written since the last sync, so every sync covers all
+     * deals appended while the previous one ran.
+     */
+    private void syncLoop() {
+        while (true) {
+            FileChannel target;
+            long upTo;
+            long upToSequence;
+            synchronized (this) {
+                while (running && failure == null && synced == written) {
+                    try {
+                        wait();
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                }
+                if (failure != null || synced == written) {
+                    return;
+                }
+                target = channel;
+                upTo = written;
+                upToSequence = lastSequence;
+            }
+            long started = System.nanoTime();
+            try {
+                target.force(false);
+            } catch (ClosedChannelException rotated) {
+                // The segment was forced and closed by a rotation, which advanced the synced position itself.
+            } catch (IOException exception) {
+                fail(exception);
+                return;
+            }
+            syncTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            synchronized (this) {
+                if (upTo > synced) {
+                    synced = upTo;
+                    syncedSequence = upToSequence;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        synced = written;
+        syncedSequence = lastSequence;
+        notifyAll();
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        Path file = properties.directory()
+                .resolve(SEGMENT_PREFIX + "%020d".formatted(lastSequence + 1) + SEGMENT_SUFFIX);
+        channel = segmentOpener.open(file);
+        segmentStart = written;
+        segments.add(new Segment(file, lastSequence));
+    }
+
+    /**
+     * Queues the deals of a segment logged after {@code flushed}. A line that does not parse can only be the
+     * last one, cut short by a crash while it was written; its deal was never acknowledged.
+     *
+     * @return the last sequence number in the segment
+     */
+    private long replay(Path file, long flushed) throws IOException {
+        long last = flushed;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(line, Entry.class);
+                } catch (JsonProcessingException exception) {
+                    if (next != null) {
+                        throw new IllegalStateException("Corrupt entry in deal log " + file, exception);
+                    }
+                    log.warn("Ignoring incomplete last entry of deal log {}", file);
+                    break;
+                }
+                last = Math.max(last, entry.sequence());
+                if (entry.sequence() > flushed && pendingIds.add(entry.dealUniqueId())) {
+                    pending.add(entry);
+                }
+                lastSequence = Math.max(lastSequence, entry.sequence());
+                line = next;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * @return the next acknowledged deals, i.e. those already on disk
+     */
+    private synchronized List<Entry> nextBatch() {
+        List<Entry> batch = new ArrayList<>(Math.min(pending.size(), properties.flushBatchSize()));
+        Iterator<Entry> entries = pending.iterator();
+        while (entries.hasNext() && batch.size() < properties.flushBatchSize()) {
+            Entry entry = entries.next();
+            if (entry.sequence() > syncedSequence) {
+                break;
+            }
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    private void store(List<Entry> batch) {
+        List<Deal> deals = new ArrayList<>(batch.size());
+        batch.forEach(entry -> deals.add(DealMapper.toEntity(entry.toRequest())));
+        Set<String> inserted = dealPersistenceService.saveBatch(deals);
+        if (inserted.size() == batch.size()) {
+            return;
+        }
+
+        List<Entry> rejected = new ArrayList<>();
+        Set<String> rejectedIds = new HashSet<>();
+        for (Entry entry : batch) {
+            if (!inserted.contains(entry.dealUniqueId())) {
+                rejected.add(entry);
+                rejectedIds.add(entry.dealUniqueId());
+            }
+        }
+        Map<String, Deal> stored = new HashMap<>();
+        dealPersistenceService.findStored(rejectedIds)
+                .forEach(deal -> stored.put(deal.getDealUniqueId(), deal));
+        List<String> lines = new ArrayList<>();
+        for (Entry entry : rejected) {
+            Deal deal = stored.get(entry.dealUniqueId());
+            if (deal != null && DealMapper.sameContent(entry.toRequest(), deal)) {
+                // Flushed before the last stop, after the mark was written.
+                continue;
+            }
+            StringBuilder line = new StringBuilder().append(entry.sequence()).append(',');
+            DealExportService.appendCsvValue(line, entry.dealUniqueId()).append(',')
+                    .append(entry.fromCurrencyIso()).append(',')
+                    .append(entry.toCurrencyIso()).append(',')
+                    .append(entry.dealTimestamp()).append(',')
+                    .append(entry.dealAmount().toPlainString()).append(',')
+                    .append(deal != null ? deal.getId() : "");
+            lines.add(line.toString());
+            log.warn("Logged deal {} (sequence {}) conflicts with a deal stored since its acknowledgement",
+                    entry.dealUniqueId(), entry.sequence());
+        }
+        if (!lines.isEmpty()) {
+            reportConflicts(lines);
+            conflicts.increment(lines.size());
+        }
+    }
+
+    private void flushed(List<Entry> batch) {
+        long upTo = batch.get(batch.size() - 1).sequence();
+        writeFlushMark(upTo);
+        synchronized (this) {
+            for (int i = 0; i < batch.size(); i++) {
+                pending.removeFirst();
+            }
+            Iterator<Segment> flushedSegments = segments.iterator();
+            while (flushedSegments.hasNext()) {
+                Segment segment = flushedSegments.next();
+                if (segment == segments.getLast() || segment.lastSequence > upTo) {
+                    break;
+                }
+                deleteQuietly(segment.file);
+                flushedSegments.remove();
+            }
+        }
+        batch.forEach(entry -> pendingIds.remove(entry.dealUniqueId()));
+        capacity.release(batch.size());
+    }
+
+    private void reportConflicts(List<String> lines) {
+        Path report = properties.directory().resolve(CONFLICTS);
+        try {
+            boolean created = !Files.exists(report);
+            try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (created) {
+                    writer.write(CONFLICTS_HEADER_ROW);
+                    writer.write('\n');
+                }
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException exception) {
+            log.error("Failed to write {} conflicts to {}", lines.size(), report, exception);
+        }
+    }
+
+    private long readFlushMark() throws IOException {
+        Path mark = properties.directory().resolve(FLUSH_MARK);
+        return Files.exists(mark) ? Long.parseLong(Files.readString(mark).trim()) : 0;
+    }
+
+    /**
+     * Replaces the mark atomically. If that fails the deals are flushed again after a restart and recognised
+     * as stored, so the failure is only logged.
+     */
+    private void writeFlushMark(long sequence) {
+        Path mark = properties.directory().resolve(FLUSH_MARK);
+        Path temporary = mark.resolveSibling(FLUSH_MARK + ".tmp");
+        try {
+            Files.writeString(temporary, Long.toString(sequence));
+            Files.move(temporary, mark, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            log.warn("Failed to record flushed deal log position {}", sequence, exception);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream =
+                     Files.newDirectoryStream(properties.directory(), SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.warn("Failed to delete flushed deal log segment {}", file, exception);
+        }
+    }
+
+    /**
+     * Opens a segment file for appending.
+     */
+    @FunctionalInterface
+    interface SegmentOpener {
+
+        FileChannel open(Path file) throws IOException;
+    }
+
+    /**
+     * One line of the log.
+     */
+    record Entry(long sequence, String dealUniqueId, String fromCurrencyIso, String toCurrencyIso,
+                 Instant dealTimestamp, BigDecimal dealAmount) {
+
+        DealRequest toRequest() {
+            return DealRequest.builder()
+                    .dealUniqueId(dealUniqueId)
+                    .fromCurrencyIso(fromCurrencyIso)
+                    .toCurrencyIso(toCurrencyIso)
+                    .dealTimestamp(dealTimestamp)
+                    .dealAmount(dealAmount)
+                    .build();
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+        private long lastSequence;
+
+        private Segment(Path file, long lastSequence) {
+            this.file = file;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
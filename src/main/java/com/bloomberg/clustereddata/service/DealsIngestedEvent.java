@@ -0,0 +1,17 @@
+package com.bloomberg.clustereddata.service;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Published inside the transaction that inserted deals; {@link DealReadCache} acts on it once that transaction
+ * has committed.
+ *
+ * @param dealUniqueIds the inserted ids, or {@code null} when too many to enumerate
+ * @param minuteBuckets the pair and UTC minute of every inserted deal, or {@code null} when too many to enumerate
+ */
+public record DealsIngestedEvent(Set<String> dealUniqueIds, Set<VolumeBucket> minuteBuckets) {
+
+    public record VolumeBucket(String fromCurrencyIso, String toCurrencyIso, Instant minute) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.ImportAdmissionProperties;
+import com.bloomberg.clustereddata.config.ShardedDataSource;
+import com.bloomberg.clustereddata.exception.ImportThrottledException;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission control for imports. Synchronous imports take one of {@code deals.import.admission.max-concurrent}
+ * slots; up to {@code max-queued} more wait at most {@code max-wait} for one, and everything beyond is turned
+ * away with {@link ImportThrottledException} instead of competing for memory and connections. Independently,
+ * the database work of every import, jobs included, runs under a shared cap of connections that keeps
+ * {@code reserved-connections} of the Hikari pool free for the rest of the application. The pool size is read
+ * from shard 0 (see {@link ShardedDataSource#pool}), so every shard is assumed to have a pool of the same size.
+ * {@link ImportWorkers} caps the lanes of an import at the same limit.
+ *
+ * <p>Meters: {@code deals.import.admission.active}, {@code deals.import.admission.queued},
+ * {@code deals.import.admission.rejected} and {@code deals.import.connections.active}.
+ */
+@Slf4j
+@Component
+public class ImportAdmission {
+
+    private final ImportAdmissionProperties properties;
+    private final Semaphore slots;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Semaphore connections;
+    private final int connectionLimit;
+    private final Counter rejected;
+
+    public ImportAdmission(ImportAdmissionProperties properties, DataSource dataSource, MeterRegistry registry) {
+        this.properties = properties;
+        this.slots = new Semaphore(properties.maxConcurrent(), true);
+        HikariDataSource hikari = ShardedDataSource.pool(dataSource);
+        this.connectionLimit = hikari != null
+                ? Math.max(1, hikari.getMaximumPoolSize() - properties.reservedConnections())
+                : Integer.MAX_VALUE;
+        this.connections = new Semaphore(connectionLimit, true);
+        if (connectionLimit != Integer.MAX_VALUE) {
+            log.info("Imports share at most {} database connections", connectionLimit);
+        }
+
+        Gauge.builder("deals.import.admission.active", slots,
+                        available -> properties.maxConcurrent() - available.availablePermits())
+                .description("Synchronous imports holding a slot")
+                .register(registry);
+        Gauge.builder("deals.import.admission.queued", queued, AtomicInteger::get)
+                .description("Synchronous imports waiting for a slot")
+                .register(registry);
+        Gauge.builder("deals.import.connections.active", connections,
+                        available -> connectionLimit - available.availablePermits())
+                .description("Database connections held by import lanes")
+                .register(registry);
+        this.rejected = Counter.builder("deals.import.admission.rejected")
+                .description("Synchronous imports turned away for lack of a slot")
+                .register(registry);
+    }
+
+    /**
+     * @return how many connections all imports together may hold, {@link Integer#MAX_VALUE} without a Hikari pool
+     */
+    int connectionLimit() {
+        return connectionLimit;
+    }
+
+    /**
+     * Takes a slot for a synchronous import, waiting in the bounded queue if none is free. Close the returned
+     * slot when the import ends.
+     *
+     * @throws ImportThrottledException when the queue is full or no slot frees up in time
+     */
+    public Slot admit() {
+        if (slots.tryAcquire()) {
+            return new Slot();
+        }
+        if (queued.incrementAndGet() > properties.maxQueued()) {
+            queued.decrementAndGet();
+            throw throttled();
+        }
+        try {
+            if (!slots.tryAcquire(properties.maxWait().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw throttled();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw throttled();
+        } finally {
+            queued.decrementAndGet();
+        }
+        return new Slot();
+    }
+
+    /**
+     * Runs database work of an import once a connection may be taken. Blocks while other imports hold all
+     * import connections.
+     */
+    <T> T withConnection(Supplier<T> work) {
+        try {
+            connections.acquire();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an import connection", exception);
+        }
+        try {
+            return work.get();
+        } finally {
+            connections.release();
+        }
+    }
+
+    private ImportThrottledException throttled() {
+        rejected.increment();
+        return new ImportThrottledException("Too many imports in progress, retry later", properties.retryAfter());
+    }
+
+    /**
+     * A slot held by one synchronous import.
+     */
+    public final class Slot implements AutoCloseable {
+
+        private boolean released;
+
+        private Slot() {
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                slots.release();
+            }
+        }
+    }
+}
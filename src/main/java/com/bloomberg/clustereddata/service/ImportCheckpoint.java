@@ -0,0 +1,48 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.util.CsvPosition;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Point of a spooled import up to which every row has been committed or reported, from which the import can
+ * resume after the process was stopped.
+ *
+ * @param position        where reading resumes
+ * @param dealIdMarks     last deal id handed out by every shard when the checkpoint was taken; empty for
+ *                        checkpoints saved before the marks were kept per shard, which then credit no rows
+ * @param replayUntilRow  last row that may have been committed after the checkpoint; on resume, rows up to it
+ *                        that are found stored with an id above their shard's mark count as imported, not as
+ *                        duplicates
+ * @param failureReportId report the failures are collected in
+ * @param failures        failures of the rows before {@code position}
+ */
+public record ImportCheckpoint(
+        CsvPosition position,
+        Map<Integer, Long> dealIdMarks,
+        int replayUntilRow,
+        UUID failureReportId,
+        Failures failures) {
+
+    public ImportCheckpoint {
+        dealIdMarks = dealIdMarks == null ? Map.of() : Map.copyOf(dealIdMarks);
+    }
+
+    /**
+     * State of an {@link ImportFailureReport} at the checkpoint.
+     *
+     * @param counts       failures per category
+     * @param inline       failures held for the summary
+     * @param reportLength bytes of the report file, or -1 when nothing has been written to it
+     */
+    public record Failures(Map<ImportFailureCategory, Long> counts, List<DealImportFailure> inline,
+                           long reportLength) {
+
+        long total() {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.util.CsvDealParser;
+import com.bloomberg.clustereddata.util.CsvPosition;
+import java.util.function.Consumer;
+
+/**
+ * Takes the checkpoints of one resumable import: one before the first row of a new import, then one every
+ * {@code interval} rows once the lanes have written every row read so far. Only used with sessions that
+ * commit on write; other imports are checkpointed at the start only and resume from there.
+ */
+final class ImportCheckpointer {
+
+    private final CsvDealParser.Cursor cursor;
+    private final ImportCheckpoint resumeFrom;
+    private final int interval;
+    private final Consumer<ImportCheckpoint> listener;
+    private final DealPersistenceService dealPersistenceService;
+    private int rowsSinceCheckpoint;
+
+    /**
+     * @param resumeFrom checkpoint the import continues from, or {@code null} for a new import
+     */
+    ImportCheckpointer(CsvDealParser.Cursor cursor, ImportCheckpoint resumeFrom, int interval,
+                       Consumer<ImportCheckpoint> listener, DealPersistenceService dealPersistenceService) {
+        this.cursor = cursor;
+        this.resumeFrom = resumeFrom;
+        this.interval = interval;
+        this.listener = listener;
+        this.dealPersistenceService = dealPersistenceService;
+    }
+
+    /**
+     * Opens the failure report, continuing the one of the interrupted run when resuming. The report outlives
+     * an interruption of this run too.
+     */
+    ImportFailureReport openReport(ImportFailureReports reports) {
+        ImportFailureReport report = resumeFrom == null
+                ? reports.open()
+                : reports.resume(resumeFrom.failureReportId(), resumeFrom.failures());
+        report.retain();
+        return report;
+    }
+
+    /**
+     * @return rows before the position the import starts reading from
+     */
+    int skippedRows() {
+        return resumeFrom == null ? 0 : resumeFrom.position().rowNumber();
+    }
+
+    /**
+     * @return failures among the skipped rows
+     */
+    long skippedFailures() {
+        return resumeFrom == null ? 0 : resumeFrom.failures().total();
+    }
+
+    /**
+     * @return the replay of the rows after the checkpoint resumed from, or {@code null} for a new import
+     */
+    ImportReplay replay() {
+        return resumeFrom == null ? null : new ImportReplay(dealPersistenceService, resumeFrom);
+    }
+
+    /**
+     * Checkpoints a new import before its first row. A resumed import keeps the checkpoint it resumed from
+     * until the next one, since rows committed by the interrupted run still need its replay window.
+     *
+     * @param commitsOnWrite whether rows are committed while the file is read; otherwise the whole file is in
+     *                       the replay window
+     */
+    void start(ImportFailureReport failures, boolean commitsOnWrite) {
+        if (resumeFrom == null) {
+            take(CsvPosition.START, failures, commitsOnWrite ? interval : Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Counts a row handed to the lanes and takes a checkpoint after every {@code interval} rows.
+     */
+    void rowRead(ImportLanes lanes, ImportFailureReport failures) {
+        if (++rowsSinceCheckpoint < interval) {
+            return;
+        }
+        rowsSinceCheckpoint = 0;
+        lanes.awaitIdle();
+        CsvPosition position = cursor.position();
+        take(position, failures, position.rowNumber() + interval);
+    }
+
+    private void take(CsvPosition position, ImportFailureReport failures, int replayUntilRow) {
+        listener.accept(new ImportCheckpoint(position, dealPersistenceService.lastDealIds(), replayUntilRow,
+                failures.id(), failures.snapshot()));
+    }
+}
@@ -0,0 +1,235 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects the failures of one import in bounded memory: a count per category and the {@code inlineLimit}
+ * failures with the lowest row numbers. Once there are more, every failure is also appended to a CSV file,
+ * starting with the ones held so far, so the summary can point to a complete list. Lanes finish chunks in any
+ * order, so the file is not sorted by row number.
+ *
+ * <p>A report that is closed before {@link #summarize} deletes its file, unless it is {@link #retain retained}
+ * for a resumable import. If the file cannot be written the import carries on with counts and inline failures
+ * only.
+ */
+@Slf4j
+final class ImportFailureReport implements AutoCloseable {
+
+    static final String HEADER_ROW = "row_number,category,reason";
+
+    private static final Comparator<DealImportFailure> BY_ROW_NUMBER =
+            Comparator.comparingInt(DealImportFailure::rowNumber);
+
+    private final UUID id;
+    private final Path file;
+    private final int inlineLimit;
+    private final PriorityQueue<DealImportFailure> inline;
+    private final long[] counts = new long[ImportFailureCategory.values().length];
+    private long total;
+    private Writer writer;
+    private boolean spillFailed;
+    private boolean summarized;
+    private boolean retained;
+
+    ImportFailureReport(UUID id, Path file, int inlineLimit) {
+        this.id = id;
+        this.file = file;
+        this.inlineLimit = inlineLimit;
+        this.inline = new PriorityQueue<>(inlineLimit + 1, BY_ROW_NUMBER.reversed());
+    }
+
+    /**
+     * Continues a report from a checkpoint. The file is cut back to its length at the checkpoint, dropping
+     * the failures of rows that are about to be read again.
+     */
+    ImportFailureReport(UUID id, Path file, int inlineLimit, ImportCheckpoint.Failures restored) {
+        this(id, file, inlineLimit);
+        restored.counts().forEach((category, count) -> counts[category.ordinal()] += count);
+        total = restored.total();
+        inline.addAll(restored.inline());
+        while (inline.size() > inlineLimit) {
+            inline.poll();
+        }
+        if (restored.reportLength() < 0) {
+            spillFailed = total > inline.size();
+            deleteFile();
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(restored.reportLength());
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException exception) {
+            abandon(exception);
+        }
+    }
+
+    UUID id() {
+        return id;
+    }
+
+    /**
+     * Keeps the file when the report is closed without a summary, so that a resumed import can continue it.
+     */
+    synchronized void retain() {
+        retained = true;
+    }
+
+    /**
+     * Flushes the file and captures the state to restore on resume. Callers make sure no failures are being
+     * added at the same time, so the state matches a single point of the import.
+     */
+    synchronized ImportCheckpoint.Failures snapshot() {
+        long reportLength = -1;
+        if (writer != null) {
+            try {
+                writer.flush();
+                reportLength = Files.size(file);
+            } catch (IOException exception) {
+                abandon(exception);
+            }
+        }
+        Map<ImportFailureCategory, Long> byCategory = new EnumMap<>(ImportFailureCategory.class);
+        for (ImportFailureCategory category : ImportFailureCategory.values()) {
+            if (counts[category.ordinal()] > 0) {
+                byCategory.put(category, counts[category.ordinal()]);
+            }
+        }
+        List<DealImportFailure> held = new ArrayList<>(inline);
+        held.sort(BY_ROW_NUMBER);
+        return new ImportCheckpoint.Failures(byCategory, held, reportLength);
+    }
+
+    synchronized void add(List<DealImportFailure> failures) {
+        for (DealImportFailure failure : failures) {
+            total++;
+            counts[categoryOf(failure).ordinal()]++;
+            if (writer != null) {
+                write(List.of(failure));
+            }
+            inline.add(failure);
+            if (inline.size() > inlineLimit) {
+                if (writer == null && !spillFailed) {
+                    // Until now every failure fitted inline, so the queue holds all of them.
+                    spill();
+                }
+                inline.poll();
+            }
+        }
+    }
+
+    /**
+     * Completes the file and builds the summary of an import of {@code totalRows} rows.
+     */
+    synchronized DealImportSummary summarize(int totalRows) {
+        summarized = true;
+        boolean reported = writer != null && closeWriter();
+        if (!reported) {
+            deleteFile();
+        }
+
+        List<DealImportFailure> failures = new ArrayList<>(inline);
+        failures.sort(BY_ROW_NUMBER);
+        DealImportSummary.DealImportSummaryBuilder summary = DealImportSummary.builder()
+                .totalRows(totalRows)
+                .successfulRows(totalRows - (int) total)
+                .failedRows((int) total)
+                .failuresTruncated(total > failures.size())
+                .failureReportId(reported ? id : null)
+                .failures(failures);
+        for (ImportFailureCategory category : ImportFailureCategory.values()) {
+            if (counts[category.ordinal()] > 0) {
+                summary.failureCount(category, counts[category.ordinal()]);
+            }
+        }
+        return summary.build();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!summarized) {
+            if (writer != null) {
+                closeWriter();
+            }
+            if (!retained) {
+                deleteFile();
+            }
+        }
+    }
+
+    private void spill() {
+        try {
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            writer.write(HEADER_ROW);
+            writer.write('\n');
+        } catch (IOException exception) {
+            abandon(exception);
+            return;
+        }
+        List<DealImportFailure> held = new ArrayList<>(inline);
+        held.sort(BY_ROW_NUMBER);
+        write(held);
+    }
+
+    private void write(List<DealImportFailure> failures) {
+        StringBuilder lines = new StringBuilder(failures.size() * 96);
+        for (DealImportFailure failure : failures) {
+            lines.append(failure.rowNumber()).append(',').append(categoryOf(failure)).append(',');
+            DealExportService.appendCsvValue(lines, failure.reason() != null ? failure.reason() : "").append('\n');
+        }
+        try {
+            writer.write(lines.toString());
+        } catch (IOException exception) {
+            abandon(exception);
+        }
+    }
+
+    private boolean closeWriter() {
+        try {
+            writer.close();
+            return true;
+        } catch (IOException exception) {
+            log.warn("Failed to complete import failure report {}", file, exception);
+            return false;
+        } finally {
+            writer = null;
+        }
+    }
+
+    private void abandon(IOException exception) {
+        log.warn("Failed to write import failure report {}, keeping counts only", file, exception);
+        spillFailed = true;
+        if (writer != null) {
+            closeWriter();
+        }
+        deleteFile();
+    }
+
+    private void deleteFile() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.warn("Failed to delete import failure report {}", file, exception);
+        }
+    }
+
+    private static ImportFailureCategory categoryOf(DealImportFailure failure) {
+        return failure.category() != null ? failure.category() : ImportFailureCategory.WRITE;
+    }
+}
@@ -0,0 +1,105 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.ImportFailureReportProperties;
+import com.bloomberg.clustereddata.exception.ImportFailureReportNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Failure reports of finished imports, kept in {@code deals.import.failures.directory} for
+ * {@code deals.import.failures.retention} and then deleted.
+ */
+@Slf4j
+@Component
+public class ImportFailureReports {
+
+    private static final String SUFFIX = ".csv";
+
+    private final ImportFailureReportProperties properties;
+
+    public ImportFailureReports(ImportFailureReportProperties properties) {
+        this.properties = properties;
+    }
+
+    ImportFailureReport open() {
+        createDirectory();
+        UUID id = UUID.randomUUID();
+        return new ImportFailureReport(id, file(id), properties.inlineLimit());
+    }
+
+    /**
+     * Reopens the report of an import resumed from a checkpoint.
+     */
+    ImportFailureReport resume(UUID reportId, ImportCheckpoint.Failures restored) {
+        createDirectory();
+        return new ImportFailureReport(reportId, file(reportId), properties.inlineLimit(), restored);
+    }
+
+    /**
+     * Deletes the report of an import that will not be resumed.
+     */
+    void discard(UUID reportId) {
+        try {
+            Files.deleteIfExists(file(reportId));
+        } catch (IOException exception) {
+            log.warn("Failed to delete import failure report {}", reportId, exception);
+        }
+    }
+
+    /**
+     * @throws ImportFailureReportNotFoundException when the report does not exist or has expired
+     */
+    public Path find(UUID reportId) {
+        Path file = file(reportId);
+        if (!Files.isRegularFile(file) || isExpired(file, Instant.now())) {
+            throw new ImportFailureReportNotFoundException(reportId);
+        }
+        return file;
+    }
+
+    @Scheduled(fixedDelayString = "${deals.import.failures.purge-interval:PT1H}")
+    void purgeExpired() {
+        if (!Files.isDirectory(properties.directory())) {
+            return;
+        }
+        Instant now = Instant.now();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(properties.directory(), "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (isExpired(file, now)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException exception) {
+            log.warn("Failed to purge expired import failure reports", exception);
+        }
+    }
+
+    private boolean isExpired(Path file, Instant now) {
+        try {
+            Instant written = Files.getLastModifiedTime(file).toInstant();
+            return written.plus(properties.retention()).isBefore(now);
+        } catch (IOException exception) {
+            return true;
+        }
+    }
+
+    private void createDirectory() {
+        try {
+            Files.createDirectories(properties.directory());
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to create " + properties.directory(), exception);
+        }
+    }
+
+    private Path file(UUID reportId) {
+        return properties.directory().resolve(reportId + SUFFIX);
+    }
+}
@@ -0,0 +1,125 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.ImportJobResponse;
+import com.bloomberg.clustereddata.dto.ImportJobStatus;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import lombok.Getter;
+
+/**
+ * Mutable state of one asynchronous import. Written by the worker running the import and read by request
+ * threads polling for status.
+ */
+@Getter
+class ImportJob {
+
+    private final UUID id;
+    private final String fileName;
+    private final ImportMode mode;
+    private final Path spooledFile;
+    private final Instant submittedAt;
+    private final ImportProgress progress = new ImportProgress();
+    private volatile ImportJobStatus status = ImportJobStatus.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile DealImportSummary summary;
+    private volatile String error;
+    private volatile Future<?> future;
+    private volatile ImportCheckpoint checkpoint;
+
+    ImportJob(UUID id, String fileName, ImportMode mode, Path spooledFile, Instant submittedAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.mode = mode;
+        this.spooledFile = spooledFile;
+        this.submittedAt = submittedAt;
+    }
+
+    /**
+     * Restores a job that was interrupted by a restart, to be continued from its last checkpoint.
+     */
+    ImportJob(UUID id, String fileName, ImportMode mode, Path spooledFile, Instant submittedAt,
+              ImportCheckpoint checkpoint) {
+        this(id, fileName, mode, spooledFile, submittedAt);
+        this.checkpoint = checkpoint;
+    }
+
+    void checkpointed(ImportCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    void attach(Future<?> future) {
+        this.future = future;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        status = ImportJobStatus.RUNNING;
+    }
+
+    void complete(DealImportSummary summary) {
+        this.summary = summary;
+        finish(ImportJobStatus.COMPLETED);
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finish(ImportJobStatus.FAILED);
+    }
+
+    void cancelled() {
+        finish(ImportJobStatus.CANCELLED);
+    }
+
+    /**
+     * Requests cancellation. A queued job is removed from the executor; a running job stops before its next
+     * chunk.
+     */
+    void cancel() {
+        progress.cancel();
+        Future<?> pending = future;
+        if (status == ImportJobStatus.QUEUED && pending != null && pending.cancel(false)) {
+            cancelled();
+        }
+    }
+
+    boolean isExpired(Instant now, Duration retention) {
+        Instant finished = finishedAt;
+        return finished != null && finished.plus(retention).isBefore(now);
+    }
+
+    ImportJobResponse toResponse() {
+        Instant started = startedAt;
+        Instant finished = finishedAt;
+        long processed = progress.processedRows();
+        double rowsPerSecond = 0;
+        if (started != null) {
+            long elapsedMillis = Duration.between(started, finished != null ? finished : Instant.now()).toMillis();
+            rowsPerSecond = elapsedMillis > 0 ? processed * 1000.0 / elapsedMillis : 0;
+        }
+        return ImportJobResponse.builder()
+                .jobId(id)
+                .fileName(fileName)
+                .mode(mode)
+                .status(status)
+                .submittedAt(submittedAt)
+                .startedAt(started)
+                .finishedAt(finished)
+                .rowsProcessed(processed)
+                .rowsSucceeded(progress.succeededRows())
+                .rowsFailed(progress.failedRows())
+                .rowsPerSecond(rowsPerSecond)
+                .error(error)
+                .build();
+    }
+
+    private void finish(ImportJobStatus finalStatus) {
+        finishedAt = Instant.now();
+        status = finalStatus;
+    }
+}
@@ -0,0 +1,298 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.ImportJobProperties;
+import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.ImportJobResponse;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.exception.ImportCancelledException;
+import com.bloomberg.clustereddata.exception.ImportJobNotFinishedException;
+import com.bloomberg.clustereddata.exception.ImportJobNotFoundException;
+import com.bloomberg.clustereddata.exception.ImportRejectedException;
+import com.bloomberg.clustereddata.exception.InvalidCsvException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Runs CSV imports in the background so that the upload request returns as soon as the file has been
+ * spooled to disk. Imports execute on a dedicated, bounded pool; when both the pool and its queue are full
+ * new uploads are rejected instead of piling up.
+ *
+ * <p>Next to each spooled file the job keeps its state and last {@link ImportCheckpoint} in a JSON file. Jobs
+ * still queued or running when the application stops are picked up again on the next start and continue from
+ * their checkpoint.
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+    private static final String SPOOL_SUFFIX = ".csv";
+    private static final String STATE_SUFFIX = ".json";
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final DealService dealService;
+    private final ImportJobProperties properties;
+    private final ImportFailureReports failureReports;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+    private volatile boolean stopping;
+
+    public ImportJobService(DealService dealService, ImportJobProperties properties,
+                            ImportFailureReports failureReports, ObjectMapper objectMapper) {
+        this.dealService = dealService;
+        this.properties = properties;
+        this.failureReports = failureReports;
+        this.objectMapper = objectMapper;
+        this.executor = new ThreadPoolExecutor(
+                properties.poolSize(),
+                properties.poolSize(),
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.queueCapacity())),
+                new CustomizableThreadFactory("deal-import-"));
+    }
+
+    public ImportJobResponse submit(MultipartFile file, ImportMode mode) {
+        if (file == null || file.isEmpty()) {
+            throw new InvalidCsvException("CSV file is empty.");
+        }
+        UUID jobId = UUID.randomUUID();
+        Path spooledFile = spool(jobId, file);
+        ImportJob job = new ImportJob(jobId, file.getOriginalFilename(), mode, spooledFile, Instant.now());
+        jobs.put(jobId, job);
+        try {
+            saveState(job);
+            job.attach(executor.submit(() -> run(job)));
+        } catch (RejectedExecutionException exception) {
+            jobs.remove(jobId);
+            discard(job);
+            throw new ImportRejectedException("Too many imports in progress, retry later", exception);
+        } catch (RuntimeException exception) {
+            jobs.remove(jobId);
+            discard(job);
+            throw exception;
+        }
+        log.info("Accepted import job {} for {}", jobId, file.getOriginalFilename());
+        return job.toResponse();
+    }
+
+    public ImportJobResponse status(UUID jobId) {
+        return find(jobId).toResponse();
+    }
+
+    public DealImportSummary summary(UUID jobId) {
+        ImportJob job = find(jobId);
+        DealImportSummary summary = job.getSummary();
+        if (summary == null) {
+            throw new ImportJobNotFinishedException(jobId, job.getStatus());
+        }
+        return summary;
+    }
+
+    public ImportJobResponse cancel(UUID jobId) {
+        ImportJob job = find(jobId);
+        if (!job.getStatus().isFinished()) {
+            job.cancel();
+            if (job.getStatus().isFinished()) {
+                discard(job);
+            }
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * Requeues the jobs that were queued or running when the application last stopped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void resumeInterruptedJobs() {
+        if (!Files.isDirectory(properties.spoolDirectory())) {
+            return;
+        }
+        try (DirectoryStream<Path> states =
+                     Files.newDirectoryStream(properties.spoolDirectory(), "*" + STATE_SUFFIX)) {
+            for (Path state : states) {
+                resume(state);
+            }
+        } catch (IOException exception) {
+            log.warn("Failed to scan {} for interrupted import jobs", properties.spoolDirectory(), exception);
+        }
+    }
+
+    /**
+     * Forgets finished jobs once {@code deals.import.jobs.retention} has passed.
+     */
+    @Scheduled(fixedDelayString = "${deals.import.jobs.purge-interval:PT5M}")
+    void purgeExpiredJobs() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> job.isExpired(now, properties.retention()));
+    }
+
+    /**
+     * Interrupts the running jobs and waits a bounded time for them to save their state, so they resume from
+     * their last checkpoint on the next start.
+     */
+    @PreDestroy
+    void shutdown() {
+        stopping = true;
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Import jobs still running {} after shutdown was requested", SHUTDOWN_TIMEOUT);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(ImportJob job) {
+        job.start();
+        DealImportSummary summary;
+        try {
+            summary = dealService.importDeals(job.getSpooledFile(), job.getMode(), job.getProgress(),
+                    job.getCheckpoint(), properties.checkpointInterval(), checkpoint -> {
+                        job.checkpointed(checkpoint);
+                        saveState(job);
+                    });
+        } catch (ImportCancelledException cancelled) {
+            discard(job);
+            job.cancelled();
+            log.info("Import job {} cancelled after {} rows", job.getId(), job.getProgress().processedRows());
+            return;
+        } catch (Exception exception) {
+            if (stopping) {
+                log.info("Import job {} interrupted after {} rows, resuming on next start",
+                        job.getId(), job.getProgress().processedRows());
+                return;
+            }
+            log.error("Import job {} failed", job.getId(), exception);
+            discard(job);
+            job.fail(exception.getMessage());
+            return;
+        }
+        deleteQuietly(job.getSpooledFile());
+        deleteQuietly(stateFile(job.getId()));
+        job.complete(summary);
+        log.info("Import job {} completed", job.getId());
+    }
+
+    private void resume(Path state) {
+        JobState saved;
+        try {
+            saved = objectMapper.readValue(state.toFile(), JobState.class);
+        } catch (IOException exception) {
+            log.warn("Ignoring unreadable import job state {}", state, exception);
+            return;
+        }
+        Path spooledFile = spoolFile(saved.id());
+        if (jobs.containsKey(saved.id()) || !Files.isRegularFile(spooledFile)) {
+            return;
+        }
+        ImportJob job = new ImportJob(saved.id(), saved.fileName(), saved.mode(), spooledFile,
+                saved.submittedAt(), saved.checkpoint());
+        jobs.put(job.getId(), job);
+        try {
+            job.attach(executor.submit(() -> run(job)));
+        } catch (RejectedExecutionException exception) {
+            jobs.remove(job.getId());
+            log.warn("No room to resume import job {}, leaving it for the next start", job.getId());
+            return;
+        }
+        ImportCheckpoint checkpoint = saved.checkpoint();
+        log.info("Resuming import job {} from row {}", job.getId(),
+                checkpoint != null ? checkpoint.position().rowNumber() : 0);
+    }
+
+    /**
+     * Writes the state to a temporary file first, so a crash never leaves a truncated state behind.
+     */
+    private void saveState(ImportJob job) {
+        JobState state = new JobState(job.getId(), job.getFileName(), job.getMode(), job.getSubmittedAt(),
+                job.getCheckpoint());
+        Path target = stateFile(job.getId());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            objectMapper.writeValue(temporary.toFile(), state);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to save state of import job " + job.getId(), exception);
+        }
+    }
+
+    /**
+     * Removes everything a job that will not run again keeps on disk.
+     */
+    private void discard(ImportJob job) {
+        deleteQuietly(job.getSpooledFile());
+        deleteQuietly(stateFile(job.getId()));
+        ImportCheckpoint checkpoint = job.getCheckpoint();
+        if (checkpoint != null) {
+            failureReports.discard(checkpoint.failureReportId());
+        }
+    }
+
+    private ImportJob find(UUID jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ImportJobNotFoundException(jobId);
+        }
+        return job;
+    }
+
+    private Path spool(UUID jobId, MultipartFile file) {
+        try {
+            Files.createDirectories(properties.spoolDirectory());
+            Path target = spoolFile(jobId);
+            file.transferTo(target);
+            return target;
+        } catch (IOException exception) {
+            throw new InvalidCsvException("Failed to store uploaded CSV file.", exception);
+        }
+    }
+
+    private Path spoolFile(UUID jobId) {
+        return properties.spoolDirectory().resolve(jobId + SPOOL_SUFFIX);
+    }
+
+    private Path stateFile(UUID jobId) {
+        return properties.spoolDirectory().resolve(jobId + STATE_SUFFIX);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.warn("Failed to delete spooled import file {}", file, exception);
+        }
+    }
+
+    /**
+     * What is needed to requeue a job after a restart.
+     *
+     * @param checkpoint last checkpoint, or {@code null} when the job has not started yet
+     */
+    private record JobState(UUID id, String fileName, ImportMode mode, Instant submittedAt,
+                            ImportCheckpoint checkpoint) {
+    }
+}
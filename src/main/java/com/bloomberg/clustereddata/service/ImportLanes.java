@@ -0,0 +1,237 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Spreads the rows of one import over a fixed number of worker lanes. Rows are routed by a hash of their
+ * {@code dealUniqueId}, so every occurrence of an id lands in the same lane and is processed in file order:
+ * the first occurrence wins regardless of how lanes are scheduled against each other.
+ *
+ * <p>Each lane buffers one chunk and has room for {@value #QUEUED_CHUNKS_PER_LANE} queued chunks; the reading
+ * thread blocks once a lane falls behind, which keeps memory bounded. A lane borrows a thread of the shared
+ * executor only while it has queued chunks and gives it back once its queue is empty, so imports waiting for a
+ * thread never hold one. With a single lane every chunk is processed inline on the calling thread.
+ */
+final class ImportLanes implements AutoCloseable {
+
+    private static final int QUEUED_CHUNKS_PER_LANE = 2;
+
+    private final int laneCount;
+    private final int chunkSize;
+    private final Consumer<List<DealCsvRow>> chunkProcessor;
+    private final Executor executor;
+    private final List<List<DealCsvRow>> buffers;
+    private final List<Lane> lanes;
+    private final AtomicInteger pendingChunks = new AtomicInteger();
+    private final AtomicInteger drainingLanes = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean closed;
+
+    /**
+     * @param executor runs the lanes; unused with a single lane
+     */
+    ImportLanes(int laneCount, int chunkSize, Consumer<List<DealCsvRow>> chunkProcessor, Executor executor) {
+        this.laneCount = laneCount;
+        this.chunkSize = chunkSize;
+        this.chunkProcessor = chunkProcessor;
+        this.executor = laneCount == 1 ? null : executor;
+        this.buffers = new ArrayList<>(laneCount);
+        this.lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            buffers.add(new ArrayList<>(chunkSize));
+            lanes.add(new Lane());
+        }
+    }
+
+    void add(DealCsvRow row) {
+        int lane = laneOf(row);
+        List<DealCsvRow> buffer = buffers.get(lane);
+        buffer.add(row);
+        if (buffer.size() == chunkSize) {
+            buffers.set(lane, new ArrayList<>(chunkSize));
+            dispatch(lane, buffer);
+        }
+    }
+
+    /**
+     * Flushes the buffered rows and waits until every lane has processed all chunks handed to it, so that all
+     * rows added so far have been through the chunk processor. The lanes stay open for more rows.
+     */
+    void awaitIdle() {
+        flush();
+        if (executor == null) {
+            return;
+        }
+        synchronized (pendingChunks) {
+            while (pendingChunks.get() > 0) {
+                rethrowFailure();
+                try {
+                    pendingChunks.wait(50);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for import lanes", exception);
+                }
+            }
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Flushes the remaining rows and waits for every lane.
+     */
+    void finish() {
+        awaitIdle();
+    }
+
+    /**
+     * Drops the chunks still queued and waits for the chunks being processed, so no lane touches the import
+     * after it has been closed.
+     */
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        closed = true;
+        lanes.forEach(lane -> lane.queue.clear());
+        boolean interrupted = false;
+        synchronized (pendingChunks) {
+            while (drainingLanes.get() > 0) {
+                try {
+                    pendingChunks.wait(50);
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int laneOf(DealCsvRow row) {
+        if (laneCount == 1) {
+            return 0;
+        }
+        int hash = row.hasError() ? row.rowNumber() : row.dealRequest().getDealUniqueId().hashCode();
+        return Math.floorMod(hash, laneCount);
+    }
+
+    private void flush() {
+        for (int lane = 0; lane < laneCount; lane++) {
+            List<DealCsvRow> buffer = buffers.get(lane);
+            if (!buffer.isEmpty()) {
+                buffers.set(lane, new ArrayList<>(chunkSize));
+                dispatch(lane, buffer);
+            }
+        }
+    }
+
+    private void dispatch(int laneIndex, List<DealCsvRow> chunk) {
+        if (executor == null) {
+            chunkProcessor.accept(chunk);
+            return;
+        }
+        Lane lane = lanes.get(laneIndex);
+        pendingChunks.incrementAndGet();
+        try {
+            while (!lane.queue.offer(chunk, 50, TimeUnit.MILLISECONDS)) {
+                // A failed lane never drains its queue again; surface its failure.
+                rethrowFailure();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while dispatching import rows", exception);
+        }
+        lane.schedule();
+    }
+
+    private void rethrowFailure() {
+        Throwable cause = failure.get();
+        if (cause == null) {
+            return;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException("Import lane failed", cause);
+    }
+
+    private void chunkDone() {
+        if (pendingChunks.decrementAndGet() == 0) {
+            synchronized (pendingChunks) {
+                pendingChunks.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The queue of one lane, drained by at most one executor task at a time so its chunks stay in order.
+     */
+    private final class Lane {
+
+        private final BlockingQueue<List<DealCsvRow>> queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS_PER_LANE);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                drainingLanes.incrementAndGet();
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException exception) {
+                    scheduled.set(false);
+                    drained();
+                    throw exception;
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    List<DealCsvRow> chunk = queue.poll();
+                    if (chunk == null) {
+                        scheduled.set(false);
+                        // A chunk queued after the poll but before the flag was cleared found the lane scheduled.
+                        if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    if (closed || failure.get() != null) {
+                        queue.clear();
+                        scheduled.set(false);
+                        return;
+                    }
+                    chunkProcessor.accept(chunk);
+                    chunkDone();
+                }
+            } catch (RuntimeException | Error exception) {
+                failure.compareAndSet(null, exception);
+                queue.clear();
+            } finally {
+                drained();
+            }
+        }
+
+        private void drained() {
+            drainingLanes.decrementAndGet();
+            synchronized (pendingChunks) {
+                pendingChunks.notifyAll();
+            }
+        }
+    }
+}
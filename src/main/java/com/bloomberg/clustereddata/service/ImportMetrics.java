@@ -0,0 +1,154 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer instrumentation of the import pipeline, tagged by the {@code endpoint} that started the import:
+ * <ul>
+ *   <li>{@code deals.import.row.duration{stage}}: time spent on one row in {@code parse} and {@code validate}</li>
+ *   <li>{@code deals.import.batch.duration{stage}}: time spent on one chunk in {@code parse}, {@code validate},
+ *       {@code duplicates} (pre-flight lookup), {@code persist}, and once per import in {@code complete}
+ *       (e.g. the {@code COPY} merge)</li>
+ *   <li>{@code deals.import.duration}: wall time of whole imports</li>
+ *   <li>{@code deals.import.rows.imported} and {@code deals.import.rows.rejected{reason}}, with the reason being
+ *       the lower-case {@link ImportFailureCategory}</li>
+ *   <li>{@code deals.import.in.flight}: imports currently running</li>
+ * </ul>
+ * Meters are resolved once per endpoint, so recording costs no registry lookups on the per-row path.
+ * Percentile histograms are opted into with {@code management.metrics.distribution.*}.
+ */
+@Component
+public class ImportMetrics {
+
+    /** Multipart CSV uploads on {@code /api/v1/deals/import}. */
+    public static final String IMPORT_ENDPOINT = "import";
+    /** JSON and NDJSON bodies on {@code /api/v1/deals/batch}. */
+    public static final String BATCH_ENDPOINT = "batch";
+    /** Asynchronous jobs on {@code /api/v1/deals/import/jobs}. */
+    public static final String JOBS_ENDPOINT = "jobs";
+
+    private final MeterRegistry registry;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public ImportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Marks an import as in flight until the returned recorder is closed.
+     */
+    Recorder start(String endpoint) {
+        Endpoint meters = endpoints.computeIfAbsent(endpoint, Endpoint::new);
+        meters.inFlight.incrementAndGet();
+        return new Recorder(meters, System.nanoTime());
+    }
+
+    enum Stage {
+        PARSE(true), VALIDATE(true), DUPLICATES(false), PERSIST(false), COMPLETE(false);
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+        private final boolean perRow;
+
+        Stage(boolean perRow) {
+            this.perRow = perRow;
+        }
+    }
+
+    /**
+     * Records the stages of one import. Safe to use from every lane of the import.
+     */
+    static final class Recorder implements AutoCloseable {
+
+        private final Endpoint meters;
+        private final long startedAt;
+
+        private Recorder(Endpoint meters, long startedAt) {
+            this.meters = meters;
+            this.startedAt = startedAt;
+        }
+
+        void row(Stage stage, long nanos) {
+            meters.rowTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void batch(Stage stage, long nanos) {
+            meters.batchTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void imported(long rows) {
+            if (rows > 0) {
+                meters.imported.increment(rows);
+            }
+        }
+
+        void rejected(List<DealImportFailure> failures) {
+            for (DealImportFailure failure : failures) {
+                ImportFailureCategory category =
+                        failure.category() != null ? failure.category() : ImportFailureCategory.WRITE;
+                meters.rejected.get(category).increment();
+            }
+        }
+
+        @Override
+        public void close() {
+            meters.duration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            meters.inFlight.decrementAndGet();
+        }
+    }
+
+    private final class Endpoint {
+
+        private final Map<Stage, Timer> rowTimers = new EnumMap<>(Stage.class);
+        private final Map<Stage, Timer> batchTimers = new EnumMap<>(Stage.class);
+        private final Map<ImportFailureCategory, Counter> rejected = new EnumMap<>(ImportFailureCategory.class);
+        private final Counter imported;
+        private final Timer duration;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Endpoint(String endpoint) {
+            for (Stage stage : Stage.values()) {
+                if (stage.perRow) {
+                    rowTimers.put(stage, Timer.builder("deals.import.row.duration")
+                            .description("Time spent on one import row, per stage")
+                            .tags("endpoint", endpoint, "stage", stage.tag)
+                            .register(registry));
+                }
+                batchTimers.put(stage, Timer.builder("deals.import.batch.duration")
+                        .description("Time spent on one import chunk, per stage")
+                        .tags("endpoint", endpoint, "stage", stage.tag)
+                        .register(registry));
+            }
+            for (ImportFailureCategory category : ImportFailureCategory.values()) {
+                rejected.put(category, Counter.builder("deals.import.rows.rejected")
+                        .description("Import rows rejected, by reason")
+                        .tags("endpoint", endpoint, "reason", category.name().toLowerCase(Locale.ROOT))
+                        .register(registry));
+            }
+            imported = Counter.builder("deals.import.rows.imported")
+                    .description("Import rows stored")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            duration = Timer.builder("deals.import.duration")
+                    .description("Wall time of whole imports")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            Gauge.builder("deals.import.in.flight", inFlight, AtomicInteger::get)
+                    .description("Imports currently running")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.bloomberg.clustereddata.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of a running import, updated after every chunk. Also carries the cancellation request so
+ * that the import loop can stop between chunks.
+ */
+public class ImportProgress {
+
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private volatile boolean cancelled;
+
+    void record(int processed, int failed) {
+        processedRows.addAndGet(processed);
+        failedRows.addAndGet(failed);
+    }
+
+    /**
+     * Starts the counters from those of an interrupted run.
+     */
+    void resume(long processed, long failed) {
+        processedRows.set(processed);
+        failedRows.set(failed);
+    }
+
+    public long processedRows() {
+        return processedRows.get();
+    }
+
+    public long failedRows() {
+        return failedRows.get();
+    }
+
+    public long succeededRows() {
+        return processedRows.get() - failedRows.get();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
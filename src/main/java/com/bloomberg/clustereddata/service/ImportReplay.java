@@ -0,0 +1,85 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Separates rows that an interrupted run committed after its last checkpoint from real duplicates, when the
+ * import resumes from that checkpoint and reads those rows again. A row reported as a duplicate is credited as
+ * imported when the stored deal has the same content and was stored by the interrupted run: its id lies
+ * between the checkpoint's mark and the last id handed out when the import resumed, both taken on the shard
+ * that owns the deal. Each stored deal is credited once, so a later repeat of the id in the file is still a
+ * duplicate.
+ */
+final class ImportReplay {
+
+    private final DealPersistenceService dealPersistenceService;
+    private final Map<Integer, Long> afterDealIds;
+    private final Map<Integer, Long> upToDealIds;
+    private final int untilRow;
+    private final Set<Long> credited = ConcurrentHashMap.newKeySet();
+
+    ImportReplay(DealPersistenceService dealPersistenceService, ImportCheckpoint checkpoint) {
+        this.dealPersistenceService = dealPersistenceService;
+        this.afterDealIds = checkpoint.dealIdMarks();
+        this.upToDealIds = dealPersistenceService.lastDealIds();
+        this.untilRow = checkpoint.replayUntilRow();
+    }
+
+    /**
+     * @return {@code failures} of the chunk without the rows that turned out to be imported already
+     */
+    List<DealImportFailure> credit(List<DealCsvRow> chunk, List<DealImportFailure> failures) {
+        if (!anyStoredSince()) {
+            return failures;
+        }
+        Map<Integer, DealCsvRow> candidates = new HashMap<>();
+        for (DealImportFailure failure : failures) {
+            if (failure.category() == ImportFailureCategory.DUPLICATE && failure.rowNumber() <= untilRow) {
+                candidates.put(failure.rowNumber(), null);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return failures;
+        }
+        List<String> ids = new ArrayList<>(candidates.size());
+        for (DealCsvRow row : chunk) {
+            if (candidates.containsKey(row.rowNumber())) {
+                candidates.put(row.rowNumber(), row);
+                ids.add(row.dealRequest().getDealUniqueId());
+            }
+        }
+        Map<String, Deal> stored = new HashMap<>();
+        for (Deal deal : dealPersistenceService.findStoredBetween(ids, afterDealIds, upToDealIds)) {
+            stored.put(deal.getDealUniqueId(), deal);
+        }
+        if (stored.isEmpty()) {
+            return failures;
+        }
+
+        List<DealImportFailure> remaining = new ArrayList<>(failures.size());
+        for (DealImportFailure failure : failures) {
+            DealCsvRow row = candidates.get(failure.rowNumber());
+            Deal deal = row != null ? stored.get(row.dealRequest().getDealUniqueId()) : null;
+            if (deal == null || !DealMapper.sameContent(row.dealRequest(), deal) || !credited.add(deal.getId())) {
+                remaining.add(failure);
+            }
+        }
+        return remaining;
+    }
+
+    private boolean anyStoredSince() {
+        return afterDealIds.entrySet().stream().anyMatch(mark -> {
+            Long upTo = upToDealIds.get(mark.getKey());
+            return upTo != null && upTo > mark.getValue();
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DealImportProperties;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides how many lanes an import is spread over and owns the threads that run them. Every lane may hold a
+ * connection while it writes, so the configured {@code deals.import.parallelism} is capped at the connection
+ * limit of {@link ImportAdmission}, which lanes wait for anyway. All imports share one pool of that many threads,
+ * so concurrent imports never run more lanes at once than a single import would.
+ */
+@Slf4j
+@Component
+public class ImportWorkers {
+
+    private final int laneCount;
+    private final int chunkSize;
+    private final ThreadPoolExecutor executor;
+
+    public ImportWorkers(DealImportProperties importProperties, ImportAdmission importAdmission) {
+        int lanes = importProperties.parallelism();
+        int available = importAdmission.connectionLimit();
+        if (lanes > available) {
+            log.warn("deals.import.parallelism={} exceeds the import connections, using {} lanes", lanes, available);
+            lanes = available;
+        }
+        this.laneCount = lanes;
+        this.chunkSize = importProperties.chunkSize();
+        if (lanes == 1) {
+            this.executor = null;
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("deal-import-lane-");
+        threadFactory.setDaemon(true);
+        // Unbounded queue, but it never holds more than one task per lane of the running imports.
+        this.executor = new ThreadPoolExecutor(lanes, lanes, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public int laneCount() {
+        return laneCount;
+    }
+
+    ImportLanes open(Consumer<List<DealCsvRow>> chunkProcessor) {
+        return new ImportLanes(laneCount, chunkSize, chunkProcessor, executor);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
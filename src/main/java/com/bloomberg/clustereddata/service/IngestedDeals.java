@@ -0,0 +1,57 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.service.DealsIngestedEvent.VolumeBucket;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the keys touched by one ingest transaction. Past {@link #MAX_KEYS} distinct keys of a kind it stops
+ * enumerating them, and the cache falls back to coarser invalidation instead of holding a huge event in memory.
+ */
+final class IngestedDeals {
+
+    static final int MAX_KEYS = 10_000;
+
+    private Set<String> dealUniqueIds = new HashSet<>();
+    private Set<VolumeBucket> minuteBuckets = new HashSet<>();
+    private boolean empty = true;
+
+    static DealsIngestedEvent of(Deal deal) {
+        IngestedDeals ingested = new IngestedDeals();
+        ingested.add(deal);
+        return ingested.toEvent();
+    }
+
+    void add(Deal deal) {
+        addId(deal.getDealUniqueId());
+        addBucket(deal.getFromCurrencyIso(), deal.getToCurrencyIso(), deal.getDealTimestamp());
+    }
+
+    void addId(String dealUniqueId) {
+        empty = false;
+        if (dealUniqueIds != null && dealUniqueIds.add(dealUniqueId) && dealUniqueIds.size() > MAX_KEYS) {
+            dealUniqueIds = null;
+        }
+    }
+
+    void addBucket(String fromCurrencyIso, String toCurrencyIso, Instant timestamp) {
+        empty = false;
+        VolumeBucket bucket =
+                new VolumeBucket(fromCurrencyIso, toCurrencyIso, timestamp.truncatedTo(ChronoUnit.MINUTES));
+        if (minuteBuckets != null && minuteBuckets.add(bucket) && minuteBuckets.size() > MAX_KEYS) {
+            minuteBuckets = null;
+        }
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    DealsIngestedEvent toEvent() {
+        return new DealsIngestedEvent(dealUniqueIds == null ? null : Set.copyOf(dealUniqueIds),
+                minuteBuckets == null ? null : Set.copyOf(minuteBuckets));
+    }
+}
@@ -0,0 +1,86 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.config.DuplicateDetectionProperties;
+import com.bloomberg.clustereddata.repository.DealJdbcRepository;
+import com.bloomberg.clustereddata.repository.DealShards;
+import com.bloomberg.clustereddata.util.BloomFilter;
+import java.util.Collection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Optional Bloom filter over the ids stored in {@code deals}. It is only used to skip database lookups for
+ * ids that were certainly never stored; inserts made by other instances may be missing from it, in which
+ * case the write path still rejects the duplicate, so the filter never affects correctness.
+ */
+@Slf4j
+@Component
+public class KnownDealIds {
+
+    private final DealJdbcRepository dealJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DealShards dealShards;
+    private final BloomFilter filter;
+    private volatile boolean loaded;
+
+    public KnownDealIds(DuplicateDetectionProperties properties, DealJdbcRepository dealJdbcRepository,
+                        TransactionTemplate transactionTemplate, DealShards dealShards) {
+        this.dealJdbcRepository = dealJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.dealShards = dealShards;
+        this.filter = properties.bloomFilterEnabled()
+                ? BloomFilter.create(properties.bloomFilterExpectedIds(), properties.bloomFilterFalsePositiveRate())
+                : null;
+    }
+
+    /**
+     * @return {@code false} only if the id is certainly not stored yet
+     */
+    public boolean mightExist(String dealUniqueId) {
+        return filter == null || !loaded || filter.mightContain(dealUniqueId);
+    }
+
+    public void record(String dealUniqueId) {
+        if (filter != null) {
+            filter.put(dealUniqueId);
+        }
+    }
+
+    public void recordAll(Collection<String> dealUniqueIds) {
+        if (filter != null) {
+            dealUniqueIds.forEach(filter::put);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void loadInBackground() {
+        if (filter == null) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "known-deal-ids-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        try {
+            long[] count = {0};
+            for (int shard = 0; shard < dealShards.count(); shard++) {
+                dealShards.run(shard, () -> transactionTemplate.executeWithoutResult(status ->
+                        dealJdbcRepository.forEachDealUniqueId(id -> {
+                            filter.put(id);
+                            count[0]++;
+                        })));
+            }
+            loaded = true;
+            log.info("Loaded {} deal ids into a {} KiB Bloom filter in {} ms",
+                    count[0], filter.sizeInBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException exception) {
+            log.warn("Failed to load known deal ids, duplicate pre-checks will query the database", exception);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.bloomberg.clustereddata.service;
+
+/**
+ * Published inside the transaction that recomputed the volume rollups.
+ */
+public record RollupsRebuiltEvent() {
+}
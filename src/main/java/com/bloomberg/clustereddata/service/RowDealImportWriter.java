@@ -0,0 +1,46 @@
+package com.bloomberg.clustereddata.service;
+
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RowDealImportWriter implements DealImportWriter {
+
+    private final DealPersistenceService dealPersistenceService;
+
+    @Override
+    public ImportMode mode() {
+        return ImportMode.ROW;
+    }
+
+    @Override
+    public Session open() {
+        return this::write;
+    }
+
+    public List<DealImportFailure> write(List<DealCsvRow> rows) {
+        List<DealImportFailure> failures = new ArrayList<>();
+        for (DealCsvRow row : rows) {
+            try {
+                dealPersistenceService.save(DealMapper.toEntity(row.dealRequest()));
+            } catch (DealAlreadyExistsException duplicate) {
+                failures.add(DealImportFailures.of(row, ImportFailureCategory.DUPLICATE, duplicate.getMessage()));
+            } catch (Exception exception) {
+                log.error("Failed to import row {}", row.rowNumber(), exception);
+                failures.add(DealImportFailures.of(row, ImportFailureCategory.WRITE,
+                        "Unexpected error: " + exception.getMessage()));
+            }
+        }
+        return failures;
+    }
+}
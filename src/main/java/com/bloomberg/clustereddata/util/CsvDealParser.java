@@ -3,20 +3,31 @@ package com.bloomberg.clustereddata.util;
 import com.bloomberg.clustereddata.dto.DealRequest;
 import com.bloomberg.clustereddata.exception.InvalidCsvException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.List;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+/**
+ * Parser for the five-column deal CSV format. Column positions are resolved once from the header, values
+ * are trimmed and decoded straight from the tokenizer's char buffer, and row errors are reported as data
+ * instead of exceptions on the common paths (missing values and short rows). Files on local disk are read
+ * through a {@link FileChannel} in 1 MiB blocks and can be resumed from a {@link CsvPosition}.
+ */
 @Component
 public class CsvDealParser {
 
@@ -26,72 +37,328 @@ public class CsvDealParser {
     private static final String DEAL_TIMESTAMP = "deal_timestamp";
     private static final String DEAL_AMOUNT = "deal_amount";
 
-    public List<DealCsvRow> parse(MultipartFile file) {
+    private static final String[] COLUMNS =
+            {DEAL_UNIQUE_ID, FROM_CURRENCY_ISO, TO_CURRENCY_ISO, DEAL_TIMESTAMP, DEAL_AMOUNT};
+
+    /** Header row of the import format, in the column order exports write. */
+    public static final String HEADER_ROW = String.join(",", COLUMNS);
+    private static final String[] MISSING_VALUE_MESSAGES = {
+        "Missing value for '" + DEAL_UNIQUE_ID + "'",
+        "Missing value for '" + FROM_CURRENCY_ISO + "'",
+        "Missing value for '" + TO_CURRENCY_ISO + "'",
+        "Missing value for '" + DEAL_TIMESTAMP + "'",
+        "Missing value for '" + DEAL_AMOUNT + "'"
+    };
+    private static final int UNIQUE_ID = 0;
+    private static final int FROM_CURRENCY = 1;
+    private static final int TO_CURRENCY = 2;
+    private static final int TIMESTAMP = 3;
+    private static final int AMOUNT = 4;
+
+    /**
+     * Opens a lazily evaluated stream over the rows of the uploaded file. Only the row currently being
+     * consumed is held in memory, so callers must close the stream to release the underlying reader.
+     */
+    public Stream<DealCsvRow> stream(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new InvalidCsvException("CSV file is empty.");
         }
+        try {
+            return open(Channels.newChannel(file.getInputStream()), CsvPosition.START).rows();
+        } catch (IOException exception) {
+            throw new InvalidCsvException("Failed to read CSV file.", exception);
+        }
+    }
 
-        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8);
-                CSVParser parser =
-                        CSVFormat.DEFAULT
-                                .withFirstRecordAsHeader()
-                                .withIgnoreHeaderCase()
-                                .withTrim()
-                                .parse(reader)) {
+    /**
+     * Same as {@link #stream(MultipartFile)} for an upload that has already been spooled to local disk.
+     */
+    public Stream<DealCsvRow> stream(Path file) {
+        return open(file, CsvPosition.START).rows();
+    }
 
-            validateHeaders(parser);
-            List<DealCsvRow> rows = new ArrayList<>();
-            for (CSVRecord record : parser) {
-                int rowNumber = Math.toIntExact(record.getRecordNumber());
-                try {
-                    DealRequest request = DealRequest.builder()
-                            .dealUniqueId(requiredValue(record, DEAL_UNIQUE_ID))
-                            .fromCurrencyIso(requiredValue(record, FROM_CURRENCY_ISO))
-                            .toCurrencyIso(requiredValue(record, TO_CURRENCY_ISO))
-                            .dealTimestamp(parseTimestamp(record))
-                            .dealAmount(parseAmount(record))
-                            .build();
-                    rows.add(new DealCsvRow(rowNumber, request, null));
-                } catch (IllegalArgumentException | DateTimeParseException ex) {
-                    rows.add(new DealCsvRow(rowNumber, null, ex.getMessage()));
-                }
+    /**
+     * Opens a spooled file for reading from {@code from}, with row numbers continuing after
+     * {@link CsvPosition#rowNumber()}. The header is always read from the start of the file.
+     */
+    public Cursor open(Path file, CsvPosition from) {
+        try {
+            if (Files.size(file) == 0) {
+                throw new InvalidCsvException("CSV file is empty.");
             }
-            return rows;
+            return open(FileChannel.open(file, StandardOpenOption.READ), from);
         } catch (IOException exception) {
             throw new InvalidCsvException("Failed to read CSV file.", exception);
         }
     }
 
-    private void validateHeaders(CSVParser parser) {
-        var headers = parser.getHeaderMap();
-        if (headers == null || headers.isEmpty()) {
+    private Cursor open(ReadableByteChannel channel, CsvPosition from) {
+        CsvRecordReader reader = new CsvRecordReader(channel);
+        try {
+            int[] columns = resolveColumns(reader);
+            if (from.offset() > 0) {
+                reader.seek(from.offset());
+            }
+            return new Cursor(new RowIterator(reader, columns, from));
+        } catch (IOException exception) {
+            InvalidCsvException failure = new InvalidCsvException("Failed to read CSV file.", exception);
+            closeAfterFailure(reader, failure);
+            throw failure;
+        } catch (RuntimeException exception) {
+            closeAfterFailure(reader, exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * Reads the header record and maps every required column to its position.
+     */
+    private int[] resolveColumns(CsvRecordReader reader) throws IOException {
+        if (!reader.next()) {
             throw new InvalidCsvException("CSV file must provide a header row.");
         }
 
-        if (!(headers.containsKey(DEAL_UNIQUE_ID)
-                && headers.containsKey(FROM_CURRENCY_ISO)
-                && headers.containsKey(TO_CURRENCY_ISO)
-                && headers.containsKey(DEAL_TIMESTAMP)
-                && headers.containsKey(DEAL_AMOUNT))) {
-            throw new InvalidCsvException(
-                    "CSV file must contain headers: deal_unique_id, from_currency_iso, to_currency_iso, deal_timestamp, deal_amount.");
+        int[] indexes = {-1, -1, -1, -1, -1};
+        for (int field = 0; field < reader.fieldCount(); field++) {
+            String header = reader.field(field).trim();
+            for (int column = 0; column < COLUMNS.length; column++) {
+                if (COLUMNS[column].equalsIgnoreCase(header)) {
+                    indexes[column] = field;
+                }
+            }
+        }
+        for (int index : indexes) {
+            if (index < 0) {
+                throw new InvalidCsvException(
+                        "CSV file must contain headers: deal_unique_id, from_currency_iso, to_currency_iso, deal_timestamp, deal_amount.");
+            }
         }
+        return indexes;
     }
 
-    private String requiredValue(CSVRecord record, String headerName) {
-        String value = record.get(headerName);
-        if (value == null || value.isBlank()) {
-            throw new IllegalArgumentException("Missing value for '%s'".formatted(headerName));
+    /**
+     * Closes the reader while {@code failure} is being thrown; a failure to close is attached to it as suppressed.
+     */
+    private static void closeAfterFailure(CsvRecordReader reader, Exception failure) {
+        try {
+            reader.close();
+        } catch (IOException exception) {
+            failure.addSuppressed(exception);
         }
-        return value.trim();
     }
 
-    private Instant parseTimestamp(CSVRecord record) {
-        return Instant.parse(requiredValue(record, DEAL_TIMESTAMP));
+    private static void close(CsvRecordReader reader) {
+        try {
+            reader.close();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
     }
 
-    private BigDecimal parseAmount(CSVRecord record) {
-        return new BigDecimal(requiredValue(record, DEAL_AMOUNT));
+    /**
+     * Rows of an open file together with the position reached. Closing the row stream closes the file.
+     */
+    public static final class Cursor {
+
+        private final RowIterator rows;
+
+        private Cursor(RowIterator rows) {
+            this.rows = rows;
+        }
+
+        public Stream<DealCsvRow> rows() {
+            return StreamSupport.stream(
+                            Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+                            false)
+                    .onClose(() -> close(rows.reader));
+        }
+
+        /**
+         * Must be called on the thread reading the rows.
+         *
+         * @return the position just after the last row handed out, for resuming after it
+         */
+        public CsvPosition position() {
+            return new CsvPosition(rows.offset, rows.rowNumber);
+        }
     }
-}
 
+    /**
+     * Decodes one record per {@link #next()} call. Not thread-safe; one instance per stream.
+     */
+    private static final class RowIterator implements Iterator<DealCsvRow> {
+
+        private final CsvRecordReader reader;
+        private final int[] columns;
+        private final int[] valueStarts = new int[COLUMNS.length];
+        private final int[] valueEnds = new int[COLUMNS.length];
+        private final String[] currencies = new String[1024];
+        private String decodeError;
+        private long offset;
+        private int rowNumber;
+        private boolean fetched;
+        private boolean hasNext;
+
+        private RowIterator(CsvRecordReader reader, int[] columns, CsvPosition from) {
+            this.reader = reader;
+            this.columns = columns;
+            this.offset = from.offset();
+            this.rowNumber = from.rowNumber();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!fetched) {
+                try {
+                    hasNext = reader.next();
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+                fetched = true;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public DealCsvRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            fetched = false;
+            rowNumber++;
+            offset = reader.offset();
+            String error = decodeRow();
+            if (error != null) {
+                return new DealCsvRow(rowNumber, null, error);
+            }
+
+            char[] buffer = reader.buffer();
+            Instant timestamp = decodeTimestamp(buffer, valueStarts[TIMESTAMP], valueEnds[TIMESTAMP]);
+            if (timestamp == null) {
+                return new DealCsvRow(rowNumber, null, decodeError);
+            }
+            error = locateValue(AMOUNT);
+            if (error != null) {
+                return new DealCsvRow(rowNumber, null, error);
+            }
+            BigDecimal amount = decodeAmount(buffer, valueStarts[AMOUNT], valueEnds[AMOUNT]);
+            if (amount == null) {
+                return new DealCsvRow(rowNumber, null, decodeError);
+            }
+
+            DealRequest request = DealRequest.builder()
+                    .dealUniqueId(text(UNIQUE_ID))
+                    .fromCurrencyIso(currency(FROM_CURRENCY))
+                    .toCurrencyIso(currency(TO_CURRENCY))
+                    .dealTimestamp(timestamp)
+                    .dealAmount(amount)
+                    .build();
+            return new DealCsvRow(rowNumber, request, null);
+        }
+
+        /**
+         * Locates and checks the values in the order the fields are decoded, so the first error reported is
+         * the same one the field-by-field decoding would hit.
+         */
+        private String decodeRow() {
+            for (int column = UNIQUE_ID; column <= TIMESTAMP; column++) {
+                String error = locateValue(column);
+                if (error != null) {
+                    return error;
+                }
+            }
+            return null;
+        }
+
+        private String locateValue(int column) {
+            int field = columns[column];
+            if (field >= reader.fieldCount()) {
+                return "Index for header '%s' is %d but CSVRecord only has %d values!"
+                        .formatted(COLUMNS[column], field, reader.fieldCount());
+            }
+            char[] buffer = reader.buffer();
+            int start = reader.start(field);
+            int end = reader.end(field);
+            while (start < end && buffer[start] <= ' ') {
+                start++;
+            }
+            while (end > start && buffer[end - 1] <= ' ') {
+                end--;
+            }
+            if (isBlank(buffer, start, end)) {
+                return MISSING_VALUE_MESSAGES[column];
+            }
+            valueStarts[column] = start;
+            valueEnds[column] = end;
+            return null;
+        }
+
+        private boolean isBlank(char[] buffer, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (!Character.isWhitespace(buffer[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the decoded timestamp, or {@code null} with {@link #decodeError} set
+         */
+        private Instant decodeTimestamp(char[] buffer, int start, int end) {
+            Instant instant = DealFieldDecoders.decodeInstant(buffer, start, end);
+            if (instant != null) {
+                return instant;
+            }
+            try {
+                return Instant.parse(new String(buffer, start, end - start));
+            } catch (DateTimeParseException exception) {
+                decodeError = exception.getMessage();
+                return null;
+            }
+        }
+
+        /**
+         * @return the decoded amount, or {@code null} with {@link #decodeError} set
+         */
+        private BigDecimal decodeAmount(char[] buffer, int start, int end) {
+            BigDecimal amount = DealFieldDecoders.decodeDecimal(buffer, start, end);
+            if (amount != null) {
+                return amount;
+            }
+            try {
+                return new BigDecimal(new String(buffer, start, end - start));
+            } catch (NumberFormatException exception) {
+                decodeError = exception.getMessage();
+                return null;
+            }
+        }
+
+        private String text(int column) {
+            return new String(reader.buffer(), valueStarts[column], valueEnds[column] - valueStarts[column]);
+        }
+
+        /**
+         * Currency codes repeat on almost every row, so three-letter codes are served from a small
+         * direct-mapped cache instead of allocating a new string per row.
+         */
+        private String currency(int column) {
+            int start = valueStarts[column];
+            if (valueEnds[column] - start != 3) {
+                return text(column);
+            }
+            char[] buffer = reader.buffer();
+            char first = buffer[start];
+            char second = buffer[start + 1];
+            char third = buffer[start + 2];
+            int slot = ((first * 31 + second) * 31 + third) & (currencies.length - 1);
+            String cached = currencies[slot];
+            if (cached == null || cached.charAt(0) != first || cached.charAt(1) != second
+                    || cached.charAt(2) != third) {
+                cached = text(column);
+                currencies[slot] = cached;
+            }
+            return cached;
+        }
+    }
+}
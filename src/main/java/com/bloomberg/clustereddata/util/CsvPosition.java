@@ -0,0 +1,13 @@
+package com.bloomberg.clustereddata.util;
+
+/**
+ * Point between two rows of a CSV file from which reading can resume.
+ *
+ * @param offset    byte offset of the first row not yet read
+ * @param rowNumber number of data rows before that offset
+ */
+public record CsvPosition(long offset, int rowNumber) {
+
+    /** Before the first data row. */
+    public static final CsvPosition START = new CsvPosition(0, 0);
+}
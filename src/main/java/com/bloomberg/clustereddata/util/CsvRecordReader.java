@@ -0,0 +1,260 @@
+package com.bloomberg.clustereddata.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Minimal RFC 4180 tokenizer with the same dialect as commons-csv {@code CSVFormat.DEFAULT}: comma
+ * delimiter, double-quote encapsulation with {@code ""} as an escaped quote, CR, LF or CRLF record
+ * separators, and empty lines skipped.
+ *
+ * <p>Input is read from a channel in large blocks and decoded as UTF-8 by the tokenizer itself. The delimiter,
+ * quote and line breaks are single bytes that never occur inside a multi-byte sequence, so the tokenizer always
+ * knows the byte offset it is at: {@link #offset()} is where the record after the current one starts, and a
+ * seekable input can be repositioned there with {@link #seek(long)}. Malformed sequences decode to U+FFFD.
+ *
+ * <p>Field contents of the current record are copied into one reusable char buffer, so reading a record
+ * allocates nothing once the buffers have grown to the widest record. Callers decode straight from
+ * {@link #buffer()} using {@link #start(int)} and {@link #end(int)}.
+ */
+final class CsvRecordReader implements Closeable {
+
+    private static final int EOF = -1;
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final char REPLACEMENT = '\uFFFD';
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer input;
+    private long inputOffset;
+
+    private char[] data = new char[256];
+    private int dataLength;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int fieldCount;
+    private long lineNumber = 1;
+
+    CsvRecordReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.input = ByteBuffer.allocate(BLOCK_SIZE).flip();
+    }
+
+    /**
+     * Advances to the next non-empty record.
+     *
+     * @return {@code false} at end of input
+     * @throws IOException on read errors and on malformed encapsulated fields
+     */
+    boolean next() throws IOException {
+        fieldCount = 0;
+        dataLength = 0;
+
+        int c = read();
+        while (c == '\n' || c == '\r') {
+            c = read();
+        }
+        if (c == EOF) {
+            return false;
+        }
+
+        while (true) {
+            int start = dataLength;
+            c = c == QUOTE ? readEncapsulated() : readSimple(c);
+            addField(start, dataLength);
+            if (c != DELIMITER) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                return true;
+            }
+            c = read();
+        }
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    char[] buffer() {
+        return data;
+    }
+
+    int start(int field) {
+        return starts[field];
+    }
+
+    int end(int field) {
+        return ends[field];
+    }
+
+    String field(int field) {
+        return new String(data, starts[field], ends[field] - starts[field]);
+    }
+
+    /**
+     * @return the byte offset just past the current record
+     */
+    long offset() {
+        return inputOffset + input.position();
+    }
+
+    /**
+     * Continues reading at {@code offset}, which must be the start of a record.
+     *
+     * @throws IOException if the input is not seekable
+     */
+    void seek(long offset) throws IOException {
+        if (!(channel instanceof SeekableByteChannel seekable)) {
+            throw new IOException("CSV input is not seekable");
+        }
+        seekable.position(offset);
+        input.clear().flip();
+        inputOffset = offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int readSimple(int c) throws IOException {
+        while (c != DELIMITER && c != '\n' && c != '\r' && c != EOF) {
+            append(c);
+            c = read();
+        }
+        return c;
+    }
+
+    private int readEncapsulated() throws IOException {
+        long startLine = lineNumber;
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                throw new IOException(
+                        "(startline %d) EOF reached before encapsulated token finished".formatted(startLine));
+            }
+            if (c == QUOTE) {
+                if (peek() != QUOTE) {
+                    break;
+                }
+                read();
+            }
+            append(c);
+        }
+
+        int c = read();
+        while (c != DELIMITER && c != '\n' && c != '\r' && c != EOF) {
+            if (!Character.isWhitespace(c)) {
+                throw new IOException(
+                        "(line %d) invalid char between encapsulated token and delimiter".formatted(lineNumber));
+            }
+            c = read();
+        }
+        return c;
+    }
+
+    /**
+     * Appends the character that starts with byte {@code c}, reading the rest of a multi-byte sequence.
+     */
+    private void append(int c) throws IOException {
+        if (c < 0x80) {
+            appendChar((char) c);
+            return;
+        }
+        int continuationBytes;
+        int codePoint;
+        if (c >= 0xC2 && c <= 0xDF) {
+            continuationBytes = 1;
+            codePoint = c & 0x1F;
+        } else if (c >= 0xE0 && c <= 0xEF) {
+            continuationBytes = 2;
+            codePoint = c & 0x0F;
+        } else if (c >= 0xF0 && c <= 0xF4) {
+            continuationBytes = 3;
+            codePoint = c & 0x07;
+        } else {
+            appendChar(REPLACEMENT);
+            return;
+        }
+        for (int i = 0; i < continuationBytes; i++) {
+            int next = peek();
+            if ((next & 0xC0) != 0x80) {
+                appendChar(REPLACEMENT);
+                return;
+            }
+            read();
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        boolean overlong = continuationBytes == 2 && codePoint < 0x800
+                || continuationBytes == 3 && codePoint < 0x10000;
+        if (overlong || codePoint > Character.MAX_CODE_POINT
+                || codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+            appendChar(REPLACEMENT);
+        } else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            appendChar(Character.highSurrogate(codePoint));
+            appendChar(Character.lowSurrogate(codePoint));
+        } else {
+            appendChar((char) codePoint);
+        }
+    }
+
+    private void appendChar(char c) {
+        if (dataLength == data.length) {
+            char[] grown = new char[data.length * 2];
+            System.arraycopy(data, 0, grown, 0, dataLength);
+            data = grown;
+        }
+        data[dataLength++] = c;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            int[] grownStarts = new int[starts.length * 2];
+            int[] grownEnds = new int[ends.length * 2];
+            System.arraycopy(starts, 0, grownStarts, 0, fieldCount);
+            System.arraycopy(ends, 0, grownEnds, 0, fieldCount);
+            starts = grownStarts;
+            ends = grownEnds;
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /**
+     * @return the next byte as an unsigned value, or {@link #EOF}
+     */
+    private int read() throws IOException {
+        if (!input.hasRemaining() && !fill()) {
+            return EOF;
+        }
+        int c = input.get() & 0xFF;
+        if (c == '\n') {
+            lineNumber++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (!input.hasRemaining() && !fill()) {
+            return EOF;
+        }
+        return input.get(input.position()) & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        inputOffset += input.limit();
+        input.clear();
+        int read;
+        do {
+            read = channel.read(input);
+        } while (read == 0);
+        input.flip();
+        return read > 0;
+    }
+}
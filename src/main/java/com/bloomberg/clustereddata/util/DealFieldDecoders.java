@@ -0,0 +1,126 @@
+package com.bloomberg.clustereddata.util;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Decoders for the common shapes of deal timestamps and amounts that work directly on a char range. Each
+ * returns {@code null} when the input is not in the fast-path shape; callers then fall back to the JDK
+ * parsers, which keeps accepted values and error messages identical to {@link Instant#parse} and
+ * {@link BigDecimal#BigDecimal(String)}.
+ */
+final class DealFieldDecoders {
+
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private DealFieldDecoders() {
+    }
+
+    /**
+     * Decodes {@code yyyy-MM-ddTHH:mm:ss[.fffffffff]Z}.
+     */
+    static Instant decodeInstant(char[] buffer, int start, int end) {
+        int length = end - start;
+        if (length < 20 || length > 30 || buffer[end - 1] != 'Z'
+                || buffer[start + 4] != '-' || buffer[start + 7] != '-' || buffer[start + 10] != 'T'
+                || buffer[start + 13] != ':' || buffer[start + 16] != ':') {
+            return null;
+        }
+        int year = digits(buffer, start, 4);
+        int month = digits(buffer, start + 5, 2);
+        int day = digits(buffer, start + 8, 2);
+        int hour = digits(buffer, start + 11, 2);
+        int minute = digits(buffer, start + 14, 2);
+        int second = digits(buffer, start + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        int nanos = 0;
+        int position = start + 19;
+        if (position < end - 1) {
+            if (buffer[position] != '.' || end - 1 - (position + 1) < 1) {
+                return null;
+            }
+            int fractionDigits = end - 1 - (position + 1);
+            int fraction = digits(buffer, position + 1, fractionDigits);
+            if (fraction < 0) {
+                return null;
+            }
+            nanos = fraction;
+            for (int i = fractionDigits; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+
+        long epochSecond = epochDay(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    /**
+     * Decodes {@code [+-]digits[.digits]} with at most 18 digits.
+     */
+    static BigDecimal decodeDecimal(char[] buffer, int start, int end) {
+        int position = start;
+        boolean negative = false;
+        if (position < end && (buffer[position] == '-' || buffer[position] == '+')) {
+            negative = buffer[position] == '-';
+            position++;
+        }
+
+        long unscaled = 0;
+        int digitCount = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; position < end; position++) {
+            char c = buffer[position];
+            if (c >= '0' && c <= '9') {
+                if (++digitCount > MAX_LONG_DIGITS) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return null;
+            }
+        }
+        if (digitCount == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    private static int digits(char[] buffer, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = buffer[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -0,0 +1,229 @@
+package com.bloomberg.clustereddata.util;
+
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.exception.InvalidDealBatchException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token-level parser for batches of {@link DealRequest} objects, sent either as one JSON array or as a sequence
+ * of root-level objects (NDJSON). Items are decoded one at a time straight from the parser, so only the item
+ * being consumed is held in memory. Item numbers start at 1 and take the place of CSV row numbers.
+ *
+ * <p>An item with a wrong value type or a value that does not decode is reported as data, like a bad CSV row;
+ * the rest of the batch is still read. Malformed JSON cannot be resynchronised and fails the stream with
+ * {@link InvalidDealBatchException}. Unknown fields are ignored, as on the single-deal endpoint.
+ */
+@Component
+public class JsonDealParser {
+
+    private static final String DEAL_UNIQUE_ID = "dealUniqueId";
+    private static final String FROM_CURRENCY_ISO = "fromCurrencyIso";
+    private static final String TO_CURRENCY_ISO = "toCurrencyIso";
+    private static final String DEAL_TIMESTAMP = "dealTimestamp";
+    private static final String DEAL_AMOUNT = "dealAmount";
+
+    private final JsonFactory jsonFactory;
+
+    public JsonDealParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Opens a lazily evaluated stream over the items of the body. Callers must close the stream to release the
+     * parser; the input stream itself is left open.
+     */
+    public Stream<DealCsvRow> stream(InputStream body) {
+        JsonParser parser;
+        try {
+            parser = jsonFactory.createParser(body);
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        } catch (IOException exception) {
+            throw new InvalidDealBatchException("Failed to read request body.", exception);
+        }
+        ItemIterator iterator = new ItemIterator(parser);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+    }
+
+    private static final class ItemIterator implements Iterator<DealCsvRow> {
+
+        private final JsonParser parser;
+        private boolean started;
+        private boolean array;
+        private boolean fetched;
+        private boolean hasNext;
+        private int itemNumber;
+        private String error;
+
+        private ItemIterator(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!fetched) {
+                hasNext = advance();
+                fetched = true;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public DealCsvRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            fetched = false;
+            itemNumber++;
+            try {
+                return readItem();
+            } catch (IOException exception) {
+                throw malformed(itemNumber, exception);
+            }
+        }
+
+        /**
+         * Moves to the first token of the next item.
+         */
+        private boolean advance() {
+            try {
+                JsonToken token = parser.nextToken();
+                if (!started) {
+                    started = true;
+                    array = token == JsonToken.START_ARRAY;
+                    if (array) {
+                        token = parser.nextToken();
+                    }
+                }
+                if (array && token == JsonToken.END_ARRAY) {
+                    if (parser.nextToken() != null) {
+                        throw new InvalidDealBatchException("Unexpected content after the JSON array.");
+                    }
+                    return false;
+                }
+                if (token == null && array) {
+                    throw new InvalidDealBatchException("Unterminated JSON array.");
+                }
+                return token != null;
+            } catch (IOException exception) {
+                throw malformed(itemNumber + 1, exception);
+            }
+        }
+
+        private DealCsvRow readItem() throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return new DealCsvRow(itemNumber, null, "Item must be a JSON object");
+            }
+
+            error = null;
+            DealRequest.DealRequestBuilder request = DealRequest.builder();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case DEAL_UNIQUE_ID -> request.dealUniqueId(text(field, value));
+                    case FROM_CURRENCY_ISO -> request.fromCurrencyIso(text(field, value));
+                    case TO_CURRENCY_ISO -> request.toCurrencyIso(text(field, value));
+                    case DEAL_TIMESTAMP -> request.dealTimestamp(timestamp(value));
+                    case DEAL_AMOUNT -> request.dealAmount(amount(value));
+                    default -> parser.skipChildren();
+                }
+            }
+            return error == null
+                    ? new DealCsvRow(itemNumber, request.build(), null)
+                    : new DealCsvRow(itemNumber, null, error);
+        }
+
+        private String text(String field, JsonToken value) throws IOException {
+            if (value != JsonToken.VALUE_STRING) {
+                return reject(field, "must be a string");
+            }
+            return parser.getText();
+        }
+
+        private Instant timestamp(JsonToken value) throws IOException {
+            if (value != JsonToken.VALUE_STRING) {
+                return reject(DEAL_TIMESTAMP, "must be an ISO-8601 string");
+            }
+            char[] buffer = parser.getTextCharacters();
+            int start = parser.getTextOffset();
+            Instant decoded = DealFieldDecoders.decodeInstant(buffer, start, start + parser.getTextLength());
+            if (decoded != null) {
+                return decoded;
+            }
+            try {
+                return Instant.parse(parser.getText());
+            } catch (DateTimeParseException exception) {
+                return reject(DEAL_TIMESTAMP, "is not a valid timestamp: " + exception.getMessage());
+            }
+        }
+
+        private BigDecimal amount(JsonToken value) throws IOException {
+            if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+                return parser.getDecimalValue();
+            }
+            if (value != JsonToken.VALUE_STRING) {
+                return reject(DEAL_AMOUNT, "must be a number");
+            }
+            char[] buffer = parser.getTextCharacters();
+            int start = parser.getTextOffset();
+            BigDecimal decoded = DealFieldDecoders.decodeDecimal(buffer, start, start + parser.getTextLength());
+            if (decoded != null) {
+                return decoded;
+            }
+            try {
+                return new BigDecimal(parser.getText());
+            } catch (NumberFormatException exception) {
+                return reject(DEAL_AMOUNT, "is not a valid number");
+            }
+        }
+
+        /**
+         * Records the first error of the item and skips the offending value, so the item is still consumed to
+         * its end.
+         */
+        private <T> T reject(String field, String message) throws IOException {
+            if (error == null) {
+                error = "'" + field + "' " + message;
+            }
+            parser.skipChildren();
+            return null;
+        }
+
+        private InvalidDealBatchException malformed(int item, IOException exception) {
+            String detail = exception instanceof JsonProcessingException processing
+                    ? processing.getOriginalMessage()
+                    : exception.getMessage();
+            return new InvalidDealBatchException(
+                    "Malformed JSON at item %d: %s".formatted(item, detail), exception);
+        }
+
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // The body belongs to the request; nothing to release beyond the parser's buffers.
+            }
+        }
+    }
+}
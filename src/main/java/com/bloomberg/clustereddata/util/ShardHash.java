@@ -0,0 +1,42 @@
+package com.bloomberg.clustereddata.util;
+
+/**
+ * Maps deal ids to shards with Lamping and Veach's jump consistent hash over a 64-bit FNV-1a hash of the id.
+ * The mapping only depends on the id and the shard count, and growing from {@code n} to {@code n + 1} shards
+ * moves about {@code 1 / (n + 1)} of the ids, all of them to the new shard.
+ */
+public final class ShardHash {
+
+    private ShardHash() {
+    }
+
+    /**
+     * @return the shard in {@code [0, shards)} that owns {@code key}
+     */
+    public static int shardOf(String key, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be positive");
+        }
+        return jump(hash(key), shards);
+    }
+
+    static int jump(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
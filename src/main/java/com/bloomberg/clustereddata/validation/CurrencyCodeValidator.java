@@ -10,7 +10,6 @@ public class CurrencyCodeValidator implements ConstraintValidator<CurrencyCode,
         if (value == null) {
             return true;
         }
-        return value.matches("^[A-Z]{3}$");
+        return IsoCurrencyCodes.isValid(value);
     }
 }
-
@@ -0,0 +1,22 @@
+package com.bloomberg.clustereddata.validation;
+
+import java.util.Currency;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * ISO 4217 alphabetic codes known to the JDK, resolved once at class initialisation.
+ */
+public final class IsoCurrencyCodes {
+
+    private static final Set<String> CODES = Currency.getAvailableCurrencies().stream()
+            .map(Currency::getCurrencyCode)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private IsoCurrencyCodes() {
+    }
+
+    public static boolean isValid(String code) {
+        return code.length() == 3 && CODES.contains(code);
+    }
+}
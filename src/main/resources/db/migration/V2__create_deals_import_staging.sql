@@ -0,0 +1,13 @@
+-- Scratch space for COPY-based bulk imports. Rows only live here between the COPY and the merge into
+-- deals, so the table is UNLOGGED: it skips WAL and is truncated after a crash.
+CREATE UNLOGGED TABLE IF NOT EXISTS deals_import_staging (
+    import_id UUID NOT NULL,
+    row_number INTEGER NOT NULL,
+    deal_unique_id VARCHAR(64) NOT NULL,
+    from_currency_iso VARCHAR(3) NOT NULL,
+    to_currency_iso VARCHAR(3) NOT NULL,
+    deal_timestamp TIMESTAMPTZ NOT NULL,
+    deal_amount NUMERIC(19,4) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_deals_import_staging_import_id ON deals_import_staging (import_id);
@@ -0,0 +1,68 @@
+-- Currencies become a dictionary: deals store a SMALLINT key instead of a VARCHAR(3) code on every row, which
+-- shrinks the heap tuples and any index that covers a currency column. The codes below are the ISO 4217 set
+-- known to the JDK; codes added by newer JDKs are registered on first use by CurrencyDictionary.
+CREATE TABLE IF NOT EXISTS currencies (
+    id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    iso_code CHAR(3) NOT NULL,
+    CONSTRAINT uk_currencies_iso_code UNIQUE (iso_code)
+);
+
+INSERT INTO currencies (iso_code) VALUES
+    ('ADP'), ('AED'), ('AFA'), ('AFN'), ('ALL'), ('AMD'), ('ANG'), ('AOA'), ('ARS'), ('ATS'), ('AUD'), ('AWG'),
+    ('AYM'), ('AZM'), ('AZN'), ('BAM'), ('BBD'), ('BDT'), ('BEF'), ('BGL'), ('BGN'), ('BHD'), ('BIF'), ('BMD'),
+    ('BND'), ('BOB'), ('BOV'), ('BRL'), ('BSD'), ('BTN'), ('BWP'), ('BYB'), ('BYN'), ('BYR'), ('BZD'), ('CAD'),
+    ('CDF'), ('CHE'), ('CHF'), ('CHW'), ('CLF'), ('CLP'), ('CNY'), ('COP'), ('COU'), ('CRC'), ('CSD'), ('CUC'),
+    ('CUP'), ('CVE'), ('CYP'), ('CZK'), ('DEM'), ('DJF'), ('DKK'), ('DOP'), ('DZD'), ('EEK'), ('EGP'), ('ERN'),
+    ('ESP'), ('ETB'), ('EUR'), ('FIM'), ('FJD'), ('FKP'), ('FRF'), ('GBP'), ('GEL'), ('GHC'), ('GHS'), ('GIP'),
+    ('GMD'), ('GNF'), ('GRD'), ('GTQ'), ('GWP'), ('GYD'), ('HKD'), ('HNL'), ('HRK'), ('HTG'), ('HUF'), ('IDR'),
+    ('IEP'), ('ILS'), ('INR'), ('IQD'), ('IRR'), ('ISK'), ('ITL'), ('JMD'), ('JOD'), ('JPY'), ('KES'), ('KGS'),
+    ('KHR'), ('KMF'), ('KPW'), ('KRW'), ('KWD'), ('KYD'), ('KZT'), ('LAK'), ('LBP'), ('LKR'), ('LRD'), ('LSL'),
+    ('LTL'), ('LUF'), ('LVL'), ('LYD'), ('MAD'), ('MDL'), ('MGA'), ('MGF'), ('MKD'), ('MMK'), ('MNT'), ('MOP'),
+    ('MRO'), ('MRU'), ('MTL'), ('MUR'), ('MVR'), ('MWK'), ('MXN'), ('MXV'), ('MYR'), ('MZM'), ('MZN'), ('NAD'),
+    ('NGN'), ('NIO'), ('NLG'), ('NOK'), ('NPR'), ('NZD'), ('OMR'), ('PAB'), ('PEN'), ('PGK'), ('PHP'), ('PKR'),
+    ('PLN'), ('PTE'), ('PYG'), ('QAR'), ('ROL'), ('RON'), ('RSD'), ('RUB'), ('RUR'), ('RWF'), ('SAR'), ('SBD'),
+    ('SCR'), ('SDD'), ('SDG'), ('SEK'), ('SGD'), ('SHP'), ('SIT'), ('SKK'), ('SLE'), ('SLL'), ('SOS'), ('SRD'),
+    ('SRG'), ('SSP'), ('STD'), ('STN'), ('SVC'), ('SYP'), ('SZL'), ('THB'), ('TJS'), ('TMM'), ('TMT'), ('TND'),
+    ('TOP'), ('TPE'), ('TRL'), ('TRY'), ('TTD'), ('TWD'), ('TZS'), ('UAH'), ('UGX'), ('USD'), ('USN'), ('USS'),
+    ('UYI'), ('UYU'), ('UZS'), ('VEB'), ('VED'), ('VEF'), ('VES'), ('VND'), ('VUV'), ('WST'), ('XAF'), ('XAG'),
+    ('XAU'), ('XBA'), ('XBB'), ('XBC'), ('XBD'), ('XCD'), ('XDR'), ('XFO'), ('XFU'), ('XOF'), ('XPD'), ('XPF'),
+    ('XPT'), ('XSU'), ('XTS'), ('XUA'), ('XXX'), ('YER'), ('YUM'), ('ZAR'), ('ZMK'), ('ZMW'), ('ZWD'), ('ZWL'),
+    ('ZWN'), ('ZWR')
+ON CONFLICT (iso_code) DO NOTHING;
+
+-- Rows written before ISO validation only had to match [A-Z]{3}; keep them by registering their codes.
+INSERT INTO currencies (iso_code)
+SELECT code FROM (
+    SELECT from_currency_iso AS code FROM deals
+    UNION
+    SELECT to_currency_iso FROM deals
+) AS stored
+ON CONFLICT (iso_code) DO NOTHING;
+
+ALTER TABLE deals
+    ADD COLUMN from_currency_id SMALLINT,
+    ADD COLUMN to_currency_id SMALLINT;
+
+UPDATE deals
+SET from_currency_id = from_currency.id,
+    to_currency_id = to_currency.id
+FROM currencies from_currency, currencies to_currency
+WHERE from_currency.iso_code = deals.from_currency_iso
+  AND to_currency.iso_code = deals.to_currency_iso;
+
+ALTER TABLE deals
+    ALTER COLUMN from_currency_id SET NOT NULL,
+    ALTER COLUMN to_currency_id SET NOT NULL,
+    ADD CONSTRAINT fk_deals_from_currency FOREIGN KEY (from_currency_id) REFERENCES currencies (id),
+    ADD CONSTRAINT fk_deals_to_currency FOREIGN KEY (to_currency_id) REFERENCES currencies (id),
+    DROP COLUMN from_currency_iso,
+    DROP COLUMN to_currency_iso;
+
+-- Staged rows are transient, so the staging table switches to keys without a data migration.
+TRUNCATE deals_import_staging;
+
+ALTER TABLE deals_import_staging
+    DROP COLUMN from_currency_iso,
+    DROP COLUMN to_currency_iso,
+    ADD COLUMN from_currency_id SMALLINT NOT NULL,
+    ADD COLUMN to_currency_id SMALLINT NOT NULL;
@@ -0,0 +1,11 @@
+-- Deal queries page by (deal_timestamp, id). The composite index lets the seek predicate
+-- (deal_timestamp, id) > (?, ?) start exactly at the cursor, so a deep page costs the same as the first one;
+-- it also serves every plain timestamp range, which makes idx_deals_timestamp redundant. Queries filtered by
+-- currency pair, or by from-currency alone, use the second index with the same ordering.
+-- Every statement is CONCURRENTLY so the migration does not block ingest; Flyway runs it outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_deals_timestamp_id ON deals (deal_timestamp, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_deals_currency_pair_timestamp_id
+    ON deals (from_currency_id, to_currency_id, deal_timestamp, id);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_deals_timestamp;
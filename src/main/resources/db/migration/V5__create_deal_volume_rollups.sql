@@ -0,0 +1,20 @@
+-- Per-pair volume per minute, hour and day, maintained incrementally by every ingest path in the same
+-- transaction as the deals it counts. Buckets are aligned in UTC.
+CREATE TABLE IF NOT EXISTS deal_volume_rollups (
+    granularity VARCHAR(6) NOT NULL,
+    from_currency_id SMALLINT NOT NULL REFERENCES currencies (id),
+    to_currency_id SMALLINT NOT NULL REFERENCES currencies (id),
+    bucket_start TIMESTAMPTZ NOT NULL,
+    deal_count BIGINT NOT NULL,
+    total_amount NUMERIC(38,4) NOT NULL,
+    CONSTRAINT pk_deal_volume_rollups PRIMARY KEY (granularity, from_currency_id, to_currency_id, bucket_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_deal_volume_rollups_bucket ON deal_volume_rollups (granularity, bucket_start);
+
+INSERT INTO deal_volume_rollups (granularity, from_currency_id, to_currency_id, bucket_start, deal_count, total_amount)
+SELECT g.granularity, d.from_currency_id, d.to_currency_id, date_trunc(g.unit, d.deal_timestamp, 'UTC'),
+       count(*), sum(d.deal_amount)
+FROM deals d
+CROSS JOIN (VALUES ('MINUTE', 'minute'), ('HOUR', 'hour'), ('DAY', 'day')) AS g(granularity, unit)
+GROUP BY 1, 2, 3, 4;
@@ -0,0 +1,68 @@
+-- deals becomes a table partitioned by month of deal_timestamp (UTC). Each partition carries its own small indexes,
+-- range queries only touch the partitions they overlap, and old data is removed by detaching or dropping whole
+-- partitions. DealPartitionMaintainer keeps partitions created ahead of time and applies retention from then on.
+--
+-- A unique index on a partitioned table must include the partition key, so uniqueness of deal_unique_id moves to
+-- the deal_unique_ids registry. Every insert path claims the id in the registry first, in the same transaction.
+-- Ids stay registered when their partition is purged, so a re-imported old file cannot resurrect deleted deals.
+CREATE TABLE IF NOT EXISTS deal_unique_ids (
+    deal_unique_id VARCHAR(64) NOT NULL,
+    deal_timestamp TIMESTAMPTZ NOT NULL,
+    CONSTRAINT pk_deal_unique_ids PRIMARY KEY (deal_unique_id)
+);
+
+ALTER TABLE deals RENAME TO deals_legacy;
+ALTER SEQUENCE deals_id_seq OWNED BY NONE;
+
+CREATE TABLE deals (
+    id BIGINT NOT NULL DEFAULT nextval('deals_id_seq'),
+    deal_unique_id VARCHAR(64) NOT NULL,
+    from_currency_id SMALLINT NOT NULL,
+    to_currency_id SMALLINT NOT NULL,
+    deal_timestamp TIMESTAMPTZ NOT NULL,
+    deal_amount NUMERIC(19,4) NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP
+) PARTITION BY RANGE (deal_timestamp);
+
+-- Catches timestamps outside the created ranges so no insert ever fails for lack of a partition. The maintainer
+-- moves matching rows out of it when it creates a partition.
+CREATE TABLE deals_default PARTITION OF deals DEFAULT;
+
+DO $$
+DECLARE
+    month_start TIMESTAMP;
+    last_month TIMESTAMP;
+BEGIN
+    SELECT date_trunc('month', coalesce(min(deal_timestamp), now()) AT TIME ZONE 'UTC'),
+           date_trunc('month', greatest(max(deal_timestamp), now()) AT TIME ZONE 'UTC') + INTERVAL '3 months'
+    INTO month_start, last_month
+    FROM deals_legacy;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF deals FOR VALUES FROM (%L) TO (%L)',
+                       'deals_p' || to_char(month_start, 'YYYYMMDD'),
+                       month_start AT TIME ZONE 'UTC',
+                       (month_start + INTERVAL '1 month') AT TIME ZONE 'UTC');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO deals (id, deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount, created_at)
+SELECT id, deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount, created_at
+FROM deals_legacy;
+
+INSERT INTO deal_unique_ids (deal_unique_id, deal_timestamp)
+SELECT deal_unique_id, deal_timestamp
+FROM deals_legacy;
+
+DROP TABLE deals_legacy;
+
+ALTER SEQUENCE deals_id_seq OWNED BY deals.id;
+
+-- The primary key doubles as the (deal_timestamp, id) keyset index of the query and export endpoints.
+ALTER TABLE deals
+    ADD CONSTRAINT pk_deals PRIMARY KEY (deal_timestamp, id),
+    ADD CONSTRAINT fk_deals_from_currency FOREIGN KEY (from_currency_id) REFERENCES currencies (id),
+    ADD CONSTRAINT fk_deals_to_currency FOREIGN KEY (to_currency_id) REFERENCES currencies (id);
+
+CREATE INDEX idx_deals_currency_pair_timestamp_id ON deals (from_currency_id, to_currency_id, deal_timestamp, id);
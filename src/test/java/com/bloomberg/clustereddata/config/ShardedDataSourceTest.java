@@ -0,0 +1,78 @@
+package com.bloomberg.clustereddata.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bloomberg.clustereddata.config.DealShardingProperties.Shard;
+import com.bloomberg.clustereddata.repository.DealShards;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ShardedDataSourceTest {
+
+    private final HikariDataSource primary0 = pool();
+    private final HikariDataSource primary1 = pool();
+    private final HikariDataSource replica0 = pool();
+    private final ShardedDataSource dataSource =
+            new ShardedDataSource(List.of(primary0, primary1), List.of(replica0));
+    private final DealShards dealShards = new DealShards(new DealShardingProperties(List.of(
+            new Shard("jdbc:postgresql://shard-1/fx_deals", null, null))));
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readOnlyWork_shouldUseTheReplicaOnlyWhileItIsFresh() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        firstStatement();
+        verify(primary0).getConnection();
+        verify(replica0, never()).getConnection();
+
+        dataSource.setReplicaFresh(0, true);
+        firstStatement();
+        verify(replica0).getConnection();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        firstStatement();
+        verify(primary0, times(2)).getConnection();
+    }
+
+    @Test
+    void readOnlyWork_shouldUseThePrimaryOfShardsWithoutReplica() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        dealShards.run(1, this::firstStatement);
+
+        verify(primary1).getConnection();
+        assertThat(dataSource.isReplicaFresh(1)).isFalse();
+    }
+
+    private void firstStatement() {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        } catch (SQLException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static HikariDataSource pool() {
+        HikariDataSource pool = mock(HikariDataSource.class);
+        try {
+            when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        } catch (SQLException exception) {
+            throw new IllegalStateException(exception);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,68 @@
+package com.bloomberg.clustereddata.controller;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.bloomberg.clustereddata.dto.DealVolumeAggregate;
+import com.bloomberg.clustereddata.dto.RollupGranularity;
+import com.bloomberg.clustereddata.service.DealAggregateService;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(controllers = DealAggregateController.class)
+class DealAggregateControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+
+    @MockitoBean private DealAggregateService dealAggregateService;
+
+    @Test
+    void volume_shouldReturnRollupBuckets() throws Exception {
+        Instant from = Instant.parse("2024-11-25T00:00:00Z");
+        Instant to = Instant.parse("2024-11-26T00:00:00Z");
+        DealVolumeAggregate bucket = DealVolumeAggregate.builder()
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .bucketStart(Instant.parse("2024-11-25T10:00:00Z"))
+                .dealCount(3)
+                .totalAmount(new BigDecimal("300.00"))
+                .build();
+
+        when(dealAggregateService.findVolumes(RollupGranularity.HOUR, from, to, "USD", "EUR"))
+                .thenReturn(List.of(bucket));
+
+        mockMvc.perform(get("/api/v1/deals/aggregates/volume")
+                        .param("granularity", "HOUR")
+                        .param("fromTimestamp", "2024-11-25T00:00:00Z")
+                        .param("toTimestamp", "2024-11-26T00:00:00Z")
+                        .param("fromCurrency", "USD")
+                        .param("toCurrency", "EUR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].dealCount").value(3))
+                .andExpect(jsonPath("$[0].totalAmount").value(300.00));
+    }
+
+    @Test
+    void volume_shouldRequireTimeRange() throws Exception {
+        mockMvc.perform(get("/api/v1/deals/aggregates/volume").param("granularity", "DAY"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rebuild_shouldRecomputeRollups() throws Exception {
+        mockMvc.perform(post("/api/v1/deals/aggregates/rebuild"))
+                .andExpect(status().isNoContent());
+
+        verify(dealAggregateService).rebuild();
+    }
+}
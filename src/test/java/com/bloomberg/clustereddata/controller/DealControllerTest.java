@@ -1,21 +1,45 @@
 package com.bloomberg.clustereddata.controller;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.DealPage;
 import com.bloomberg.clustereddata.dto.DealRequest;
 import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import com.bloomberg.clustereddata.dto.ExportFormat;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.exception.DealLogFullException;
+import com.bloomberg.clustereddata.exception.DealNotFoundException;
+import com.bloomberg.clustereddata.exception.ImportFailureReportNotFoundException;
+import com.bloomberg.clustereddata.exception.ImportThrottledException;
+import com.bloomberg.clustereddata.service.DealExportService;
+import com.bloomberg.clustereddata.service.DealQueryService;
 import com.bloomberg.clustereddata.service.DealService;
+import com.bloomberg.clustereddata.service.ImportFailureReports;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -23,6 +47,7 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.multipart.MultipartFile;
 
 @WebMvcTest(controllers = DealController.class)
@@ -34,6 +59,12 @@ class DealControllerTest {
 
     @MockitoBean private DealService dealService;
 
+    @MockitoBean private DealQueryService dealQueryService;
+
+    @MockitoBean private DealExportService dealExportService;
+
+    @MockitoBean private ImportFailureReports importFailureReports;
+
     @Test
     void createDeal_shouldReturnCreated() throws Exception {
         DealRequest request = DealRequest.builder()
@@ -62,6 +93,31 @@ class DealControllerTest {
                 .andExpect(jsonPath("$.dealUniqueId").value("FX-1"));
     }
 
+    @Test
+    void createDeal_shouldReturnAcceptedWhenOnlyLogged() throws Exception {
+        DealRequest request = DealRequest.builder()
+                .dealUniqueId("FX-1")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:00:00Z"))
+                .dealAmount(new BigDecimal("10.5"))
+                .build();
+
+        when(dealService.createDeal(any(DealRequest.class))).thenReturn(DealResponse.builder()
+                .dealUniqueId("FX-1")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(request.getDealTimestamp())
+                .dealAmount(request.getDealAmount())
+                .build());
+
+        mockMvc.perform(post("/api/v1/deals")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").doesNotExist());
+    }
+
     @Test
     void importDeals_shouldReturnSummary() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "deals.csv", "text/csv", "data".getBytes());
@@ -71,13 +127,168 @@ class DealControllerTest {
                 .failedRows(0)
                 .build();
 
-        when(dealService.importDeals(any(MultipartFile.class))).thenReturn(summary);
+        when(dealService.importDeals(any(MultipartFile.class), any())).thenReturn(summary);
 
         mockMvc.perform(multipart("/api/v1/deals/import").file(file))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.successfulRows").value(1));
 
-        verify(dealService).importDeals(any(MultipartFile.class));
+        verify(dealService).importDeals(any(MultipartFile.class), any());
     }
-}
 
+    @Test
+    void createDeal_shouldReturnServiceUnavailableWithRetryAfterWhenTheDealLogIsFull() throws Exception {
+        DealRequest request = DealRequest.builder()
+                .dealUniqueId("FX-1")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:00:00Z"))
+                .dealAmount(new BigDecimal("10.5"))
+                .build();
+        when(dealService.createDeal(any(DealRequest.class))).thenThrow(new DealLogFullException(
+                "Too many deals waiting to be stored, retry later", Duration.ofSeconds(5)));
+
+        mockMvc.perform(post("/api/v1/deals")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+
+    @Test
+    void importDeals_shouldReturnTooManyRequestsWithRetryAfterWhenThrottled() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "deals.csv", "text/csv", "data".getBytes());
+        when(dealService.importDeals(any(MultipartFile.class), any()))
+                .thenThrow(new ImportThrottledException("Too many imports in progress, retry later",
+                        Duration.ofSeconds(15)));
+
+        mockMvc.perform(multipart("/api/v1/deals/import").file(file))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "15"))
+                .andExpect(jsonPath("$.message").value("Too many imports in progress, retry later"));
+    }
+
+    @Test
+    void downloadImportFailures_shouldReturnReportAsCsvAttachment(@TempDir Path directory) throws Exception {
+        UUID reportId = UUID.randomUUID();
+        Path report = Files.writeString(directory.resolve(reportId + ".csv"), "row_number,category,reason\n");
+        when(importFailureReports.find(reportId)).thenReturn(report);
+
+        mockMvc.perform(get("/api/v1/deals/import/failures/{reportId}", reportId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"import-failures-" + reportId + ".csv\""))
+                .andExpect(content().string("row_number,category,reason\n"));
+    }
+
+    @Test
+    void downloadImportFailures_shouldReturnNotFoundForUnknownReport() throws Exception {
+        UUID reportId = UUID.randomUUID();
+        when(importFailureReports.find(reportId)).thenThrow(new ImportFailureReportNotFoundException(reportId));
+
+        mockMvc.perform(get("/api/v1/deals/import/failures/{reportId}", reportId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void importDealBatch_shouldAcceptNdjson() throws Exception {
+        DealImportSummary summary = DealImportSummary.builder()
+                .totalRows(2)
+                .successfulRows(2)
+                .failedRows(0)
+                .build();
+        when(dealService.importDeals(any(InputStream.class), eq(ImportMode.COPY))).thenReturn(summary);
+
+        mockMvc.perform(post("/api/v1/deals/batch")
+                        .param("mode", "COPY")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"dealUniqueId\":\"FX-1\"}\n{\"dealUniqueId\":\"FX-2\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.successfulRows").value(2));
+    }
+
+    @Test
+    void findDeals_shouldPassFiltersAndReturnPage() throws Exception {
+        DealResponse deal = DealResponse.builder()
+                .id(7L)
+                .dealUniqueId("FX-7")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:00:00Z"))
+                .dealAmount(new BigDecimal("10.5"))
+                .build();
+        DealSearchCriteria criteria = DealSearchCriteria.builder()
+                .fromTimestamp(Instant.parse("2024-11-25T00:00:00Z"))
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .minAmount(new BigDecimal("10"))
+                .build();
+
+        when(dealQueryService.findDeals(criteria, "next-token", 50))
+                .thenReturn(DealPage.builder().deals(List.of(deal)).nextCursor("after-7").build());
+
+        mockMvc.perform(get("/api/v1/deals")
+                        .param("fromTimestamp", "2024-11-25T00:00:00Z")
+                        .param("fromCurrency", "USD")
+                        .param("toCurrency", "EUR")
+                        .param("minAmount", "10")
+                        .param("cursor", "next-token")
+                        .param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deals[0].dealUniqueId").value("FX-7"))
+                .andExpect(jsonPath("$.nextCursor").value("after-7"));
+    }
+
+    @Test
+    void findDeals_shouldRejectOversizedPage() throws Exception {
+        mockMvc.perform(get("/api/v1/deals").param("limit", "5000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findDeals_shouldRejectMalformedTimestamp() throws Exception {
+        mockMvc.perform(get("/api/v1/deals").param("fromTimestamp", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findDeal_shouldReturnDeal() throws Exception {
+        when(dealQueryService.findDeal("FX-1")).thenReturn(DealResponse.builder()
+                .id(1L)
+                .dealUniqueId("FX-1")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:00:00Z"))
+                .dealAmount(new BigDecimal("10.5"))
+                .build());
+
+        mockMvc.perform(get("/api/v1/deals/FX-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.toCurrencyIso").value("EUR"));
+    }
+
+    @Test
+    void findDeal_shouldReturnNotFoundForUnknownId() throws Exception {
+        when(dealQueryService.findDeal("FX-404")).thenThrow(new DealNotFoundException("FX-404"));
+
+        mockMvc.perform(get("/api/v1/deals/FX-404"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Deal 'FX-404' not found"));
+    }
+
+    @Test
+    void exportDeals_shouldStreamCsvAttachment() throws Exception {
+        when(dealExportService.export(any(DealSearchCriteria.class), eq(ExportFormat.CSV)))
+                .thenReturn(outputStream -> outputStream.write("deal_unique_id\n".getBytes()));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/deals/export").param("toCurrency", "EUR"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"deals.csv\""))
+                .andExpect(content().string("deal_unique_id\n"));
+    }
+}
@@ -1,18 +1,32 @@
 package com.bloomberg.clustereddata.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.bloomberg.clustereddata.dto.DealImportFailure;
 import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.DealPage;
 import com.bloomberg.clustereddata.dto.DealRequest;
 import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import com.bloomberg.clustereddata.dto.DealVolumeAggregate;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.exception.DealNotFoundException;
+import com.bloomberg.clustereddata.dto.RollupGranularity;
+import com.bloomberg.clustereddata.service.DealAggregateService;
+import com.bloomberg.clustereddata.service.DealQueryService;
 import com.bloomberg.clustereddata.service.DealService;
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.List;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.testcontainers.junit.jupiter.Container;
@@ -33,11 +47,19 @@ class DealServiceIntegrationTest {
 
     @Autowired private DealService dealService;
 
+    @Autowired private DealQueryService dealQueryService;
+
+    @Autowired private DealAggregateService dealAggregateService;
+
     @Autowired private DealRepository dealRepository;
 
+    @Autowired private JdbcTemplate jdbcTemplate;
+
     @AfterEach
     void tearDown() {
         dealRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM deal_volume_rollups");
+        jdbcTemplate.update("DELETE FROM deal_unique_ids");
     }
 
     @Test
@@ -54,6 +76,10 @@ class DealServiceIntegrationTest {
 
         assertThat(response.id()).isNotNull();
         assertThat(dealRepository.existsByDealUniqueId("FX-IT-1")).isTrue();
+        assertThat(dealRepository.findById(response.id())).hasValueSatisfying(deal -> {
+            assertThat(deal.getFromCurrencyIso()).isEqualTo("USD");
+            assertThat(deal.getToCurrencyIso()).isEqualTo("CAD");
+        });
     }
 
     @Test
@@ -72,5 +98,178 @@ class DealServiceIntegrationTest {
         assertThat(summary.successfulRows()).isEqualTo(2);
         assertThat(dealRepository.count()).isEqualTo(2);
     }
-}
 
+    @Test
+    void importDeals_batchModeShouldSkipDuplicatesWithoutRollingBackBatch() {
+        dealService.createDeal(DealRequest.builder()
+                .dealUniqueId("FX-IT-BATCH-2")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T09:00:00Z"))
+                .dealAmount(new BigDecimal("10.00"))
+                .build());
+        String csv =
+                """
+                deal_unique_id,from_currency_iso,to_currency_iso,deal_timestamp,deal_amount
+                FX-IT-BATCH-1,USD,EUR,2024-11-25T10:15:30Z,1000.00
+                FX-IT-BATCH-2,EUR,JPY,2024-11-25T11:15:30Z,2000.00
+                FX-IT-BATCH-1,GBP,USD,2024-11-25T12:15:30Z,3000.00
+                FX-IT-BATCH-3,GBP,USD,2024-11-25T13:15:30Z,4000.00
+                """;
+        MockMultipartFile multipartFile = new MockMultipartFile(
+                "file", "deals.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+
+        DealImportSummary summary = dealService.importDeals(multipartFile, ImportMode.BATCH);
+
+        assertThat(summary.successfulRows()).isEqualTo(2);
+        assertThat(summary.failures()).extracting(DealImportFailure::rowNumber).containsExactly(2, 3);
+        assertThat(dealRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void importDeals_copyModeShouldMergeStagedRowsAndReportDuplicates() {
+        String csv =
+                """
+                deal_unique_id,from_currency_iso,to_currency_iso,deal_timestamp,deal_amount
+                FX-IT-COPY-1,USD,EUR,2024-11-25T10:15:30Z,1000.00
+                FX-IT-COPY-2,EUR,JPY,2024-11-25T11:15:30Z,2000.00
+                FX-IT-COPY-1,GBP,USD,2024-11-25T12:15:30Z,3000.00
+                FX-IT-COPY-3,GBP,USD,not-a-timestamp,4000.00
+                """;
+        MockMultipartFile multipartFile = new MockMultipartFile(
+                "file", "deals.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+
+        DealImportSummary summary = dealService.importDeals(multipartFile, ImportMode.COPY);
+
+        assertThat(summary.successfulRows()).isEqualTo(2);
+        assertThat(summary.failures()).extracting(DealImportFailure::rowNumber).containsExactly(3, 4);
+        assertThat(dealRepository.findAll())
+                .extracting(deal -> deal.getFromCurrencyIso() + "/" + deal.getToCurrencyIso())
+                .containsExactlyInAnyOrder("USD/EUR", "EUR/JPY");
+    }
+
+    @Test
+    void importDeals_jsonBatchShouldInsertValidItemsAndReportTheRest() {
+        String json =
+                """
+                [{"dealUniqueId":"FX-IT-JSON-1","fromCurrencyIso":"USD","toCurrencyIso":"EUR",
+                  "dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":1000.00},
+                 {"dealUniqueId":"FX-IT-JSON-1","fromCurrencyIso":"USD","toCurrencyIso":"EUR",
+                  "dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":1000.00},
+                 {"dealUniqueId":"FX-IT-JSON-2","fromCurrencyIso":"EUR","toCurrencyIso":"JPY",
+                  "dealTimestamp":"2024-11-25T11:15:30Z","dealAmount":"2000.00"}]
+                """;
+
+        DealImportSummary summary = dealService.importDeals(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(summary.successfulRows()).isEqualTo(2);
+        assertThat(summary.failures()).extracting(DealImportFailure::rowNumber).containsExactly(2);
+        assertThat(dealRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void findDeals_shouldPageThroughFilteredDealsInTimestampOrder() {
+        for (int i = 1; i <= 5; i++) {
+            dealService.createDeal(DealRequest.builder()
+                    .dealUniqueId("FX-IT-PAGE-" + i)
+                    .fromCurrencyIso(i == 3 ? "GBP" : "USD")
+                    .toCurrencyIso("EUR")
+                    .dealTimestamp(Instant.parse("2024-11-25T10:00:00Z").plusSeconds(i / 2 * 60L))
+                    .dealAmount(new BigDecimal(i * 100))
+                    .build());
+        }
+        DealSearchCriteria criteria = DealSearchCriteria.builder()
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .minAmount(new BigDecimal("200"))
+                .build();
+
+        DealPage first = dealQueryService.findDeals(criteria, null, 2);
+        DealPage second = dealQueryService.findDeals(criteria, first.nextCursor(), 2);
+
+        assertThat(first.deals()).extracting(DealResponse::dealUniqueId)
+                .containsExactly("FX-IT-PAGE-2", "FX-IT-PAGE-4");
+        assertThat(second.deals()).extracting(DealResponse::dealUniqueId).containsExactly("FX-IT-PAGE-5");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void rollups_shouldCountOnlyInsertedDealsAcrossIngestPathsAndMatchRebuild() {
+        dealService.createDeal(DealRequest.builder()
+                .dealUniqueId("FX-IT-ROLLUP-1")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:15:00Z"))
+                .dealAmount(new BigDecimal("100.00"))
+                .build());
+        String csv =
+                """
+                deal_unique_id,from_currency_iso,to_currency_iso,deal_timestamp,deal_amount
+                FX-IT-ROLLUP-1,USD,EUR,2024-11-25T10:16:00Z,999.00
+                FX-IT-ROLLUP-2,USD,EUR,2024-11-25T10:45:00Z,200.00
+                FX-IT-ROLLUP-2,USD,EUR,2024-11-25T10:46:00Z,999.00
+                """;
+        dealService.importDeals(new MockMultipartFile(
+                "file", "deals.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)), ImportMode.BATCH);
+        String copyCsv = csv.replace("ROLLUP-2", "ROLLUP-3").replace("10:45", "11:05");
+        dealService.importDeals(new MockMultipartFile(
+                "file", "deals.csv", "text/csv", copyCsv.getBytes(StandardCharsets.UTF_8)), ImportMode.COPY);
+
+        Instant from = Instant.parse("2024-11-25T00:00:00Z");
+        Instant to = Instant.parse("2024-11-26T00:00:00Z");
+        List<DealVolumeAggregate> hours =
+                dealAggregateService.findVolumes(RollupGranularity.HOUR, from, to, "USD", "EUR");
+        List<DealVolumeAggregate> days = dealAggregateService.findVolumes(RollupGranularity.DAY, from, to, null, null);
+
+        assertThat(hours).extracting(DealVolumeAggregate::dealCount).containsExactly(2L, 1L);
+        assertThat(hours.get(0).totalAmount()).isEqualByComparingTo("300.00");
+        assertThat(days).singleElement().satisfies(day -> {
+            assertThat(day.dealCount()).isEqualTo(3);
+            assertThat(day.totalAmount()).isEqualByComparingTo("500.00");
+        });
+
+        dealAggregateService.rebuild();
+
+        assertThat(dealAggregateService.findVolumes(RollupGranularity.HOUR, from, to, "USD", "EUR"))
+                .isEqualTo(hours);
+    }
+
+    @Test
+    void findDeal_shouldSeeDealsInsertedAfterCachingTheirAbsence() {
+        assertThatThrownBy(() -> dealQueryService.findDeal("FX-IT-CACHE-1"))
+                .isInstanceOf(DealNotFoundException.class);
+        Instant from = Instant.parse("2024-11-25T00:00:00Z");
+        Instant to = Instant.parse("2024-11-26T00:00:00Z");
+        assertThat(dealAggregateService.findVolumes(RollupGranularity.DAY, from, to, "USD", null)).isEmpty();
+
+        String csv =
+                """
+                deal_unique_id,from_currency_iso,to_currency_iso,deal_timestamp,deal_amount
+                FX-IT-CACHE-1,USD,EUR,2024-11-25T10:15:30Z,1000.00
+                """;
+        dealService.importDeals(new MockMultipartFile(
+                "file", "deals.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)), ImportMode.COPY);
+
+        assertThat(dealQueryService.findDeal("FX-IT-CACHE-1").toCurrencyIso()).isEqualTo("EUR");
+        assertThat(dealAggregateService.findVolumes(RollupGranularity.DAY, from, to, "USD", null))
+                .extracting(DealVolumeAggregate::dealCount).containsExactly(1L);
+    }
+
+    @Test
+    void createDeal_shouldKeepIdsUniqueAcrossPartitions() {
+        DealRequest.DealRequestBuilder request = DealRequest.builder()
+                .dealUniqueId("FX-IT-PARTITION-1")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealAmount(new BigDecimal("10.00"));
+        dealService.createDeal(request.dealTimestamp(Instant.parse("1999-01-04T09:00:00Z")).build());
+
+        assertThatThrownBy(() -> dealService.createDeal(request.dealTimestamp(Instant.now()).build()))
+                .isInstanceOf(DealAlreadyExistsException.class);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM deals_default WHERE deal_unique_id = 'FX-IT-PARTITION-1'", Long.class))
+                .isEqualTo(1L);
+        assertThat(dealRepository.count()).isEqualTo(1);
+    }
+}
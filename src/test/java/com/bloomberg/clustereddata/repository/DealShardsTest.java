@@ -0,0 +1,85 @@
+package com.bloomberg.clustereddata.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bloomberg.clustereddata.config.DealShardingProperties;
+import com.bloomberg.clustereddata.config.DealShardingProperties.Shard;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class DealShardsTest {
+
+    private final DealShards dealShards = new DealShards(new DealShardingProperties(List.of(
+            new Shard("jdbc:postgresql://shard-1/fx_deals", null, null),
+            new Shard("jdbc:postgresql://shard-2/fx_deals", null, null))));
+
+    @AfterEach
+    void tearDown() {
+        dealShards.shutdown();
+    }
+
+    @Test
+    void partition_shouldGroupIdsByOwningShardInInputOrder() {
+        List<String> ids = IntStream.range(0, 100).mapToObj(i -> "FX-" + i).toList();
+
+        Map<Integer, List<String>> partitions = dealShards.partition(ids, id -> id);
+
+        assertThat(partitions.keySet()).containsExactly(0, 1, 2);
+        partitions.forEach((shard, shardIds) -> {
+            assertThat(shardIds).allMatch(id -> dealShards.shardOf(id) == shard);
+            assertThat(shardIds).isSortedAccordingTo((a, b) -> ids.indexOf(a) - ids.indexOf(b));
+        });
+        assertThat(partitions.values().stream().mapToInt(List::size).sum()).isEqualTo(100);
+    }
+
+    @Test
+    void on_shouldSelectShardForTheWorkAndRestoreThePreviousOne() {
+        Integer[] seen = new Integer[2];
+
+        dealShards.run(1, () -> {
+            seen[0] = DealShards.current();
+            dealShards.run(2, () -> seen[1] = DealShards.current());
+            assertThat(DealShards.current()).isEqualTo(1);
+        });
+
+        assertThat(seen).containsExactly(1, 2);
+        assertThat(DealShards.current()).isNull();
+    }
+
+    @Test
+    void scatter_shouldRunOncePerShardAndReturnResultsInShardOrder() {
+        assertThat(dealShards.scatter(shard -> shard + ":" + DealShards.current()))
+                .containsExactly("0:0", "1:1", "2:2");
+        assertThatThrownBy(() -> dealShards.scatter(shard -> {
+            throw new IllegalStateException("shard " + shard + " is down");
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("is down");
+    }
+
+    @Test
+    void scatter_shouldCarryTheReadOnlyFlagOfTheCaller() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            assertThat(dealShards.scatter(shard -> TransactionSynchronizationManager.isCurrentTransactionReadOnly()))
+                    .containsExactly(true, true, true);
+            assertThat(dealShards.read(1, TransactionSynchronizationManager::isCurrentTransactionReadOnly)).isTrue();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+
+        assertThat(dealShards.scatter(shard -> TransactionSynchronizationManager.isCurrentTransactionReadOnly()))
+                .containsExactly(false, false, false);
+    }
+
+    @Test
+    void scatter_shouldRunInlineWithoutAdditionalShards() {
+        DealShards single = new DealShards(new DealShardingProperties(List.of()));
+
+        assertThat(single.scatter(shard -> Thread.currentThread())).containsExactly(Thread.currentThread());
+        assertThat(single.shardOf("FX-1")).isZero();
+    }
+}
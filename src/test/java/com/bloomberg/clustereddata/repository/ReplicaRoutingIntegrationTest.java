@@ -0,0 +1,103 @@
+package com.bloomberg.clustereddata.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bloomberg.clustereddata.config.ShardedDataSource;
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.service.DealQueryService;
+import com.bloomberg.clustereddata.service.DealReplicaMonitor;
+import com.bloomberg.clustereddata.service.DealService;
+import java.math.BigDecimal;
+import java.time.Instant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * The "replica" is the primary under another application name, which tells the two routes apart.
+ */
+@SpringBootTest
+@Testcontainers
+@ActiveProfiles("test")
+class ReplicaRoutingIntegrationTest {
+
+    private static final String REPLICA = "deals-replica";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("deals.replication.replicas[0].url", () -> postgres.getJdbcUrl()
+                + (postgres.getJdbcUrl().contains("?") ? "&" : "?") + "ApplicationName=" + REPLICA);
+        // Checked by the tests themselves, so the schedule cannot undo what they set up.
+        registry.add("deals.replication.lag-check-interval", () -> "PT1H");
+    }
+
+    @Autowired private DealService dealService;
+
+    @Autowired private DealQueryService dealQueryService;
+
+    @Autowired private DealReplicaMonitor dealReplicaMonitor;
+
+    @Autowired private ShardedDataSource dataSource;
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM deals");
+        jdbcTemplate.update("DELETE FROM deal_volume_rollups");
+        jdbcTemplate.update("DELETE FROM deal_unique_ids");
+    }
+
+    @Test
+    void readOnlyTransactions_shouldUseTheReplicaWhileItIsFresh() {
+        dealReplicaMonitor.check();
+        assertThat(dataSource.isReplicaFresh(0)).isTrue();
+
+        assertThat(applicationName(true)).isEqualTo(REPLICA);
+        assertThat(applicationName(false)).isNotEqualTo(REPLICA);
+
+        dataSource.setReplicaFresh(0, false);
+        assertThat(applicationName(true)).isNotEqualTo(REPLICA);
+    }
+
+    @Test
+    void createDeal_shouldBeReadableThroughTheReplicaRoute() {
+        dealReplicaMonitor.check();
+
+        dealService.createDeal(DealRequest.builder()
+                .dealUniqueId("FX-REPLICA-1")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:00:00Z"))
+                .dealAmount(new BigDecimal("10"))
+                .build());
+
+        assertThat(dealQueryService.findDeal("FX-REPLICA-1").toCurrencyIso()).isEqualTo("EUR");
+    }
+
+    private String applicationName(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                jdbcTemplate.queryForObject("SELECT current_setting('application_name')", String.class));
+    }
+}
@@ -0,0 +1,282 @@
+package com.bloomberg.clustereddata.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bloomberg.clustereddata.config.ShardedDataSource;
+import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.DealPage;
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import com.bloomberg.clustereddata.dto.DealVolumeAggregate;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.dto.RollupGranularity;
+import com.bloomberg.clustereddata.dto.ShardRebalanceSummary;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.service.DealAggregateService;
+import com.bloomberg.clustereddata.service.DealPersistenceService;
+import com.bloomberg.clustereddata.service.DealQueryService;
+import com.bloomberg.clustereddata.service.DealService;
+import com.bloomberg.clustereddata.service.DealShardRebalancer;
+import com.bloomberg.clustereddata.service.ImportCheckpoint;
+import com.bloomberg.clustereddata.service.ImportProgress;
+import com.bloomberg.clustereddata.util.CsvPosition;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+@SpringBootTest
+@Testcontainers
+@ActiveProfiles("test")
+class ShardedDealStorageIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    @Container
+    static PostgreSQLContainer<?> shard =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    @DynamicPropertySource
+    static void shardProperties(DynamicPropertyRegistry registry) {
+        registry.add("deals.sharding.shards[0].url", shard::getJdbcUrl);
+        registry.add("deals.sharding.shards[0].username", shard::getUsername);
+        registry.add("deals.sharding.shards[0].password", shard::getPassword);
+    }
+
+    @Autowired private DealService dealService;
+
+    @Autowired private DealQueryService dealQueryService;
+
+    @Autowired private DealAggregateService dealAggregateService;
+
+    @Autowired private DealPersistenceService dealPersistenceService;
+
+    @Autowired private DealShardRebalancer dealShardRebalancer;
+
+    @Autowired private DealShards dealShards;
+
+    @Autowired private ShardedDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        for (int i = 0; i < dealShards.count(); i++) {
+            JdbcTemplate jdbcTemplate = shardTemplate(i);
+            jdbcTemplate.update("DELETE FROM deals");
+            jdbcTemplate.update("DELETE FROM deal_volume_rollups");
+            jdbcTemplate.update("DELETE FROM deal_unique_ids");
+        }
+    }
+
+    @Test
+    void createDeal_shouldStoreEachDealOnItsOwningShardOnly() {
+        List<String> ids = IntStream.range(0, 20).mapToObj(i -> "FX-SH-" + i).toList();
+        ids.forEach(id -> dealService.createDeal(buildRequest(id, "2024-11-25T10:00:00Z", "10")));
+
+        for (String id : ids) {
+            int owner = dealShards.shardOf(id);
+            for (int i = 0; i < dealShards.count(); i++) {
+                assertThat(storedOn(i, id)).as("%s on shard %d", id, i).isEqualTo(i == owner);
+            }
+            assertThat(dealQueryService.findDeal(id).dealUniqueId()).isEqualTo(id);
+        }
+        assertThat(IntStream.range(0, dealShards.count()).map(i -> countOn(i))).allMatch(count -> count > 0);
+        assertThatThrownBy(() -> dealService.createDeal(buildRequest("FX-SH-7", "2024-11-25T10:00:00Z", "10")))
+                .isInstanceOf(DealAlreadyExistsException.class);
+    }
+
+    @Test
+    void importDeals_shouldRouteEveryModeToTheOwningShards() {
+        for (ImportMode mode : List.of(ImportMode.ROW, ImportMode.BATCH, ImportMode.COPY)) {
+            StringBuilder csv = new StringBuilder(
+                    "deal_unique_id,from_currency_iso,to_currency_iso,deal_timestamp,deal_amount\n");
+            IntStream.range(0, 30).forEach(i -> csv.append("FX-SH-%s-%d,USD,EUR,2024-11-25T10:%02d:00Z,1\n"
+                    .formatted(mode, i, i)));
+            csv.append("FX-SH-%s-3,USD,EUR,2024-11-25T10:03:00Z,1\n".formatted(mode));
+
+            DealImportSummary summary = dealService.importDeals(new MockMultipartFile("file", "deals.csv",
+                    "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8)), mode);
+
+            assertThat(summary.successfulRows()).as(mode.name()).isEqualTo(30);
+            assertThat(summary.failures()).singleElement().satisfies(failure ->
+                    assertThat(failure.rowNumber()).isEqualTo(31));
+        }
+        assertThat(countOn(0) + countOn(1)).isEqualTo(90);
+        IntStream.range(0, 30).forEach(i -> assertThat(storedOn(dealShards.shardOf("FX-SH-BATCH-" + i),
+                "FX-SH-BATCH-" + i)).isTrue());
+    }
+
+    @Test
+    void importDeals_shouldCreditRowsEveryShardCommittedAfterTheCheckpoint(@TempDir Path directory)
+            throws IOException {
+        List<String> ids = IntStream.range(0, 20).mapToObj(i -> "FX-SH-RESUME-" + i).toList();
+        List<String> shard0 = ids.stream().filter(id -> dealShards.shardOf(id) == 0).toList();
+        List<String> shard1 = ids.stream().filter(id -> dealShards.shardOf(id) == 1).toList();
+        String onShard0 = shard0.get(1);
+        String onShard1 = shard1.get(1);
+        // Both shards have stored deals before the checkpoint, so shard 1's mark is far above shard 0's ids.
+        dealService.createDeal(buildRequest(shard0.get(0), "2024-11-25T10:00:00Z", "1"));
+        dealService.createDeal(buildRequest(shard1.get(0), "2024-11-25T10:00:00Z", "1"));
+        Map<Integer, Long> marks = dealPersistenceService.lastDealIds();
+        // The interrupted run committed one row on each shard after the checkpoint.
+        dealService.createDeal(buildRequest(onShard0, "2024-11-25T10:00:00Z", "10"));
+        dealService.createDeal(buildRequest(onShard1, "2024-11-25T10:00:00Z", "10"));
+        Path csv = directory.resolve("deals.csv");
+        Files.writeString(csv, "deal_unique_id,from_currency_iso,to_currency_iso,deal_timestamp,deal_amount\n"
+                + onShard0 + ",USD,EUR,2024-11-25T10:00:00Z,10\n"
+                + onShard1 + ",USD,EUR,2024-11-25T10:00:00Z,10\n");
+        ImportCheckpoint checkpoint = new ImportCheckpoint(CsvPosition.START, marks, 2, UUID.randomUUID(),
+                new ImportCheckpoint.Failures(Map.of(), List.of(), -1));
+
+        DealImportSummary summary = dealService.importDeals(csv, ImportMode.ROW, new ImportProgress(), checkpoint,
+                1000, taken -> { });
+
+        assertThat(summary.successfulRows()).isEqualTo(2);
+        assertThat(summary.failures()).isEmpty();
+    }
+
+    @Test
+    void findDeals_shouldMergeShardsIntoOnePageOrder() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            String id = "FX-SH-PAGE-" + i;
+            dealService.createDeal(buildRequest(id, "2024-11-25T10:%02d:00Z".formatted(i), "10"));
+            expected.add(id);
+        }
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            DealPage page = dealQueryService.findDeals(DealSearchCriteria.builder().build(), cursor, 5);
+            page.deals().stream().map(DealResponse::dealUniqueId).forEach(paged::add);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(paged).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void findVolumes_shouldAddUpTheBucketsOfAllShards() {
+        IntStream.range(0, 10).forEach(i ->
+                dealService.createDeal(buildRequest("FX-SH-VOL-" + i, "2024-11-25T10:15:00Z", "2.5")));
+        Instant from = Instant.parse("2024-11-25T00:00:00Z");
+        Instant to = Instant.parse("2024-11-26T00:00:00Z");
+
+        List<DealVolumeAggregate> days =
+                dealAggregateService.findVolumes(RollupGranularity.DAY, from, to, "USD", "EUR");
+        dealAggregateService.rebuild();
+
+        assertThat(days).singleElement().satisfies(day -> {
+            assertThat(day.dealCount()).isEqualTo(10);
+            assertThat(day.totalAmount()).isEqualByComparingTo("25");
+        });
+        assertThat(dealAggregateService.findVolumes(RollupGranularity.DAY, from, to, "USD", "EUR"))
+                .isEqualTo(days);
+    }
+
+    @Test
+    void rebalance_shouldMoveMisplacedDealsToTheirOwningShard() {
+        List<String> misplaced = IntStream.range(0, 40)
+                .mapToObj(i -> "FX-SH-MOVE-" + i)
+                .filter(id -> dealShards.shardOf(id) == 1)
+                .toList();
+        // Stored before shard 1 existed: everything lived on shard 0.
+        misplaced.forEach(id -> insertOn(0, id));
+
+        ShardRebalanceSummary summary = dealShardRebalancer.rebalance();
+
+        assertThat(summary.movedDeals()).isEqualTo(misplaced.size());
+        assertThat(summary.conflictingDeals()).isZero();
+        for (String id : misplaced) {
+            assertThat(storedOn(0, id)).isFalse();
+            assertThat(storedOn(1, id)).isTrue();
+        }
+        assertThat(dealAggregateService.findVolumes(RollupGranularity.DAY, Instant.parse("2024-11-25T00:00:00Z"),
+                Instant.parse("2024-11-26T00:00:00Z"), "USD", "EUR"))
+                .singleElement()
+                .satisfies(day -> assertThat(day.dealCount()).isEqualTo(misplaced.size()));
+    }
+
+    @Test
+    void rebalance_shouldRepairTheRollupsOfAnInterruptedRun() {
+        List<String> misplaced = IntStream.range(0, 20)
+                .mapToObj(i -> "FX-SH-REPAIR-" + i)
+                .filter(id -> dealShards.shardOf(id) == 1)
+                .toList();
+        misplaced.forEach(id -> insertOn(0, id));
+        dealAggregateService.rebuild();
+        // Interrupted after moving the deals: shard 0's rollups still count them.
+        shardTemplate(0).update("DELETE FROM deals");
+        shardTemplate(0).update("DELETE FROM deal_unique_ids");
+        misplaced.forEach(id -> dealService.createDeal(buildRequest(id, "2024-11-25T10:00:00Z", "10")));
+
+        ShardRebalanceSummary summary = dealShardRebalancer.rebalance();
+
+        assertThat(summary.movedDeals()).isZero();
+        assertThat(dealAggregateService.findVolumes(RollupGranularity.DAY, Instant.parse("2024-11-25T00:00:00Z"),
+                Instant.parse("2024-11-26T00:00:00Z"), "USD", "EUR"))
+                .singleElement()
+                .satisfies(day -> assertThat(day.dealCount()).isEqualTo(misplaced.size()));
+    }
+
+    private void insertOn(int i, String dealUniqueId) {
+        shardTemplate(i).update("INSERT INTO deal_unique_ids (deal_unique_id, deal_timestamp) "
+                + "VALUES (?, '2024-11-25T10:00:00Z')", dealUniqueId);
+        shardTemplate(i).update("""
+                INSERT INTO deals (deal_unique_id, from_currency_id, to_currency_id, deal_timestamp, deal_amount,
+                                   created_at)
+                SELECT ?, f.id, t.id, '2024-11-25T10:00:00Z', 10, CURRENT_TIMESTAMP
+                FROM currencies f, currencies t WHERE f.iso_code = 'USD' AND t.iso_code = 'EUR'
+                """, dealUniqueId);
+    }
+
+    private JdbcTemplate shardTemplate(int i) {
+        return new JdbcTemplate(dataSource.pools().get(i));
+    }
+
+    private boolean storedOn(int i, String dealUniqueId) {
+        return Boolean.TRUE.equals(shardTemplate(i).queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM deals WHERE deal_unique_id = ?)", Boolean.class, dealUniqueId));
+    }
+
+    private int countOn(int i) {
+        Integer count = shardTemplate(i).queryForObject("SELECT count(*) FROM deals", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private static DealRequest buildRequest(String dealId, String timestamp, String amount) {
+        return DealRequest.builder()
+                .dealUniqueId(dealId)
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse(timestamp))
+                .dealAmount(new BigDecimal(amount))
+                .build();
+    }
+}
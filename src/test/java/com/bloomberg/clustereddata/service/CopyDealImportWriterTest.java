@@ -0,0 +1,131 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.bloomberg.clustereddata.config.DealShardingProperties;
+import com.bloomberg.clustereddata.config.DealShardingProperties.Shard;
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.repository.DealShards;
+import com.bloomberg.clustereddata.repository.DealStagingRepository;
+import com.bloomberg.clustereddata.repository.DealStagingRepository.MergeListener;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class CopyDealImportWriterTest {
+
+    @Mock
+    private DealStagingRepository dealStagingRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private KnownDealIds knownDealIds;
+
+    @Test
+    void complete_shouldRecordTheMergedIdsAsKnown() {
+        doAnswer(invocation -> {
+            MergeListener listener = invocation.getArgument(1);
+            listener.duplicate(2, "FX-1");
+            listener.stored("FX-1");
+            listener.inserted("USD", "EUR", Instant.parse("2024-11-25T10:15:00Z"));
+            return null;
+        }).when(dealStagingRepository).merge(any(), any());
+
+        List<DealImportFailure> failures;
+        try (DealImportWriter.Session session = writer(new DealShards(new DealShardingProperties(List.of()))).open()) {
+            failures = session.complete();
+        }
+
+        assertThat(failures).extracting(DealImportFailure::rowNumber, DealImportFailure::category)
+                .containsExactly(tuple(2, ImportFailureCategory.DUPLICATE));
+        verify(knownDealIds).record("FX-1");
+        ArgumentCaptor<DealsIngestedEvent> event = ArgumentCaptor.forClass(DealsIngestedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().dealUniqueIds()).containsExactly("FX-1");
+    }
+
+    @Test
+    void complete_shouldReportTheRowsOfAFailedShardWhenAnotherShardCommitted() {
+        DealShards dealShards = new DealShards(new DealShardingProperties(List.of(
+                new Shard("jdbc:postgresql://shard-1/fx_deals", null, null))));
+        List<DealCsvRow> rows = IntStream.rangeClosed(1, 10)
+                .mapToObj(rowNumber -> row(rowNumber, "FX-" + rowNumber))
+                .toList();
+        doAnswer(invocation -> {
+            if (DealShards.current() == 1) {
+                throw new DataAccessResourceFailureException("Shard 1 is down");
+            }
+            return null;
+        }).when(dealStagingRepository).merge(any(), any());
+
+        List<DealImportFailure> failures;
+        try (DealImportWriter.Session session = writer(dealShards).open()) {
+            session.write(rows);
+            failures = session.complete();
+        }
+
+        assertThat(failures).extracting(DealImportFailure::rowNumber).containsExactlyElementsOf(rows.stream()
+                .filter(row -> dealShards.shardOf(row.dealRequest().getDealUniqueId()) == 1)
+                .map(DealCsvRow::rowNumber)
+                .toList());
+        assertThat(failures).isNotEmpty().allSatisfy(failure -> {
+            assertThat(failure.category()).isEqualTo(ImportFailureCategory.WRITE);
+            assertThat(failure.reason()).isEqualTo("Unexpected error: Shard 1 is down");
+        });
+        // Once in shard 0's merge, once when the session closes with shard 1 still staged.
+        verify(dealStagingRepository, times(2)).clear(any());
+    }
+
+    @Test
+    void complete_shouldFailWhenNoShardCommitted() {
+        doAnswer(invocation -> {
+            throw new DataAccessResourceFailureException("Database is down");
+        }).when(dealStagingRepository).merge(any(), any());
+
+        try (DealImportWriter.Session session = writer(new DealShards(new DealShardingProperties(List.of()))).open()) {
+            session.write(List.of(row(1, "FX-1")));
+
+            assertThatThrownBy(session::complete).isInstanceOf(DataAccessResourceFailureException.class);
+        }
+    }
+
+    private CopyDealImportWriter writer(DealShards dealShards) {
+        return new CopyDealImportWriter(dealStagingRepository, new TransactionTemplate(transactionManager),
+                eventPublisher, dealShards, knownDealIds);
+    }
+
+    private static DealCsvRow row(int rowNumber, String dealUniqueId) {
+        return new DealCsvRow(rowNumber, DealRequest.builder()
+                .dealUniqueId(dealUniqueId)
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:15:30Z"))
+                .dealAmount(new BigDecimal("10"))
+                .build(), null);
+    }
+}
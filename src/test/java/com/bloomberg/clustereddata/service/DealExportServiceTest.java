@@ -0,0 +1,112 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bloomberg.clustereddata.config.DealExportProperties;
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import com.bloomberg.clustereddata.dto.ExportFormat;
+import com.bloomberg.clustereddata.repository.DealQueryRepository;
+import com.bloomberg.clustereddata.util.CsvDealParser;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+class DealExportServiceTest {
+
+    private static final DealSearchCriteria NO_FILTERS = DealSearchCriteria.builder().build();
+
+    @Mock
+    private DealQueryRepository dealQueryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DealExportService dealExportService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        dealExportService = new DealExportService(dealQueryRepository, new DealExportProperties(100, 2),
+                objectMapper, transactionManager);
+    }
+
+    @Test
+    void write_shouldReadInKeysetSegmentsAndProduceImportableCsv() throws Exception {
+        List<Deal> deals = List.of(
+                deal(1, "FX-1", "2024-11-25T10:00:00Z"),
+                deal(2, "FX,\"2\"", "2024-11-25T10:00:00Z"),
+                deal(3, "FX-3\nB", "2024-11-25T11:00:00.5Z"));
+        stubSegment(null, null, deals.subList(0, 2));
+        stubSegment(Instant.parse("2024-11-25T10:00:00Z"), 2L, deals.subList(2, 3));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        dealExportService.write(NO_FILTERS, ExportFormat.CSV, output);
+
+        MockMultipartFile file = new MockMultipartFile("file", "deals.csv", "text/csv", output.toByteArray());
+        try (Stream<DealCsvRow> rows = new CsvDealParser().stream(file)) {
+            assertThat(rows.map(DealCsvRow::dealRequest).map(DealRequest::getDealUniqueId).toList())
+                    .containsExactly("FX-1", "FX,\"2\"", "FX-3\nB");
+        }
+        verify(dealQueryRepository).streamPage(eq(NO_FILTERS), eq(Instant.parse("2024-11-25T10:00:00Z")),
+                eq(2L), eq(2), eq(100), any());
+    }
+
+    @Test
+    void write_shouldEmitOneJsonObjectPerLine() throws Exception {
+        stubSegment(null, null, List.of(deal(1, "FX-1", "2024-11-25T10:00:00Z")));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        dealExportService.write(NO_FILTERS, ExportFormat.NDJSON, output);
+
+        assertThat(output.toString(StandardCharsets.UTF_8).lines().toList()).singleElement()
+                .satisfies(line -> assertThat(line)
+                        .contains("\"dealUniqueId\":\"FX-1\"")
+                        .contains("\"fromCurrencyIso\":\"USD\""));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubSegment(Instant afterTimestamp, Long afterId, List<Deal> rows) {
+        when(dealQueryRepository.streamPage(eq(NO_FILTERS),
+                afterTimestamp == null ? isNull() : eq(afterTimestamp),
+                afterId == null ? isNull() : eq(afterId), anyInt(), anyInt(), any()))
+                .thenAnswer(invocation -> {
+                    Consumer<Deal> consumer = invocation.getArgument(5);
+                    rows.forEach(consumer);
+                    return rows.size();
+                });
+    }
+
+    private Deal deal(long id, String dealUniqueId, String timestamp) {
+        return Deal.builder()
+                .id(id)
+                .dealUniqueId(dealUniqueId)
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse(timestamp))
+                .dealAmount(new BigDecimal("100.00"))
+                .build();
+    }
+}
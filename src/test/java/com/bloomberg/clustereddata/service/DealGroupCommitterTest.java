@@ -0,0 +1,178 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+import com.bloomberg.clustereddata.config.DealGroupCommitProperties;
+import com.bloomberg.clustereddata.config.DealShardingProperties;
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.repository.DealShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class DealGroupCommitterTest {
+
+    @Mock
+    private DealPersistenceService dealPersistenceService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+
+    private DealGroupCommitter groupCommitter;
+
+    @BeforeEach
+    void setUp() {
+        groupCommitter = new DealGroupCommitter(new DealGroupCommitProperties(true, 10, Duration.ZERO, Duration.ofSeconds(5)),
+                dealPersistenceService, new DealShards(new DealShardingProperties(List.of())), meterRegistry);
+        groupCommitter.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        groupCommitter.stop();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void save_shouldWriteDealsQueuedMeanwhileAsOneGroup() throws Exception {
+        CountDownLatch firstGroupStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstGroup = new CountDownLatch(1);
+        List<List<String>> groups = new CopyOnWriteArrayList<>();
+        Set<String> stored = new HashSet<>(Set.of("FX-stored"));
+        AtomicLong ids = new AtomicLong();
+        when(dealPersistenceService.saveBatch(anyList())).thenAnswer(invocation -> {
+            List<Deal> deals = invocation.getArgument(0);
+            groups.add(deals.stream().map(Deal::getDealUniqueId).toList());
+            firstGroupStarted.countDown();
+            releaseFirstGroup.await(5, TimeUnit.SECONDS);
+            Set<String> inserted = new HashSet<>();
+            for (Deal deal : deals) {
+                if (stored.add(deal.getDealUniqueId())) {
+                    deal.setId(ids.incrementAndGet());
+                    inserted.add(deal.getDealUniqueId());
+                }
+            }
+            return inserted;
+        });
+
+        Future<Deal> first = callers.submit(() -> groupCommitter.save(buildDeal("FX-1")));
+        assertThat(firstGroupStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<Deal> second = callers.submit(() -> groupCommitter.save(buildDeal("FX-2")));
+        Future<Deal> repeated = callers.submit(() -> groupCommitter.save(buildDeal("FX-2")));
+        Future<Deal> existing = callers.submit(() -> groupCommitter.save(buildDeal("FX-stored")));
+        awaitQueued(3);
+        releaseFirstGroup.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        List<Future<Deal>> outcomes = List.of(second, repeated);
+        assertThat(outcomes.stream().filter(outcome -> !failed(outcome)).count()).isEqualTo(1);
+        assertThatThrownBy(() -> existing.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DealAlreadyExistsException.class);
+        // Every outcome is known, so the writer has recorded both groups.
+        assertThat(groups).hasSize(2);
+        assertThat(groups.get(1)).containsExactlyInAnyOrder("FX-2", "FX-2", "FX-stored");
+        assertThat(meterRegistry.get("deals.create.group.size").summary().max()).isEqualTo(3);
+    }
+
+    @Test
+    void save_shouldStoreDealsOneByOneWhenGroupFails() {
+        when(dealPersistenceService.saveBatch(anyList())).thenThrow(new IllegalStateException("deadlock"));
+        when(dealPersistenceService.save(any(Deal.class))).thenAnswer(invocation -> {
+            Deal deal = invocation.getArgument(0);
+            if (deal.getDealUniqueId().equals("FX-stored")) {
+                throw new DealAlreadyExistsException(deal.getDealUniqueId());
+            }
+            deal.setId(7L);
+            return deal;
+        });
+
+        assertThat(groupCommitter.save(buildDeal("FX-1")).getId()).isEqualTo(7L);
+        assertThatThrownBy(() -> groupCommitter.save(buildDeal("FX-stored")))
+                .isInstanceOf(DealAlreadyExistsException.class);
+    }
+
+    @Test
+    void save_shouldFailInsteadOfWaitingForeverWhenTheGroupIsNotWritten() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(dealPersistenceService.saveBatch(anyList())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return Set.of();
+        });
+        groupCommitter.stop();
+        groupCommitter = new DealGroupCommitter(new DealGroupCommitProperties(true, 10, Duration.ZERO,
+                Duration.ofMillis(200)), dealPersistenceService, new DealShards(new DealShardingProperties(List.of())),
+                new SimpleMeterRegistry());
+        groupCommitter.start();
+
+        try {
+            assertThatThrownBy(() -> groupCommitter.save(buildDeal("FX-1")))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("may have been stored");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void save_shouldRejectDealsOnceStopped() throws InterruptedException {
+        groupCommitter.stop();
+
+        assertThatThrownBy(() -> groupCommitter.save(buildDeal("FX-1")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("stopped");
+    }
+
+    private void awaitQueued(int deals) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (meterRegistry.get("deals.create.group.queued").gauge().value() < deals) {
+            assertThat(System.nanoTime()).as("%d deals queued in time", deals).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static boolean failed(Future<Deal> outcome) {
+        try {
+            outcome.get(5, TimeUnit.SECONDS);
+            return false;
+        } catch (ExecutionException exception) {
+            assertThat(exception).hasCauseInstanceOf(DealAlreadyExistsException.class);
+            return true;
+        } catch (Exception exception) {
+            throw new AssertionError(exception);
+        }
+    }
+
+    private static Deal buildDeal(String dealId) {
+        return Deal.builder()
+                .dealUniqueId(dealId)
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:15:30Z"))
+                .dealAmount(new BigDecimal("10.5"))
+                .build();
+    }
+}
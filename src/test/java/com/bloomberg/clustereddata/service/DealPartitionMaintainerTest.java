@@ -0,0 +1,107 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bloomberg.clustereddata.config.DealPartitioningProperties;
+import com.bloomberg.clustereddata.config.DealPartitioningProperties.Interval;
+import com.bloomberg.clustereddata.config.DealPartitioningProperties.RetentionAction;
+import com.bloomberg.clustereddata.config.DealShardingProperties;
+import com.bloomberg.clustereddata.repository.DealPartition;
+import com.bloomberg.clustereddata.repository.DealPartitionRepository;
+import com.bloomberg.clustereddata.repository.DealShards;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class DealPartitionMaintainerTest {
+
+    private static final Instant NOW = Instant.parse("2024-11-25T10:00:00Z");
+
+    @Mock
+    private DealPartitionRepository dealPartitionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void partitionsToCreate_shouldContinueFromNewestBoundUntilPremakeHorizon() {
+        DealPartitionMaintainer maintainer = maintainer(Interval.MONTH, 2, null, RetentionAction.DETACH);
+        List<DealPartition> existing = List.of(partition("2024-10-01", "2024-11-01"), partition("2024-11-01", "2024-12-01"));
+
+        assertThat(maintainer.partitionsToCreate(existing, NOW)).containsExactly(
+                partition("2024-12-01", "2025-01-01"),
+                partition("2025-01-01", "2025-02-01"));
+    }
+
+    @Test
+    void partitionsToCreate_shouldAlignToNewIntervalAfterIntervalChange() {
+        DealPartitionMaintainer maintainer = maintainer(Interval.WEEK, 1, null, RetentionAction.DETACH);
+        List<DealPartition> existing = List.of(partition("2024-11-01", "2024-12-01"));
+
+        // 2024-12-01 is a Sunday, so the first weekly partition only runs until the next Monday.
+        assertThat(maintainer.partitionsToCreate(existing, Instant.parse("2024-11-28T00:00:00Z"))).containsExactly(
+                partition("2024-12-01", "2024-12-02"),
+                partition("2024-12-02", "2024-12-09"));
+    }
+
+    @Test
+    void partitionsToPurge_shouldSelectPartitionsEntirelyOlderThanRetention() {
+        DealPartitionMaintainer maintainer = maintainer(Interval.MONTH, 1, Period.ofMonths(1), RetentionAction.DROP);
+        List<DealPartition> existing = List.of(
+                partition("2024-09-01", "2024-10-01"),
+                partition("2024-10-01", "2024-11-01"),
+                partition("2024-11-01", "2024-12-01"));
+
+        assertThat(maintainer.partitionsToPurge(existing, NOW)).containsExactly(partition("2024-09-01", "2024-10-01"));
+    }
+
+    @Test
+    void maintain_shouldCreateAndDropUnderMaintenanceLock() {
+        DealPartitionMaintainer maintainer = maintainer(Interval.MONTH, 1, Period.ofMonths(1), RetentionAction.DROP);
+        when(dealPartitionRepository.tryLockForMaintenance()).thenReturn(true);
+        when(dealPartitionRepository.findPartitions())
+                .thenReturn(List.of(partition("2024-09-01", "2024-10-01"), partition("2024-11-01", "2024-12-01")));
+
+        maintainer.maintain();
+
+        verify(dealPartitionRepository).create(partition("2024-12-01", "2025-01-01"));
+        verify(dealPartitionRepository).detach(partition("2024-09-01", "2024-10-01"));
+        verify(dealPartitionRepository).drop(partition("2024-09-01", "2024-10-01"));
+    }
+
+    @Test
+    void maintain_shouldSkipWhenAnotherInstanceHoldsTheLock() {
+        DealPartitionMaintainer maintainer = maintainer(Interval.MONTH, 1, null, RetentionAction.DETACH);
+        when(dealPartitionRepository.tryLockForMaintenance()).thenReturn(false);
+
+        maintainer.maintain();
+
+        verify(dealPartitionRepository, never()).findPartitions();
+        verify(dealPartitionRepository, never()).create(any());
+    }
+
+    private DealPartitionMaintainer maintainer(Interval interval, int premake, Period retention, RetentionAction action) {
+        return new DealPartitionMaintainer(dealPartitionRepository,
+                new DealPartitioningProperties(interval, premake, retention, action),
+                new TransactionTemplate(transactionManager), new DealShards(new DealShardingProperties(List.of())),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static DealPartition partition(String from, String to) {
+        return new DealPartition("deals_p" + from.replace("-", ""),
+                Instant.parse(from + "T00:00:00Z"), Instant.parse(to + "T00:00:00Z"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealPage;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealSearchCriteria;
+import com.bloomberg.clustereddata.exception.InvalidDealQueryException;
+import com.bloomberg.clustereddata.repository.DealQueryRepository;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class DealQueryServiceTest {
+
+    private static final DealSearchCriteria NO_FILTERS = DealSearchCriteria.builder().build();
+
+    @Mock
+    private DealQueryRepository dealQueryRepository;
+
+    @InjectMocks
+    private DealQueryService dealQueryService;
+
+    @Test
+    void findDeals_shouldReturnCursorOfLastDealWhenMoreRowsExist() {
+        when(dealQueryRepository.findPage(eq(NO_FILTERS), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(deal(1, "2024-11-25T10:00:00Z"), deal(2, "2024-11-25T10:00:00Z"),
+                        deal(3, "2024-11-25T11:00:00Z")));
+
+        DealPage page = dealQueryService.findDeals(NO_FILTERS, null, 2);
+
+        assertThat(page.deals()).extracting(DealResponse::id).containsExactly(1L, 2L);
+        assertThat(page.nextCursor()).isNotNull();
+
+        when(dealQueryRepository.findPage(any(), any(), any(), anyInt())).thenReturn(List.of());
+        dealQueryService.findDeals(NO_FILTERS, page.nextCursor(), 2);
+
+        verify(dealQueryRepository).findPage(NO_FILTERS, Instant.parse("2024-11-25T10:00:00Z"), 2L, 3);
+    }
+
+    @Test
+    void findDeals_shouldOmitCursorOnLastPage() {
+        when(dealQueryRepository.findPage(eq(NO_FILTERS), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(deal(1, "2024-11-25T10:00:00Z")));
+
+        DealPage page = dealQueryService.findDeals(NO_FILTERS, null, 2);
+
+        assertThat(page.deals()).hasSize(1);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void findDeals_shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> dealQueryService.findDeals(NO_FILTERS, "not a cursor", 10))
+                .isInstanceOf(InvalidDealQueryException.class);
+    }
+
+    @Test
+    void findDeals_shouldRejectEmptyTimestampRange() {
+        DealSearchCriteria criteria = DealSearchCriteria.builder()
+                .fromTimestamp(Instant.parse("2024-11-26T00:00:00Z"))
+                .toTimestamp(Instant.parse("2024-11-25T00:00:00Z"))
+                .build();
+
+        assertThatThrownBy(() -> dealQueryService.findDeals(criteria, null, 10))
+                .isInstanceOf(InvalidDealQueryException.class)
+                .hasMessageContaining("fromTimestamp");
+    }
+
+    private Deal deal(long id, String timestamp) {
+        return Deal.builder()
+                .id(id)
+                .dealUniqueId("FX-" + id)
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse(timestamp))
+                .dealAmount(new BigDecimal("100.00"))
+                .build();
+    }
+}
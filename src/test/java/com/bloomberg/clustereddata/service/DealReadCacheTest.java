@@ -0,0 +1,139 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.bloomberg.clustereddata.config.DealCacheProperties;
+import com.bloomberg.clustereddata.config.DealReplicationProperties;
+import com.bloomberg.clustereddata.config.DealReplicationProperties.Replica;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.DealVolumeAggregate;
+import com.bloomberg.clustereddata.dto.RollupGranularity;
+import com.bloomberg.clustereddata.repository.DealJdbcRepository;
+import com.bloomberg.clustereddata.service.DealReadCache.VolumeQuery;
+import com.bloomberg.clustereddata.service.DealsIngestedEvent.VolumeBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DealReadCacheTest {
+
+    private static final Instant DAY = Instant.parse("2024-11-25T00:00:00Z");
+
+    private final DealJdbcRepository dealJdbcRepository = mock(DealJdbcRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final DealCacheProperties properties =
+            new DealCacheProperties(100, Duration.ofMinutes(10), 100, Duration.ofMinutes(10));
+    private DealReadCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new DealReadCache(properties, new DealReplicationProperties(List.of(), Duration.ofSeconds(5), null),
+                dealJdbcRepository, meterRegistry);
+    }
+
+    @Test
+    void getDeal_shouldCacheUnknownIdsUntilTheyAreInserted() {
+        assertThat(cache.getDeal("FX-1", this::absent)).isEmpty();
+        assertThat(cache.getDeal("FX-1", this::absent)).isEmpty();
+        assertThat(loads).hasValue(1);
+
+        cache.onDealsIngested(new DealsIngestedEvent(Set.of("FX-1"), Set.of()));
+
+        assertThat(cache.getDeal("FX-1", this::present)).isPresent();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void getDeal_shouldRecheckUnknownIdsWhenInsertedIdsAreNotEnumerated() {
+        cache.getDeal("FX-1", this::absent);
+        cache.getDeal("FX-2", this::absent);
+        when(dealJdbcRepository.findExistingIds(anyCollection())).thenReturn(Set.of("FX-2"));
+
+        cache.onDealsIngested(new DealsIngestedEvent(null, Set.of()));
+
+        assertThat(cache.getDeal("FX-1", this::present)).isEmpty();
+        assertThat(cache.getDeal("FX-2", this::present)).isPresent();
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void getDeal_shouldNotKeepLoadThatOverlapsInvalidation() {
+        cache.getDeal("FX-1", id -> {
+            cache.onDealsIngested(new DealsIngestedEvent(Set.of("FX-1"), Set.of()));
+            return absent(id);
+        });
+
+        assertThat(cache.getDeal("FX-1", this::present)).isPresent();
+    }
+
+    @Test
+    void getDeal_shouldNotKeepLoadsWithinReplicaLagOfAnInvalidation() {
+        DealReadCache replicated = new DealReadCache(properties, new DealReplicationProperties(
+                List.of(new Replica("jdbc:postgresql://replica/fx_deals", null, null)), Duration.ofHours(1), null),
+                dealJdbcRepository, new SimpleMeterRegistry());
+        replicated.getDeal("FX-1", this::absent);
+        replicated.getDeal("FX-1", this::absent);
+        assertThat(loads).hasValue(1);
+
+        replicated.onDealsIngested(new DealsIngestedEvent(Set.of("FX-2"), Set.of()));
+
+        replicated.getDeal("FX-1", this::absent);
+        replicated.getDeal("FX-3", this::absent);
+        replicated.getDeal("FX-3", this::absent);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void getVolumes_shouldInvalidateOnlyQueriesCoveringInsertedBuckets() {
+        VolumeQuery eurUsdDay = new VolumeQuery(RollupGranularity.HOUR, DAY, DAY.plus(Duration.ofDays(1)),
+                "EUR", "USD");
+        VolumeQuery allPairsNextDay = new VolumeQuery(RollupGranularity.DAY, DAY.plus(Duration.ofDays(1)),
+                DAY.plus(Duration.ofDays(2)), null, null);
+        VolumeQuery gbpDay = new VolumeQuery(RollupGranularity.MINUTE, DAY, DAY.plus(Duration.ofDays(1)),
+                "GBP", null);
+        List.of(eurUsdDay, allPairsNextDay, gbpDay).forEach(query -> cache.getVolumes(query, this::volumes));
+        assertThat(loads).hasValue(3);
+
+        cache.onDealsIngested(new DealsIngestedEvent(Set.of("FX-1"),
+                Set.of(new VolumeBucket("EUR", "USD", Instant.parse("2024-11-25T10:15:00Z")))));
+        List.of(eurUsdDay, allPairsNextDay, gbpDay).forEach(query -> cache.getVolumes(query, this::volumes));
+
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void shouldPublishHitAndMissCounts() {
+        cache.getDeal("FX-1", this::absent);
+        cache.getDeal("FX-1", this::absent);
+
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "deals", "result", "hit").functionCounter()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "deals", "result", "miss").functionCounter()
+                .count()).isEqualTo(1);
+    }
+
+    private Optional<DealResponse> absent(String dealUniqueId) {
+        loads.incrementAndGet();
+        return Optional.empty();
+    }
+
+    private Optional<DealResponse> present(String dealUniqueId) {
+        loads.incrementAndGet();
+        return Optional.of(DealResponse.builder().dealUniqueId(dealUniqueId).build());
+    }
+
+    private List<DealVolumeAggregate> volumes(VolumeQuery query) {
+        loads.incrementAndGet();
+        return List.of();
+    }
+}
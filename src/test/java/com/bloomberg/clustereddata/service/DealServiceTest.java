@@ -2,24 +2,55 @@ package com.bloomberg.clustereddata.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.bloomberg.clustereddata.config.DealImportProperties;
+import com.bloomberg.clustereddata.config.DealShardingProperties;
+import com.bloomberg.clustereddata.config.ImportAdmissionProperties;
+import com.bloomberg.clustereddata.config.ImportFailureReportProperties;
 import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealImportFailure;
 import com.bloomberg.clustereddata.dto.DealImportSummary;
 import com.bloomberg.clustereddata.dto.DealRequest;
 import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.dto.ImportMode;
 import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.repository.DealShards;
 import com.bloomberg.clustereddata.util.CsvDealParser;
 import com.bloomberg.clustereddata.util.DealCsvRow;
-import jakarta.validation.Validator;
+import com.bloomberg.clustereddata.util.JsonDealParser;
+import com.bloomberg.clustereddata.validation.DealRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
@@ -34,13 +65,20 @@ class DealServiceTest {
     private CsvDealParser csvDealParser;
 
     @Mock
-    private Validator validator;
+    private DealDuplicateDetector duplicateDetector;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    private Path reportDirectory;
+
+    private int inlineFailureLimit = 100;
 
     private DealService dealService;
 
     @BeforeEach
     void setUp() {
-        dealService = new DealService(dealPersistenceService, csvDealParser, validator);
+        dealService = buildService(new DealImportProperties(2, 2, 1, ImportMode.ROW));
     }
 
     @Test
@@ -72,9 +110,7 @@ class DealServiceTest {
         DealCsvRow row2 = new DealCsvRow(2, request2, null);
         DealCsvRow row3 = new DealCsvRow(3, null, "Broken row");
 
-        when(csvDealParser.parse(csv)).thenReturn(List.of(row1, row2, row3));
-        when(validator.validate(request1)).thenReturn(Collections.emptySet());
-        when(validator.validate(request2)).thenReturn(Collections.emptySet());
+        when(csvDealParser.stream(csv)).thenReturn(Stream.of(row1, row2, row3));
         when(dealPersistenceService.save(any(Deal.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0))
                 .thenThrow(new DealAlreadyExistsException("FX-duplicate"));
@@ -87,6 +123,278 @@ class DealServiceTest {
         assertThat(summary.failures()).hasSize(2);
     }
 
+    @Test
+    void importDeals_batchModeShouldReportDuplicatesPerRow() {
+        MockMultipartFile csv = new MockMultipartFile("file", "deals.csv", "text/csv", new byte[] {});
+        DealRequest request1 = buildRequest("FX-1");
+        DealRequest request2 = buildRequest("FX-existing");
+        DealRequest request3 = buildRequest("FX-1");
+        DealCsvRow row1 = new DealCsvRow(1, request1, null);
+        DealCsvRow row2 = new DealCsvRow(2, request2, null);
+        DealCsvRow row3 = new DealCsvRow(3, request3, null);
+
+        when(csvDealParser.stream(csv)).thenReturn(Stream.of(row1, row2, row3));
+        when(dealPersistenceService.saveBatch(anyList()))
+                .thenReturn(new HashSet<>(Set.of("FX-1")))
+                .thenReturn(new HashSet<>());
+
+        DealImportSummary summary = dealService.importDeals(csv, ImportMode.BATCH);
+
+        assertThat(summary.successfulRows()).isEqualTo(1);
+        assertThat(summary.failures())
+                .extracting(DealImportFailure::rowNumber)
+                .containsExactly(2, 3);
+        verify(dealPersistenceService, never()).save(any(Deal.class));
+    }
+
+    @Test
+    void importDeals_parallelLanesShouldKeepFirstOccurrenceAndRowOrder() {
+        dealService = buildService(new DealImportProperties(1, 1, 3, ImportMode.ROW));
+        MockMultipartFile csv = new MockMultipartFile("file", "deals.csv", "text/csv", new byte[] {});
+        List<String> ids = List.of("FX-A", "FX-B", "FX-A", "FX-C", "FX-B", "FX-D", "FX-A");
+        Stream<DealCsvRow> rows = IntStream.range(0, ids.size())
+                .mapToObj(i -> new DealCsvRow(i + 1, buildRequest(ids.get(i)), null));
+        Set<String> stored = ConcurrentHashMap.newKeySet();
+
+        when(csvDealParser.stream(csv)).thenReturn(rows);
+        when(dealPersistenceService.save(any(Deal.class))).thenAnswer(invocation -> {
+            Deal deal = invocation.getArgument(0);
+            if (!stored.add(deal.getDealUniqueId())) {
+                throw new DealAlreadyExistsException(deal.getDealUniqueId());
+            }
+            return deal;
+        });
+
+        DealImportSummary summary = dealService.importDeals(csv);
+
+        assertThat(summary.totalRows()).isEqualTo(7);
+        assertThat(summary.successfulRows()).isEqualTo(4);
+        assertThat(summary.failures())
+                .extracting(DealImportFailure::rowNumber)
+                .containsExactly(3, 5, 7);
+    }
+
+    @Test
+    void importDeals_shouldPersistEachChunkBeforeReadingTheNext() {
+        int chunkSize = 5;
+        dealService = buildService(new DealImportProperties(chunkSize, chunkSize, 1, ImportMode.ROW));
+        MockMultipartFile csv = new MockMultipartFile("file", "deals.csv", "text/csv", new byte[] {});
+        AtomicInteger rowsRead = new AtomicInteger();
+        Stream<DealCsvRow> rows = IntStream.rangeClosed(1, 100).mapToObj(rowNumber -> {
+            rowsRead.incrementAndGet();
+            return new DealCsvRow(rowNumber, buildRequest("FX-" + rowNumber), null);
+        });
+        AtomicInteger rowsSaved = new AtomicInteger();
+        List<Integer> rowsBufferedAtSave = new ArrayList<>();
+
+        when(csvDealParser.stream(csv)).thenReturn(rows);
+        when(dealPersistenceService.save(any(Deal.class))).thenAnswer(invocation -> {
+            rowsBufferedAtSave.add(rowsRead.get() - rowsSaved.getAndIncrement());
+            return invocation.getArgument(0);
+        });
+
+        DealImportSummary summary = dealService.importDeals(csv);
+
+        assertThat(summary.successfulRows()).isEqualTo(100);
+        // The first deal is stored before the sixth row has been read.
+        assertThat(rowsBufferedAtSave.get(0)).isEqualTo(chunkSize);
+        assertThat(rowsBufferedAtSave).hasSize(100).allSatisfy(buffered ->
+                assertThat(buffered).isBetween(1, chunkSize));
+    }
+
+    @Test
+    void importDeals_preflightShouldReportDuplicatesWithoutWriting() {
+        MockMultipartFile csv = new MockMultipartFile("file", "deals.csv", "text/csv", new byte[] {});
+        DealCsvRow row1 = new DealCsvRow(1, buildRequest("FX-1"), null);
+        DealCsvRow row2 = new DealCsvRow(2, buildRequest("FX-1"), null);
+        DealCsvRow row3 = new DealCsvRow(3, buildRequest("FX-stored"), null);
+        DealCsvRow row4 = new DealCsvRow(4, buildRequest("FX-1"), null);
+        Set<String> stored = new HashSet<>(Set.of("FX-stored"));
+
+        when(csvDealParser.stream(csv)).thenReturn(Stream.of(row1, row2, row3, row4));
+        when(duplicateDetector.isEnabled()).thenReturn(true);
+        when(duplicateDetector.findExisting(anyCollection())).thenAnswer(invocation -> {
+            Set<String> existing = new HashSet<>(invocation.<Collection<String>>getArgument(0));
+            existing.retainAll(stored);
+            return existing;
+        });
+        when(dealPersistenceService.save(any(Deal.class))).thenAnswer(invocation -> {
+            Deal deal = invocation.getArgument(0);
+            stored.add(deal.getDealUniqueId());
+            return deal;
+        });
+
+        DealImportSummary summary = dealService.importDeals(csv);
+
+        // Row 2 repeats an id of its own chunk, row 4 one that an earlier chunk stored.
+        assertThat(summary.successfulRows()).isEqualTo(1);
+        assertThat(summary.failures())
+                .extracting(DealImportFailure::rowNumber)
+                .containsExactly(2, 3, 4);
+        verify(dealPersistenceService, times(1)).save(any(Deal.class));
+    }
+
+    @Test
+    void importDeals_jsonBatchShouldWriteBatchesAndReportFailuresByItem() {
+        String ndjson = """
+                {"dealUniqueId":"FX-1","fromCurrencyIso":"USD","toCurrencyIso":"EUR","dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":10.5}
+                {"dealUniqueId":"FX-2","fromCurrencyIso":"USD","toCurrencyIso":"EUR","dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":[]}
+                {"dealUniqueId":"FX-3","fromCurrencyIso":"USD","toCurrencyIso":"XXY","dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":"7"}
+                {"dealUniqueId":"FX-4","fromCurrencyIso":"GBP","toCurrencyIso":"EUR","dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":"7"}
+                """;
+        when(dealPersistenceService.saveBatch(anyList())).thenAnswer(invocation -> {
+            List<Deal> deals = invocation.getArgument(0);
+            Set<String> ids = new HashSet<>();
+            deals.forEach(deal -> ids.add(deal.getDealUniqueId()));
+            return ids;
+        });
+
+        DealImportSummary summary = dealService.importDeals(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(summary.totalRows()).isEqualTo(4);
+        assertThat(summary.successfulRows()).isEqualTo(2);
+        assertThat(summary.failures()).extracting(DealImportFailure::rowNumber).containsExactly(2, 3);
+        assertThat(summary.failures().get(0).reason())
+                .isEqualTo("JSON parsing error: 'dealAmount' must be a number");
+        verify(dealPersistenceService, never()).save(any(Deal.class));
+    }
+
+    @Test
+    void importDeals_shouldRecordStageTimersAndRowCountersPerEndpoint() {
+        String ndjson = """
+                {"dealUniqueId":"FX-1","fromCurrencyIso":"USD","toCurrencyIso":"EUR","dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":1}
+                {"dealUniqueId":"FX-1","fromCurrencyIso":"USD","toCurrencyIso":"EUR","dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":1}
+                {"dealUniqueId":"FX-2","dealAmount":"x"}
+                {"dealUniqueId":"FX-3","fromCurrencyIso":"USD","toCurrencyIso":"EUR","dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":-1}
+                """;
+        when(dealPersistenceService.saveBatch(anyList())).thenReturn(new HashSet<>(Set.of("FX-1")));
+
+        dealService.importDeals(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(meterRegistry.get("deals.import.rows.imported").tag("endpoint", "batch").counter().count())
+                .isEqualTo(1);
+        for (String reason : List.of("duplicate", "parse", "validation")) {
+            assertThat(meterRegistry.get("deals.import.rows.rejected")
+                    .tags("endpoint", "batch", "reason", reason).counter().count()).isEqualTo(1);
+        }
+        assertThat(meterRegistry.get("deals.import.row.duration").tags("endpoint", "batch", "stage", "parse")
+                .timer().count()).isEqualTo(4);
+        assertThat(meterRegistry.get("deals.import.batch.duration").tags("endpoint", "batch", "stage", "persist")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("deals.import.in.flight").tag("endpoint", "batch").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void importDeals_shouldCapInlineFailuresAndReportTheRestOnDisk() throws Exception {
+        inlineFailureLimit = 2;
+        dealService = buildService(new DealImportProperties(2, 2, 1, ImportMode.ROW));
+        MockMultipartFile csv = new MockMultipartFile("file", "deals.csv", "text/csv", new byte[] {});
+        when(csvDealParser.stream(csv)).thenReturn(Stream.of(
+                new DealCsvRow(1, null, "Broken, \"quoted\" row"),
+                new DealCsvRow(2, buildRequest("FX-1"), null),
+                new DealCsvRow(3, null, "Broken row"),
+                new DealCsvRow(4, buildRequest(""), null),
+                new DealCsvRow(5, null, "Broken row")));
+        when(dealPersistenceService.save(any(Deal.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DealImportSummary summary = dealService.importDeals(csv);
+
+        assertThat(summary.failedRows()).isEqualTo(4);
+        assertThat(summary.successfulRows()).isEqualTo(1);
+        assertThat(summary.failureCounts()).containsExactly(
+                Map.entry(ImportFailureCategory.PARSE, 3L),
+                Map.entry(ImportFailureCategory.VALIDATION, 1L));
+        assertThat(summary.failuresTruncated()).isTrue();
+        assertThat(summary.failures()).extracting(DealImportFailure::rowNumber).containsExactly(1, 3);
+        assertThat(Files.readAllLines(reportDirectory.resolve(summary.failureReportId() + ".csv"))).containsExactly(
+                ImportFailureReport.HEADER_ROW,
+                "1,PARSE,\"CSV parsing error: Broken, \"\"quoted\"\" row\"",
+                "3,PARSE,CSV parsing error: Broken row",
+                "4,VALIDATION,dealUniqueId must not be blank",
+                "5,PARSE,CSV parsing error: Broken row");
+    }
+
+    @Test
+    void importDeals_shouldNotWriteReportWhenFailuresFitInline() throws Exception {
+        MockMultipartFile csv = new MockMultipartFile("file", "deals.csv", "text/csv", new byte[] {});
+        when(csvDealParser.stream(csv)).thenReturn(Stream.of(new DealCsvRow(1, null, "Broken row")));
+
+        DealImportSummary summary = dealService.importDeals(csv);
+
+        assertThat(summary.failuresTruncated()).isFalse();
+        assertThat(summary.failureReportId()).isNull();
+        assertThat(summary.failures()).hasSize(1);
+        try (Stream<Path> files = Files.list(reportDirectory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void importDeals_shouldResumeFromCheckpointAndCreditRowsCommittedBeforeTheInterruption() throws Exception {
+        dealService = buildService(new DealImportProperties(1, 1, 1, ImportMode.ROW), new CsvDealParser());
+        Path csv = reportDirectory.resolve("deals.csv");
+        Files.writeString(csv, CsvDealParser.HEADER_ROW + "\n"
+                + "FX-1,USD,EUR,2024-11-25T12:00:00Z,100.50\n"
+                + "FX-2,USD,EUR,2024-11-25T12:00:00Z,abc\n"
+                + "FX-3,USD,EUR,2024-11-25T12:00:00Z,100.50\n"
+                + "FX-4,USD,EUR,2024-11-25T12:00:00Z,100.50\n");
+        when(dealPersistenceService.lastDealIds()).thenReturn(Map.of(0, 3L));
+        when(dealPersistenceService.save(any(Deal.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DealAlreadyExistsException("FX-3"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        List<ImportCheckpoint> checkpoints = new ArrayList<>();
+        dealService.importDeals(csv, ImportMode.ROW, new ImportProgress(), null, 2, checkpoints::add);
+        assertThat(checkpoints).extracting(checkpoint -> checkpoint.position().rowNumber()).containsExactly(0, 2, 4);
+
+        // Interrupted after the checkpoint at row 2, with FX-3 (deal id 3) already committed.
+        ImportCheckpoint taken = checkpoints.get(1);
+        ImportCheckpoint resumeFrom = new ImportCheckpoint(
+                taken.position(), Map.of(0, 2L), taken.replayUntilRow(), taken.failureReportId(), taken.failures());
+        when(dealPersistenceService.findStoredBetween(List.of("FX-3"), Map.of(0, 2L), Map.of(0, 3L))).thenReturn(List.of(Deal.builder()
+                .id(3L)
+                .dealUniqueId("FX-3")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T12:00:00Z"))
+                .dealAmount(new BigDecimal("100.5000"))
+                .build()));
+        ImportProgress progress = new ImportProgress();
+
+        DealImportSummary summary =
+                dealService.importDeals(csv, ImportMode.ROW, progress, resumeFrom, 2, checkpoint -> { });
+
+        assertThat(summary.totalRows()).isEqualTo(4);
+        assertThat(summary.successfulRows()).isEqualTo(3);
+        assertThat(summary.failures()).extracting(DealImportFailure::rowNumber).containsExactly(2);
+        assertThat(progress.processedRows()).isEqualTo(4);
+        assertThat(progress.failedRows()).isEqualTo(1);
+        verify(dealPersistenceService, times(5)).save(any(Deal.class));
+    }
+
+    private DealService buildService(DealImportProperties importProperties) {
+        return buildService(importProperties, csvDealParser);
+    }
+
+    private DealService buildService(DealImportProperties importProperties, CsvDealParser parser) {
+        ImportAdmission importAdmission = new ImportAdmission(
+                new ImportAdmissionProperties(1, 0, Duration.ZERO, Duration.ofSeconds(10), 2), null, meterRegistry);
+        RowDealImportWriter rowWriter = new RowDealImportWriter(dealPersistenceService);
+        BatchDealImportWriter batchWriter =
+                new BatchDealImportWriter(dealPersistenceService, rowWriter, importProperties,
+                        new DealShards(new DealShardingProperties(List.of())));
+        return new DealService(dealPersistenceService, parser, new JsonDealParser(new ObjectMapper()),
+                new DealRequestValidator(), importProperties, List.of(rowWriter, batchWriter),
+                new ImportWorkers(importProperties, importAdmission), duplicateDetector, new ImportMetrics(meterRegistry),
+                new ImportFailureReports(new ImportFailureReportProperties(
+                        inlineFailureLimit, reportDirectory, Duration.ofHours(1))),
+                importAdmission, Optional.empty(), Optional.empty());
+    }
+
     private DealRequest buildRequest(String dealId) {
         return DealRequest.builder()
                 .dealUniqueId(dealId)
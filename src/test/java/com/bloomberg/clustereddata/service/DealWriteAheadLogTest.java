@@ -0,0 +1,371 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bloomberg.clustereddata.config.DealWriteAheadLogProperties;
+import com.bloomberg.clustereddata.domain.Deal;
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.dto.DealResponse;
+import com.bloomberg.clustereddata.exception.DealAlreadyExistsException;
+import com.bloomberg.clustereddata.exception.DealLogFullException;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class DealWriteAheadLogTest {
+
+    @Mock
+    private DealPersistenceService dealPersistenceService;
+
+    @Mock
+    private DealDuplicateDetector duplicateDetector;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<DealWriteAheadLog> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (DealWriteAheadLog writeAheadLog : started) {
+            writeAheadLog.stop();
+        }
+    }
+
+    @Test
+    void append_shouldAcknowledgeAndFlushInBatches() throws Exception {
+        List<List<String>> flushed = new ArrayList<>();
+        when(dealPersistenceService.saveBatch(anyList())).thenAnswer(invocation -> {
+            List<Deal> deals = invocation.getArgument(0);
+            List<String> ids = deals.stream().map(Deal::getDealUniqueId).toList();
+            flushed.add(ids);
+            return Set.copyOf(ids);
+        });
+        DealWriteAheadLog writeAheadLog = start();
+
+        DealResponse response = writeAheadLog.append(buildRequest("FX-1", "10.5"));
+        writeAheadLog.append(buildRequest("FX-2", "20"));
+        writeAheadLog.append(buildRequest("FX-3", "30"));
+        writeAheadLog.flush();
+
+        assertThat(response.id()).isNull();
+        assertThat(response.dealUniqueId()).isEqualTo("FX-1");
+        assertThat(flushed).containsExactly(List.of("FX-1", "FX-2"), List.of("FX-3"));
+        assertThat(meterRegistry.get("deals.wal.pending").gauge().value()).isZero();
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void start_shouldReplayDealsNotFlushedBeforeStop() throws Exception {
+        when(dealPersistenceService.saveBatch(anyList())).thenThrow(new IllegalStateException("database down"));
+        DealWriteAheadLog first = start();
+        first.append(buildRequest("FX-1", "10.5"));
+        first.stop();
+        started.remove(first);
+
+        List<String> replayed = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Deal> deals = invocation.getArgument(0);
+            deals.forEach(deal -> replayed.add(deal.getDealUniqueId()));
+            return deals.stream().map(Deal::getDealUniqueId).collect(Collectors.toSet());
+        }).when(dealPersistenceService).saveBatch(anyList());
+        DealWriteAheadLog second = start();
+        assertThatThrownBy(() -> second.append(buildRequest("FX-1", "10.5")))
+                .isInstanceOf(DealAlreadyExistsException.class);
+        second.flush();
+
+        assertThat(replayed).containsExactly("FX-1");
+    }
+
+    @Test
+    void append_shouldRejectDuplicatesWhenAcknowledging() throws Exception {
+        when(duplicateDetector.findExisting(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).contains("FX-stored") ? Set.of("FX-stored") : Set.of());
+        DealWriteAheadLog writeAheadLog = start();
+        writeAheadLog.append(buildRequest("FX-1", "10.5"));
+
+        assertThatThrownBy(() -> writeAheadLog.append(buildRequest("FX-1", "10.5")))
+                .isInstanceOf(DealAlreadyExistsException.class);
+        assertThatThrownBy(() -> writeAheadLog.append(buildRequest("FX-stored", "10.5")))
+                .isInstanceOf(DealAlreadyExistsException.class);
+        verify(dealPersistenceService, never()).saveBatch(anyList());
+    }
+
+    @Test
+    void flush_shouldReportDealsStoredByAnotherWriterSinceAcknowledgement() throws Exception {
+        when(dealPersistenceService.saveBatch(anyList())).thenReturn(Set.of());
+        when(dealPersistenceService.findStored(Set.of("FX-1", "FX-2")))
+                .thenReturn(List.of(storedDeal(7L, "FX-1", "10.5"), storedDeal(8L, "FX-2", "99")));
+        DealWriteAheadLog writeAheadLog = start();
+        writeAheadLog.append(buildRequest("FX-1", "10.50"));
+        writeAheadLog.append(buildRequest("FX-2", "20"));
+
+        writeAheadLog.flush();
+
+        assertThat(Files.readAllLines(directory.resolve("conflicts.csv"))).containsExactly(
+                DealWriteAheadLog.CONFLICTS_HEADER_ROW,
+                "2,FX-2,USD,EUR,2024-11-25T10:15:30Z,20,8");
+        assertThat(meterRegistry.get("deals.wal.conflicts").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void append_shouldTurnDealsAwayWhileTheFlusherIsBehind() throws Exception {
+        when(dealPersistenceService.saveBatch(anyList())).thenThrow(new IllegalStateException("database down"));
+        DealWriteAheadLog writeAheadLog = start(2);
+        writeAheadLog.append(buildRequest("FX-1", "10.5"));
+        writeAheadLog.append(buildRequest("FX-2", "20"));
+        writeAheadLog.flush();
+
+        assertThatThrownBy(() -> writeAheadLog.append(buildRequest("FX-3", "30")))
+                .isInstanceOf(DealLogFullException.class)
+                .extracting("retryAfter").isEqualTo(Duration.ofSeconds(5));
+        assertThat(meterRegistry.get("deals.wal.pending").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void append_shouldCutAFailedWriteFromTheSegmentSoTheLogStillStarts() throws Exception {
+        when(dealPersistenceService.saveBatch(anyList())).thenThrow(new IllegalStateException("database down"));
+        when(dealPersistenceService.save(any(Deal.class))).thenAnswer(invocation -> {
+            Deal deal = invocation.getArgument(0);
+            deal.setId(9L);
+            return deal;
+        });
+        AtomicInteger writes = new AtomicInteger();
+        DealWriteAheadLog first = start(100, file -> new FaultyChannel(
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                () -> writes.incrementAndGet() == 2, false));
+
+        first.append(buildRequest("FX-1", "10.5"));
+        DealResponse storedDirectly = first.append(buildRequest("FX-2", "20"));
+        first.append(buildRequest("FX-3", "30"));
+        first.stop();
+        started.remove(first);
+
+        assertThat(storedDirectly.id()).isEqualTo(9L);
+        List<String> replayed = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Deal> deals = invocation.getArgument(0);
+            deals.forEach(deal -> replayed.add(deal.getDealUniqueId()));
+            return deals.stream().map(Deal::getDealUniqueId).collect(Collectors.toSet());
+        }).when(dealPersistenceService).saveBatch(anyList());
+        DealWriteAheadLog second = start();
+        second.flush();
+
+        assertThat(replayed).containsExactly("FX-1", "FX-3");
+    }
+
+    @Test
+    void append_shouldStoreDealsSynchronouslyOnceTheLogCannotBeSynced() throws Exception {
+        when(dealPersistenceService.save(any(Deal.class))).thenAnswer(invocation -> {
+            Deal deal = invocation.getArgument(0);
+            deal.setId(7L);
+            return deal;
+        });
+        DealWriteAheadLog writeAheadLog = start(100, file -> new FaultyChannel(
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                () -> false, true));
+
+        DealResponse first = writeAheadLog.append(buildRequest("FX-1", "10.5"));
+        DealResponse second = writeAheadLog.append(buildRequest("FX-2", "20"));
+        writeAheadLog.flush();
+
+        assertThat(first.id()).isEqualTo(7L);
+        assertThat(second.id()).isEqualTo(7L);
+        verify(dealPersistenceService, times(2)).save(any(Deal.class));
+        verify(dealPersistenceService, never()).saveBatch(anyList());
+        assertThat(meterRegistry.get("deals.wal.pending").gauge().value()).isZero();
+    }
+
+    private DealWriteAheadLog start() throws Exception {
+        return start(100);
+    }
+
+    private DealWriteAheadLog start(int maxPending) throws Exception {
+        return start(maxPending, file -> FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND));
+    }
+
+    private DealWriteAheadLog start(int maxPending, DealWriteAheadLog.SegmentOpener segmentOpener) throws Exception {
+        DealWriteAheadLog writeAheadLog = new DealWriteAheadLog(
+                new DealWriteAheadLogProperties(true, directory, DataSize.ofBytes(200), 2, maxPending,
+                        Duration.ofMillis(50), Duration.ofSeconds(5)),
+                dealPersistenceService, duplicateDetector, JsonMapper.builder().findAndAddModules().build(),
+                meterRegistry, segmentOpener);
+        writeAheadLog.start();
+        started.add(writeAheadLog);
+        return writeAheadLog;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".wal")).toList();
+        }
+    }
+
+    private static DealRequest buildRequest(String dealId, String amount) {
+        return DealRequest.builder()
+                .dealUniqueId(dealId)
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:15:30Z"))
+                .dealAmount(new BigDecimal(amount))
+                .build();
+    }
+
+    /**
+     * A segment channel that writes only half of a line when {@code failWrite} says so, and optionally fails
+     * every sync.
+     */
+    private static final class FaultyChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        private final BooleanSupplier failWrite;
+        private final boolean failSync;
+
+        private FaultyChannel(FileChannel delegate, BooleanSupplier failWrite, boolean failSync) {
+            this.delegate = delegate;
+            this.failWrite = failWrite;
+            this.failSync = failSync;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failWrite.getAsBoolean()) {
+                int limit = src.limit();
+                src.limit(src.position() + src.remaining() / 2);
+                delegate.write(src);
+                src.limit(limit);
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failSync) {
+                throw new IOException("Input/output error");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static Deal storedDeal(long id, String dealId, String amount) {
+        Deal deal = DealMapper.toEntity(buildRequest(dealId, amount));
+        deal.setId(id);
+        return deal;
+    }
+}
@@ -0,0 +1,62 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bloomberg.clustereddata.config.ImportAdmissionProperties;
+import com.bloomberg.clustereddata.exception.ImportThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ImportAdmissionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void admit_shouldRejectOnceSlotsAndQueueAreFull() {
+        ImportAdmission admission = admission(1, 0, Duration.ZERO);
+
+        try (ImportAdmission.Slot slot = admission.admit()) {
+            assertThat(gauge("deals.import.admission.active")).isEqualTo(1);
+            assertThatThrownBy(admission::admit)
+                    .isInstanceOf(ImportThrottledException.class)
+                    .extracting(exception -> ((ImportThrottledException) exception).getRetryAfter())
+                    .isEqualTo(Duration.ofSeconds(7));
+        }
+
+        assertThat(meterRegistry.get("deals.import.admission.rejected").counter().count()).isEqualTo(1);
+        assertThat(gauge("deals.import.admission.active")).isZero();
+        admission.admit().close();
+    }
+
+    @Test
+    void admit_shouldQueueUntilASlotFreesUp() throws Exception {
+        ImportAdmission admission = admission(1, 1, Duration.ofSeconds(5));
+        ImportAdmission.Slot first = admission.admit();
+
+        CompletableFuture<ImportAdmission.Slot> waiting = CompletableFuture.supplyAsync(admission::admit);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (gauge("deals.import.admission.queued") == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(gauge("deals.import.admission.queued")).isEqualTo(1);
+        assertThatThrownBy(admission::admit).isInstanceOf(ImportThrottledException.class);
+
+        first.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertThat(gauge("deals.import.admission.queued")).isZero();
+    }
+
+    private ImportAdmission admission(int maxConcurrent, int maxQueued, Duration maxWait) {
+        return new ImportAdmission(
+                new ImportAdmissionProperties(maxConcurrent, maxQueued, maxWait, Duration.ofSeconds(7), 2),
+                null, meterRegistry);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
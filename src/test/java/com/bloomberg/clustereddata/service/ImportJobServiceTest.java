@@ -0,0 +1,166 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+import com.bloomberg.clustereddata.config.ImportFailureReportProperties;
+import com.bloomberg.clustereddata.config.ImportJobProperties;
+import com.bloomberg.clustereddata.dto.DealImportFailure;
+import com.bloomberg.clustereddata.dto.DealImportSummary;
+import com.bloomberg.clustereddata.dto.ImportFailureCategory;
+import com.bloomberg.clustereddata.dto.ImportJobResponse;
+import com.bloomberg.clustereddata.dto.ImportJobStatus;
+import com.bloomberg.clustereddata.dto.ImportMode;
+import com.bloomberg.clustereddata.exception.ImportCancelledException;
+import com.bloomberg.clustereddata.exception.ImportJobNotFoundException;
+import com.bloomberg.clustereddata.util.CsvPosition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+@ExtendWith(MockitoExtension.class)
+class ImportJobServiceTest {
+
+    @Mock
+    private DealService dealService;
+
+    @TempDir
+    Path spoolDirectory;
+
+    @TempDir
+    Path reportDirectory;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    private ImportJobService importJobService;
+
+    @BeforeEach
+    void setUp() {
+        importJobService = new ImportJobService(dealService,
+                new ImportJobProperties(1, 1, spoolDirectory, Duration.ofMinutes(5), 1000),
+                new ImportFailureReports(new ImportFailureReportProperties(10, reportDirectory, Duration.ofMinutes(5))),
+                objectMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importJobService.shutdown();
+    }
+
+    @Test
+    void submit_shouldRunImportInBackgroundAndExposeSummary() throws Exception {
+        DealImportSummary summary = DealImportSummary.builder()
+                .totalRows(2)
+                .successfulRows(2)
+                .failedRows(0)
+                .build();
+        when(dealService.importDeals(
+                any(Path.class), eq(ImportMode.BATCH), any(ImportProgress.class), isNull(), eq(1000), any()))
+                .thenReturn(summary);
+
+        ImportJobResponse accepted = importJobService.submit(csvFile(), ImportMode.BATCH);
+
+        ImportJobResponse finished = awaitFinished(accepted.jobId());
+        assertThat(finished.status()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(importJobService.summary(accepted.jobId())).isEqualTo(summary);
+        try (var spooled = Files.list(spoolDirectory)) {
+            assertThat(spooled).isEmpty();
+        }
+    }
+
+    @Test
+    void submit_shouldReportCancelledImports() throws Exception {
+        when(dealService.importDeals(any(Path.class), any(), any(ImportProgress.class), any(), anyInt(), any()))
+                .thenThrow(new ImportCancelledException());
+
+        ImportJobResponse accepted = importJobService.submit(csvFile(), null);
+
+        assertThat(awaitFinished(accepted.jobId()).status()).isEqualTo(ImportJobStatus.CANCELLED);
+    }
+
+    @Test
+    void resumeInterruptedJobs_shouldContinueFromSavedCheckpoint() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        ImportCheckpoint checkpoint = new ImportCheckpoint(new CsvPosition(120, 3), Map.of(0, 41L, 1, 281474976710700L), 1003, UUID.randomUUID(),
+                new ImportCheckpoint.Failures(Map.of(ImportFailureCategory.PARSE, 1L),
+                        List.of(new DealImportFailure(2, ImportFailureCategory.PARSE, "Broken row")), -1));
+        Files.writeString(spoolDirectory.resolve(jobId + ".csv"), "deal_unique_id\nFX-1\n");
+        Files.writeString(spoolDirectory.resolve(jobId + ".json"), """
+                {"id":"%s","fileName":"deals.csv","mode":"ROW","submittedAt":"2024-11-25T10:15:30Z",\
+                "checkpoint":%s}""".formatted(jobId, objectMapper.writeValueAsString(checkpoint)));
+        DealImportSummary summary = DealImportSummary.builder()
+                .totalRows(5)
+                .successfulRows(4)
+                .failedRows(1)
+                .build();
+        when(dealService.importDeals(
+                any(Path.class), eq(ImportMode.ROW), any(ImportProgress.class), eq(checkpoint), eq(1000), any()))
+                .thenReturn(summary);
+
+        importJobService.resumeInterruptedJobs();
+
+        assertThat(awaitFinished(jobId).status()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(importJobService.summary(jobId)).isEqualTo(summary);
+        try (var spooled = Files.list(spoolDirectory)) {
+            assertThat(spooled).isEmpty();
+        }
+    }
+
+    @Test
+    void purgeExpiredJobs_shouldForgetFinishedJobsPastTheirRetention() throws Exception {
+        importJobService.shutdown();
+        importJobService = new ImportJobService(dealService,
+                new ImportJobProperties(1, 1, spoolDirectory, Duration.ZERO, 1000),
+                new ImportFailureReports(new ImportFailureReportProperties(10, reportDirectory, Duration.ofMinutes(5))),
+                objectMapper);
+        when(dealService.importDeals(any(Path.class), any(), any(ImportProgress.class), any(), anyInt(), any()))
+                .thenReturn(DealImportSummary.builder().totalRows(1).successfulRows(1).failedRows(0).build());
+        UUID jobId = importJobService.submit(csvFile(), null).jobId();
+        awaitFinished(jobId);
+        Thread.sleep(5);
+
+        importJobService.purgeExpiredJobs();
+
+        assertThatThrownBy(() -> importJobService.status(jobId)).isInstanceOf(ImportJobNotFoundException.class);
+    }
+
+    @Test
+    void status_shouldRejectUnknownJob() {
+        assertThatThrownBy(() -> importJobService.status(UUID.randomUUID()))
+                .isInstanceOf(ImportJobNotFoundException.class);
+    }
+
+    private MockMultipartFile csvFile() {
+        return new MockMultipartFile("file", "deals.csv", "text/csv",
+                "deal_unique_id\nFX-1\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ImportJobResponse awaitFinished(UUID jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        ImportJobResponse response = importJobService.status(jobId);
+        while (!response.status().isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            response = importJobService.status(jobId);
+        }
+        return response;
+    }
+}
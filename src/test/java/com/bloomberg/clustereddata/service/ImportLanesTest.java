@@ -0,0 +1,66 @@
+package com.bloomberg.clustereddata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.util.DealCsvRow;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class ImportLanesTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @Timeout(10)
+    void finish_shouldCompleteConcurrentImportsThatShareFewerThreadsThanLanes() {
+        List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> second = Collections.synchronizedList(new ArrayList<>());
+        try (ImportLanes firstLanes = new ImportLanes(3, 1, chunk -> first.add(chunk.get(0).rowNumber()), executor);
+             ImportLanes secondLanes = new ImportLanes(3, 1, chunk -> second.add(chunk.get(0).rowNumber()), executor)) {
+            for (int rowNumber = 1; rowNumber <= 30; rowNumber++) {
+                firstLanes.add(row(rowNumber, "FX-" + rowNumber % 5));
+                secondLanes.add(row(rowNumber, "FX-" + rowNumber % 7));
+            }
+            firstLanes.finish();
+            secondLanes.finish();
+        }
+
+        assertThat(first).hasSize(30);
+        assertThat(second).hasSize(30);
+        for (int id = 0; id < 5; id++) {
+            String dealUniqueId = "FX-" + id;
+            assertThat(first.stream().filter(rowNumber -> ("FX-" + rowNumber % 5).equals(dealUniqueId)).toList())
+                    .as("rows of %s in processing order", dealUniqueId)
+                    .isSorted();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void finish_shouldSurfaceTheFailureOfALane() {
+        try (ImportLanes lanes = new ImportLanes(2, 1, chunk -> {
+            throw new IllegalStateException("Lane failed");
+        }, executor)) {
+            lanes.add(row(1, "FX-1"));
+
+            assertThatThrownBy(lanes::finish).isInstanceOf(IllegalStateException.class).hasMessage("Lane failed");
+        }
+    }
+
+    private static DealCsvRow row(int rowNumber, String dealUniqueId) {
+        return new DealCsvRow(rowNumber, DealRequest.builder().dealUniqueId(dealUniqueId).build(), null);
+    }
+}
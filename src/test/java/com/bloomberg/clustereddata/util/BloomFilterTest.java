@@ -0,0 +1,29 @@
+package com.bloomberg.clustereddata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_shouldNeverMissInsertedValues() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("FX-" + i));
+
+        assertThat(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("FX-" + i))).isTrue();
+    }
+
+    @Test
+    void mightContain_shouldStayNearConfiguredFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("FX-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("OTHER-" + i))
+                .count();
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+}
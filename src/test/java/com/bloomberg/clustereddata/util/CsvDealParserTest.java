@@ -0,0 +1,163 @@
+package com.bloomberg.clustereddata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bloomberg.clustereddata.exception.InvalidCsvException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Side-by-side equivalence of {@link CsvDealParser} and the commons-csv parser it replaced.
+ */
+class CsvDealParserTest {
+
+    private static final String HEADER = "deal_unique_id,from_currency_iso,to_currency_iso,deal_timestamp,deal_amount";
+
+    private static final String[] IDS = {"FX-1", " FX-2 ", "", "   ", "\"FX,3\"", "\"FX \"\"4\"\"\"", "FX-é"};
+    private static final String[] CURRENCIES = {"USD", "EUR", " jpy ", "", "US", "\"GBP\"", "USDX"};
+    private static final String[] TIMESTAMPS = {
+        "2024-11-25T10:15:30Z", "2024-02-29T23:59:59.123Z", "2023-02-29T10:00:00Z", "2024-11-25T10:15:30.123456789Z",
+        "2024-11-25t10:15:30z", "2024-11-25T10:15:30+01:00", "2024-11-25T24:00:00Z", "2024-11-25T10:15Z",
+        "2024-13-01T00:00:00Z", "1970-01-01T00:00:00Z", "0001-01-01T00:00:00Z", "2016-12-31T23:59:60Z",
+        "2024-11-25T10:15:30.Z", "2024-11-25 10:15:30Z", "yesterday", ""
+    };
+    private static final String[] AMOUNTS = {
+        "1250000.45", "0.01", "-5", "+7.50", "1.", ".5", "0000012", "1e3", "12,5", "abc", "", "-0.00",
+        "123456789012345678", "1234567890123456789.5", "١٢", "  42.4200  "
+    };
+
+    private final CsvDealParser parser = new CsvDealParser();
+    private final CommonsCsvDealParser reference = new CommonsCsvDealParser();
+
+    @Test
+    void stream_shouldMatchReferenceParserOnSampleFile() {
+        String csv = HEADER + "\n"
+                + "FX-2024-0001,USD,EUR,2024-11-25T10:15:30Z,1250000.45\r\n"
+                + "\n"
+                + "FX-2024-0002 , EUR ,JPY,2024-11-25T11:20:00Z, 250000.00\r"
+                + "\"FX-2024-0003\",GBP,USD,2024-11-25T12:30:45Z,76000.99\n"
+                + "FX-2024-0004,GBP\n"
+                + "FX-2024-0005,GBP,USD,2024-11-25T12:30:45Z,76000.99,extra";
+
+        assertEquivalent(csv);
+    }
+
+    @Test
+    void stream_shouldResolveColumnsByHeaderNameInAnyOrderAndCase() {
+        String csv = "Deal_Amount, DEAL_TIMESTAMP ,to_currency_iso,from_currency_iso,deal_unique_id,notes\n"
+                + "10.5,2024-11-25T10:15:30Z,EUR,USD,FX-1,first\n"
+                + "11.5,2024-11-25T10:15:31Z,EUR,USD,,second\n";
+
+        assertEquivalent(csv);
+    }
+
+    @Test
+    void stream_shouldMatchReferenceParserOnRandomisedRows() {
+        Random random = new Random(20241125);
+        for (int file = 0; file < 200; file++) {
+            StringBuilder csv = new StringBuilder(HEADER).append('\n');
+            int rows = 1 + random.nextInt(40);
+            for (int row = 0; row < rows; row++) {
+                int columns = random.nextInt(10) == 0 ? random.nextInt(5) : 5;
+                String[] values = {
+                    pick(random, IDS), pick(random, CURRENCIES), pick(random, CURRENCIES),
+                    pick(random, TIMESTAMPS), pick(random, AMOUNTS)
+                };
+                csv.append(String.join(",", List.of(values).subList(0, Math.max(1, columns))));
+                csv.append(pick(random, new String[] {"\n", "\r\n", "\r", "\n\n"}));
+            }
+            assertEquivalent(csv.toString());
+        }
+    }
+
+    @Test
+    void stream_shouldRejectMissingHeaders() {
+        assertThatThrownBy(() -> parse("deal_unique_id,from_currency_iso\nFX-1,USD\n"))
+                .isInstanceOf(InvalidCsvException.class)
+                .hasMessageContaining("must contain headers");
+    }
+
+    @Test
+    void stream_shouldKeepTheHeaderFailureWhenClosingTheUploadFails() {
+        byte[] csv = "deal_unique_id,from_currency_iso\nFX-1,USD\n".getBytes(StandardCharsets.UTF_8);
+        MockMultipartFile file = new MockMultipartFile("file", "deals.csv", "text/csv", csv) {
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(csv) {
+                    @Override
+                    public void close() throws IOException {
+                        throw new IOException("close failed");
+                    }
+                };
+            }
+        };
+
+        assertThatThrownBy(() -> parser.stream(file))
+                .isInstanceOf(InvalidCsvException.class)
+                .hasMessageContaining("must contain headers")
+                .satisfies(failure -> assertThat(failure.getSuppressed()).singleElement()
+                        .extracting(Throwable::getMessage).isEqualTo("close failed"));
+    }
+
+    @Test
+    void stream_shouldFailOnUnterminatedQuote() {
+        String csv = HEADER + "\n\"FX-1,USD,EUR,2024-11-25T10:15:30Z,10\n";
+
+        assertThatThrownBy(() -> parse(csv)).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void open_shouldResumeFromThePositionAfterAnyRow(@TempDir Path directory) throws Exception {
+        String csv = HEADER + "\r\n"
+                + "FX-\u00e9,USD,EUR,2024-11-25T10:15:30Z,10\r\n"
+                + "\"FX\n2\",USD,EUR,2024-11-25T10:15:30Z,20\r"
+                + "\r\n"
+                + "FX-\u0663,GBP,USD,2024-11-25T10:15:30Z,30\n"
+                + "FX-\uD83D\uDE00,GBP,USD,2024-11-25T10:15:30Z,40";
+        Path file = directory.resolve("deals.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        List<DealCsvRow> all = parse(csv);
+        List<CsvPosition> positions = new ArrayList<>();
+        CsvDealParser.Cursor cursor = parser.open(file, CsvPosition.START);
+        try (Stream<DealCsvRow> rows = cursor.rows()) {
+            rows.forEach(row -> positions.add(cursor.position()));
+        }
+
+        assertThat(positions).extracting(CsvPosition::rowNumber).containsExactly(1, 2, 3, 4);
+        for (CsvPosition position : positions) {
+            try (Stream<DealCsvRow> rows = parser.open(file, position).rows()) {
+                assertThat(rows.toList()).as("from %s", position)
+                        .isEqualTo(all.subList(position.rowNumber(), all.size()));
+            }
+        }
+    }
+
+    private void assertEquivalent(String csv) {
+        assertThat(parse(csv)).as(csv).isEqualTo(reference.parse(csv));
+    }
+
+    private List<DealCsvRow> parse(String csv) {
+        MockMultipartFile file =
+                new MockMultipartFile("file", "deals.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        try (Stream<DealCsvRow> rows = parser.stream(file)) {
+            return rows.toList();
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
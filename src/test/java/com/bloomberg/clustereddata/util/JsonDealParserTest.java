@@ -0,0 +1,85 @@
+package com.bloomberg.clustereddata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bloomberg.clustereddata.dto.DealRequest;
+import com.bloomberg.clustereddata.exception.InvalidDealBatchException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class JsonDealParserTest {
+
+    private static final String DEAL = """
+            {"dealUniqueId":"FX-%d","fromCurrencyIso":"USD","toCurrencyIso":"EUR",\
+            "dealTimestamp":"2024-11-25T10:15:30Z","dealAmount":%s}""";
+
+    private final JsonDealParser parser = new JsonDealParser(new ObjectMapper());
+
+    @Test
+    void stream_shouldReadJsonArrayAndNdjsonAlike() {
+        String array = "[" + DEAL.formatted(1, "10.5") + ",\n" + DEAL.formatted(2, "\"1250000.45\"") + "]";
+        String ndjson = DEAL.formatted(1, "10.5") + "\n" + DEAL.formatted(2, "\"1250000.45\"") + "\n";
+
+        List<DealCsvRow> fromArray = parse(array);
+
+        assertThat(fromArray).isEqualTo(parse(ndjson));
+        assertThat(fromArray).extracting(DealCsvRow::rowNumber).containsExactly(1, 2);
+        assertThat(fromArray.get(1).dealRequest()).isEqualTo(DealRequest.builder()
+                .dealUniqueId("FX-2")
+                .fromCurrencyIso("USD")
+                .toCurrencyIso("EUR")
+                .dealTimestamp(Instant.parse("2024-11-25T10:15:30Z"))
+                .dealAmount(new BigDecimal("1250000.45"))
+                .build());
+    }
+
+    @Test
+    void stream_shouldReportItemErrorsAndKeepReading() {
+        String ndjson = """
+                {"dealUniqueId":{"nested":[1,2]},"dealAmount":1}
+                {"dealUniqueId":"FX-2","dealTimestamp":"yesterday"}
+                "FX-3"
+                {"dealUniqueId":"FX-4","fromCurrencyIso":null,"notes":{"ignored":true},"dealAmount":1e2}
+                """;
+
+        List<DealCsvRow> rows = parse(ndjson);
+
+        assertThat(rows).extracting(DealCsvRow::errorMessage).containsExactly(
+                "'dealUniqueId' must be a string",
+                "'dealTimestamp' is not a valid timestamp: Text 'yesterday' could not be parsed at index 0",
+                "Item must be a JSON object",
+                null);
+        assertThat(rows.get(3).dealRequest().getFromCurrencyIso()).isNull();
+        assertThat(rows.get(3).dealRequest().getDealAmount()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    void stream_shouldAcceptEmptyBodies() {
+        assertThat(parse("")).isEmpty();
+        assertThat(parse(" [ ] ")).isEmpty();
+    }
+
+    @Test
+    void stream_shouldFailOnMalformedJson() {
+        assertThatThrownBy(() -> parse(DEAL.formatted(1, "1") + "\n{\"dealUniqueId\":"))
+                .isInstanceOf(InvalidDealBatchException.class)
+                .hasMessageStartingWith("Malformed JSON at item 2");
+        assertThatThrownBy(() -> parse("[" + DEAL.formatted(1, "1") + "] {}"))
+                .isInstanceOf(InvalidDealBatchException.class)
+                .hasMessage("Unexpected content after the JSON array.");
+    }
+
+    private List<DealCsvRow> parse(String json) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        try (Stream<DealCsvRow> rows = parser.stream(new ByteArrayInputStream(body))) {
+            return rows.toList();
+        }
+    }
+}
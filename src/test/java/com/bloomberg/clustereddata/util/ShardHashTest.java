@@ -0,0 +1,38 @@
+package com.bloomberg.clustereddata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ShardHashTest {
+
+    @Test
+    void shardOf_shouldSpreadIdsEvenly() {
+        int[] counts = new int[4];
+        IntStream.range(0, 100_000).forEach(i -> counts[ShardHash.shardOf("FX-" + i, 4)]++);
+
+        assertThat(IntStream.of(counts).allMatch(count -> count > 23_000 && count < 27_000)).isTrue();
+    }
+
+    @Test
+    void shardOf_shouldOnlyMoveIdsToTheAddedShard() {
+        long moved = IntStream.range(0, 100_000)
+                .filter(i -> {
+                    int before = ShardHash.shardOf("FX-" + i, 3);
+                    int after = ShardHash.shardOf("FX-" + i, 4);
+                    assertThat(after).isIn(before, 3);
+                    return after != before;
+                })
+                .count();
+
+        assertThat(moved).isBetween(23_000L, 27_000L);
+    }
+
+    @Test
+    void shardOf_shouldKeepEverythingOnOneShard() {
+        assertThat(IntStream.range(0, 1_000).allMatch(i -> ShardHash.shardOf("FX-" + i, 1) == 0)).isTrue();
+        assertThatThrownBy(() -> ShardHash.shardOf("FX-1", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,111 @@
+package com.bloomberg.clustereddata.validation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bloomberg.clustereddata.dto.DealRequest;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link DealRequestValidator} against Bean Validation of the annotations on {@link DealRequest}.
+ */
+class DealRequestValidatorTest {
+
+    private static final String[] IDS = {"FX-1", "", "   ", "\t", null, "x".repeat(64), "x".repeat(65), " FX-2 "};
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "usd", "ABC", "US", "USDX", "", " ", null, "XAU"};
+    private static final Instant[] TIMESTAMPS = {Instant.parse("2024-11-25T10:15:30Z"), null};
+    private static final BigDecimal[] AMOUNTS = {
+        new BigDecimal("100.50"), new BigDecimal("0.01"), BigDecimal.ZERO, new BigDecimal("0.00"),
+        new BigDecimal("-1"), new BigDecimal("1E-20"), null
+    };
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator beanValidator;
+
+    private final DealRequestValidator validator = new DealRequestValidator();
+
+    @BeforeAll
+    static void setUpValidator() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        beanValidator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void validate_shouldAcceptValidRequest() {
+        DealRequest request = request("FX-1", "USD", "EUR", TIMESTAMPS[0], new BigDecimal("100.50"));
+
+        assertThat(validator.validate(request)).isNull();
+    }
+
+    @Test
+    void validate_shouldReportViolationsInFieldOrder() {
+        DealRequest request = request("", "USD", "ABC", null, BigDecimal.ZERO);
+
+        assertThat(validator.validate(request)).isEqualTo(
+                "dealUniqueId must not be blank; toCurrencyIso must be a valid ISO 4217 currency code; "
+                        + "dealTimestamp must not be null; dealAmount must be greater than 0.00");
+    }
+
+    @Test
+    void validate_shouldMatchBeanValidation() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            DealRequest request = request(pick(random, IDS), pick(random, CURRENCIES), pick(random, CURRENCIES),
+                    pick(random, TIMESTAMPS), pick(random, AMOUNTS));
+
+            Set<String> expected = beanValidator.validate(request).stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .collect(Collectors.toSet());
+            String actual = validator.validate(request);
+
+            if (expected.isEmpty()) {
+                assertThat(actual).as(request.toString()).isNull();
+            } else {
+                assertThat(Arrays.asList(actual.split("; "))).as(request.toString())
+                        .containsExactlyInAnyOrderElementsOf(expected);
+            }
+        }
+    }
+
+    @Test
+    void validate_shouldTreatTheSameCharactersAsBlankAsBeanValidation() {
+        for (char c = Character.MIN_VALUE; c < Character.MAX_VALUE; c++) {
+            String id = " " + c + "\t";
+            DealRequest request = request(id, "USD", "EUR", TIMESTAMPS[0], BigDecimal.ONE);
+
+            boolean expected = !beanValidator.validateProperty(request, "dealUniqueId").isEmpty();
+            String actual = validator.validate(request);
+
+            assertThat(actual != null).as("U+%04X", (int) c).isEqualTo(expected);
+        }
+    }
+
+    private static DealRequest request(String id, String from, String to, Instant timestamp, BigDecimal amount) {
+        return DealRequest.builder()
+                .dealUniqueId(id)
+                .fromCurrencyIso(from)
+                .toCurrencyIso(to)
+                .dealTimestamp(timestamp)
+                .dealAmount(amount)
+                .build();
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}